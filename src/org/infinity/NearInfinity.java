@@ -97,6 +97,7 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.key.ResourceIndexSnapshot;
 import org.infinity.resource.key.ResourceTreeModel;
 import org.infinity.resource.text.PlainTextResource;
 import org.infinity.search.SearchFrame;
@@ -1044,6 +1045,9 @@ private static void clearCache(boolean refreshOnly)
     }
     if (refreshOnly == false) {
       CharsetDetector.clearCache();
+    } else if (Profile.getGameRoot() != null) {
+      // enforce a full rescan of key files and override folders
+      ResourceIndexSnapshot.invalidate(Profile.getGameRoot());
     }
     DlcManager.close();
     FileManager.reset();
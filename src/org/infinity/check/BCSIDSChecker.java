@@ -191,7 +191,6 @@ protected Runnable newWorker(ResourceEntry entry)
           e.printStackTrace();
         }
       }
-      advanceProgress();
     };
   }
 
@@ -192,7 +192,6 @@ protected Runnable newWorker(ResourceEntry entry)
           e.printStackTrace();
         }
       }
-      advanceProgress();
     };
   }
 
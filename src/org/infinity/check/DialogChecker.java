@@ -258,7 +258,6 @@ protected Runnable newWorker(ResourceEntry entry)
           e.printStackTrace();
         }
       }
-      advanceProgress();
     };
   }
 
@@ -49,7 +49,6 @@ protected Runnable newWorker(ResourceEntry entry)
       if (resource instanceof AbstractStruct) {
         search(entry, (AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
@@ -47,7 +47,6 @@ protected Runnable newWorker(ResourceEntry entry)
       if (resource instanceof AbstractStruct) {
         search(entry, (AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
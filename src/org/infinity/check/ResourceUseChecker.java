@@ -13,8 +13,11 @@
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,9 +47,9 @@
 import org.infinity.resource.Resource;
 import org.infinity.resource.ResourceFactory;
 import org.infinity.resource.StructEntry;
+import org.infinity.resource.bcs.BcsReferenceExtractor;
 import org.infinity.resource.bcs.BcsResource;
 import org.infinity.resource.bcs.Compiler;
-import org.infinity.resource.bcs.Decompiler;
 import org.infinity.resource.bcs.ScriptType;
 import org.infinity.resource.dlg.AbstractCode;
 import org.infinity.resource.dlg.Action;
@@ -56,6 +59,8 @@
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.text.PlainTextResource;
 import org.infinity.search.AbstractSearcher;
+import org.infinity.search.ReferenceCollector;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.util.Misc;
 import org.infinity.util.StringTable;
 
@@ -72,6 +77,8 @@ public final class ResourceUseChecker extends AbstractSearcher implements Runnab
   private final JButton bcancel = new JButton("Cancel", Icons.getIcon(Icons.ICON_DELETE_16));
   private final JRadioButton[] typeButtons = new JRadioButton[CHECKTYPES.length];
   private final List<ResourceEntry> unusedResources = new ArrayList<>();
+  /** Resources referenced by the searched files, collected concurrently by the workers. */
+  private ReferenceCollector references;
   private ChildFrame resultFrame;
   private JButton bopen, bopennew, bsave;
   /** List of the {@link UnusedFileTableItem} objects. */
@@ -180,8 +187,19 @@ public void run()
       }
 
       unusedResources.addAll(ResourceFactory.getResources(checkType));
-      if (runSearch("Searching", files)) {
-        return;
+      final ReferenceIndex index = ReferenceIndex.getInstance();
+      if (index != null) {
+        if (!index.update()) {
+          return;
+        }
+        removeIndexedEntries(index);
+      } else {
+        references = new ReferenceCollector(0);
+        if (runSearch("Searching", files)) {
+          return;
+        }
+        unusedResources.removeIf(entry -> references.isResourceReferenced(entry.getResourceName()));
+        references = null;
       }
 
       if (unusedResources.isEmpty()) {
@@ -269,10 +287,32 @@ protected Runnable newWorker(ResourceEntry entry)
       } else if (resource instanceof AbstractStruct) {
         checkStruct((AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
+  /**
+   * Removes from {@link #unusedResources} all resources which are referenced according to the
+   * specified reference index.
+   *
+   * @param index Up to date reference index
+   */
+  private void removeIndexedEntries(ReferenceIndex index)
+  {
+    final Set<String> sounds = new HashSet<>();
+    if (checkType.equalsIgnoreCase("WAV")) {
+      final BitSet strrefs = index.getStringRefs(FILETYPES, true);
+      final int numEntries = StringTable.getNumEntries();
+      for (int i = strrefs.nextSetBit(0); i >= 0 && i < numEntries; i = strrefs.nextSetBit(i + 1)) {
+        final String wav = StringTable.getSoundResource(i);
+        if (!wav.isEmpty()) {
+          sounds.add((wav + ".WAV").toUpperCase(Locale.ENGLISH));
+        }
+      }
+    }
+    unusedResources.removeIf(entry -> index.isReferenced(entry, FILETYPES) ||
+                                      sounds.contains(entry.getResourceName().toUpperCase(Locale.ENGLISH)));
+  }
+
   private void checkDialog(DlgResource dialog)
   {
     for (final StructEntry entry : dialog.getFields()) {
@@ -326,12 +366,12 @@ private void checkTextfile(PlainTextResource text)
   {
     final Matcher m = RESREFPATTERN.matcher(text.getText());
     while (m.find()) {
-      removeEntries(m.group() + '.' + checkType);
+      references.addResource(m.group() + '.' + checkType);
     }
   }
 
   /**
-   * Removes from {@link #unusedResources} all resources to which the script code refers.
+   * Registers all resources to which the script code refers.
    * <p>
    * This method can be called from several threads
    *
@@ -342,22 +382,17 @@ private void checkTextfile(PlainTextResource text)
    */
   private void checkCode(String compiledCode, ScriptType type) throws Exception
   {
-    final Decompiler decompiler = new Decompiler(compiledCode, type, true);
-    decompiler.setGenerateComments(false);
-    decompiler.setGenerateResourcesUsed(true);
-    decompiler.decompile();
-
-    synchronized (unusedResources) {
-      for (final ResourceEntry entry : decompiler.getResourcesUsed()) {
-        unusedResources.remove(entry);
-      }
+    final Set<ResourceEntry> resourcesUsed = BcsReferenceExtractor.getResourcesUsed(compiledCode, type);
+
+    for (final ResourceEntry entry : resourcesUsed) {
+      references.addResource(entry.getResourceName());
     }
   }
 
   /**
    * If type (a.k.a. extension) of the resource equals to the {@link #checkType
-   * type of checking resources}, removes specified resource name from
-   * {@link #unusedResources}, otherwise do nothing.
+   * type of checking resources}, registers the specified resource name as used,
+   * otherwise do nothing.
    * <p>
    * This method can be called from several threads
    *
@@ -366,13 +401,13 @@ private void checkCode(String compiledCode, ScriptType type) throws Exception
   private void checkResourceRef(ResourceRef ref)
   {
     if (checkType.equalsIgnoreCase(ref.getType())) {
-      removeEntries(ref.getResourceName());
+      references.addResource(ref.getResourceName());
     }
   }
 
   /**
-   * If string reference has the associated sound, removes this sound from
-   * {@link #unusedResources}, otherwise do nothing.
+   * If string reference has the associated sound, registers this sound as used,
+   * otherwise do nothing.
    * <p>
    * This method can be called from several threads
    *
@@ -384,26 +419,7 @@ private void checkSound(StringRef ref)
     if (index >= 0) {
       final String wav = StringTable.getSoundResource(index);
       if (!wav.isEmpty()) {
-        removeEntries(wav + ".WAV");
-      }
-    }
-  }
-
-  /**
-   * Removes from {@link #unusedResources} all entries that name equals {@code name}.
-   * <p>
-   * This method can be called from several threads
-   *
-   * @param name Resource name that must be erased from unused list
-   */
-  private void removeEntries(String name)
-  {
-    synchronized (unusedResources) {
-      for (final Iterator<ResourceEntry> it = unusedResources.iterator(); it.hasNext();) {
-        if (it.next().getResourceName().equalsIgnoreCase(name)) {
-          it.remove();
-          break;
-        }
+        references.addResource(wav + ".WAV");
       }
     }
   }
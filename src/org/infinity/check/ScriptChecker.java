@@ -251,7 +251,6 @@ protected Runnable newWorker(ResourceEntry entry)
           e.printStackTrace();
         }
       }
-      advanceProgress();
     };
   }
 
@@ -9,6 +9,8 @@
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 import javax.swing.BorderFactory;
@@ -38,9 +40,9 @@
 import org.infinity.resource.Resource;
 import org.infinity.resource.ResourceFactory;
 import org.infinity.resource.StructEntry;
+import org.infinity.resource.bcs.BcsReferenceExtractor;
 import org.infinity.resource.bcs.BcsResource;
 import org.infinity.resource.bcs.Compiler;
-import org.infinity.resource.bcs.Decompiler;
 import org.infinity.resource.bcs.ScriptType;
 import org.infinity.resource.dlg.AbstractCode;
 import org.infinity.resource.dlg.Action;
@@ -48,6 +50,8 @@
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.text.PlainTextResource;
 import org.infinity.search.AbstractSearcher;
+import org.infinity.search.ReferenceCollector;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.search.SearchClient;
 import org.infinity.search.SearchMaster;
 import org.infinity.search.StringReferenceSearcher;
@@ -61,6 +65,8 @@ public final class StringUseChecker extends AbstractSearcher implements Runnable
   /** List of the {@link UnusedStringTableItem} objects. */
   private SortableTable table;
   private boolean[] strUsed;
+  /** Strings referenced by the searched files, collected concurrently by the workers. */
+  private ReferenceCollector references;
   private JMenuItem save;
 
   public StringUseChecker(Component parent)
@@ -104,8 +110,25 @@ public void run()
       if (Profile.getGame() == Profile.Game.PST || Profile.getGame() == Profile.Game.PSTEE) {
         Bestiary.markUsedStrings(strUsed);
       }
-      if (runSearch("Searching", files)) {
-        return;
+      final ReferenceIndex index = ReferenceIndex.getInstance();
+      if (index != null) {
+        if (!index.update()) {
+          return;
+        }
+        final BitSet strrefs = index.getStringRefs(StringReferenceSearcher.FILE_TYPES, false);
+        for (int i = strrefs.nextSetBit(0); i >= 0 && i < strUsed.length; i = strrefs.nextSetBit(i + 1)) {
+          strUsed[i] = true;
+        }
+      } else {
+        references = new ReferenceCollector(strUsed.length);
+        if (runSearch("Searching", files)) {
+          return;
+        }
+        final BitSet strrefs = references.getStringRefs();
+        for (int i = strrefs.nextSetBit(0); i >= 0 && i < strUsed.length; i = strrefs.nextSetBit(i + 1)) {
+          strUsed[i] = true;
+        }
+        references = null;
       }
 
       table = new SortableTable(new String[]{"String", "StrRef"},
@@ -178,7 +201,6 @@ protected Runnable newWorker(ResourceEntry entry)
       } else if (resource instanceof AbstractStruct) {
         checkStruct((AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
@@ -256,10 +278,8 @@ private void checkTextfile(PlainTextResource text)
     final Matcher m = StringReferenceSearcher.NUMBER_PATTERN.matcher(text.getText());
     while (m.find()) {
       final long nr = Long.parseLong(m.group());
-      if (nr >= 0 && nr < strUsed.length) {
-        synchronized (strUsed) {
-          strUsed[(int)nr] = true;
-        }
+      if (nr >= 0 && nr <= Integer.MAX_VALUE) {
+        references.addStringRef((int)nr);
       }
     }
   }
@@ -277,18 +297,10 @@ private void checkTextfile(PlainTextResource text)
    */
   private void checkCode(String compiledCode, ScriptType type) throws Exception
   {
-    final Decompiler decompiler = new Decompiler(compiledCode, type, true);
-    decompiler.setGenerateComments(false);
-    decompiler.setGenerateResourcesUsed(true);
-    decompiler.decompile();
-
-    synchronized (strUsed) {
-      for (final Integer stringRef : decompiler.getStringRefsUsed()) {
-        final int index = stringRef.intValue();
-        if (index >= 0 && index < strUsed.length) {
-          strUsed[index] = true;
-        }
-      }
+    final Set<Integer> stringRefsUsed = BcsReferenceExtractor.getStringRefsUsed(compiledCode, type);
+
+    for (final Integer stringRef : stringRefsUsed) {
+      references.addStringRef(stringRef.intValue());
     }
   }
 
@@ -301,12 +313,7 @@ private void checkCode(String compiledCode, ScriptType type) throws Exception
    */
   private void checkStringRef(StringRef ref)
   {
-    final int index = ref.getValue();
-    if (index >= 0 && index < strUsed.length) {
-      synchronized (strUsed) {
-        strUsed[index] = true;
-      }
-    }
+    references.addStringRef(ref.getValue());
   }
 
 // -------------------------- INNER CLASSES --------------------------
@@ -36,6 +36,7 @@
 import org.infinity.resource.StructEntry;
 import org.infinity.resource.TextResource;
 import org.infinity.resource.are.AutomapNote;
+import org.infinity.resource.bcs.BcsReferenceExtractor;
 import org.infinity.resource.bcs.BcsResource;
 import org.infinity.resource.bcs.Compiler;
 import org.infinity.resource.bcs.Decompiler;
@@ -194,7 +195,6 @@ protected Runnable newWorker(ResourceEntry entry)
       } else if (resource instanceof AbstractStruct) {
         checkStruct((AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
@@ -214,11 +214,7 @@ private void checkDialog(DlgResource dialog)
           final ScriptType type = code instanceof Action ? ScriptType.ACTION : ScriptType.TRIGGER;
           final Compiler compiler = new Compiler(code.getText(), type);
 
-          final Decompiler decompiler = new Decompiler(compiler.getCode(), type, true);
-          decompiler.setGenerateComments(false);
-          decompiler.setGenerateResourcesUsed(true);
-          decompiler.decompile();
-          for (final Integer stringRef : decompiler.getStringRefsUsed()) {
+          for (final Integer stringRef : BcsReferenceExtractor.getStringRefsUsed(compiler.getCode(), type)) {
             final int strref = stringRef.intValue();
             if (strref < -1 || strref >= strrefCount) {
               synchronized (table) {
@@ -237,10 +233,9 @@ private void checkScript(BcsResource script)
   {
     final Decompiler decompiler = new Decompiler(script.getCode(), true);
     decompiler.setGenerateComments(false);
-    decompiler.setGenerateResourcesUsed(true);
     try {
-      decompiler.decompile();
-      for (final Integer stringRef : decompiler.getStringRefsUsed()) {
+      // script source is only needed to locate invalid references
+      for (final Integer stringRef : BcsReferenceExtractor.getStringRefsUsed(script.getCode(), ScriptType.BCS)) {
         final int strref = stringRef.intValue();
         if (strref < -1 || strref >= strrefCount) {
           // XXX: search routine may produce false positives
@@ -198,7 +198,6 @@ protected Runnable newWorker(ResourceEntry entry)
       if (resource instanceof AbstractStruct) {
         search(entry, (AbstractStruct)resource);
       }
-      advanceProgress();
     };
   }
 
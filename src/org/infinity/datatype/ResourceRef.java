@@ -143,7 +143,7 @@ public void mouseClicked(MouseEvent event)
 
     ResourceEntry entry = null;
     for (int i = 0; i < types.length && entry == null; i++) {
-      entry = ResourceFactory.getResourceEntry(resname + '.' + types[i], true);
+      entry = ResourceFactory.getResourceEntry(resname, types[i], true);
     }
     if (entry != null) {
       for (ResourceRefEntry e : values) {
@@ -281,7 +281,7 @@ public int read(ByteBuffer buffer, int offset)
     // determine the correct file extension
     if (!resname.equals(NONE.name)) { //FIXME: use null instead of NONE.name
       for (final String type : types) {
-        if (null != ResourceFactory.getResourceEntry(resname + '.' + type, true)) {
+        if (null != ResourceFactory.getResourceEntry(resname, type, true)) {
           this.type = type;
           break;
         }
@@ -10,6 +10,7 @@
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Frame;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -85,10 +86,13 @@
 import org.infinity.resource.Viewable;
 import org.infinity.resource.ViewableContainer;
 import org.infinity.resource.cre.browser.CreatureBrowser;
+import org.infinity.resource.key.AbstractBIFFReader;
+import org.infinity.resource.key.BIFCache;
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.Keyfile;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.search.DialogSearcher;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.search.SearchFrame;
 import org.infinity.search.SearchResource;
 import org.infinity.search.TextResourceSearcher;
@@ -113,8 +117,12 @@ public final class BrowserMenuBar extends JMenuBar implements KeyEventDispatcher
   public static final LookAndFeelInfo DEFAULT_LOOKFEEL =
       new LookAndFeelInfo("Metal", "javax.swing.plaf.metal.MetalLookAndFeel");
 
-  /** Defines platform-specific shortcut key (e.g. Ctrl on Win/Linux, Meta on Mac). */
-  private static final int CTRL_MASK = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+  /**
+   * Defines platform-specific shortcut key (e.g. Ctrl on Win/Linux, Meta on Mac).
+   * Falls back to Ctrl without a graphics environment, where no menu is created.
+   */
+  private static final int CTRL_MASK = GraphicsEnvironment.isHeadless() ?
+      InputEvent.CTRL_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
 
   /** Name of the child node in the GUI preferences path. */
   private static final String PREFS_PROFILES_NODE = "Profiles";
@@ -384,6 +392,18 @@ public boolean cacheOverride()
     return optionsMenu.optionCacheOverride.isSelected();
   }
 
+  /** Returns whether searches and checks make use of the persistent reference index. */
+  public boolean useReferenceIndex()
+  {
+    return optionsMenu.optionReferenceIndex.isSelected();
+  }
+
+  /** Returns whether decompressed BIF archives are cached on disk. */
+  public boolean cacheDecompressedBifs()
+  {
+    return optionsMenu.optionCacheBifs.isSelected();
+  }
+
   public void gameLoaded(Profile.Game oldGame, String oldFile)
   {
     gameMenu.gameLoaded(oldGame, oldFile);
@@ -688,10 +708,15 @@ public boolean dispatchKeyEvent(KeyEvent e)
    * <li>Class and name of current {@link Viewable}, if such exist</li>
    * <li>Name of current resource, if viewable is {@link Resource}</li>
    * <li>Class and name of current field if viewable has opened editor</li>
+   * <li>Usage statistics of the BIFF reader cache</li>
    * </ol>
    */
   public static void dumpDebugInfo()
   {
+    System.out.println(String.format("BIFF readers    : %d cached (max. %d), %d open files, %d hits, %d misses, %d evictions",
+                                     AbstractBIFFReader.getCacheSize(), AbstractBIFFReader.getCacheCapacity(),
+                                     AbstractBIFFReader.getOpenHandleCount(), AbstractBIFFReader.getCacheHits(),
+                                     AbstractBIFFReader.getCacheMisses(), AbstractBIFFReader.getCacheEvictions()));
     final Frame frame = findActiveFrame();
     if (frame == null) {
       return;
@@ -1778,6 +1803,7 @@ else if (event.getSource() == toolConvImageToPvrz) {
   private static final class OptionsMenu extends JMenu implements ActionListener, ItemListener
   {
     private static final int[] FONTSIZES = {50, 75, 100, 125, 150, 175, 200, 250, 300, 400, -1};
+    private static final int[] BIFFCACHESIZES = {32, 64, 128, 256, 512};
     private static final Font[] FONTS = {
       new Font(Font.MONOSPACED, Font.PLAIN, 12), new Font(Font.SERIF, Font.PLAIN, 12),
       new Font(Font.SANS_SERIF, Font.PLAIN, 12), new Font(Font.DIALOG, Font.PLAIN, 12), null};
@@ -1831,6 +1857,9 @@ private static final class OptionsMenu extends JMenu implements ActionListener,
     private static final String OPTION_AUTOCHECK_BCS            = "AutocheckBCS";
     private static final String OPTION_AUTOGEN_BCS_COMMENTS     = "AutogenBCSComments";
     private static final String OPTION_CACHEOVERRIDE            = "CacheOverride";
+    private static final String OPTION_CACHEBIFS                = "CacheDecompressedBifs";
+    private static final String OPTION_BIFFCACHESIZE            = "BiffReaderCacheSize";
+    private static final String OPTION_REFERENCEINDEX           = "UseReferenceIndex";
     private static final String OPTION_MORECOMPILERWARNINGS     = "MoreCompilerWarnings";
     private static final String OPTION_SHOWSTRREFS              = "ShowStrrefs";
     private static final String OPTION_SHOWCOLOREDSTRUCTURES    = "ShowColoredStructures";
@@ -1895,6 +1924,7 @@ private static final class OptionsMenu extends JMenu implements ActionListener,
     private final JRadioButtonMenuItem[] selectTlkColorScheme = new JRadioButtonMenuItem[COLORSCHEME.length];
     private final JRadioButtonMenuItem[] selectWeiDUColorScheme = new JRadioButtonMenuItem[COLORSCHEME.length];
     private final DataRadioButtonMenuItem[] globalFontSize = new DataRadioButtonMenuItem[FONTSIZES.length];
+    private final DataRadioButtonMenuItem[] selectBiffCacheSize = new DataRadioButtonMenuItem[BIFFCACHESIZES.length];
 
     private JCheckBoxMenuItem optionTextHightlightCurrent, optionTextLineNumbers,
                               optionTextShowWhiteSpace, optionTextShowEOL, optionTextTabEmulate,
@@ -1908,7 +1938,9 @@ private static final class OptionsMenu extends JMenu implements ActionListener,
     private DialogViewerMenu dialogViewerMenu;
 
     private JCheckBoxMenuItem optionBackupOnSave, optionShowOffset, optionShowSize, optionSizeInHex, optionOffsetRelative,
-                              optionIgnoreOverride, optionIgnoreReadErrors, optionCacheOverride, optionShowStrrefs,
+                              optionIgnoreOverride, optionIgnoreReadErrors, optionCacheOverride, optionCacheBifs,
+                              optionReferenceIndex,
+                              optionShowStrrefs,
                               optionShowColoredStructures, optionShowHexColored, optionShowUnknownResources,
                               optionKeepViewOnCopy, optionTreeSearchNames,
                               optionHighlightOverridden, optionLaunchGameAllowed;
@@ -1999,6 +2031,48 @@ private OptionsMenu()
       optionCacheOverride.setToolTipText("Without this option selected, Refresh Tree is required " +
                                          "to discover new override files added while NI is open");
       add(optionCacheOverride);
+      optionCacheBifs =
+          new JCheckBoxMenuItem("Cache decompressed BIF archives", getPrefs().getBoolean(OPTION_CACHEBIFS, false));
+      optionCacheBifs.setToolTipText("<html>With this option enabled compressed BIF archives are decompressed once into the " +
+                                     "system temp folder<br>to speed up subsequent resource access. " +
+                                     "Requires up to " + (BIFCache.DEFAULT_MAX_CACHE_SIZE >> 20) +
+                                     " MB of additional disk space.</html>");
+      optionCacheBifs.addActionListener(this);
+      BIFCache.setEnabled(optionCacheBifs.isSelected());
+      add(optionCacheBifs);
+      // Options->Open BIFF Archives
+      JMenu biffCacheMenu = new JMenu("Open BIFF Archives");
+      add(biffCacheMenu);
+      ButtonGroup bgBiffCache = new ButtonGroup();
+      int selectedBiffCacheSize = getPrefs().getInt(OPTION_BIFFCACHESIZE, AbstractBIFFReader.DEFAULT_CACHE_CAPACITY);
+      boolean isBiffCacheSizeValid = false;
+      for (final int size: BIFFCACHESIZES) {
+        isBiffCacheSizeValid |= (size == selectedBiffCacheSize);
+      }
+      if (!isBiffCacheSizeValid) {
+        selectedBiffCacheSize = AbstractBIFFReader.DEFAULT_CACHE_CAPACITY;
+      }
+      for (int i = 0; i < BIFFCACHESIZES.length; i++) {
+        int size = BIFFCACHESIZES[i];
+        String msg = "Up to " + size + " archives" + (size == AbstractBIFFReader.DEFAULT_CACHE_CAPACITY ? " (Default)" : "");
+        selectBiffCacheSize[i] = new DataRadioButtonMenuItem(msg, size == selectedBiffCacheSize, Integer.valueOf(size));
+        selectBiffCacheSize[i].setToolTipText("Max. number of BIFF archives kept open for fast resource access. " +
+                                              "Least recently used archives are closed first.");
+        selectBiffCacheSize[i].setActionCommand("BiffCacheSize");
+        selectBiffCacheSize[i].addActionListener(this);
+        biffCacheMenu.add(selectBiffCacheSize[i]);
+        bgBiffCache.add(selectBiffCacheSize[i]);
+      }
+      AbstractBIFFReader.setCacheCapacity(selectedBiffCacheSize);
+      optionReferenceIndex =
+          new JCheckBoxMenuItem("Use reference index for searches", getPrefs().getBoolean(OPTION_REFERENCEINDEX, false));
+      optionReferenceIndex.setToolTipText("<html>With this option enabled references of all game resources are indexed once " +
+                                          "and stored in the system temp folder.<br>Reference searches and checks for unused " +
+                                          "files and strings use the index instead of parsing all resources.<br>The index is built " +
+                                          "again whenever resources are added or removed.</html>");
+      optionReferenceIndex.addActionListener(this);
+      ReferenceIndex.setEnabled(optionReferenceIndex.isSelected());
+      add(optionReferenceIndex);
       optionKeepViewOnCopy =
           new JCheckBoxMenuItem("Keep view after copy operations", getPrefs().getBoolean(OPTION_KEEPVIEWONCOPY, false));
       optionKeepViewOnCopy.setToolTipText("With this option enabled the resource tree will not switch to the new resource created by an \"Add Copy Of\" operation.");
@@ -2640,6 +2714,9 @@ private void storePreferences()
       getPrefs().putBoolean(OPTION_AUTOCHECK_BCS, optionAutocheckBCS.isSelected());
       getPrefs().putBoolean(OPTION_AUTOGEN_BCS_COMMENTS, optionAutogenBCSComments.isSelected());
       getPrefs().putBoolean(OPTION_CACHEOVERRIDE, optionCacheOverride.isSelected());
+      getPrefs().putBoolean(OPTION_CACHEBIFS, optionCacheBifs.isSelected());
+      getPrefs().putInt(OPTION_BIFFCACHESIZE, AbstractBIFFReader.getCacheCapacity());
+      getPrefs().putBoolean(OPTION_REFERENCEINDEX, optionReferenceIndex.isSelected());
       getPrefs().putBoolean(OPTION_MORECOMPILERWARNINGS, optionMoreCompileWarnings.isSelected());
       getPrefs().putBoolean(OPTION_SHOWSTRREFS, optionShowStrrefs.isSelected());
       dialogViewerMenu.storePreferences(getPrefs());
@@ -3028,6 +3105,17 @@ public void actionPerformed(ActionEvent event)
       else if (event.getSource() == optionLaunchGameAllowed) {
         NearInfinity.getInstance().updateLauncher();
       }
+      else if (event.getSource() == optionCacheBifs) {
+        BIFCache.setEnabled(optionCacheBifs.isSelected());
+        // BIFF readers have to be reinitialized to pick up the new setting
+        AbstractBIFFReader.resetCache();
+      }
+      else if (event.getSource() == optionReferenceIndex) {
+        ReferenceIndex.setEnabled(optionReferenceIndex.isSelected());
+      }
+      else if (event.getActionCommand().equals("BiffCacheSize")) {
+        AbstractBIFFReader.setCacheCapacity((Integer)((DataRadioButtonMenuItem)event.getSource()).getData());
+      }
       else if (event.getSource() == optionShowSize) {
         optionSizeInHex.setEnabled(optionShowSize.isSelected());
       }
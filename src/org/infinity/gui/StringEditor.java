@@ -160,7 +160,7 @@ protected Void doInBackground() throws Exception
   public String getText(int index)
   {
     if (index >= 0 && index < StringTable.getNumEntries(getSelectedDialogType())) {
-      return StringTable.getStringRef(index, StringTable.Format.NONE);
+      return StringTable.getStringRef(getSelectedDialogType(), index, StringTable.Format.NONE);
     }
     return null;
   }
@@ -171,6 +171,12 @@ public void hitFound(int index)
     showEntry(index);
   }
 
+  @Override
+  public int[] getCandidates(String literal)
+  {
+    return StringTable.findCandidates(getSelectedDialogType(), literal);
+  }
+
 //--------------------- End Interface SearchClient ---------------------
 
   private static String getWindowTitle(StringTable.Type dlgType)
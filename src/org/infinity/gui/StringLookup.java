@@ -55,14 +55,8 @@ final class StringLookup extends ChildFrame implements SearchClient
     setSize(Misc.getScaledValue(540), Misc.getScaledValue(350));
     Center.center(this, NearInfinity.getInstance().getBounds());
 
-    // pre-caching string table to significantly reduce search time
-    new Thread(new Runnable() {
-      @Override
-      public void run()
-      {
-        StringTable.ensureFullyLoaded();
-      }
-    }).start();
+    // indexing string table to significantly reduce search time
+    StringTable.buildIndex();
   }
 
 // --------------------- Begin Interface SearchClient ---------------------
@@ -82,6 +76,16 @@ public void hitFound(int index)
     strref.setValue(index);
   }
 
+  @Override
+  public int[] getCandidates(String literal)
+  {
+    // indexed text does not include additional display information
+    if (StringTable.getDisplayFormat() != StringTable.Format.NONE) {
+      return null;
+    }
+    return StringTable.findCandidates(StringTable.Type.MALE, literal);
+  }
+
 // --------------------- End Interface SearchClient ---------------------
 }
 
@@ -105,6 +105,7 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.DxtEncoder;
 import org.infinity.resource.graphics.GifSequenceReader;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.resource.graphics.PseudoBamDecoder;
 import org.infinity.resource.graphics.PseudoBamDecoder.PseudoBamControl;
 import org.infinity.resource.graphics.PseudoBamDecoder.PseudoBamCycleEntry;
@@ -4106,6 +4107,7 @@ private void updateFinalBamDecoder(int bamVersion) throws Exception
             colorCache.put(Integer.valueOf(palette[i]), Byte.valueOf((byte)i));
           }
         }
+        PaletteMatcher matcher = new PaletteMatcher(palette, getUseAlpha() ? 1.0 : 0.0);
 
         // processing frames
         IndexColorModel cm = new IndexColorModel(8, 256, palette, 0, getUseAlpha(), transIndex, DataBuffer.TYPE_BYTE);
@@ -4128,8 +4130,7 @@ private void updateFinalBamDecoder(int bamVersion) throws Exception
                 if (ci >= transIndex) ci++;
                 dstBuf[ofs] = colIdx.byteValue();//(byte)ci;
               } else {
-                double weight = getUseAlpha() ? 1.0 : 0.0;
-                byte color = (byte)ColorConvert.getNearestColor(srcBuf[ofs], palette, weight, null);
+                byte color = (byte)matcher.getNearestColor(srcBuf[ofs]);
                 dstBuf[ofs] = color;//(byte)ci;
                 colorCache.put(Integer.valueOf(c), Byte.valueOf(color));
               }
@@ -4201,6 +4202,7 @@ private void updateFinalBamFrame(int bamVersion, int frameIdx)
             colorCache.put(Integer.valueOf(palette[i]), Byte.valueOf((byte)i));
           }
         }
+        PaletteMatcher matcher = new PaletteMatcher(palette, getUseAlpha() ? 1.0 : 0.0);
         IndexColorModel cm = new IndexColorModel(8, 256, palette, 0, getUseAlpha(), transIndex, DataBuffer.TYPE_BYTE);
 
         // converting frame
@@ -4221,8 +4223,7 @@ private void updateFinalBamFrame(int bamVersion, int frameIdx)
               if (ci >= transIndex) ci++;
               dstBuf[ofs] = colIdx.byteValue();
             } else {
-              double weight = getUseAlpha() ? 1.0 : 0.0;
-              byte color = (byte)ColorConvert.getNearestColor(srcBuf[ofs], palette, weight, null);
+              byte color = (byte)matcher.getNearestColor(srcBuf[ofs]);
               dstBuf[ofs] = color;//(byte)ci;
               colorCache.put(Integer.valueOf(c), Byte.valueOf(color));
             }
@@ -56,6 +56,7 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.Compressor;
 import org.infinity.resource.graphics.DxtEncoder;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.util.BinPack2D;
 import org.infinity.util.DynamicArray;
 import org.infinity.util.IntegerHashMap;
@@ -74,7 +75,7 @@ public class ConvertToMos extends ChildFrame
   private JButton bConvert, bCancel;
   private JSpinner sPvrzIndex;
   private JLabel lPvrzInfo;
-  private JComboBox<String> cbCompression;
+  private JComboBox<String> cbCompression, cbQuality;
   private JCheckBox cbCompress, cbCloseOnExit;
   private SwingWorker<List<String>, Void> workerConvert;
   private WindowBlocker blocker;
@@ -186,6 +187,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
             tilePalette[(i << 2) + 3] = 0;
             colorCache.put(palette[i - 1], (byte)(i - 1));
           }
+          PaletteMatcher matcher = new PaletteMatcher(palette, 0.0);
           // filling pixel data
           for (int i = 0; i < pixels.length; i++) {
             if ((pixels[i] & 0xff000000) == 0) {
@@ -195,7 +197,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
               if (palIndex != null) {
                 tileData[i] = (byte)(palIndex + 1);
               } else {
-                byte color = (byte)ColorConvert.getNearestColor(pixels[i], palette, 0.0, null);
+                byte color = (byte)matcher.getNearestColor(pixels[i]);
                 tileData[i] = (byte)(color + 1);
                 colorCache.put(pixels[i], color);
               }
@@ -253,6 +255,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
    * @param img The source image to convert into a MOS resource.
    * @param mosFileName The name of the resulting MOS file.
    * @param dxtType The desired compression type.
+   * @param quality The compression quality of the PVRZ textures.
    * @param pvrzIndex The starting index for PVRZ files.
    * @param result Returns more specific information about the conversion process. Data placed in the
    *               first item indicates success, data in the second item indicates failure.
@@ -260,7 +263,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
    * @return {@code true} if the conversion finished successfully, {@code false} otherwise.
    */
   public static boolean convertV2(Component parent, BufferedImage img, String mosFileName,
-                                  DxtEncoder.DxtType dxtType, int pvrzIndex,
+                                  DxtEncoder.DxtType dxtType, DxtEncoder.Quality quality, int pvrzIndex,
                                   List<String> result, boolean showProgress)
   {
     // checking parameters
@@ -386,7 +389,7 @@ public static boolean convertV2(Component parent, BufferedImage img, String mosF
       dst = null;
 
       // generating PVRZ files
-      if (!createPvrzPages(mosFile.getParent(), img, dxtType, pageList, entryList,
+      if (!createPvrzPages(mosFile.getParent(), img, dxtType, quality, pageList, entryList,
                            result, progress)) {
         return false;
       }
@@ -419,7 +422,7 @@ private static FileNameExtensionFilter[] getInputFilters()
 
   // generates PVRZ textures
   private static boolean createPvrzPages(Path path, BufferedImage img, DxtEncoder.DxtType dxtType,
-                                         List<BinPack2D> gridList, List<MosEntry> entryList,
+                                         DxtEncoder.Quality quality, List<BinPack2D> gridList, List<MosEntry> entryList,
                                          List<String> result, ProgressMonitor progress)
   {
     // preparing variables
@@ -482,7 +485,7 @@ private static boolean createPvrzPages(Path path, BufferedImage img, DxtEncoder.
       int[] textureData = ((DataBufferInt)texture.getRaster().getDataBuffer()).getData();
       try {
         int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, quality);
         byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
         byte[] pvrz = new byte[header.length + outSize];
         System.arraycopy(header, 0, pvrz, 0, header.length);
@@ -784,6 +787,7 @@ private void init()
     pOptionsV2.setBorder(BorderFactory.createTitledBorder("Options "));
     JLabel lPvrzIndex = new JLabel("PVRZ index starts at:");
     JLabel lCompression = new JLabel("Compression type:");
+    JLabel lQuality = new JLabel("Quality:");
     sPvrzIndex = new JSpinner(new SpinnerNumberModel(0, 0, 99999, 1));
     sPvrzIndex.setToolTipText("Enter a number from 0 to 99999");
     sPvrzIndex.addChangeListener(this);
@@ -794,6 +798,9 @@ private void init()
     bCompressionHelp.addActionListener(this);
     bCompressionHelp.setMargin(new Insets(bCompressionHelp.getInsets().top, 4,
                                           bCompressionHelp.getInsets().bottom, 4));
+    cbQuality = new JComboBox<>(new String[]{"High", "Fast"});
+    cbQuality.setSelectedIndex(0);
+    cbQuality.setToolTipText("Fast compression takes considerably less time, but results in lower image quality");
     lPvrzInfo = new JLabel(pvrzInfoString(sPvrzIndex.getValue()));
 
     c = ViewerUtil.setGBC(c, 0, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
@@ -811,7 +818,13 @@ private void init()
     c = ViewerUtil.setGBC(c, 4, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(0, 4, 0, 4), 0, 0);
     pOptionsV2.add(bCompressionHelp, c);
-    c = ViewerUtil.setGBC(c, 0, 1, 5, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+    c = ViewerUtil.setGBC(c, 5, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 12, 0, 0), 0, 0);
+    pOptionsV2.add(lQuality, c);
+    c = ViewerUtil.setGBC(c, 6, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 8, 0, 4), 0, 0);
+    pOptionsV2.add(cbQuality, c);
+    c = ViewerUtil.setGBC(c, 0, 1, 7, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(4, 4, 4, 4), 0, 0);
     pOptionsV2.add(lPvrzInfo, c);
 
@@ -1013,13 +1026,14 @@ private List<String> convert()
 
     // fetching remaining settings
     int pvrzIndex = getPvrzIndex(sPvrzIndex.getValue());
+    DxtEncoder.Quality quality = (cbQuality.getSelectedIndex() == 1) ? DxtEncoder.Quality.FAST : DxtEncoder.Quality.HIGH;
     boolean isMOSC = cbCompress.isSelected();
 
     // converting
     if (tabPane.getSelectedIndex() == 0) {
       convertV1(this, srcImage, tfOutputV1.getText(), isMOSC, result, true);
     } else if (tabPane.getSelectedIndex() == 1) {
-      convertV2(this, srcImage, tfOutputV2.getText(), dxtType, pvrzIndex, result, true);
+      convertV2(this, srcImage, tfOutputV2.getText(), dxtType, quality, pvrzIndex, result, true);
     } else {
       result.add(null);
       result.add("No MOS type specified!");
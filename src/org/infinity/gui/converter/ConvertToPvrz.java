@@ -70,7 +70,7 @@ public class ConvertToPvrz extends ChildFrame implements ActionListener, Propert
   private JButton bInputAdd, bInputAddFolder, bInputRemove, bInputRemoveAll;
   private JButton bTargetDir, bCompressionHelp;
   private JTextField tfTargetDir;
-  private JComboBox<String> cbOverwrite, cbCompression;
+  private JComboBox<String> cbOverwrite, cbCompression, cbQuality;
   private JCheckBox cbCloseOnExit;
   private SwingWorker<List<String>, Void> workerConvert;
   private ProgressMonitor progress;
@@ -369,6 +369,7 @@ private void init()
     JLabel lTargetDir = new JLabel("Directory:");
     JLabel lOverwrite = new JLabel("Overwrite:");
     JLabel lCompression = new JLabel("Compression type:");
+    JLabel lQuality = new JLabel("Quality:");
     tfTargetDir = new JTextField();
     bTargetDir = new JButton("...");
     bTargetDir.addActionListener(this);
@@ -381,6 +382,9 @@ private void init()
     bCompressionHelp.addActionListener(this);
     bCompressionHelp.setMargin(new Insets(bCompressionHelp.getMargin().top, 4,
                                           bCompressionHelp.getMargin().bottom, 4));
+    cbQuality = new JComboBox<>(new String[]{"High", "Fast"});
+    cbQuality.setSelectedIndex(0);
+    cbQuality.setToolTipText("Fast compression takes considerably less time, but results in lower image quality");
 
     JPanel pOutputSub = new JPanel(new GridBagLayout());
     c = ViewerUtil.setGBC(c, 0, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
@@ -395,6 +399,12 @@ private void init()
     c = ViewerUtil.setGBC(c, 3, 0, 2, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(0, 4, 0, 0), 0, 0);
     pOutputSub.add(bCompressionHelp, c);
+    c = ViewerUtil.setGBC(c, 5, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 16, 0, 0), 0, 0);
+    pOutputSub.add(lQuality, c);
+    c = ViewerUtil.setGBC(c, 6, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 4, 0, 0), 8, 0);
+    pOutputSub.add(cbQuality, c);
 
     JPanel pOutput = new JPanel(new GridBagLayout());
     pOutput.setBorder(BorderFactory.createTitledBorder("Output "));
@@ -536,6 +546,7 @@ private List<String> convert()
       case 0:  auto = true; break;
       case 2:  dxt = 5; break;
     }
+    DxtEncoder.Quality quality = (cbQuality.getSelectedIndex() == 1) ? DxtEncoder.Quality.FAST : DxtEncoder.Quality.HIGH;
 
     Path targetPath = FileManager.resolve("");
     if (tfTargetDir.getText() != null && !tfTargetDir.getText().isEmpty()) {
@@ -685,16 +696,17 @@ private List<String> convert()
               header = createPVRHeader(w, h, 7);
           }
 
-          // encoding block by block
+          // encoding in bands of block rows, each band is encoded in parallel
           int outSize = DxtEncoder.calcImageSize(w, h, dxtType);
           byte[] output = new byte[outSize];
-          int outOfs = 0;
           int bw = w / 4;
           int bh = h / 4;
-          int[] inBlock = new int[16];
-          byte[] outBlock = new byte[DxtEncoder.calcBlockSize(dxtType)];
+          int blockSize = DxtEncoder.calcBlockSize(dxtType);
+          int bandRows = 0;
+          if (bw > 0 && bh > 0) {
+            bandRows = Math.max(1, Math.min(bh, 4096 / bw));
+          }   // else: images smaller than a single block have no pixel data to encode
           // more initialization for progress meter
-          int counter = 0;
           if (isSingle) {
             progressInc = (bw*bh / 100);
             if (progressInc == 0) {
@@ -702,43 +714,32 @@ private List<String> convert()
               progressInc = 1;
             }
           }
-          for (int y = 0; y < bh; y++) {
-            if (!isSingle) {
+          for (int y = 0; bandRows > 0 && y < bh; y += bandRows) {
+            // handling progress meter
+            if (isSingle) {
+              progress.setProgress(progressIndex + (y*bw) / progressInc);
+            } else {
               // force the progress meter to pop up
               progress.setProgress(progressIndex);
             }
-            for (int x = 0; x < bw; x++) {
-              // handling progress meter
-              if (isSingle) {
-                if (counter >= progressInc) {
-                  counter = 0;
-                  progressIndex++;
-                  progress.setProgress(progressIndex);
-                }
-                counter++;
-              }
-              if (progress.isCanceled()) {
-                progress.close();
-                progress = null;
-                List<String> l = new Vector<>(2);
-                l.add(null);
-                l.add("Conversion cancelled.");
-                return l;
-              }
+            if (progress.isCanceled()) {
+              progress.close();
+              progress = null;
+              List<String> l = new Vector<>(2);
+              l.add(null);
+              l.add("Conversion cancelled.");
+              return l;
+            }
 
-              // starting encoding process
-              int ofs = y*w*4 + x*4;
-              for (int i = 0; i < 4; i++, ofs+=w) {
-                System.arraycopy(pixels, ofs, inBlock, i*4, 4);
-              }
-              try {
-                DxtEncoder.encodeBlock(inBlock, outBlock, dxtType);
-              } catch (Exception e) {
-                warnings++;
-                Arrays.fill(outBlock, (byte)0);
-              }
-              System.arraycopy(outBlock, 0, output, outOfs, outBlock.length);
-              outOfs += outBlock.length;
+            // starting encoding process
+            int rows = Math.min(bandRows, bh - y);
+            int[] band = Arrays.copyOfRange(pixels, y*4*w, (y + rows)*4*w);
+            try {
+              byte[] outBand = DxtEncoder.encodeImage(band, w, rows*4, dxtType, quality);
+              System.arraycopy(outBand, 0, output, y*bw*blockSize, outBand.length);
+            } catch (Exception e) {
+              // encoding block by block, failed blocks are left empty
+              warnings += encodeBlocks(band, w, rows, dxtType, quality, output, y*bw*blockSize);
             }
           }
 
@@ -760,8 +761,6 @@ private List<String> convert()
           srcImg = null;
           output = null;
           pvrz = null;
-          inBlock = null;
-          outBlock = null;
           header = null;
         }
       } else {
@@ -797,4 +796,31 @@ private List<String> convert()
 
     return l;
   }
+
+  // Encodes the specified rows of 4x4 blocks one by one into "output", starting at "outOfs".
+  // Returns the number of blocks which could not be encoded.
+  private static int encodeBlocks(int[] pixels, int width, int rows, DxtEncoder.DxtType dxtType,
+                                  DxtEncoder.Quality quality, byte[] output, int outOfs)
+  {
+    int failed = 0;
+    int[] inBlock = new int[16];
+    byte[] outBlock = new byte[DxtEncoder.calcBlockSize(dxtType)];
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < width / 4; x++) {
+        int ofs = y*width*4 + x*4;
+        for (int i = 0; i < 4; i++, ofs+=width) {
+          System.arraycopy(pixels, ofs, inBlock, i*4, 4);
+        }
+        try {
+          DxtEncoder.encodeBlock(inBlock, outBlock, dxtType, quality);
+        } catch (Exception e) {
+          failed++;
+          Arrays.fill(outBlock, (byte)0);
+        }
+        System.arraycopy(outBlock, 0, output, outOfs, outBlock.length);
+        outOfs += outBlock.length;
+      }
+    }
+    return failed;
+  }
 }
@@ -57,6 +57,7 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.Compressor;
 import org.infinity.resource.graphics.DxtEncoder;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.util.BinPack2D;
 import org.infinity.util.DynamicArray;
 import org.infinity.util.IntegerHashMap;
@@ -74,7 +75,7 @@ public class ConvertToTis extends ChildFrame
   private JTextField tfInput, tfOutput, tfTileNum;
   private JButton bConvert, bCancel;
   private JButton bInput, bOutput, bVersionHelp;
-  private JComboBox<String> cbVersion;
+  private JComboBox<String> cbVersion, cbQuality;
   private JCheckBox cbCloseOnExit;
   private SwingWorker<List<String>, Void> workerConvert;
   private WindowBlocker blocker;
@@ -189,6 +190,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
             tilePalette[(i << 2) + 3] = 0;
             colorCache.put(palette[i - 1], (byte)(i - 1));
           }
+          PaletteMatcher matcher = new PaletteMatcher(palette, 0.0);
 
           // processing pixel data
           for (int i = 0; i < tileData.length; i++) {
@@ -199,7 +201,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
               if (palIndex != null) {
                 tileData[i] = (byte)(palIndex + 1);
               } else {
-                byte color = (byte)ColorConvert.getNearestColor(srcBlock[i], palette, 0.0, null);
+                byte color = (byte)matcher.getNearestColor(srcBlock[i]);
                 tileData[i] = (byte)(color + 1);
                 colorCache.put(srcBlock[i], color);
               }
@@ -251,13 +253,15 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
    * @param img The source image to convert into a TIS resource.
    * @param tisFileName The name of the resulting TIS file.
    * @param tileCount The number of tiles to convert.
+   * @param quality The compression quality of the PVRZ textures.
    * @param result Returns more specific information about the conversion process. Data placed in the
    *               first item indicates success, data in the second item indicates failure.
    * @param showProgress Specify whether to show a progress monitor (needs a valid 'parent' parameter).
    * @return {@code true} if the conversion finished successfully, {@code false} otherwise.
    */
   public static boolean convertV2(Component parent, BufferedImage img, String tisFileName,
-                                  int tileCount, List<String> result, boolean showProgress)
+                                  int tileCount, DxtEncoder.Quality quality, List<String> result,
+                                  boolean showProgress)
   {
     // checking parameters
     if (result == null) {
@@ -387,7 +391,7 @@ public static boolean convertV2(Component parent, BufferedImage img, String tisF
       }
 
       // generating PVRZ files
-      if (!createPvrzPages(tisFileName, img, pageList, DxtEncoder.DxtType.DXT1, entryList,
+      if (!createPvrzPages(tisFileName, img, pageList, DxtEncoder.DxtType.DXT1, quality, entryList,
                            result, progress)) {
         return false;
       }
@@ -481,6 +485,7 @@ private static String generatePvrzName(String tisFileName, int page)
   // generates PVRZ textures
   public static boolean createPvrzPages(String tisFileName, BufferedImage srcImg,
                                          List<BinPack2D> pages, DxtEncoder.DxtType dxtType,
+                                         DxtEncoder.Quality quality,
                                          List<TileEntry> entryList, List<String> result,
                                          ProgressMonitor progress)
   {
@@ -529,7 +534,7 @@ public static boolean createPvrzPages(String tisFileName, BufferedImage srcImg,
       try {
         // compressing PVRZ
         int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, quality);
         byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
         byte[] pvrz = new byte[header.length + outSize];
         System.arraycopy(header, 0, pvrz, 0, header.length);
@@ -865,6 +870,10 @@ private void init()
     bVersionHelp.addActionListener(this);
     bVersionHelp.setMargin(new Insets(bVersionHelp.getInsets().top, 4,
                                       bVersionHelp.getInsets().bottom, 4));
+    JLabel lQuality = new JLabel("PVRZ quality:");
+    cbQuality = new JComboBox<>(new String[]{"High", "Fast"});
+    cbQuality.setSelectedIndex(0);
+    cbQuality.setToolTipText("Fast compression takes considerably less time, but results in lower image quality");
 
     c = ViewerUtil.setGBC(c, 0, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(0, 4, 0, 0), 0, 0);
@@ -875,7 +884,13 @@ private void init()
     c = ViewerUtil.setGBC(c, 2, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(0, 4, 0, 0), 0, 0);
     pSubOptions.add(bVersionHelp, c);
-    c = ViewerUtil.setGBC(c, 3, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+    c = ViewerUtil.setGBC(c, 3, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 16, 0, 0), 0, 0);
+    pSubOptions.add(lQuality, c);
+    c = ViewerUtil.setGBC(c, 4, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(0, 8, 0, 0), 8, 0);
+    pSubOptions.add(cbQuality, c);
+    c = ViewerUtil.setGBC(c, 5, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.HORIZONTAL, new Insets(0, 0, 0, 0), 0, 0);
     pSubOptions.add(new JPanel(), c);
 
@@ -1013,6 +1028,12 @@ private int getTisVersion()
     return (cbVersion.getSelectedIndex() == 1) ? 2 : 1;
   }
 
+  // returns the compression quality of PVRZ textures
+  private DxtEncoder.Quality getQuality()
+  {
+    return (cbQuality.getSelectedIndex() == 1) ? DxtEncoder.Quality.FAST : DxtEncoder.Quality.HIGH;
+  }
+
   // returns number of tiles to convert
   private int getTileCount()
   {
@@ -1098,7 +1119,7 @@ private List<String> convert()
 
     if (tisVersion == 2) {
       // TIS V2 conversion
-      convertV2(this, srcImage, outFileName, tileCount, ret, true);
+      convertV2(this, srcImage, outFileName, tileCount, getQuality(), ret, true);
     } else {
       // TIS V1 conversion
       convertV1(this, srcImage, outFileName, tileCount, ret, true);
@@ -12,6 +12,7 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -75,6 +76,9 @@ public abstract class AbstractStruct extends AbstractTableModel implements Struc
   /** Identifies the intention to removal of rows or columns. */
   public static final int WILL_BE_DELETE = -2;
 
+  /** Minimum number of fields for which non-recursive offset lookups are indexed. */
+  private static final int OFFSET_INDEX_THRESHOLD = 32;
+
   private List<StructEntry> fields;
   private AbstractStruct superStruct;
   private Map<Class<? extends StructEntry>, SectionCount> countmap;
@@ -91,6 +95,8 @@ public abstract class AbstractStruct extends AbstractTableModel implements Struc
   private String name;
   private StructViewer viewer;
   private boolean structChanged;
+  /** Fields ordered by offset for non-recursive offset lookups. Created on demand. */
+  private OffsetIndex offsetIndex;
   /** Offset of the first byte in serialized format of this struct. */
   private int startoffset;
   /** Offset of the last byte in serialized format of this struct. */
@@ -229,6 +235,7 @@ public AbstractStruct clone() throws CloneNotSupportedException
     newstruct.superStruct = null;
     newstruct.fields = new ArrayList<>(fields.size());
     newstruct.viewer = null;
+    newstruct.offsetIndex = null;
     for (final StructEntry e : fields) {
       newstruct.fields.add(e.clone());
     }
@@ -745,6 +752,13 @@ public StructEntry getAttribute(String ename, boolean recursive)
   private static <T extends StructEntry> T getAttribute(AbstractStruct parent, int offset,
                                                         Class<T> type, boolean recursive)
   {
+    if (!recursive && parent.fields.size() >= OFFSET_INDEX_THRESHOLD) {
+      final StructEntry field = parent.getIndexedField(offset);
+      if (field != null) {
+        return type.isInstance(field) ? type.cast(field) : null;
+      }
+    }
+
     for (final StructEntry field : parent.fields) {
       final int off = field.getOffset();
       T result = null;
@@ -766,6 +780,25 @@ private static <T extends StructEntry> T getAttribute(AbstractStruct parent, int
     return null;
   }
 
+  // Returns the first-level field containing the specified offset by binary search.
+  // Returns null if the offset is not covered by an indexed field or fields can not be indexed.
+  private StructEntry getIndexedField(int offset)
+  {
+    OffsetIndex index = offsetIndex;
+    if (index == null || !index.isCurrent(fields)) {
+      index = new OffsetIndex(fields);
+      offsetIndex = index;
+    }
+    int idx = index.find(offset);
+    if (idx >= 0 && !index.isUnchanged(fields, idx)) {
+      // fields have been moved or replaced since the index was created
+      index = new OffsetIndex(fields);
+      offsetIndex = index;
+      idx = index.find(offset);
+    }
+    return (idx >= 0) ? index.getEntry(idx) : null;
+  }
+
   private static StructEntry getAttribute(AbstractStruct parent, String name, boolean recursive)
   {
     if (name != null && !name.isEmpty()) {
@@ -1321,4 +1354,91 @@ public void propertyChange(PropertyChangeEvent evt)
   {
     changeSupport.firePropertyChange(evt);
   }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /**
+   * Fields of a structure ordered by offset for binary search. Fields without size are not indexed.
+   * The index is only usable if the indexed fields do not overlap. The field list is not monitored
+   * for changes; results are verified against the current state of the list instead.
+   */
+  private static final class OffsetIndex
+  {
+    private final int count;
+    private final StructEntry[] entries;
+    private final int[] starts;
+    private final int[] sizes;
+    private final int[] positions;
+
+    public OffsetIndex(List<StructEntry> fields)
+    {
+      count = fields.size();
+      // sort keys: offset in upper half, list position in lower half
+      long[] keys = new long[count];
+      int numEntries = 0;
+      for (int i = 0; i < count; i++) {
+        final StructEntry field = fields.get(i);
+        if (field.getSize() > 0) {
+          keys[numEntries++] = ((long)field.getOffset() << 32) | i;
+        }
+      }
+      Arrays.sort(keys, 0, numEntries);
+
+      StructEntry[] entries = new StructEntry[numEntries];
+      starts = new int[numEntries];
+      sizes = new int[numEntries];
+      positions = new int[numEntries];
+      for (int i = 0; i < numEntries; i++) {
+        positions[i] = (int)keys[i];
+        entries[i] = fields.get(positions[i]);
+        starts[i] = entries[i].getOffset();
+        sizes[i] = entries[i].getSize();
+        if (i > 0 && starts[i] < starts[i - 1] + sizes[i - 1]) {
+          // overlapping fields can not be resolved by binary search
+          entries = null;
+          break;
+        }
+      }
+      this.entries = entries;
+    }
+
+    /** Returns whether the number of fields still matches the specified field list. */
+    public boolean isCurrent(List<StructEntry> fields)
+    {
+      return (count == fields.size());
+    }
+
+    /**
+     * Returns the index of the entry containing the specified offset.
+     * Returns -1 if no indexed field contains the offset or if fields could not be indexed.
+     */
+    public int find(int offset)
+    {
+      if (entries != null) {
+        int idx = Arrays.binarySearch(starts, offset);
+        if (idx < 0) {
+          idx = -idx - 2;
+        }
+        if (idx >= 0 && offset < starts[idx] + sizes[idx]) {
+          return idx;
+        }
+      }
+      return -1;
+    }
+
+    /** Returns the field of the specified entry. */
+    public StructEntry getEntry(int idx)
+    {
+      return entries[idx];
+    }
+
+    /** Returns whether the field of the specified entry still exists at the same list position and offset. */
+    public boolean isUnchanged(List<StructEntry> fields, int idx)
+    {
+      final StructEntry field = entries[idx];
+      final int pos = positions[idx];
+      return (pos < fields.size() && fields.get(pos) == field &&
+              field.getOffset() == starts[idx] && field.getSize() == sizes[idx]);
+    }
+  }
 }
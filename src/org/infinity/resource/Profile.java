@@ -1345,7 +1345,7 @@ private static void closeGame()
   private static void initStaticProperties()
   {
     // setting current NI version
-    addEntry(Key.GET_GLOBAL_NEARINFINITY_VERSION, Type.STRING, NearInfinity.getVersion());
+    addEntry(Key.GET_GLOBAL_NEARINFINITY_VERSION, Type.STRING, BrowserMenuBar.VERSION);
 
     // setting list of supported games and associated data
     List<Game> gameList = new ArrayList<>();
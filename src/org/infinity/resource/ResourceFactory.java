@@ -23,8 +23,10 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.swing.JComponent;
@@ -48,6 +50,7 @@
 import org.infinity.resource.cre.CreResource;
 import org.infinity.resource.dlg.DlgResource;
 import org.infinity.resource.gam.GamResource;
+import org.infinity.resource.graphics.BamDecoderPool;
 import org.infinity.resource.graphics.BamResource;
 import org.infinity.resource.graphics.GraphicsResource;
 import org.infinity.resource.graphics.MosResource;
@@ -59,6 +62,8 @@
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.Keyfile;
 import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.key.ResourceGroup;
+import org.infinity.resource.key.ResourceIndexSnapshot;
 import org.infinity.resource.key.ResourceTreeFolder;
 import org.infinity.resource.key.ResourceTreeModel;
 import org.infinity.resource.maze.MazeResource;
@@ -85,6 +90,7 @@
 import org.infinity.resource.video.WbmResource;
 import org.infinity.resource.wed.WedResource;
 import org.infinity.resource.wmp.WmpResource;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.util.CreMapCache;
 import org.infinity.util.DynamicArray;
 import org.infinity.util.IdsMapCache;
@@ -112,6 +118,10 @@ public final class ResourceFactory implements FileWatchListener
   private JFileChooser fc;
   private Keyfile keyfile;
   private ResourceTreeModel treeModel;
+  /** Files of override folders associated with their upper-cased file names, listed on first access. */
+  private final HashMap<Path, Map<String, Path>> overrideFiles = new HashMap<>();
+  /** Modification times of indexed override folders. Folders are listed again when their time changes. */
+  private final HashMap<Path, Long> overrideTimes = new HashMap<>();
   private Path pendingSelection;
 
   public static Keyfile getKeyfile()
@@ -480,6 +490,23 @@ public static ResourceEntry getResourceEntry(String resourceName, boolean search
     return getResourceEntry(resourceName, searchExtraDirs, null);
   }
 
+  /**
+   * Returns a ResourceEntry instance of the given resource reference and type.
+   * @param resref The resource name without extension.
+   * @param ext The resource extension without leading dot.
+   * @param searchExtraDirs If {@code true}, all supported override folders will be searched.
+   *                        If {@code false}, only the default 'override' folders will be searched.
+   * @return A ResourceEntry instance of the given resource, or {@code null} if not available.
+   */
+  public static ResourceEntry getResourceEntry(String resref, String ext, boolean searchExtraDirs)
+  {
+    if (resref != null && ext != null) {
+      return getResourceEntry(resref + '.' + ext, searchExtraDirs, null);
+    } else {
+      return null;
+    }
+  }
+
   /**
    * Returns a ResourceEntry instance of the given resource name.
    * @param resourceName The resource filename.
@@ -497,12 +524,9 @@ public static ResourceEntry getResourceEntry(String resourceName, boolean search
 
       // checking default override folder list
       if (entry == null) {
-        List<Path> extraFolders = Profile.getOverrideFolders(searchExtraDirs);
-        if (extraFolders != null) {
-          Path file = FileManager.query(extraFolders, resourceName);
-          if (file != null && FileEx.create(file).isFile()) {
-            entry = new FileResourceEntry(file);
-          }
+        Path file = getInstance().findOverrideFile(Profile.getOverrideFolders(searchExtraDirs), resourceName);
+        if (file != null) {
+          entry = new FileResourceEntry(file);
         }
       }
 
@@ -608,6 +632,42 @@ public static List<ResourceEntry> getResources(Pattern pattern, List<Path> extra
     }
   }
 
+  /**
+   * Returns all resources of the specified resource type grouped by their physical location.
+   * See {@link #getResourceGroups(List)} for details.
+   * @param type Resource extension.
+   */
+  public static List<ResourceGroup> getResourceGroups(String type)
+  {
+    List<ResourceEntry> entries = getResources(type);
+    return (entries != null) ? getResourceGroups(entries) : null;
+  }
+
+  /**
+   * Groups the specified resources by their physical location. Resources of each BIFF archive form
+   * a group ordered by their offsets in the archive. Override and other loose files form a separate
+   * group ordered by name. Each group can be read sequentially by {@link ResourceGroup#read}.
+   * @param entries List of resources to group. {@code null} elements are skipped.
+   */
+  public static List<ResourceGroup> getResourceGroups(List<? extends ResourceEntry> entries)
+  {
+    return ResourceGroup.groupByLocation(entries);
+  }
+
+  /**
+   * Returns the specified resources ordered by their physical location. Bulk operations should
+   * process resources in this order to reduce random access to BIFF archives.
+   * @param entries List of resources to sort. {@code null} elements are skipped.
+   */
+  public static List<ResourceEntry> sortByLocation(List<? extends ResourceEntry> entries)
+  {
+    final List<ResourceEntry> retVal = new ArrayList<>(entries.size());
+    for (final ResourceGroup group: getResourceGroups(entries)) {
+      retVal.addAll(group.getEntries());
+    }
+    return retVal;
+  }
+
   public static void loadResources() throws Exception
   {
     if (getInstance() != null) {
@@ -970,7 +1030,7 @@ private ResourceFactory(Path keyFile)
   private void close()
   {
     FileWatcher.getInstance().removeFileWatchListener(this);
-    // nothing to do yet...
+    ReferenceIndex.close();
   }
 
   private void exportResourceInternal(ResourceEntry entry, Component parent, Path output) throws Exception
@@ -1270,6 +1330,80 @@ private void registerResourceInternal(Path resource, boolean autoselect)
     }
   }
 
+  // Returns the first file of the specified name found in the given override folders.
+  // Folder content is taken from the index, which is refreshed whenever the modification time of
+  // a folder changes. Missing files only require a single check of each folder.
+  private Path findOverrideFile(List<Path> folders, String fileName)
+  {
+    if (folders == null || fileName == null) {
+      return null;
+    }
+
+    final String key = fileName.toUpperCase(Locale.ENGLISH);
+    synchronized (overrideFiles) {
+      for (final Path folder: folders) {
+        Map<String, Path> files = overrideFiles.get(folder);
+        Long time = overrideTimes.get(folder);
+        if (files == null || time == null || time.longValue() != getModifiedTime(folder)) {
+          files = indexOverrideFolder(folder, null);
+        }
+        Path file = files.get(key);
+        if (file != null) {
+          return file;
+        }
+      }
+    }
+    return null;
+  }
+
+  // Registers the specified file names of an override folder. Folder content is listed if no names are specified.
+  private Map<String, Path> indexOverrideFolder(Path folder, List<String> fileNames)
+  {
+    // folders modified very recently are listed again on next access, since changes within
+    // the timestamp resolution of the filesystem would not be detected
+    long time = getModifiedTime(folder);
+    boolean reliable = Math.abs(System.currentTimeMillis() - time) > 2000L;
+
+    if (fileNames == null) {
+      fileNames = new ArrayList<>();
+      if (FileEx.create(folder).isDirectory()) {
+        try (DirectoryStream<Path> dstream = Files.newDirectoryStream(folder)) {
+          for (final Path path: dstream) {
+            if (FileEx.create(path).isFile()) {
+              fileNames.add(path.getFileName().toString());
+            }
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+
+    final Map<String, Path> files = new HashMap<>(fileNames.size() * 2);
+    for (final String fileName: fileNames) {
+      files.putIfAbsent(fileName.toUpperCase(Locale.ENGLISH), folder.resolve(fileName));
+    }
+    synchronized (overrideFiles) {
+      overrideFiles.put(folder, files);
+      if (reliable) {
+        overrideTimes.put(folder, Long.valueOf(time));
+      } else {
+        overrideTimes.remove(folder);
+      }
+    }
+    return files;
+  }
+
+  // Returns the modification time of the specified folder, or 0 if not available
+  private static long getModifiedTime(Path folder)
+  {
+    try {
+      return Files.getLastModifiedTime(folder).toMillis();
+    } catch (IOException e) {
+    }
+    return 0L;
+  }
+
   private boolean isPendingSelection(Path path, boolean autoRemove)
   {
     boolean retVal = (pendingSelection == path);
@@ -1295,10 +1429,20 @@ private void setPendingSelection(Path path)
   private void loadResourcesInternal() throws Exception
   {
     treeModel = new ResourceTreeModel();
+    synchronized (overrideFiles) {
+      overrideFiles.clear();
+      overrideTimes.clear();
+    }
+
+    // resource table and override folder listings are reused from the last session if unchanged
+    List<Path> keyFiles = new ArrayList<>(keyfile.getDlcKeyfiles());
+    keyFiles.add(0, keyfile.getKeyfile());
+    List<Path> overridePaths = Profile.getOverrideFolders(false);
+    ResourceIndexSnapshot snapshot = ResourceIndexSnapshot.open(Profile.getGameRoot(), keyFiles, overridePaths);
 
     // Get resources from keyfile
     NearInfinity.advanceProgress("Loading BIFF resources...");
-    keyfile.populateResourceTree(treeModel);
+    keyfile.populateResourceTree(treeModel, snapshot);
 
     // Add resources from extra folders
     NearInfinity.advanceProgress("Loading extra resources...");
@@ -1313,27 +1457,26 @@ private void loadResourcesInternal() throws Exception
     final boolean overrideInOverride = (BrowserMenuBar.getInstance() != null &&
                                         BrowserMenuBar.getInstance().getOverrideMode() == OverrideMode.InOverride);
     String overrideFolder = Profile.getOverrideFolderName();
-    List<Path> overridePaths = Profile.getOverrideFolders(false);
+    for (final Path overridePath: overridePaths) {
+      indexOverrideFolder(overridePath, snapshot.getFileNames(overridePath));
+    }
     for (final Path overridePath: overridePaths) {
       if (FileEx.create(overridePath).isDirectory()) {
-        try (DirectoryStream<Path> dstream = Files.newDirectoryStream(overridePath)) {
-          dstream.forEach((path) -> {
-            if (FileEx.create(path).isFile()) {
-              ResourceEntry entry = getResourceEntry(path.getFileName().toString());
-              if (entry instanceof FileResourceEntry) {
-                treeModel.addResourceEntry(entry, entry.getTreeFolderName(), true);
-              } else if (entry instanceof BIFFResourceEntry) {
-                ((BIFFResourceEntry)entry).setOverride(true);
-                if (overrideInOverride) {
-                  treeModel.removeResourceEntry(entry, entry.getExtension());
-                  treeModel.addResourceEntry(new FileResourceEntry(path, true), overrideFolder, true);
-                }
-              }
+        for (final String fileName: snapshot.getFileNames(overridePath)) {
+          ResourceEntry entry = getResourceEntry(fileName);
+          if (entry instanceof FileResourceEntry) {
+            treeModel.addResourceEntry(entry, entry.getTreeFolderName(), true);
+          } else if (entry instanceof BIFFResourceEntry) {
+            ((BIFFResourceEntry)entry).setOverride(true);
+            if (overrideInOverride) {
+              treeModel.removeResourceEntry(entry, entry.getExtension());
+              treeModel.addResourceEntry(new FileResourceEntry(overridePath.resolve(fileName), true), overrideFolder, true);
             }
-          });
+          }
         }
       }
     }
+    snapshot.save();
     loadSpecialResources();
     treeModel.sort();
   }
@@ -1638,7 +1781,10 @@ private boolean saveResourceInternal(Resource resource, Component parent)
     }
     JOptionPane.showMessageDialog(parent, "File saved to \"" + outPath.toAbsolutePath() + '\"',
                                   "Save complete", JOptionPane.INFORMATION_MESSAGE);
-    if ("IDS".equals(entry.getExtension())) {
+    ReferenceIndex.invalidate(entry);
+    if ("BAM".equals(entry.getExtension())) {
+      BamDecoderPool.invalidate(entry);
+    } else if ("IDS".equals(entry.getExtension())) {
       IdsMapCache.remove(entry);
       final IdsBrowser idsbrowser = ChildFrame.getFirstFrame(IdsBrowser.class);
       if (idsbrowser != null) {
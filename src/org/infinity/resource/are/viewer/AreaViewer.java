@@ -28,7 +28,6 @@
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
-import java.awt.image.VolatileImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.ByteArrayOutputStream;
@@ -108,8 +107,8 @@
 import org.infinity.resource.are.viewer.ViewerConstants.LayerStackingType;
 import org.infinity.resource.are.viewer.ViewerConstants.LayerType;
 import org.infinity.resource.are.viewer.icon.ViewerIcons;
+import org.infinity.resource.graphics.BamDecoderPool;
 import org.infinity.resource.graphics.GraphicsResource;
-import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.key.BIFFResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.wed.Overlay;
@@ -251,6 +250,7 @@ public void close()
       layerManager = null;
     }
     SharedResourceCache.clearCache();
+    BamDecoderPool.clearUnused();
     dispose();
     System.gc();
     super.close();
@@ -291,6 +291,7 @@ private void init()
     // Creating main view area
     pCanvas = new JPanel(new GridBagLayout());
     rcCanvas = new TilesetRenderer(map.getOverlayTransparency());
+    rcCanvas.setTiledRendering(Settings.TiledRendering);
     rcCanvas.addComponentListener(getListeners());
     rcCanvas.addMouseListener(getListeners());
     rcCanvas.addMouseMotionListener(getListeners());
@@ -2003,6 +2004,8 @@ private void applySettings()
     }
     // applying minimap alpha
     rcCanvas.setMiniMapTransparency((int)(Settings.MiniMapAlpha*255.0));
+    // applying map rendering mode
+    rcCanvas.setTiledRendering(Settings.TiledRendering);
 
     // applying mouse wheel zoom
     if (Settings.MouseWheelZoom) {
@@ -2073,12 +2076,7 @@ public void run()
               setZoomFactor(zoom, Settings.ZoomFactor);
             }
           } else {
-            VolatileImage srcImage = (VolatileImage)rcCanvas.getImage();
-            dstImage = ColorConvert.createCompatibleImage(srcImage.getWidth(), srcImage.getHeight(),
-                                                          srcImage.getTransparency());
-            Graphics2D g = dstImage.createGraphics();
-            g.drawImage(srcImage, 0, 0, null);
-            g.dispose();
+            dstImage = rcCanvas.createMapImage();
           }
           bRet = ImageIO.write(dstImage, "png", os);
           dstImage.flush();
@@ -402,10 +402,10 @@ protected synchronized void updateGraphics()
           for (int i = 0; i < frameIndices.length; i++) {
             // fetching frame data
             int[] buffer = ((DataBufferInt)working.getRaster().getDataBuffer()).getData();
-            Arrays.fill(buffer, 0);
-            if (bam instanceof BamV1Decoder) {
-              ((BamV1Decoder)bam).frameGet(control, frameIndices[i], working);
-            } else {
+            // BAM v1 frames are decoded directly into the frame region of the working buffer
+            if (!(bam instanceof BamV1Decoder) ||
+                !((BamV1Decoder)bam).frameGetPixels(control, frameIndices[i], buffer, 0, working.getWidth())) {
+              Arrays.fill(buffer, 0);
               bam.frameGet(control, frameIndices[i], working);
             }
 
@@ -206,6 +206,7 @@ protected static ActorAnimationProvider createAnimationProvider(CreResource cre)
       decoder = SpriteDecoder.importSprite(cre);
       decoder.setSelectionCircleEnabled(Settings.ShowActorSelectionCircle);
       decoder.setPersonalSpaceVisible(Settings.ShowActorPersonalSpace);
+      decoder.setVirtualFramesEnabled(true);
 
       Sequence sequence = null;
 
@@ -24,6 +24,7 @@
 import org.infinity.resource.are.AreResource;
 import org.infinity.resource.are.viewer.icon.ViewerIcons;
 import org.infinity.resource.graphics.BamDecoder;
+import org.infinity.resource.graphics.BamDecoderPool;
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.PseudoBamDecoder;
 import org.infinity.resource.key.FileResourceEntry;
@@ -54,6 +55,8 @@ public class LayerObjectAnimation extends LayerObject
   private final AbstractLayerItem[] items = new AbstractLayerItem[2];
 
   private Flag scheduleFlags;
+  /** BAM resource of the animation, shared through the {@link BamDecoderPool}. */
+  private ResourceEntry bamEntry;
 
 
   public LayerObjectAnimation(AreResource parent, Animation anim)
@@ -138,14 +141,10 @@ public LayerObjectAnimation(AreResource parent, Animation anim)
 
         final ResourceRef animRef = (ResourceRef)anim.getAttribute(Animation.ARE_ANIMATION_RESREF);
         keyAnim = animRef == null || animRef.isEmpty() ? "" : animRef.getResourceName();
-        final BamDecoder bam;
-        if (!SharedResourceCache.contains(SharedResourceCache.Type.ANIMATION, keyAnim)) {
-          final ResourceEntry bamEntry = ResourceFactory.getResourceEntry(keyAnim);
-          bam = BamDecoder.loadBam(bamEntry);
-          SharedResourceCache.add(SharedResourceCache.Type.ANIMATION, keyAnim, new ResourceAnimation(keyAnim, bam));
-        } else {
-          SharedResourceCache.add(SharedResourceCache.Type.ANIMATION, keyAnim);
-          bam = ((ResourceAnimation)SharedResourceCache.get(SharedResourceCache.Type.ANIMATION, keyAnim)).getData();
+        final ResourceEntry entry = ResourceFactory.getResourceEntry(keyAnim);
+        final BamDecoder bam = BamDecoderPool.acquire(entry);
+        if (bam != null) {
+          bamEntry = entry;
         }
         animation = new BackgroundAnimationProvider(bam);
         animation.setPalette(palette);
@@ -203,18 +202,13 @@ public void close()
   {
     super.close();
     // removing cached references
-    for (int i = 0; i < items.length; i++) {
-      Object key = items[i].getData();
-      if (key != null) {
-        switch (i) {
-          case ViewerConstants.ITEM_ICON:
-            SharedResourceCache.remove(SharedResourceCache.Type.ICON, key);
-            break;
-          case ViewerConstants.ITEM_REAL:
-            SharedResourceCache.remove(SharedResourceCache.Type.ANIMATION, key);
-            break;
-        }
-      }
+    Object key = items[ViewerConstants.ITEM_ICON].getData();
+    if (key != null) {
+      SharedResourceCache.remove(SharedResourceCache.Type.ICON, key);
+    }
+    if (bamEntry != null) {
+      BamDecoderPool.release(bamEntry);
+      bamEntry = null;
     }
   }
 
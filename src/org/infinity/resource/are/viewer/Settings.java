@@ -53,6 +53,8 @@
   public static boolean UseColorShades = getDefaultUseColorShades();
   // Indicates whether layer controls will be included when exporting the map as graphics
   public static boolean ExportLayers = getDefaultExportLayers();
+  // Indicates whether only the visible part of the map is rendered
+  public static boolean TiledRendering = getDefaultTiledRendering();
   // Indicates whether to use the mouse wheel to change map zoom level
   public static boolean MouseWheelZoom = getDefaultMouseWheelZoom();
   // Current open/closed state of door tiles and structures
@@ -117,6 +119,7 @@
   private static final String PREFS_STORESETTINGS           = "StoreSettings";
   private static final String PREFS_USECOLORSHADES          = "UseColorShades";
   private static final String PREFS_EXPORTLAYERS            = "ExportLayers";
+  private static final String PREFS_TILEDRENDERING          = "TiledRendering";
   private static final String PREFS_MOUSEWHEELZOOM          = "MouseWheelZoom";
   private static final String PREFS_DRAWCLOSED              = "DrawClosed";
   private static final String PREFS_DRAWOVERLAYS            = "DrawOverlays";
@@ -168,6 +171,7 @@ public static void loadSettings(boolean force)
       StoreVisualSettings = prefs.getBoolean(PREFS_STORESETTINGS, getDefaultStoreVisualSettings());
       UseColorShades = prefs.getBoolean(PREFS_USECOLORSHADES, getDefaultUseColorShades());
       ExportLayers = prefs.getBoolean(PREFS_EXPORTLAYERS,getDefaultExportLayers());
+      TiledRendering = prefs.getBoolean(PREFS_TILEDRENDERING, getDefaultTiledRendering());
       MouseWheelZoom = prefs.getBoolean(PREFS_MOUSEWHEELZOOM,getDefaultMouseWheelZoom());
       OverrideAnimVisibility = prefs.getBoolean(PREFS_OVERRIDEANIMVISIBILITY, getDefaultOverrideAnimVisibility());
       ShowActorFrame = prefs.getInt(PREFS_SHOWACTORFRAME, getDefaultShowActorFrame());
@@ -235,6 +239,7 @@ public static void storeSettings(boolean force)
     prefs.putBoolean(PREFS_STORESETTINGS, StoreVisualSettings);
     prefs.putBoolean(PREFS_USECOLORSHADES, UseColorShades);
     prefs.putBoolean(PREFS_EXPORTLAYERS, ExportLayers);
+    prefs.putBoolean(PREFS_TILEDRENDERING, TiledRendering);
     prefs.putBoolean(PREFS_MOUSEWHEELZOOM, MouseWheelZoom);
     prefs.putBoolean(PREFS_OVERRIDEANIMVISIBILITY, OverrideAnimVisibility);
     prefs.putInt(PREFS_SHOWACTORFRAME, ShowActorFrame);
@@ -354,6 +359,11 @@ public static boolean getDefaultExportLayers()
     return true;
   }
 
+  public static boolean getDefaultTiledRendering()
+  {
+    return true;
+  }
+
   public static boolean getDefaultMouseWheelZoom()
   {
     return false;
@@ -78,7 +78,8 @@ public class SettingsDialog extends JDialog
   private JButton bUp, bDown, bDefaultOrder;
   private JComboBox<String> cbActorFrames, cbFrames, cbQualityMap, cbQualityAnim;
   private JCheckBox cbShowActorSelectionCircle, cbShowActorPersonalSpace, cbActorAccurateBlending,
-                    cbOverrideAnimVisibility, cbMouseWheelZoom, cbExportLayers, cbUseColorShades, cbStoreSettings;
+                    cbOverrideAnimVisibility, cbMouseWheelZoom, cbExportLayers, cbUseColorShades, cbTiledRendering,
+                    cbStoreSettings;
   private JButton bDefaultSettings, bCancel, bOK;
   private JSpinner sOverlaysFps, sAnimationsFps;
   private JSlider sMiniMapAlpha;
@@ -168,6 +169,7 @@ private void updateSettings()
     Settings.MouseWheelZoom = cbMouseWheelZoom.isSelected();
     Settings.ExportLayers = cbExportLayers.isSelected();
     Settings.UseColorShades = cbUseColorShades.isSelected();
+    Settings.TiledRendering = cbTiledRendering.isSelected();
     Settings.StoreVisualSettings = cbStoreSettings.isSelected();
 
     settingsChanged = true;
@@ -224,6 +226,7 @@ private void resetDialogSettings()
     sMiniMapAlpha.setValue((int)(Settings.getDefaultMiniMapAlpha()*100.0));
 
     cbUseColorShades.setSelected(Settings.getDefaultUseColorShades());
+    cbTiledRendering.setSelected(Settings.getDefaultTiledRendering());
     cbStoreSettings.setSelected(Settings.getDefaultStoreVisualSettings());
   }
 
@@ -515,6 +518,8 @@ private void init()
     cbUseColorShades.setSelected(Settings.UseColorShades);
     cbMouseWheelZoom = new JCheckBox("Use mouse wheel to zoom map");
     cbMouseWheelZoom.setSelected(Settings.MouseWheelZoom);
+    cbTiledRendering = new JCheckBox("Render visible map area only (reduces memory usage)");
+    cbTiledRendering.setSelected(Settings.TiledRendering);
     cbStoreSettings = new JCheckBox("Remember all visual settings");
     cbStoreSettings.setSelected(Settings.StoreVisualSettings);
     c = ViewerUtil.setGBC(c, 0, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
@@ -527,6 +532,9 @@ private void init()
                           GridBagConstraints.NONE, new Insets(4, 4, 0, 4), 0, 0);
     pMisc.add(cbMouseWheelZoom, c);
     c = ViewerUtil.setGBC(c, 0, 3, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+                          GridBagConstraints.NONE, new Insets(4, 4, 0, 4), 0, 0);
+    pMisc.add(cbTiledRendering, c);
+    c = ViewerUtil.setGBC(c, 0, 4, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
                           GridBagConstraints.NONE, new Insets(4, 4, 4, 4), 0, 0);
     pMisc.add(cbStoreSettings, c);
 
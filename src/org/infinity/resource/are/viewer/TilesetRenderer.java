@@ -5,16 +5,30 @@
 package org.infinity.resource.are.viewer;
 
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.VolatileImage;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
 
 import org.infinity.datatype.IsNumeric;
 import org.infinity.datatype.IsTextual;
@@ -24,11 +38,12 @@
 import org.infinity.resource.ResourceFactory;
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.GraphicsResource;
+import org.infinity.resource.graphics.TisBatchDecoder;
 import org.infinity.resource.graphics.TisDecoder;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.wed.Door;
 import org.infinity.resource.wed.Overlay;
-import org.infinity.resource.wed.Tilemap;
+import org.infinity.resource.wed.OverlayTilemap;
 import org.infinity.resource.wed.WedResource;
 
 /**
@@ -51,6 +66,9 @@ public enum RenderMode {
   private static final int MaxOverlays = 8;   // max. supported overlay entries
   private static final double MinZoomFactor = 1.0/64.0;   // lower zoom factor limit
   private static final double MaxZoomFactor = 16.0;       // upper zoom factor limit
+  private static final int MinRenderedTiles = 256;        // min. number of rendered tiles kept in tiled mode
+  private static final int MaxDecodedTiles = 1024;        // max. number of decoded tiles per tileset in tiled mode
+  private static final int PrefetchMargin = 2;            // number of tiles rendered around the visible area in tiled mode
 
   // Placeholder for missing tile data
   private static final int[] DEFAULT_TILE_DATA = createDefaultTile();
@@ -71,6 +89,13 @@ public enum RenderMode {
   private final List<Tileset> listTilesets = new ArrayList<>(MaxOverlays);
   // array of tile indices used for closed door states for each door structure
   private final List<DoorInfo> listDoorTileIndices = new ArrayList<>();
+  // rendered tiles of the map in tiled mode (tilemap index -> tile graphics), in access order.
+  // Access to rendered and incomplete tiles is guarded by the renderer lock.
+  private final LinkedHashMap<Integer, BufferedImage> renderedTiles = new LinkedHashMap<>(256, 0.75f, true);
+  // rendered tiles of the map in tiled mode which are still waiting for decoded tile graphics
+  private final Set<Integer> incompleteTiles = new HashSet<>();
+  // indicates whether an update for newly decoded tiles has already been scheduled
+  private final AtomicBoolean tilesDecodedPending = new AtomicBoolean();
 
   private final BufferedImage workingTile = ColorConvert.createCompatibleImage(64, 64, true); // internally used for drawing tile graphics
   private WedResource wed;                // current wed resource
@@ -81,6 +106,9 @@ public enum RenderMode {
   private boolean hasChangedMap, hasChangedAppearance, hasChangedOverlays, hasChangedDoorState;
   private boolean isClosed = false;       // opened/closed state of door tiles
   private boolean showGrid = false;       // indicates whether to draw a grid on the tiles
+  private boolean tiledRendering = false; // indicates whether only visible tiles are rendered
+  private int renderedTilesCapacity = MinRenderedTiles;   // max. number of rendered tiles in tiled mode
+  private boolean parallelDecoding = true;  // indicates whether tile graphics are decoded by the parallel decoder
   private boolean forcedInterpolation = false;  // indicates whether to use a pre-defined interpolation type or set one based on zoom factor
   private double zoomFactor = 1.0;        // zoom factor for drawing the map
   private int lighting = ViewerConstants.LIGHTING_DAY;    // the lighting condition to be used (day/twilight/night)
@@ -356,6 +384,108 @@ public void setGridEnabled(boolean enable)
     }
   }
 
+  /**
+   * Returns whether tiled rendering is enabled.
+   */
+  public boolean isTiledRendering()
+  {
+    return tiledRendering;
+  }
+
+  /**
+   * Specifies whether the whole map is rendered into a single image or only the tiles in the
+   * visible area of the map are rendered on demand. Tiled rendering keeps a bounded number of
+   * decoded and rendered tiles in memory, which is independent of the map size.
+   * @param enable {@code true} to enable tiled rendering.
+   */
+  public void setTiledRendering(boolean enable)
+  {
+    if (enable != tiledRendering) {
+      tiledRendering = enable;
+      clearRenderedTiles();
+      for (final Tileset ts: listTilesets) {
+        ts.setCacheCapacity(tiledRendering ? MaxDecodedTiles : 0);
+      }
+      if (tiledRendering && getImage() != null) {
+        if (getImage() instanceof VolatileImage) {
+          ((VolatileImage)getImage()).flush();
+        }
+        setImage(null);
+      }
+      hasChangedMap = true;
+      updateDisplay();
+    }
+  }
+
+  /**
+   * Returns whether tile graphics are decoded in parallel.
+   */
+  public boolean isParallelDecoding()
+  {
+    return parallelDecoding;
+  }
+
+  /**
+   * Specifies whether tile graphics are decoded in parallel or one after another on the calling thread.
+   * In tiled rendering mode parallel decoding takes place in the background and decoded tiles are
+   * shown as soon as they become available.
+   * @param enable {@code true} to enable parallel decoding.
+   */
+  public void setParallelDecoding(boolean enable)
+  {
+    parallelDecoding = enable;
+  }
+
+  /**
+   * Returns timing and throughput metrics of all tile decoding operations since the current map
+   * has been loaded. The metrics are written to the log when the map is released.
+   */
+  public TisBatchDecoder.Metrics getDecodeMetrics()
+  {
+    TisBatchDecoder.Metrics metrics = new TisBatchDecoder.Metrics();
+    for (final Tileset ts: listTilesets) {
+      metrics.add(ts.getMetrics());
+    }
+    return metrics;
+  }
+
+  /**
+   * Returns the whole map without scaling as a new image.
+   */
+  public BufferedImage createMapImage()
+  {
+    int width = Math.max(1, getMapWidth(false));
+    int height = Math.max(1, getMapHeight(false));
+    BufferedImage dstImage;
+    if (getImage() != null) {
+      Image srcImage = getImage();
+      dstImage = ColorConvert.createCompatibleImage(srcImage.getWidth(null), srcImage.getHeight(null),
+                                                    (srcImage instanceof VolatileImage) ?
+                                                        ((VolatileImage)srcImage).getTransparency() : Transparency.TRANSLUCENT);
+      Graphics2D g = dstImage.createGraphics();
+      g.drawImage(srcImage, 0, 0, null);
+      g.dispose();
+    } else {
+      // composing tiles directly without caching them
+      dstImage = ColorConvert.createCompatibleImage(width, height, true);
+      if (isInitialized()) {
+        // workingTile is reserved for drawTile()
+        BufferedImage tileImage = ColorConvert.createCompatibleImage(64, 64, true);
+        Graphics2D g = dstImage.createGraphics();
+        try {
+          int[] target = ((DataBufferInt)tileImage.getRaster().getDataBuffer()).getData();
+          for (final Tile tile: listTilesets.get(0).listTiles) {
+            composeTile(tile, isDoorTile(tile), target);
+            g.drawImage(tileImage, tile.getX(), tile.getY(), null);
+          }
+        } finally {
+          g.dispose();
+        }
+      }
+    }
+    return dstImage;
+  }
+
   /**
    * Returns the width of the current map in pixels. Zoom factor is not taken into account.
    * @return Map width in pixels.
@@ -544,7 +674,11 @@ protected void updateSize()
   @Override
   protected void paintCanvas(Graphics g)
   {
-    super.paintCanvas(g);
+    if (tiledRendering && isInitialized()) {
+      paintTiles((Graphics2D)g);
+    } else {
+      super.paintCanvas(g);
+    }
     if (showGrid) {
       double tileWidth = 64.0 * zoomFactor;
       double tileHeight = 64.0 * zoomFactor;
@@ -581,7 +715,9 @@ private static int[] createDefaultTile()
   private boolean updateImageSize()
   {
     if (isInitialized()) {
-      if (getImage() == null || getImage().getWidth(null) != getMapWidth(false) ||
+      if (tiledRendering) {
+        // tiles are rendered on demand
+      } else if (getImage() == null || getImage().getWidth(null) != getMapWidth(false) ||
           getImage().getHeight(null) != getMapHeight(false)) {
         setImage(ColorConvert.createVolatileImage(getMapWidth(false), getMapHeight(false), false));
       }
@@ -624,9 +760,20 @@ private boolean init(int overlayTransparency, WedResource wed)
   private void release(boolean forceUpdate)
   {
     if (isInitialized()) {
+      // reporting decoding performance of the released map
+      TisBatchDecoder.Metrics metrics = getDecodeMetrics();
+      if (metrics.getTileCount() > 0 || metrics.getFailedCount() > 0) {
+        String name = (wed.getResourceEntry() != null) ? wed.getResourceEntry().getResourceName() : "map";
+        System.out.println("Tileset decoding of " + name + ": " + metrics);
+      }
+
       wed = null;
+      for (final Tileset ts: listTilesets) {
+        ts.close();
+      }
       listTilesets.clear();
       listDoorTileIndices.clear();
+      clearRenderedTiles();
 
       Image img = getImage();
       if (img != null) {
@@ -655,9 +802,24 @@ private boolean isInitialized()
     return (wed != null) && (!listTilesets.isEmpty());
   }
 
+  // Returns the raw data of the WED resource if it matches the current state of the structure, null otherwise
+  private static ByteBuffer getWedBuffer(WedResource wed)
+  {
+    if (wed != null && !wed.hasStructChanged() && wed.getResourceEntry() != null) {
+      try {
+        return wed.getResourceEntry().getResourceBuffer();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+    return null;
+  }
+
   private boolean initWed(WedResource wed)
   {
     if (wed != null) {
+      final ByteBuffer wedBuffer = getWedBuffer(wed);
+
       // loading overlay structures
       IsNumeric so = (IsNumeric)wed.getAttribute(WedResource.WED_OFFSET_OVERLAYS);
       IsNumeric sc = (IsNumeric)wed.getAttribute(WedResource.WED_NUM_OVERLAYS);
@@ -671,7 +833,7 @@ private boolean initWed(WedResource wed)
             }
           }
           if (ovl != null) {
-            listTilesets.add(new Tileset(wed, ovl));
+            listTilesets.add(new Tileset(wed, ovl, wedBuffer, tiledRendering ? MaxDecodedTiles : 0));
             curOfs += ovl.getSize();
           } else {
             release(true);
@@ -697,9 +859,14 @@ private boolean initWed(WedResource wed)
             int tileIdx = ((IsNumeric)door.getAttribute(Door.WED_DOOR_TILEMAP_LOOKUP_INDEX)).getValue();
             int tileCount = ((IsNumeric)door.getAttribute(Door.WED_DOOR_NUM_TILEMAP_INDICES)).getValue();
             if (tileCount < 0) tileCount = 0;
-            int[] indices = new int[tileCount];
-            for (int j = 0; j < tileCount; j++) {
-              indices[j] = ((IsNumeric)door.getAttribute(lookupOfs.getValue() + (tileIdx+j)*tileSize, false)).getValue();
+            int[] indices;
+            if (wedBuffer != null) {
+              indices = OverlayTilemap.readLookup(wedBuffer, lookupOfs.getValue(), tileIdx, tileCount);
+            } else {
+              indices = new int[tileCount];
+              for (int j = 0; j < tileCount; j++) {
+                indices[j] = ((IsNumeric)door.getAttribute(lookupOfs.getValue() + (tileIdx+j)*tileSize, false)).getValue();
+              }
             }
             listDoorTileIndices.add(new DoorInfo(name, isClosed, indices));
             curOfs += door.getSize();
@@ -735,7 +902,19 @@ private void updateDisplay(boolean forced)
         forced |= ((VolatileImage)getImage()).contentsLost();
       }
 
-      if (hasChangedMap || hasChangedAppearance || forced) {
+      if (tiledRendering) {
+        // visible tiles are rendered on the next paint operation
+        if (hasChangedAppearance || forced) {
+          clearRenderedTiles();
+        } else {
+          if (hasChangedOverlays) {
+            invalidateTiles(listTilesets.get(0).listOverlayTiles);
+          }
+          if (hasChangedDoorState) {
+            invalidateDoorTiles();
+          }
+        }
+      } else if (hasChangedMap || hasChangedAppearance || forced) {
         // redraw each tile
         drawAllTiles();
       } else {
@@ -769,6 +948,13 @@ private boolean hasOverlay(int ovlIdx)
   // draws all tiles of the map
   private void drawAllTiles()
   {
+    if (parallelDecoding) {
+      // decoding tile graphics in advance
+      for (final Tileset tileset: listTilesets) {
+        tileset.decodeTiles(tileset.getReferencedTiles());
+      }
+    }
+
     Tileset ts = listTilesets.get(0);
     for (int i = 0, size = ts.listTiles.size(); i < size; i++) {
       Tile tile = ts.listTiles.get(i);
@@ -927,8 +1113,33 @@ private void drawTileBlended(int[] primaryTile, int[] secondaryTile, int[] overl
   private synchronized void drawTile(Tile tile, boolean isDoorTile)
   {
     if (tile != null) {
-      boolean isDoorClosed = (Profile.getEngine() == Profile.Engine.PST) ? !isClosed : isClosed;
       int[] target = ((DataBufferInt)workingTile.getRaster().getDataBuffer()).getData();
+      composeTile(tile, isDoorTile, target);
+
+      // drawing tile on canvas
+      if (getImage() != null) {
+        Graphics2D g = (Graphics2D)getImage().getGraphics();
+        g.drawImage(workingTile, tile.getX(), tile.getY(), null);
+        g.dispose();
+      }
+      target = null;
+    }
+  }
+
+  // composes the graphics of the specified tile into the pixel buffer
+  private void composeTile(Tile tile, boolean isDoorTile, int[] target)
+  {
+    composeTile(tile, isDoorTile, target, true);
+  }
+
+  // composes the graphics of the specified tile into the pixel buffer. If "wait" is false, tile graphics
+  // which have not been decoded yet are requested from the background decoder and treated as missing.
+  // Returns whether all tile graphics were available.
+  private boolean composeTile(Tile tile, boolean isDoorTile, int[] target, boolean wait)
+  {
+    boolean complete = true;
+    if (tile != null) {
+      boolean isDoorClosed = (Profile.getEngine() == Profile.Engine.PST) ? !isClosed : isClosed;
 
       if (overlaysEnabled && tile.hasOverlay() && hasOverlay(tile.getOverlayIndex())) {   // overlayed tile
         // preparing graphics data
@@ -937,20 +1148,23 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
           int tileIdx = listTilesets.get(overlay).listTiles.get(0).getPrimaryIndex();
           int[] srcOvl = null;
           if (tileIdx >= 0) {
-            srcOvl = listTilesets.get(overlay).listTileData.get(tileIdx);
+            srcOvl = getTileData(listTilesets.get(overlay), tileIdx, wait);
+            complete &= (srcOvl != null || wait);
           }
           int[] srcPri = null;
           tileIdx = tile.getPrimaryIndex();
           if (tileIdx >= 0) {
-            srcPri = listTilesets.get(0).listTileData.get(tileIdx);
+            srcPri = getTileData(listTilesets.get(0), tileIdx, wait);
+            complete &= (srcPri != null || wait);
           }
           int[] srcSec = null;
           tileIdx = tile.getSecondaryIndex();
           if (tileIdx >= 0) {
-            if (tileIdx < listTilesets.get(0).listTileData.size()) {
-              srcSec = listTilesets.get(0).listTileData.get(tileIdx);
+            if (tileIdx < listTilesets.get(0).getTileCount()) {
+              srcSec = getTileData(listTilesets.get(0), tileIdx, wait);
+              complete &= (srcSec != null || wait);
             } else {
-              System.err.println("Invalid tile index: " + tileIdx + " of " + listTilesets.get(0).listTileData.size());
+              System.err.println("Invalid tile index: " + tileIdx + " of " + listTilesets.get(0).getTileCount());
             }
           }
 
@@ -972,8 +1186,9 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
         int[] srcTile = null;
         int tileIdx = (!isDoorClosed || !isDoorTile) ? tile.getPrimaryIndex() : tile.getSecondaryIndex();
         if (tileIdx < 0) { tileIdx = tile.getPrimaryIndex(); }    // XXX: hackish work-around for faulty tile definitions
-        if (tileIdx >= 0 && tileIdx < listTilesets.get(0).listTileData.size()) {
-          srcTile = listTilesets.get(0).listTileData.get(tileIdx);
+        if (tileIdx >= 0 && tileIdx < listTilesets.get(0).getTileCount()) {
+          srcTile = getTileData(listTilesets.get(0), tileIdx, wait);
+          complete &= (srcTile != null || wait);
         } else {
           // loading default tile
           srcTile = DEFAULT_TILE_DATA;
@@ -1033,14 +1248,174 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
           }
         }
       }
+    }
+    return complete;
+  }
 
-      // drawing tile on canvas
-      if (getImage() != null) {
-        Graphics2D g = (Graphics2D)getImage().getGraphics();
-        g.drawImage(workingTile, tile.getX(), tile.getY(), null);
-        g.dispose();
+  // Returns the graphics data of the specified tile. If "wait" is false, tiles which have not been
+  // decoded yet are requested from the background decoder and null is returned.
+  private int[] getTileData(Tileset ts, int index, boolean wait)
+  {
+    return wait ? ts.getTileData(index) : ts.requestTileData(index);
+  }
+
+  // Draws the tiles intersecting the clip area in tiled rendering mode
+  private void paintTiles(Graphics2D g)
+  {
+    Tileset ts = listTilesets.get(0);
+    if (ts.tilesX <= 0 || ts.tilesY <= 0) {
+      return;
+    }
+
+    int left = Math.max(0, (getWidth() - getMapWidth(true)) / 2);
+    int top = Math.max(0, (getHeight() - getMapHeight(true)) / 2);
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, getWidth(), getHeight());
+    }
+
+    // determining visible tiles
+    double tileSize = 64.0 * zoomFactor;
+    int x1 = Math.max(0, (int)Math.floor((clip.x - left) / tileSize));
+    int y1 = Math.max(0, (int)Math.floor((clip.y - top) / tileSize));
+    int x2 = Math.min(ts.tilesX - 1, (int)Math.floor((clip.x + clip.width - 1 - left) / tileSize));
+    int y2 = Math.min(ts.tilesY - 1, (int)Math.floor((clip.y + clip.height - 1 - top) / tileSize));
+    if (x2 < x1 || y2 < y1) {
+      return;
+    }
+
+    // cache must be able to hold the visible tiles and the prefetch margin
+    int px1 = Math.max(0, x1 - PrefetchMargin), py1 = Math.max(0, y1 - PrefetchMargin);
+    int px2 = Math.min(ts.tilesX - 1, x2 + PrefetchMargin), py2 = Math.min(ts.tilesY - 1, y2 + PrefetchMargin);
+    renderedTilesCapacity = Math.max(MinRenderedTiles, (px2 - px1 + 1) * (py2 - py1 + 1));
+    trimRenderedTiles(renderedTilesCapacity);
+
+    Composite oldComposite = g.getComposite();
+    Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+    g.setComposite(getComposite());
+    if (zoomFactor != 1.0) {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, getInterpolationType());
+    }
+    try {
+      for (int y = y1; y <= y2; y++) {
+        int dy1 = top + (int)Math.ceil(y * tileSize);
+        int dy2 = top + (int)Math.ceil((y + 1) * tileSize);
+        for (int x = x1; x <= x2; x++) {
+          int dx1 = left + (int)Math.ceil(x * tileSize);
+          int dx2 = left + (int)Math.ceil((x + 1) * tileSize);
+          BufferedImage image = getRenderedTile(ts, y * ts.tilesX + x);
+          if (image != null) {
+            g.drawImage(image, dx1, dy1, dx2 - dx1, dy2 - dy1, null);
+          }
+        }
+      }
+    } finally {
+      g.setComposite(oldComposite);
+      if (oldInterpolation != null) {
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+      }
+    }
+
+    // rendering tiles around the visible area in advance
+    for (int y = py1; y <= py2; y++) {
+      for (int x = px1; x <= px2; x++) {
+        if (x < x1 || x > x2 || y < y1 || y > y2) {
+          getRenderedTile(ts, y * ts.tilesX + x);
+        }
+      }
+    }
+
+    // decoding missing tile graphics in the background
+    for (final Tileset tileset: listTilesets) {
+      tileset.submitRequests(this::tilesDecoded);
+    }
+  }
+
+  // Called by the background decoder whenever new tile graphics are available.
+  // Schedules re-rendering of incomplete tiles.
+  private void tilesDecoded()
+  {
+    if (tilesDecodedPending.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(() -> {
+        tilesDecodedPending.set(false);
+        boolean update = false;
+        synchronized (this) {
+          if (!incompleteTiles.isEmpty()) {
+            for (final Integer key: incompleteTiles) {
+              renderedTiles.remove(key);
+            }
+            incompleteTiles.clear();
+            update = true;
+          }
+        }
+        if (update) {
+          repaint();
+        }
+      });
+    }
+  }
+
+  // Returns the rendered graphics of the specified tile, renders it if needed
+  private synchronized BufferedImage getRenderedTile(Tileset ts, int index)
+  {
+    if (index < 0 || index >= ts.listTiles.size()) {
+      return null;
+    }
+
+    Integer key = Integer.valueOf(index);
+    BufferedImage image = renderedTiles.get(key);
+    if (image == null) {
+      image = trimRenderedTiles(renderedTilesCapacity - 1);
+      if (image == null) {
+        image = ColorConvert.createCompatibleImage(64, 64, true);
+      }
+      Tile tile = ts.listTiles.get(index);
+      boolean complete = composeTile(tile, isDoorTile(tile), ((DataBufferInt)image.getRaster().getDataBuffer()).getData(),
+                                     !parallelDecoding);
+      renderedTiles.put(key, image);
+      if (!complete) {
+        incompleteTiles.add(key);
+      }
+    }
+    return image;
+  }
+
+  // Removes least recently used tiles until the cache size satisfies the specified capacity.
+  // Returns the last removed tile image for reuse.
+  private synchronized BufferedImage trimRenderedTiles(int capacity)
+  {
+    BufferedImage retVal = null;
+    Iterator<BufferedImage> iter = renderedTiles.values().iterator();
+    while (renderedTiles.size() > Math.max(0, capacity) && iter.hasNext()) {
+      retVal = iter.next();
+      iter.remove();
+    }
+    return retVal;
+  }
+
+  // Removes all rendered tiles
+  private synchronized void clearRenderedTiles()
+  {
+    renderedTiles.clear();
+    incompleteTiles.clear();
+  }
+
+  // Marks the specified tiles for re-rendering in tiled mode
+  private synchronized void invalidateTiles(List<Tile> tiles)
+  {
+    int tilesX = listTilesets.get(0).tilesX;
+    for (final Tile tile: tiles) {
+      renderedTiles.remove(Integer.valueOf((tile.getY() / 64) * tilesX + tile.getX() / 64));
+    }
+  }
+
+  // Marks all door tiles for re-rendering in tiled mode
+  private synchronized void invalidateDoorTiles()
+  {
+    for (final DoorInfo di: listDoorTileIndices) {
+      for (int j = 0, iCount = di.getIndicesCount(); j < iCount; j++) {
+        renderedTiles.remove(Integer.valueOf(di.getIndex(j)));
       }
-      target = null;
     }
   }
 
@@ -1083,8 +1458,16 @@ private void notifyChangeListeners()
   // Stores data of a specific overlay structure
   private static class Tileset
   {
-    // graphics data for all tiles of this overlay (as int arrays of 64*64 pixels)
-    public final List<int[]> listTileData = new ArrayList<>();
+    // graphics data of decoded tiles of this overlay (as int arrays of 64*64 pixels), in access order
+    private final LinkedHashMap<Integer, int[]> tileData = new LinkedHashMap<>(256, 0.75f, true);
+    // tiles requested for background decoding which have not been submitted yet
+    private final Set<Integer> requestedTiles = new LinkedHashSet<>();
+    // tiles currently being decoded in the background
+    private final Set<Integer> pendingTiles = new HashSet<>();
+    // active background decoding operations
+    private final List<TisBatchDecoder> activeDecoders = new ArrayList<>();
+    // timing and throughput metrics of all decoding operations
+    private final TisBatchDecoder.Metrics metrics = new TisBatchDecoder.Metrics();
     // info structures for all tiles of this overlay
     public final List<Tile> listTiles = new ArrayList<>();
     // lists references to all tiles containing overlays from listTiles
@@ -1093,9 +1476,166 @@ private void notifyChangeListeners()
     public int tilesX, tilesY;    // stores number of tiles per row/column
     public boolean isTisPalette;  // whether tileset is palette-based
 
-    public Tileset(WedResource wed, Overlay ovl)
+    private ResourceEntry tisEntry; // TIS resource providing the tile graphics
+    private TisDecoder decoder;     // decodes tile graphics on demand
+    private int tileCount;          // number of tiles in the TIS resource
+    private int cacheCapacity;      // max. number of decoded tiles to keep, 0 for unlimited
+    private boolean closed;         // set if the tileset has been released
+
+    public Tileset(WedResource wed, Overlay ovl, ByteBuffer wedBuffer, int cacheCapacity)
+    {
+      this.cacheCapacity = cacheCapacity;
+      init(wed, ovl, wedBuffer);
+    }
+
+    // Returns the number of tiles provided by the TIS resource
+    public int getTileCount()
+    {
+      return tileCount;
+    }
+
+    // Returns the metrics of all decoding operations of this tileset
+    public TisBatchDecoder.Metrics getMetrics()
+    {
+      return metrics;
+    }
+
+    // Returns the graphics data of the specified tile. Tiles are decoded on first access.
+    // Returns null if the tile is not available.
+    public synchronized int[] getTileData(int index)
+    {
+      if (index < 0 || index >= tileCount) {
+        return null;
+      }
+
+      int[] data = tileData.get(Integer.valueOf(index));
+      if (data == null) {
+        TisDecoder decoder = getDecoder();
+        if (decoder == null) {
+          return null;
+        }
+        int[][] result = new int[1][];
+        metrics.add(new TisBatchDecoder(decoder).decodeSerial(new int[]{index}, (tile, idx) -> result[0] = tile));
+        data = result[0];
+        putTileData(index, data);
+      }
+      return data;
+    }
+
+    // Returns the graphics data of the specified tile if it has been decoded already.
+    // Otherwise the tile is requested for background decoding and null is returned.
+    public synchronized int[] requestTileData(int index)
     {
-      init(wed, ovl);
+      if (index < 0 || index >= tileCount) {
+        return null;
+      }
+
+      Integer key = Integer.valueOf(index);
+      int[] data = tileData.get(key);
+      if (data == null && !pendingTiles.contains(key)) {
+        requestedTiles.add(key);
+      }
+      return data;
+    }
+
+    // Decodes all requested tiles in the background. "listener" is called whenever decoded
+    // tiles become available.
+    public synchronized void submitRequests(Runnable listener)
+    {
+      if (requestedTiles.isEmpty()) {
+        return;
+      }
+      TisDecoder decoder = getDecoder();
+      if (decoder == null) {
+        requestedTiles.clear();
+        return;
+      }
+
+      int[] indices = requestedTiles.stream().mapToInt(Integer::intValue).toArray();
+      pendingTiles.addAll(requestedTiles);
+      requestedTiles.clear();
+      TisBatchDecoder batch = new TisBatchDecoder(decoder);
+      activeDecoders.add(batch);
+      batch.decodeAsync(indices, (data, index) -> {
+        if (putDecodedTile(batch, index, data)) {
+          listener.run();
+        }
+      }).whenComplete((result, error) -> {
+        synchronized (this) {
+          activeDecoders.remove(batch);
+          for (final int index: indices) {
+            pendingTiles.remove(Integer.valueOf(index));
+          }
+          closeDecoderIfComplete();
+        }
+        metrics.add(result);
+      });
+    }
+
+    // Decodes the specified tiles in parallel if they are not available yet. Blocks until all
+    // tiles have been decoded.
+    public void decodeTiles(int[] indices)
+    {
+      TisBatchDecoder batch;
+      synchronized (this) {
+        indices = Arrays.stream(indices).filter(i -> !tileData.containsKey(Integer.valueOf(i))).toArray();
+        TisDecoder decoder = (indices.length > 0) ? getDecoder() : null;
+        if (decoder == null) {
+          return;
+        }
+        batch = new TisBatchDecoder(decoder);
+        activeDecoders.add(batch);
+      }
+      try {
+        metrics.add(batch.decode(indices, (data, index) -> putDecodedTile(batch, index, data)));
+      } finally {
+        synchronized (this) {
+          activeDecoders.remove(batch);
+          closeDecoderIfComplete();
+        }
+      }
+    }
+
+    // Returns the indices of all tiles referenced by the tilemap of this overlay
+    public int[] getReferencedTiles()
+    {
+      Set<Integer> set = new LinkedHashSet<>();
+      for (final Tile tile: listTiles) {
+        for (int i = 0; i < tile.tileCount && i < tile.tileIdx.length; i++) {
+          set.add(Integer.valueOf(tile.tileIdx[i]));
+        }
+        if (tile.tileIdx2 >= 0) {
+          set.add(Integer.valueOf(tile.tileIdx2));
+        }
+      }
+      return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Sets the max. number of decoded tiles to keep in memory, 0 for unlimited
+    public synchronized void setCacheCapacity(int capacity)
+    {
+      cacheCapacity = Math.max(0, capacity);
+      if (cacheCapacity > 0) {
+        Iterator<int[]> iter = tileData.values().iterator();
+        while (tileData.size() > cacheCapacity && iter.hasNext()) {
+          iter.next();
+          iter.remove();
+        }
+      }
+    }
+
+    // Releases all graphics data
+    public synchronized void close()
+    {
+      closed = true;
+      requestedTiles.clear();
+      pendingTiles.clear();
+      tileData.clear();
+      // decoder may still be in use by cancelled operations and is closed when the last one completes
+      for (final TisBatchDecoder batch: activeDecoders) {
+        batch.cancel();
+      }
+      closeDecoderIfComplete();
     }
 
     public void advanceTileFrame()
@@ -1112,28 +1652,19 @@ public void setTileFrame(int index)
       }
     }
 
-    private void init(WedResource wed, Overlay ovl)
+    private void init(WedResource wed, Overlay ovl, ByteBuffer wedBuffer)
     {
       if (wed != null && ovl != null) {
-        // storing tile data
+        // tile graphics are decoded on demand
         isTisPalette = !Profile.isEnhancedEdition();    // choose sane default
-        ResourceEntry tisEntry = getTisResource(wed, ovl);
+        tisEntry = getTisResource(wed, ovl);
         if (tisEntry != null) {
           try {
-            TisDecoder decoder = TisDecoder.loadTis(tisEntry);
-            isTisPalette = decoder.getType() == TisDecoder.Type.PALETTE;
-            BufferedImage tileImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
-            for (int i = 0, tCount = decoder.getTileCount(); i < tCount; i++) {
-              decoder.getTile(i, tileImage);
-              int[] srcData = ((DataBufferInt)tileImage.getRaster().getDataBuffer()).getData();
-              int[] dstData = new int[64*64];
-              System.arraycopy(srcData, 0, dstData, 0, 64*64);
-              listTileData.add(dstData);
+            decoder = TisDecoder.loadTis(tisEntry);
+            if (decoder != null) {
+              isTisPalette = decoder.getType() == TisDecoder.Type.PALETTE;
+              tileCount = decoder.getTileCount();
             }
-            tileImage.flush();
-            tileImage = null;
-            decoder.close();
-            decoder = null;
           } catch (Exception e) {
             e.printStackTrace();
             return;
@@ -1141,46 +1672,30 @@ private void init(WedResource wed, Overlay ovl)
         }
 
         // storing tile information
-        tilesX = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_WIDTH)).getValue();
-        tilesY = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_HEIGHT)).getValue();
-        int mapOfs = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_OFFSET_TILEMAP)).getValue();
-        int idxOfs = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_OFFSET_TILEMAP_LOOKUP)).getValue();
-        int tileCount = tilesX * tilesY;
-        for (int i = 0, curOfs = mapOfs; i < tileCount; i++) {
-          Tilemap tile = (Tilemap)ovl.getAttribute(curOfs, false);
+        OverlayTilemap tilemap = null;
+        if (wedBuffer != null) {
+          try {
+            tilemap = OverlayTilemap.read(wedBuffer, ovl.getOffset());
+          } catch (IndexOutOfBoundsException e) {
+            e.printStackTrace();
+          }
+        }
+        if (tilemap == null) {
+          tilemap = OverlayTilemap.read(ovl);
+        }
+        tilesX = tilemap.getWidth();
+        tilesY = tilemap.getHeight();
+        for (int i = 0, tileCount = tilemap.getTilemapCount(); i < tileCount; i++) {
           // tile coordinates in pixels
           int x = (i % tilesX) * 64;
           int y = (i / tilesX) * 64;
 
-          if (tile != null) {
-            // initializing list of primary tile indices
-            final int idxSize = 2;
-            int index = ((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_INDEX_PRI)).getValue();
-            int count = ((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_COUNT_PRI)).getValue();
-            if (count < 0) count = 0;
-            int[] tileIdx = new int[count];
-            for (int j = 0; j < count; j++) {
-              if (index >= 0) {
-                IsNumeric dn = (IsNumeric)ovl.getAttribute(idxOfs + (index+j)*idxSize, false);
-                if (dn != null) {
-                  tileIdx[j] = dn.getValue();
-                } else {
-                  tileIdx[j] = -1;
-                }
-              } else {
-                tileIdx[j] = -1;
-              }
-            }
-
-            // initializing secondary tile index
-            int tileIdx2 = ((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_INDEX_SEC)).getValue();
-
-            // initializing overlay flags
-            IsNumeric drawOverlays = (IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_DRAW_OVERLAYS);
-            int flags = drawOverlays.getValue() & 255;
-
+          if (tilemap.isTilemapAvailable(i)) {
+            int count = tilemap.getPrimaryTileCount(i);
+            int[] tileIdx = tilemap.getPrimaryTileIndices(i, null);
+            int tileIdx2 = tilemap.getSecondaryTileIndex(i);
+            int flags = tilemap.getOverlayFlags(i);
             listTiles.add(new Tile(x, y, count, tileIdx, tileIdx2, flags, isTisPalette));
-            curOfs += tile.getSize();
           } else {
             listTiles.add(new Tile(x, y, 0, new int[]{}, -1, 0, true));     // needed as placeholder
           }
@@ -1234,6 +1749,56 @@ private ResourceEntry getTisResource(WedResource wed, Overlay ovl)
       return entry;
     }
 
+    // Stores tile graphics from a background decoding operation. Returns false if the operation
+    // has been cancelled in the meantime.
+    private synchronized boolean putDecodedTile(TisBatchDecoder batch, int index, int[] data)
+    {
+      if (batch.isCancelled()) {
+        return false;
+      }
+      pendingTiles.remove(Integer.valueOf(index));
+      putTileData(index, data);
+      return true;
+    }
+
+    // Adds the tile graphics to the cache, evicts least recently used tiles if needed
+    private void putTileData(int index, int[] data)
+    {
+      if (cacheCapacity > 0) {
+        Iterator<int[]> iter = tileData.values().iterator();
+        while (tileData.size() >= cacheCapacity && iter.hasNext()) {
+          iter.next();
+          iter.remove();
+        }
+      }
+      tileData.put(Integer.valueOf(index), data);
+      closeDecoderIfComplete();
+    }
+
+    // Decoder is not needed anymore if all tiles are available or the tileset has been released
+    private void closeDecoderIfComplete()
+    {
+      if ((closed || tileData.size() == tileCount) && activeDecoders.isEmpty()) {
+        closeDecoder();
+      }
+    }
+
+    // Returns the TIS decoder, reopens the TIS resource if needed
+    private TisDecoder getDecoder()
+    {
+      if (decoder == null && tisEntry != null && !closed) {
+        decoder = TisDecoder.loadTis(tisEntry);
+      }
+      return decoder;
+    }
+
+    private void closeDecoder()
+    {
+      if (decoder != null) {
+        decoder.close();
+        decoder = null;
+      }
+    }
   }
 
 
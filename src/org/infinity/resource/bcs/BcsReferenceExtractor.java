@@ -0,0 +1,373 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.bcs;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.infinity.resource.Profile;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.util.StringBufferStream;
+
+/**
+ * Extracts references to resources, strings and IDS symbols from compiled script code without
+ * decompiling it into source text.
+ * <p>
+ * References are resolved by the parameter types of the matching trigger and action signatures,
+ * in the same way as {@link Decompiler#getResourcesUsed()} and {@link Decompiler#getStringRefsUsed()}
+ * do. This is considerably faster than a full decompilation if only references are needed.
+ */
+public final class BcsReferenceExtractor
+{
+  private final String code;
+  private final ScriptType scriptType;
+  private final Signatures triggers;
+  private final Signatures actions;
+
+  /**
+   * Returns all resources referenced by the specified script code.
+   * @param code Compiled code from BCS, dialog action or trigger.
+   * @param type The script type of the code.
+   * @throws Exception if the script code contains invalid data.
+   */
+  public static Set<ResourceEntry> getResourcesUsed(String code, ScriptType type) throws Exception
+  {
+    final Set<ResourceEntry> retVal = new HashSet<>();
+    new BcsReferenceExtractor(code, type).accept(new Visitor() {
+      @Override
+      public void visitResource(Signatures.Function function, int paramIndex, ResourceEntry entry)
+      {
+        retVal.add(entry);
+      }
+    });
+    return retVal;
+  }
+
+  /**
+   * Returns all string references used by the specified script code.
+   * @param code Compiled code from BCS, dialog action or trigger.
+   * @param type The script type of the code.
+   * @throws Exception if the script code contains invalid data.
+   */
+  public static Set<Integer> getStringRefsUsed(String code, ScriptType type) throws Exception
+  {
+    final Set<Integer> retVal = new HashSet<>();
+    new BcsReferenceExtractor(code, type).accept(new Visitor() {
+      @Override
+      public void visitStringRef(Signatures.Function function, int paramIndex, int strref)
+      {
+        retVal.add(Integer.valueOf(strref));
+      }
+    });
+    return retVal;
+  }
+
+  /**
+   * Creates an extractor for the specified script code.
+   * @param code Compiled code from BCS, dialog action or trigger.
+   * @param type The script type of the code.
+   */
+  public BcsReferenceExtractor(String code, ScriptType type)
+  {
+    this(code, type, null, null);
+  }
+
+  /**
+   * Creates an extractor for the specified script code which resolves functions by the given signatures.
+   * @param code Compiled code from BCS, dialog action or trigger.
+   * @param type The script type of the code.
+   * @param triggers Trigger signatures. Signatures of the current game are used if {@code null}.
+   * @param actions Action signatures. Signatures of the current game are used if {@code null}.
+   */
+  BcsReferenceExtractor(String code, ScriptType type, Signatures triggers, Signatures actions)
+  {
+    this.code = (code != null) ? code : "";
+    this.scriptType = (type != null) ? type : ScriptType.BCS;
+    this.triggers = triggers;
+    this.actions = actions;
+  }
+
+  /** Returns the unprocessed script byte code. */
+  public String getCode()
+  {
+    return code;
+  }
+
+  /** Returns the script type of the byte code. */
+  public ScriptType getScriptType()
+  {
+    return scriptType;
+  }
+
+  /**
+   * Reports all references of the script code to the specified visitor in the order of their appearance.
+   * @param visitor Receives the references.
+   * @throws Exception if the script code contains invalid data.
+   */
+  public void accept(Visitor visitor) throws Exception
+  {
+    if (visitor == null) {
+      throw new NullPointerException();
+    }
+
+    Signatures triggers = (this.triggers != null) ? this.triggers : Signatures.getTriggers();
+    Signatures actions = (this.actions != null) ? this.actions : Signatures.getActions();
+    StringBufferStream sbs = new StringBufferStream(code);
+    sbs.setAutoSkipWhitespace(true);
+    if (scriptType == ScriptType.BCS && !sbs.skip("SC")) {
+      return;
+    }
+
+    // block structure (CR, CO, RS, RE) is irrelevant for references
+    while (!sbs.eos()) {
+      if (scriptType != ScriptType.ACTION && sbs.skip("TR")) {
+        visitTrigger(new BcsTrigger(sbs, triggers), visitor);
+      } else if (scriptType != ScriptType.TRIGGER && sbs.skip("AC")) {
+        visitAction(new BcsAction(sbs, actions), visitor);
+      } else if (sbs.skip("CR") || sbs.skip("CO") || sbs.skip("RS") || sbs.skip("RE")) {
+        // skipping block delimiters as a whole
+      } else if (scriptType == ScriptType.BCS && sbs.skip("SC")) {
+        break;
+      } else {
+        sbs.skip();
+      }
+    }
+  }
+
+  // Reports references of the specified trigger
+  private void visitTrigger(BcsTrigger trigger, Visitor visitor)
+  {
+    if (trigger.signatures.getFunction(trigger.id) == null) {
+      trigger.id ^= 0x4000;
+      if (trigger.signatures.getFunction(trigger.id) == null) {
+        return;
+      }
+    }
+
+    Signatures.Function function = trigger.getMatchingFunction();
+    if (function == null) {
+      return;
+    }
+
+    int curNum = 0, curString = 0, curObj = 0;
+    for (int i = 0, cnt = function.getNumParameters(); i < cnt; i++) {
+      Signatures.Function.Parameter p = function.getParameter(i);
+      switch (p.getType()) {
+        case Signatures.Function.Parameter.TYPE_INTEGER:
+        {
+          long value;
+          try {
+            value = trigger.getNumericParam(curNum);
+          } catch (IllegalArgumentException e) {
+            value = 0;
+          }
+          visitNumber(function, i, p, value, visitor);
+          curNum++;
+          break;
+        }
+        case Signatures.Function.Parameter.TYPE_STRING:
+        {
+          String value;
+          try {
+            value = trigger.getStringParam(function, curString);
+          } catch (IllegalArgumentException e) {
+            value = "";
+          }
+          visitString(function, i, p, value, visitor);
+          curString++;
+          break;
+        }
+        case Signatures.Function.Parameter.TYPE_OBJECT:
+        {
+          try {
+            visitObject(function, i, trigger.getObjectParam(curObj), visitor);
+          } catch (IllegalArgumentException e) {
+          }
+          curObj++;
+          break;
+        }
+      }
+    }
+  }
+
+  // Reports references of the specified action
+  private void visitAction(BcsAction action, Visitor visitor)
+  {
+    if (action.signatures.getFunction(action.id) == null) {
+      return;
+    }
+
+    Signatures.Function function = action.getMatchingFunction();
+    if (function == null) {
+      return;
+    }
+
+    int curNum = 0, curObj = 1, curString = 0;  // curObj: skipping ActionOverride
+    for (int i = 0, cnt = function.getNumParameters(); i < cnt; i++) {
+      Signatures.Function.Parameter p = function.getParameter(i);
+      switch (p.getType()) {
+        case Signatures.Function.Parameter.TYPE_INTEGER:
+        {
+          long value;
+          try {
+            value = action.getNumericParam(curNum);
+          } catch (IllegalArgumentException e) {
+            value = 0;
+          }
+          visitNumber(function, i, p, value, visitor);
+          curNum++;
+          break;
+        }
+        case Signatures.Function.Parameter.TYPE_STRING:
+        {
+          String value;
+          try {
+            value = action.getStringParam(function, curString);
+          } catch (IllegalArgumentException e) {
+            value = "";
+          }
+          visitString(function, i, p, value, visitor);
+          curString++;
+          break;
+        }
+        case Signatures.Function.Parameter.TYPE_OBJECT:
+        {
+          try {
+            visitObject(function, i, action.getObjectParam(curObj), visitor);
+          } catch (IllegalArgumentException e) {
+          }
+          curObj++;
+          break;
+        }
+      }
+    }
+  }
+
+  // Reports IDS value, string reference or spell resource of a numeric parameter
+  private void visitNumber(Signatures.Function function, int paramIndex, Signatures.Function.Parameter param,
+                           long value, Visitor visitor)
+  {
+    if (!param.getIdsRef().isEmpty()) {
+      visitor.visitIdsValue(function, paramIndex, param.getIdsRef(), value);
+    }
+
+    if (ScriptInfo.getInfo().isCommentAllowed(function.getId(), paramIndex)) {
+      for (final String type: param.getResourceType()) {
+        if (type.equals("TLK")) {
+          visitor.visitStringRef(function, paramIndex, (int)value);
+          break;
+        } else if (type.equals("SPL")) {
+          String resRef = org.infinity.resource.spl.Viewer.getResourceName((int)value, true);
+          visitor.visitResourceName(function, paramIndex, resRef);
+          ResourceEntry entry = ResourceFactory.getResourceEntry(resRef, true);
+          if (entry != null) {
+            visitor.visitResource(function, paramIndex, entry);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  // Reports resources referenced by a string parameter
+  private void visitString(Signatures.Function function, int paramIndex, Signatures.Function.Parameter param,
+                           String value, Visitor visitor)
+  {
+    if (value.isEmpty() || value.length() > 8 ||
+        !ScriptInfo.getInfo().isCommentAllowed(function.getId(), paramIndex)) {
+      return;
+    }
+
+    boolean lookup = false;
+    for (final String type: param.getResourceType()) {
+      if ((Character.isUpperCase(type.charAt(0)) || Character.isDigit(type.charAt(0))) &&
+          (!type.equals("ARE") || !ScriptInfo.getInfo().isGlobalScope(value))) {
+        if (!lookup) {
+          visitor.visitResourceName(function, paramIndex, value);
+          lookup = true;
+        }
+        ResourceEntry entry = ResourceFactory.getResourceEntry(value, type, true);
+        if (entry != null) {
+          visitor.visitResource(function, paramIndex, entry);
+        }
+      }
+    }
+  }
+
+  // Reports IDS values of an object parameter
+  private void visitObject(Signatures.Function function, int paramIndex, BcsObject object, Visitor visitor)
+  {
+    if (object == null) {
+      return;
+    }
+
+    if (!object.isEmptyTarget()) {
+      ScriptInfo info = ScriptInfo.getInfo();
+      String[] idsNames = BcsObject.getTargetList();
+      boolean isIwd2 = (Profile.getEngine() == Profile.Engine.IWD2);
+      for (int i = 0, cnt = Math.min(idsNames.length, object.target.length); i < cnt; i++) {
+        long value = object.target[i];
+        if (value != 0) {
+          if (isIwd2 && i == info.IDX_OBJECT_SUBRACE) {
+            // IWD2 needs RACE value to correctly look up SUBRACE symbol
+            value |= object.target[info.IDX_OBJECT_RACE] << 16;
+          }
+          visitor.visitIdsValue(function, paramIndex, idsNames[i].toLowerCase(Locale.ENGLISH), value);
+        }
+      }
+    }
+
+    for (final long value: object.identifier) {
+      if (value != 0) {
+        visitor.visitIdsValue(function, paramIndex, "object", value);
+      }
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /**
+   * Receives the references found in compiled script code. All methods do nothing by default.
+   */
+  public interface Visitor
+  {
+    /**
+     * Called for each existing resource referenced by a string or spell number parameter.
+     * @param function The trigger or action signature.
+     * @param paramIndex Index of the function parameter.
+     * @param entry The referenced resource.
+     */
+    default void visitResource(Signatures.Function function, int paramIndex, ResourceEntry entry) {}
+
+    /**
+     * Called for each resource name a string or spell number parameter is resolved against,
+     * regardless of whether a matching resource exists.
+     * @param function The trigger or action signature.
+     * @param paramIndex Index of the function parameter.
+     * @param name The resource name, with or without extension.
+     */
+    default void visitResourceName(Signatures.Function function, int paramIndex, String name) {}
+
+    /**
+     * Called for each numeric parameter referring to the string table.
+     * @param function The trigger or action signature.
+     * @param paramIndex Index of the function parameter.
+     * @param strref The string reference.
+     */
+    default void visitStringRef(Signatures.Function function, int paramIndex, int strref) {}
+
+    /**
+     * Called for each numeric parameter associated with an IDS file and for each non-zero
+     * IDS value of object parameters.
+     * @param function The trigger or action signature.
+     * @param paramIndex Index of the function parameter.
+     * @param ids Lower-cased name of the IDS file without extension.
+     * @param value The IDS value.
+     */
+    default void visitIdsValue(Signatures.Function function, int paramIndex, String ids, long value) {}
+  }
+}
@@ -146,48 +146,56 @@ public static Signatures get(String resource, boolean isTrigger)
       // processing function signatures from IDS files
       try {
         ByteBuffer buffer = entry.getResourceBuffer();
-        String data = StreamUtils.readString(buffer, buffer.limit());
-        String[] lines = data.split("\\r?\\n");
-
-        retVal = new Signatures(resource);
-        for (int idx = 0; idx < lines.length; idx++) {
-          Function f = Function.parse(lines[idx], isTrigger);
-          if (f != null) {
-            HashSet<Function> set = retVal.functions.get(Integer.valueOf(f.getId()));
-            if (set == null) {
-              set = new HashSet<>(8);
-            }
-            set.add(f);
-            retVal.functions.put(Integer.valueOf(f.getId()), set);
-            retVal.functionsByName.put(f.getName().toLowerCase(Locale.ENGLISH), f);
-          }
-        }
+        retVal = parse(resource, StreamUtils.readString(buffer, buffer.limit()), isTrigger);
       } catch (Exception e) {
         return retVal;
       }
 
-      // additional hardcoded function signatures that may not be found in IDS files
-      ScriptInfo info = ScriptInfo.getInfo();
-      List<String> hardcoded = info.getFunctionDefinitions(isTrigger ? Function.FunctionType.TRIGGER :
-                                                                       Function.FunctionType.ACTION);
-      for (final String line: hardcoded) {
-        Function f = Function.parse(line, isTrigger);
-        if (f != null) {
-          HashSet<Function> set = retVal.functions.get(Integer.valueOf(f.getId()));
-          if (set == null) {
-            set = new HashSet<>(8);
-          }
-          set.add(f);
-          retVal.functions.put(Integer.valueOf(f.getId()), set);
-          retVal.functionsByName.put(f.getName().toLowerCase(Locale.ENGLISH), f);
-        }
-      }
-
       instances.put(resource, retVal);
     }
     return retVal;
   }
 
+  /**
+   * Returns a set of function signatures defined by the specified IDS text data. Hardcoded function
+   * signatures of the current game engine are added as well.
+   * @param resource The name of the IDS resource.
+   * @param data Text content of the IDS resource.
+   * @param isTrigger Indicates whether function definitions are considered triggers ({@code true})
+   *                  or actions ({@code false}).
+   * @return a {@code Signatures} instance.
+   */
+  static Signatures parse(String resource, String data, boolean isTrigger)
+  {
+    Signatures retVal = new Signatures(normalizedName(resource));
+    for (final String line: data.split("\\r?\\n")) {
+      retVal.add(Function.parse(line, isTrigger));
+    }
+
+    // additional hardcoded function signatures that may not be found in IDS files
+    ScriptInfo info = ScriptInfo.getInfo();
+    List<String> hardcoded = info.getFunctionDefinitions(isTrigger ? Function.FunctionType.TRIGGER :
+                                                                     Function.FunctionType.ACTION);
+    for (final String line: hardcoded) {
+      retVal.add(Function.parse(line, isTrigger));
+    }
+    return retVal;
+  }
+
+  // Adds the specified function signature if available
+  private void add(Function f)
+  {
+    if (f != null) {
+      HashSet<Function> set = functions.get(Integer.valueOf(f.getId()));
+      if (set == null) {
+        set = new HashSet<>(8);
+      }
+      set.add(f);
+      functions.put(Integer.valueOf(f.getId()), set);
+      functionsByName.put(f.getName().toLowerCase(Locale.ENGLISH), f);
+    }
+  }
+
   // Makes sure IDS resource is lowercased and contains a file extension
   private static String normalizedName(String resource)
   {
@@ -117,6 +117,7 @@ public void reset(boolean preserveState)
     decoder.setRenderShield(settings.isShieldVisible());
     decoder.setRenderWeapon(settings.isWeaponVisible());
     decoder.setBoundingBoxVisible(settings.isOverlayBordersVisible());
+    decoder.setVirtualFramesEnabled(true);
     decoder.applyAnimationChanges();
     decoder.setAutoApplyChanges(true);
 
@@ -28,10 +28,12 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.function.Supplier;
 
 import org.infinity.datatype.IsNumeric;
 import org.infinity.resource.Profile;
@@ -95,6 +97,9 @@ public abstract class SpriteDecoder extends PseudoBamDecoder
   public static final DecoderAttribute KEY_FALSE_COLOR        = DecoderAttribute.with("false_color", DecoderAttribute.DataType.BOOLEAN);
   public static final DecoderAttribute KEY_TRANSLUCENT        = DecoderAttribute.with("translucent", DecoderAttribute.DataType.BOOLEAN);
 
+  /** Max. number of composed frames kept in memory if virtual frames are enabled. */
+  protected static final int VIRTUAL_FRAME_CACHE_SIZE = 32;
+
   /**
    * A default operation that can be passed to the
    * {@link #createAnimation(SeqDef, List, BeforeSourceBam, BeforeSourceFrame, AfterSourceFrame, AfterDestFrame)}
@@ -198,8 +203,22 @@ public void accept(DirDef dd, int frameIdx)
   private boolean renderSpriteWeapon;
   private boolean renderSpriteHelmet;
   private boolean renderSpriteShield;
+  private boolean virtualFrames;
   private boolean animationChanged;
   private boolean autoApplyChanges;
+  /** Recently composed virtual frames in access order. */
+  private final LinkedHashMap<VirtualFrame, BufferedImage> frameCache =
+      new LinkedHashMap<VirtualFrame, BufferedImage>(VIRTUAL_FRAME_CACHE_SIZE * 2, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<VirtualFrame, BufferedImage> eldest)
+    {
+      return size() > VIRTUAL_FRAME_CACHE_SIZE;
+    }
+  };
+  /** Private copies of the shared BAM controllers, used to compose virtual frames. */
+  private final HashMap<BamV1Control, BamV1Control> composeControls = new HashMap<>();
+  /** Synchronizes access to the private BAM controllers when virtual frames are composed. */
+  private final Object composeLock = new Object();
 
   /**
    * Creates a new {@code SpriteDecoder} instance based on the specified animation id.
@@ -292,6 +311,7 @@ protected SpriteDecoder(AnimationInfo.Type type, CreResource cre) throws Excepti
     this.renderSpriteWeapon = true;
     this.renderSpriteShield = true;
     this.renderSpriteHelmet = true;
+    this.virtualFrames = false;
     this.autoApplyChanges = true;
     SpriteUtils.updateRandomPool();
     init();
@@ -379,6 +399,12 @@ public void reset() throws Exception
   protected void discard()
   {
     frameClear();
+    synchronized (frameCache) {
+      frameCache.clear();
+    }
+    synchronized (composeLock) {
+      composeControls.clear();
+    }
     directionMap.clear();
     SpriteUtils.clearBamCache();
   }
@@ -546,6 +572,28 @@ public void setBoundingBoxVisible(boolean b)
     }
   }
 
+  /**
+   * Returns whether animation frames are composed on demand instead of being stored in memory.
+   * Only the most recently requested frames are kept in memory.
+   */
+  public boolean isVirtualFramesEnabled()
+  {
+    return virtualFrames;
+  }
+
+  /**
+   * Sets whether animation frames are composed on demand instead of being stored in memory.
+   * Only the most recently requested frames are kept in memory. This reduces memory usage considerably
+   * at the cost of recomposing frames which are displayed again.
+   */
+  public void setVirtualFramesEnabled(boolean b)
+  {
+    if (virtualFrames != b) {
+      virtualFrames = b;
+      setAnimationChanged();
+    }
+  }
+
   /** Returns whether the avatar sprite should be rendered. */
   public boolean getRenderAvatar()
   {
@@ -1305,10 +1353,41 @@ protected int createFrame(FrameInfo[] sourceFrames, BeforeSourceFrame beforeSrcF
     rect = SpriteUtils.updateFrameDimension(rect, new Dimension(2 * (dim.width + (int)circleStrokeSize),
                                                                 2 * (dim.height + (int)circleStrokeSize)));
 
-    // creating target image
+    // setting center point
+    int cx = -rect.x;
+    int cy = -rect.y;
+
+    if (isVirtualFramesEnabled()) {
+      // only the composition parameters are stored
+      VirtualFrame source = new VirtualFrame(sourceFrames, rect, beforeSrcFrame, afterSrcFrame);
+      List<PseudoBamFrameEntry> frames = getFramesList();
+      frames.add(new PseudoBamFrameEntry(source, source.getWidth(), source.getHeight(), cx, cy));
+      return frames.size() - 1;
+    }
+
+    return frameAdd(drawFrame(sourceFrames, rect, beforeSrcFrame, afterSrcFrame), new Point(cx, cy));
+  }
+
+  /**
+   * Draws the given array of source frame segments onto a new image.
+   * @param sourceFrames array of source frame segments to compose.
+   * @param rect the frame dimension relative to the center position.
+   * @param beforeSrcFrame optional function that is executed before a source frame segment is drawn onto the
+   *                       target frame.
+   * @param afterSrcFrame optional method that is executed right after a source frame segment has been drawn onto the
+   *                      target frame.
+   * @return the composed frame image.
+   */
+  protected BufferedImage drawFrame(FrameInfo[] sourceFrames, Rectangle rect, BeforeSourceFrame beforeSrcFrame,
+                                    AfterSourceFrame afterSrcFrame)
+  {
     BufferedImage image;
     if (rect.width > 0 && rect.height > 0) {
       image = ColorConvert.createCompatibleImage(rect.width, rect.height, Transparency.TRANSLUCENT);
+      // source frames without custom preprocessing are drawn directly from the palettized BAM data
+      boolean drawDirect = (beforeSrcFrame == null || beforeSrcFrame == FN_BEFORE_SRC_FRAME) &&
+                           image.getType() == BufferedImage.TYPE_INT_ARGB;
+      int[] pixels = drawDirect ? ((DataBufferInt)image.getRaster().getDataBuffer()).getData() : null;
       Graphics2D g = image.createGraphics();
       try {
         g.setComposite(AlphaComposite.SrcOver);
@@ -1321,9 +1400,12 @@ protected int createFrame(FrameInfo[] sourceFrames, BeforeSourceFrame beforeSrcF
           ctrl.cycleSet(fi.getCycle());
           int frameIdx = fi.getFrame();
           ctrl.cycleSetFrameIndex(frameIdx);
-          BufferedImage srcImage = (BufferedImage)ctrl.cycleGetFrame();
-          if (beforeSrcFrame != null) {
-            srcImage = beforeSrcFrame.apply(fi.getSegmentDefinition(), srcImage, g);
+          BufferedImage srcImage = null;
+          if (!drawDirect) {
+            srcImage = (BufferedImage)ctrl.cycleGetFrame();
+            if (beforeSrcFrame != null) {
+              srcImage = beforeSrcFrame.apply(fi.getSegmentDefinition(), srcImage, g);
+            }
           }
           FrameEntry entry = ctrl.getDecoder().getFrameInfo(ctrl.cycleGetFrameIndexAbsolute());
           int x = -rect.x - entry.getCenterX() + fi.getCenterShift().x;
@@ -1350,7 +1432,12 @@ protected int createFrame(FrameInfo[] sourceFrames, BeforeSourceFrame beforeSrcF
             }
           }
 
-          g.drawImage(srcImage, x, y, entry.getWidth(), entry.getHeight(), null);
+          if (drawDirect) {
+            ctrl.getDecoder().frameDraw(ctrl, ctrl.cycleGetFrameIndexAbsolute(), pixels, image.getWidth(),
+                                        image.getHeight(), x, y);
+          } else {
+            g.drawImage(srcImage, x, y, entry.getWidth(), entry.getHeight(), null);
+          }
 
           if (afterSrcFrame != null) {
             afterSrcFrame.accept(fi.getSegmentDefinition(), g);
@@ -1366,11 +1453,23 @@ protected int createFrame(FrameInfo[] sourceFrames, BeforeSourceFrame beforeSrcF
       image = ColorConvert.createCompatibleImage(1, 1, Transparency.TRANSLUCENT);
     }
 
-    // setting center point
-    int cx = -rect.x;
-    int cy = -rect.y;
 
-    return frameAdd(image, new Point(cx, cy));
+    return image;
+  }
+
+  // Returns a private copy of the specified shared BAM controller for composing virtual frames.
+  // Must be called while holding composeLock.
+  private BamV1Control getComposeControl(BamV1Control sharedCtrl)
+  {
+    BamV1Control ctrl = composeControls.get(sharedCtrl);
+    if (ctrl == null) {
+      ctrl = sharedCtrl.getDecoder().createControl();
+      ctrl.setMode(sharedCtrl.getMode());
+      ctrl.setSharedPerCycle(sharedCtrl.isSharedPerCycle());
+      ctrl.setTransparencyEnabled(sharedCtrl.isTransparencyEnabled());
+      composeControls.put(sharedCtrl, ctrl);
+    }
+    return ctrl;
   }
 
   /**
@@ -1798,15 +1897,25 @@ protected void applyColorTint(BamV1Control control, SegmentDef sd)
   protected void flipImageHorizontal(int frameIndex)
   {
     PseudoBamFrameEntry frame = getFrameInfo(frameIndex);
-    // flipping image horizontally
-    BufferedImage image = frame.getFrame();
+    if (frame.getFrameSource() instanceof VirtualFrame) {
+      // virtual frames are flipped when they are composed
+      VirtualFrame source = (VirtualFrame)frame.getFrameSource();
+      source.setMirrored(!source.isMirrored());
+    } else {
+      // flipping image horizontally
+      frame.setFrame(flipImage(frame.getFrame()));
+    }
+    // updating frame data
+    frame.setCenterX(frame.getWidth() - frame.getCenterX() - 1);
+  }
+
+  // Returns a horizontally mirrored copy of the specified image
+  private static BufferedImage flipImage(BufferedImage image)
+  {
     AffineTransform at = AffineTransform.getScaleInstance(-1, 1);
     at.translate(-image.getWidth(), 0);
     AffineTransformOp op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-    image = op.filter(image, null);
-    // updating frame data
-    frame.setFrame(image);
-    frame.setCenterX(frame.getWidth() - frame.getCenterX() - 1);
+    return op.filter(image, null);
   }
 
   /**
@@ -1882,6 +1991,7 @@ public int hashCode()
     hash = 31 * hash + Boolean.valueOf(renderSpriteWeapon).hashCode();
     hash = 31 * hash + Boolean.valueOf(renderSpriteHelmet).hashCode();
     hash = 31 * hash + Boolean.valueOf(renderSpriteShield).hashCode();
+    hash = 31 * hash + Boolean.valueOf(virtualFrames).hashCode();
     hash = 31 * hash + Boolean.valueOf(animationChanged).hashCode();
     hash = 31 * hash + Boolean.valueOf(autoApplyChanges).hashCode();
     return hash;
@@ -1919,6 +2029,7 @@ public boolean equals(Object o)
       retVal &= (this.renderSpriteWeapon == other.renderSpriteWeapon);
       retVal &= (this.renderSpriteHelmet == other.renderSpriteHelmet);
       retVal &= (this.renderSpriteShield == other.renderSpriteShield);
+      retVal &= (this.virtualFrames == other.virtualFrames);
       retVal &= (this.animationChanged == other.animationChanged);
       retVal &= (this.autoApplyChanges == other.autoApplyChanges);
     }
@@ -1927,6 +2038,85 @@ public boolean equals(Object o)
 
 //-------------------------- INNER CLASSES --------------------------
 
+  /**
+   * Frame source of a virtual frame entry. Stores everything needed to compose the frame and
+   * provides the composed image through the frame cache of the decoder.
+   */
+  private class VirtualFrame implements Supplier<BufferedImage>
+  {
+    private final FrameInfo[] sourceFrames;
+    private final int[][] palettes;
+    private final Rectangle rect;
+    private final BeforeSourceFrame beforeSrcFrame;
+    private final AfterSourceFrame afterSrcFrame;
+    private boolean mirrored;
+
+    public VirtualFrame(FrameInfo[] sourceFrames, Rectangle rect, BeforeSourceFrame beforeSrcFrame,
+                        AfterSourceFrame afterSrcFrame)
+    {
+      this.rect = new Rectangle(rect);
+      this.beforeSrcFrame = beforeSrcFrame;
+      this.afterSrcFrame = afterSrcFrame;
+      // segment states advance and BAM controllers are shared: both are detached from the source frames
+      this.sourceFrames = new FrameInfo[sourceFrames.length];
+      this.palettes = new int[sourceFrames.length][];
+      synchronized (composeLock) {
+        for (int i = 0; i < sourceFrames.length; i++) {
+          BamV1Control ctrl = sourceFrames[i].getController();
+          this.sourceFrames[i] = new FrameInfo(getComposeControl(ctrl),
+                                               new SegmentDef(sourceFrames[i].getSegmentDefinition()),
+                                               sourceFrames[i].getCenterShift());
+          this.palettes[i] = ctrl.getExternalPalette();
+        }
+      }
+    }
+
+    public int getWidth() { return (rect.width > 0 && rect.height > 0) ? rect.width : 1; }
+    public int getHeight() { return (rect.width > 0 && rect.height > 0) ? rect.height : 1; }
+
+    public boolean isMirrored() { return mirrored; }
+
+    public void setMirrored(boolean b)
+    {
+      synchronized (frameCache) {
+        if (mirrored != b) {
+          mirrored = b;
+          frameCache.remove(this);
+        }
+      }
+    }
+
+    @Override
+    public BufferedImage get()
+    {
+      synchronized (frameCache) {
+        BufferedImage image = frameCache.get(this);
+        if (image != null) {
+          return image;
+        }
+      }
+
+      BufferedImage image;
+      synchronized (composeLock) {
+        for (int i = 0; i < sourceFrames.length; i++) {
+          BamV1Control ctrl = sourceFrames[i].getController();
+          if (palettes[i] != null && !Arrays.equals(ctrl.getExternalPalette(), palettes[i])) {
+            ctrl.setExternalPalette(palettes[i]);
+          }
+        }
+        image = drawFrame(sourceFrames, rect, beforeSrcFrame, afterSrcFrame);
+      }
+      if (mirrored) {
+        image = flipImage(image);
+      }
+
+      synchronized (frameCache) {
+        frameCache.put(this, image);
+      }
+      return image;
+    }
+  }
+
   /**
    * Specialized controller for creature animations.
    */
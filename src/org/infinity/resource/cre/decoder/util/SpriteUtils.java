@@ -47,6 +47,8 @@
 import org.infinity.resource.cre.decoder.SpriteDecoder;
 import org.infinity.resource.cre.decoder.TownStaticDecoder;
 import org.infinity.resource.cre.decoder.tables.SpriteTables;
+import org.infinity.resource.graphics.BamDecoder;
+import org.infinity.resource.graphics.BamDecoderPool;
 import org.infinity.resource.graphics.BamV1Decoder;
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.GraphicsResource;
@@ -72,7 +74,10 @@
  */
 public class SpriteUtils
 {
-  /** Cache for source BAM resources (decoder and attached controller). */
+  /**
+   * Cache for source BAM resources (decoder and attached controller).
+   * Decoders are shared through the {@link BamDecoderPool}, controllers are exclusive to this cache.
+   */
   private static final HashMap<ResourceEntry, Couple<BamV1Decoder, BamV1Decoder.BamV1Control>> bamCache = new HashMap<>();
   /** Cache for replacement palettes. */
   private static final HashMap<ResourceEntry, int[]> paletteCache = new HashMap<>();
@@ -110,17 +115,26 @@
   /** A stable pool of random numbers. */
   private static int[] randomPool;
 
-  /** Clears cached resources. */
+  /** Clears cached resources. Unreferenced decoders are discarded from the {@link BamDecoderPool}. */
   public static void clearCache()
   {
     clearBamCache();
     clearColorCache();
+    BamDecoderPool.clearUnused();
   }
 
-  /** Clears BAM cache only. */
+  /**
+   * Clears BAM cache only. Controllers are discarded, decoders are returned to the {@link BamDecoderPool}
+   * where they remain available for reuse.
+   */
   public static void clearBamCache()
   {
-    bamCache.clear();
+    synchronized (bamCache) {
+      for (final ResourceEntry entry: bamCache.keySet()) {
+        BamDecoderPool.release(entry);
+      }
+      bamCache.clear();
+    }
   }
 
   /** Clears all palette-related caches. */
@@ -442,18 +456,25 @@ public static BamV1Decoder.BamV1Control loadBamController(ResourceEntry entry)
    */
   public static Couple<BamV1Decoder, BamV1Decoder.BamV1Control> loadBamDecoderController(ResourceEntry entry)
   {
-    Couple<BamV1Decoder, BamV1Decoder.BamV1Control> retVal = bamCache.getOrDefault(entry, null);
-    if (retVal == null) {
-      try {
-        BamV1Decoder decoder = new BamV1Decoder(entry);
-        BamV1Decoder.BamV1Control control = decoder.createControl();
-        retVal = Couple.with(decoder, control);
-        bamCache.put(entry, retVal);
-      } catch (Exception e) {
-        e.printStackTrace();
+    synchronized (bamCache) {
+      Couple<BamV1Decoder, BamV1Decoder.BamV1Control> retVal = bamCache.getOrDefault(entry, null);
+      if (retVal == null && entry != null) {
+        try {
+          BamDecoder decoder = BamDecoderPool.acquire(entry);
+          if (decoder instanceof BamV1Decoder) {
+            // each cached controller provides its own palette
+            BamV1Decoder.BamV1Control control = ((BamV1Decoder)decoder).createControl();
+            retVal = Couple.with((BamV1Decoder)decoder, control);
+            bamCache.put(entry, retVal);
+          } else if (decoder != null) {
+            BamDecoderPool.release(entry);
+          }
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
       }
+      return retVal;
     }
-    return retVal;
   }
 
   /**
@@ -0,0 +1,262 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.graphics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.infinity.resource.key.ResourceEntry;
+
+/**
+ * A global pool of decoded BAM resources which can be shared by several consumers.
+ * <p>
+ * Decoders are reference counted. Decoders which are no longer referenced are kept in memory
+ * until the estimated memory usage of all unreferenced decoders exceeds the memory budget.
+ * In that case the least recently used decoders are discarded first.
+ * <p>
+ * Palettes and other display settings are properties of the {@link BamDecoder.BamControl}
+ * instances. Each consumer should therefore create its own controller for a shared decoder.
+ * Shared decoders must not be closed by consumers.
+ */
+public final class BamDecoderPool
+{
+  /** Default memory budget for unreferenced decoders, in bytes. */
+  public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024L * 1024L;
+
+  // Pool entries in access order
+  private static final LinkedHashMap<ResourceEntry, PoolEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private static long memoryBudget = DEFAULT_MEMORY_BUDGET;
+  private static long unusedSize;   // estimated memory usage of unreferenced decoders
+
+  /**
+   * Returns the decoder for the specified BAM resource and adds a reference to it. The decoder is
+   * loaded if it is not available in the pool. Each successful call must be balanced by a call of
+   * {@link #release(ResourceEntry)}.
+   * @param entry The BAM resource entry.
+   * @return The shared {@code BamDecoder} instance. Returns {@code null} if the BAM resource could not be loaded.
+   */
+  public static BamDecoder acquire(ResourceEntry entry)
+  {
+    if (entry == null) {
+      return null;
+    }
+
+    synchronized (entries) {
+      PoolEntry pe = entries.get(entry);
+      if (pe != null && !pe.invalid) {
+        pe.addReference();
+        return pe.decoder;
+      }
+    }
+
+    // decoding is performed without blocking other consumers of the pool
+    BamDecoder decoder = null;
+    try {
+      decoder = BamDecoder.loadBam(entry);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    if (decoder == null) {
+      return null;
+    }
+
+    synchronized (entries) {
+      // a decoder loaded concurrently for the same resource takes precedence
+      PoolEntry pe = entries.get(entry);
+      if (pe == null) {
+        pe = new PoolEntry(decoder);
+        entries.put(entry, pe);
+      } else if (pe.invalid) {
+        pe.setDecoder(decoder);
+      }
+      pe.addReference();
+      return pe.decoder;
+    }
+  }
+
+  /**
+   * Removes a reference from the decoder of the specified BAM resource. Unreferenced decoders remain in the
+   * pool as long as the memory budget permits.
+   * @param entry The BAM resource entry.
+   * @return {@code true} if the decoder is no longer referenced, {@code false} otherwise.
+   */
+  public static boolean release(ResourceEntry entry)
+  {
+    if (entry == null) {
+      return false;
+    }
+
+    synchronized (entries) {
+      PoolEntry pe = entries.get(entry);
+      if (pe != null && pe.removeReference()) {
+        if (pe.invalid) {
+          entries.remove(entry);
+        } else {
+          unusedSize += pe.size;
+          trim();
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Discards the decoders of all BAM resources with the same resource name as the specified entry, e.g. after
+   * the resource has been saved. Referenced decoders remain valid for their current consumers, but are
+   * reloaded when they are requested again.
+   * @param entry The BAM resource entry.
+   */
+  public static void invalidate(ResourceEntry entry)
+  {
+    if (entry == null) {
+      return;
+    }
+
+    synchronized (entries) {
+      for (Iterator<Map.Entry<ResourceEntry, PoolEntry>> iter = entries.entrySet().iterator(); iter.hasNext(); ) {
+        Map.Entry<ResourceEntry, PoolEntry> e = iter.next();
+        if (e.getKey().getResourceName().equalsIgnoreCase(entry.getResourceName())) {
+          PoolEntry pe = e.getValue();
+          if (pe.refCount == 0) {
+            unusedSize -= pe.size;
+            iter.remove();
+          } else {
+            pe.invalid = true;
+          }
+        }
+      }
+    }
+  }
+
+  /** Returns whether a decoder for the specified BAM resource is available in the pool. */
+  public static boolean contains(ResourceEntry entry)
+  {
+    synchronized (entries) {
+      return entry != null && entries.containsKey(entry);
+    }
+  }
+
+  /** Returns the number of references to the decoder of the specified BAM resource. */
+  public static int getReferenceCount(ResourceEntry entry)
+  {
+    synchronized (entries) {
+      PoolEntry pe = (entry != null) ? entries.get(entry) : null;
+      return (pe != null) ? pe.refCount : 0;
+    }
+  }
+
+  /** Returns the memory budget for unreferenced decoders, in bytes. */
+  public static long getMemoryBudget()
+  {
+    synchronized (entries) {
+      return memoryBudget;
+    }
+  }
+
+  /**
+   * Sets the memory budget for unreferenced decoders. Unreferenced decoders which exceed the new budget
+   * are discarded immediately.
+   * @param budget Memory budget in bytes. Specify 0 to discard decoders as soon as they are no longer referenced.
+   */
+  public static void setMemoryBudget(long budget)
+  {
+    synchronized (entries) {
+      memoryBudget = Math.max(0L, budget);
+      trim();
+    }
+  }
+
+  /** Discards all decoders which are no longer referenced. */
+  public static void clearUnused()
+  {
+    synchronized (entries) {
+      for (Iterator<PoolEntry> iter = entries.values().iterator(); iter.hasNext(); ) {
+        if (iter.next().refCount == 0) {
+          iter.remove();
+        }
+      }
+      unusedSize = 0L;
+    }
+  }
+
+  // Discards least recently used decoders without references until the memory budget is met
+  private static void trim()
+  {
+    for (Iterator<PoolEntry> iter = entries.values().iterator(); iter.hasNext() && unusedSize > memoryBudget; ) {
+      PoolEntry pe = iter.next();
+      if (pe.refCount == 0) {
+        unusedSize -= pe.size;
+        iter.remove();
+      }
+    }
+  }
+
+  // Returns the estimated memory usage of the specified decoder, in bytes
+  private static long getEstimatedSize(BamDecoder decoder)
+  {
+    // BAM V1 stores palettized pixels, other types are based on ARGB pixels
+    final int bytesPerPixel = (decoder instanceof BamV1Decoder) ? 1 : 4;
+    long retVal = 1024L;
+    for (int i = 0, cnt = decoder.frameCount(); i < cnt; i++) {
+      BamDecoder.FrameEntry fe = decoder.getFrameInfo(i);
+      retVal += (long)fe.getWidth() * fe.getHeight() * bytesPerPixel;
+    }
+    return retVal;
+  }
+
+  /** Not needed. Contains only static methods and data. */
+  private BamDecoderPool() {}
+
+//-------------------------- INNER CLASSES --------------------------
+
+  // Shared decoder with reference counter
+  private static class PoolEntry
+  {
+    private BamDecoder decoder;
+    private long size;
+    private int refCount;
+    private boolean unused;   // whether size is included in the memory usage of unreferenced decoders
+    private boolean invalid;  // whether the decoder is outdated and has to be reloaded
+
+    public PoolEntry(BamDecoder decoder)
+    {
+      setDecoder(decoder);
+    }
+
+    // Assigns a new decoder. Must only be called for referenced or new pool entries.
+    public void setDecoder(BamDecoder decoder)
+    {
+      this.decoder = decoder;
+      this.size = getEstimatedSize(decoder);
+      this.invalid = false;
+    }
+
+    // Adds a reference to the decoder
+    public void addReference()
+    {
+      if (unused) {
+        unused = false;
+        unusedSize -= size;
+      }
+      refCount++;
+    }
+
+    // Removes a reference. Returns whether the decoder became unreferenced.
+    public boolean removeReference()
+    {
+      if (refCount > 0) {
+        refCount--;
+        if (refCount == 0) {
+          unused = true;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
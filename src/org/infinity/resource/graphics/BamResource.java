@@ -1045,16 +1045,13 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
       final int transThreshold = ignoreAlpha ? 32 : 1;
       boolean[] frameTransparency = new boolean[frameCount];
       boolean hasTransparency = false;
-      int totalWidth = 0, totalHeight = 0;
+      List<int[]> frameData = new ArrayList<>(frameCount);
       for (int i = 0; i < frameCount; i++) {
         BufferedImage img = ColorConvert.toBufferedImage(decoder.frameGet(control, i), true);
-        // getting max. dimensions
         if (img != null) {
-          if (img.getHeight() > totalHeight)
-            totalHeight = img.getHeight();
-          totalWidth += img.getWidth();
           // frame uses transparent pixels?
           int[] data = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+          frameData.add(data);
           frameTransparency[i] = false;
           for (int j = 0; j < data.length; j++) {
             if (((data[j] >>> 24) & 0xff) < transThreshold) {
@@ -1066,18 +1063,8 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
         }
       }
       // creating global palette for all available frames
-      BufferedImage composedImage = ColorConvert.createCompatibleImage(totalWidth, totalHeight, true);
-      Graphics2D g = composedImage.createGraphics();
-      for (int i = 0, w = 0; i < frameCount; i++) {
-        BufferedImage img = ColorConvert.toBufferedImage(decoder.frameGet(control, i), true);
-        if (img != null) {
-          g.drawImage(img, w, 0, null);
-          w += img.getWidth();
-        }
-      }
-      g.dispose();
-      int[] chainedImageData = ((DataBufferInt)composedImage.getRaster().getDataBuffer()).getData();
-      int[] palette = ColorConvert.medianCut(chainedImageData, hasTransparency ? 255 : 256, ignoreAlpha);
+      int[] palette = ColorConvert.medianCut(frameData, hasTransparency ? 255 : 256, ignoreAlpha);
+      frameData.clear();
       // initializing color cache
       IntegerHashMap<Byte> colorCache = new IntegerHashMap<>(1536);
       for (int i = 0; i < palette.length; i++) {
@@ -1091,6 +1078,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
         System.arraycopy(tmp, 0, palette, 1, tmp.length);
         tmp = null;
       }
+      PaletteMatcher matcher = new PaletteMatcher(palette, ignoreAlpha ? 0.0 : 1.0);
 
       // 2. encoding frames
       List<byte[]> frameList = new ArrayList<>(frameCount);
@@ -1120,8 +1108,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
                 if (colIdx != null) {
                   dstData[dstIdx++] = (byte)(colIdx + colorShift);
                 } else {
-                  double weight = ignoreAlpha ? 0.0 : 1.0;
-                  int color = ColorConvert.getNearestColor(srcData[srcIdx], palette, weight, null);
+                  int color = matcher.getNearestColor(srcData[srcIdx]);
                   dstData[dstIdx++] = (byte)(color);
                   if (color > 0) {
                     colorCache.put(srcData[srcIdx], (byte)(color - colorShift));
@@ -1145,8 +1132,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
               if (colIdx != null) {
                 dstData[idx] = (byte)(colIdx + colorShift);
               } else {
-                double weight = ignoreAlpha ? 0.0 : 1.0;
-                int color = ColorConvert.getNearestColor(srcData[idx], palette, weight, null);
+                int color = matcher.getNearestColor(srcData[idx]);
                 dstData[idx] = (byte)(color);
                 if (color > 0) {
                   colorCache.put(srcData[idx], (byte)(color - colorShift));
@@ -143,6 +143,130 @@ public void frameGet(BamControl control, int frameIdx, Image canvas)
     }
   }
 
+  /**
+   * Decodes the palette indices of the specified frame into the buffer. No intermediate image is created.
+   * @param frameIdx The absolute frame index.
+   * @param buffer Receives the palette indices of the frame, row by row.
+   * @param offset Buffer position of the top-left frame pixel.
+   * @param scanline Distance between two consecutive rows in the buffer. Must not be less than the frame width.
+   * @return {@code true} if the frame has been decoded, {@code false} if the frame or buffer region is invalid.
+   */
+  public boolean frameGetIndices(int frameIdx, byte[] buffer, int offset, int scanline)
+  {
+    if (!isValidRegion(frameIdx, buffer != null ? buffer.length : 0, offset, scanline)) {
+      return false;
+    }
+
+    BamV1FrameEntry entry = listFrames.get(frameIdx);
+    int srcOfs = entry.ofsData;
+    int count = 0;
+    byte pixel = 0;
+    for (int y = 0; y < entry.height; y++) {
+      int dstOfs = offset + y*scanline;
+      for (int x = 0; x < entry.width; x++, dstOfs++) {
+        if (count > 0) {
+          count--;
+        } else {
+          pixel = bamBuffer.get(srcOfs++);
+          if (entry.compressed && (pixel & 0xff) == rleIndex) {
+            count = bamBuffer.get(srcOfs++) & 0xff;
+          }
+        }
+        buffer[dstOfs] = pixel;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the specified frame as ARGB pixels into the buffer. Palette indices are resolved by the current
+   * palette of the specified BAM controller. No intermediate image is created.
+   * @param control The BAM controller that provides the palette. Specify {@code null} to use the default palette.
+   * @param frameIdx The absolute frame index.
+   * @param buffer Receives the ARGB pixels of the frame, row by row.
+   * @param offset Buffer position of the top-left frame pixel.
+   * @param scanline Distance between two consecutive rows in the buffer. Must not be less than the frame width.
+   * @return {@code true} if the frame has been decoded, {@code false} if the frame or buffer region is invalid.
+   */
+  public boolean frameGetPixels(BamControl control, int frameIdx, int[] buffer, int offset, int scanline)
+  {
+    if (!isValidRegion(frameIdx, buffer != null ? buffer.length : 0, offset, scanline)) {
+      return false;
+    }
+
+    int[] palette = getPalette(control);
+    BamV1FrameEntry entry = listFrames.get(frameIdx);
+    int srcOfs = entry.ofsData;
+    int count = 0, color = 0;
+    for (int y = 0; y < entry.height; y++) {
+      int dstOfs = offset + y*scanline;
+      for (int x = 0; x < entry.width; x++, dstOfs++) {
+        if (count > 0) {
+          count--;
+        } else {
+          int pixel = bamBuffer.get(srcOfs++) & 0xff;
+          color = palette[pixel];
+          if (entry.compressed && pixel == rleIndex) {
+            count = bamBuffer.get(srcOfs++) & 0xff;
+          }
+        }
+        buffer[dstOfs] = color;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Draws the specified frame onto an ARGB pixel buffer. Palette indices are resolved while the pixels are
+   * composited (source over destination), which avoids creating an image of the frame. Frame pixels outside of the
+   * canvas are skipped.
+   * @param control The BAM controller that provides the palette. Specify {@code null} to use the default palette.
+   * @param frameIdx The absolute frame index.
+   * @param canvas ARGB pixels (not premultiplied) of the target canvas.
+   * @param canvasWidth Width of the canvas in pixels.
+   * @param canvasHeight Height of the canvas in pixels.
+   * @param left Horizontal canvas position of the top-left frame pixel.
+   * @param top Vertical canvas position of the top-left frame pixel.
+   */
+  public void frameDraw(BamControl control, int frameIdx, int[] canvas, int canvasWidth, int canvasHeight,
+                        int left, int top)
+  {
+    if (canvas == null || frameIdx < 0 || frameIdx >= listFrames.size() || bamBuffer == null ||
+        canvasWidth <= 0 || canvasHeight <= 0 || canvas.length < canvasWidth * canvasHeight) {
+      return;
+    }
+
+    int[] palette = getPalette(control);
+    BamV1FrameEntry entry = listFrames.get(frameIdx);
+    int srcOfs = entry.ofsData;
+    int count = 0, color = 0;
+    for (int y = 0; y < entry.height; y++) {
+      int dy = top + y;
+      boolean rowVisible = (dy >= 0 && dy < canvasHeight);
+      if (!rowVisible && !entry.compressed) {
+        // uncompressed rows can be skipped as a whole
+        srcOfs += entry.width;
+        continue;
+      }
+      int dstOfs = dy*canvasWidth + left;
+      for (int x = 0; x < entry.width; x++, dstOfs++) {
+        if (count > 0) {
+          count--;
+        } else {
+          int pixel = bamBuffer.get(srcOfs++) & 0xff;
+          color = palette[pixel];
+          if (entry.compressed && pixel == rleIndex) {
+            count = bamBuffer.get(srcOfs++) & 0xff;
+          }
+        }
+        int dx = left + x;
+        if (rowVisible && dx >= 0 && dx < canvasWidth) {
+          canvas[dstOfs] = blendPixel(color, canvas[dstOfs]);
+        }
+      }
+    }
+  }
+
   /** Returns the compressed color index for compressed BAM v1 resources. */
   public int getRleIndex()
   {
@@ -244,6 +368,52 @@ private void init()
     }
   }
 
+  // Returns whether the specified frame can be decoded into the buffer region
+  private boolean isValidRegion(int frameIdx, int bufferLength, int offset, int scanline)
+  {
+    if (frameIdx < 0 || frameIdx >= listFrames.size() || bamBuffer == null) {
+      return false;
+    }
+    BamV1FrameEntry entry = listFrames.get(frameIdx);
+    if (offset < 0 || scanline < entry.width) {
+      return false;
+    }
+    return (entry.height == 0 || (long)offset + (long)(entry.height - 1)*scanline + entry.width <= bufferLength);
+  }
+
+  // Returns the palette of the specified controller
+  private int[] getPalette(BamControl control)
+  {
+    if (control == null) {
+      control = defaultControl;
+    }
+    if (control instanceof BamV1Control) {
+      return ((BamV1Control)control).getCurrentPalette();
+    } else {
+      return bamPalette;
+    }
+  }
+
+  // Composites a non-premultiplied ARGB source pixel onto a non-premultiplied ARGB destination pixel
+  private static int blendPixel(int src, int dst)
+  {
+    int sa = src >>> 24;
+    if (sa == 0) {
+      return dst;
+    }
+    int da = dst >>> 24;
+    if (sa == 255 || da == 0) {
+      return src;
+    }
+
+    int dw = da * (255 - sa) / 255;   // remaining weight of the destination pixel
+    int a = sa + dw;
+    int r = (((src >>> 16) & 0xff) * sa + ((dst >>> 16) & 0xff) * dw) / a;
+    int g = (((src >>> 8) & 0xff) * sa + ((dst >>> 8) & 0xff) * dw) / a;
+    int b = ((src & 0xff) * sa + (dst & 0xff) * dw) / a;
+    return (a << 24) | (r << 16) | (g << 8) | b;
+  }
+
   // Draws the absolute frame onto the canvas.
   private void decodeFrame(BamControl control, int frameIdx, Image canvas)
   {
@@ -28,7 +28,8 @@
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
@@ -37,6 +38,7 @@
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.DynamicArray;
+import org.infinity.util.ResourceTaskExecutor;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.StreamUtils;
 import org.infinity.util.tuples.Triple;
@@ -650,9 +652,9 @@ private static double[] getNormalizedColor(int color)
 
   /**
    * Reduces the number of colors of the specified pixel data block.
-   * @param pixels The pixel block of the image in ARGB format (alpha is ignored).
+   * @param pixels The pixel block of the image in ARGB format.
    * @param desiredColors The resulting number of colors after reduction (range 1..256).
-   * @param ignoreAlpha If {@code false}, only visible color values (alpha > 0) will be counted.
+   * @param ignoreAlpha If {@code true}, all colors are treated as fully opaque.
    * @return An array containing the resulting colors, or {@code null} on error.
    */
   public static int[] medianCut(int[] pixels, int desiredColors, boolean ignoreAlpha)
@@ -669,12 +671,11 @@ public static int[] medianCut(int[] pixels, int desiredColors, boolean ignoreAlp
   }
 
   /**
-   * TODO: Consider alpha values in color reduction.
    * Reduces the number of colors of the specified pixel data block.
-   * @param pixels The pixel block of the image in ARGB format (alpha is ignored).
+   * @param pixels The pixel block of the image in ARGB format.
    * @param desiredColors The resulting number of colors after reduction (range 1..256).
    * @param palette The array to write the resulting colors into.
-   * @param ignoreAlpha If {@code false}, only visible color values (alpha > 0) will be counted.
+   * @param ignoreAlpha If {@code true}, all colors are treated as fully opaque.
    * @return {@code true} if color reduction succeeded, {@code false} otherwise.
    */
   public static boolean medianCut(int[] pixels, int desiredColors, int[] palette, boolean ignoreAlpha)
@@ -683,56 +684,40 @@ public static boolean medianCut(int[] pixels, int desiredColors, int[] palette,
       throw new NullPointerException();
 
     if (desiredColors > 0 && desiredColors <= MAX_COLORS && palette.length >= desiredColors) {
-      final PriorityQueue<PixelBlock> blockQueue =
-          new PriorityQueue<>(desiredColors, PixelBlock.PixelBlockComparator);
-
-      final Pixel[] p = new Pixel[pixels.length];
-      int mask = ignoreAlpha ? 0xff000000: 0;
-      for (int i = 0; i < p.length; i++) {
-        p[i] = new Pixel(pixels[i] | mask);
-      }
+      final ColorHistogram histogram = new ColorHistogram(pixels.length);
+      histogram.addAll(pixels, ignoreAlpha);
+      histogram.medianCut(desiredColors, palette);
+      return true;
+    }
+    return false;
+  }
 
-      final PixelBlock initialBlock = new PixelBlock(p);
-      initialBlock.shrink();
-      blockQueue.add(initialBlock);
-      while (blockQueue.size() < desiredColors) {
-        PixelBlock longestBlock = blockQueue.poll();
-        int ofsBegin = longestBlock.offset();
-        int ofsMedian = longestBlock.offset() + (longestBlock.size() + 1) / 2;
-        int ofsEnd = longestBlock.offset() + longestBlock.size();
-        Arrays.sort(longestBlock.getPixels(), longestBlock.offset(),
-                    longestBlock.offset() + longestBlock.size(),
-                    Pixel.PixelComparator.get(longestBlock.getLongestSideIndex()));
-        final PixelBlock block1 = new PixelBlock(longestBlock.getPixels(), ofsBegin, ofsMedian - ofsBegin);
-        final PixelBlock block2 = new PixelBlock(longestBlock.getPixels(), ofsMedian, ofsEnd - ofsMedian);
-        block1.shrink();
-        block2.shrink();
-        blockQueue.add(block1);
-        blockQueue.add(block2);
-      }
+  /**
+   * Reduces the number of colors of the specified list of pixel data blocks, e.g. the frames of an animation.
+   * Color histograms of the individual blocks are created in parallel.
+   * @param frames List of pixel blocks in ARGB format.
+   * @param desiredColors The resulting number of colors after reduction (range 1..256).
+   * @param ignoreAlpha If {@code true}, all colors are treated as fully opaque.
+   * @return An array containing the resulting colors, or {@code null} on error.
+   */
+  public static int[] medianCut(List<int[]> frames, int desiredColors, boolean ignoreAlpha)
+  {
+    if (frames == null)
+      throw new NullPointerException();
 
-      int palIndex = 0;
-      while (!blockQueue.isEmpty() && palIndex < desiredColors) {
-        final PixelBlock block = blockQueue.poll();
-        final int[] sum = {0, 0, 0, 0};
-        for (int i = 0; i < block.size(); i++) {
-          for (int j = 0; j < Pixel.MAX_SIZE; j++) {
-            sum[j] += block.getPixel(i).getElement(j);
-          }
-        }
-        final Pixel avgPixel = new Pixel();
-        if (block.size() > 0) {
-          for (int i = 0; i < Pixel.MAX_SIZE; i++) {
-            avgPixel.color[i] = (byte)(sum[i] / block.size());
-          }
-        }
-        palette[palIndex++] = avgPixel.toColor();
+    if (desiredColors > 0 && desiredColors <= MAX_COLORS) {
+      final HistogramTask task = new HistogramTask(frames, 0, frames.size(), ignoreAlpha);
+      final ColorHistogram histogram;
+      if (ForkJoinTask.inForkJoinPool()) {
+        histogram = task.invoke();
+      } else {
+        histogram = ResourceTaskExecutor.getPool().invoke(task);
       }
-      blockQueue.clear();
-
-      return true;
+      int[] pal = new int[desiredColors];
+      histogram.medianCut(desiredColors, pal);
+      return pal;
     }
-    return false;
+    return null;
   }
 
   /**
@@ -1061,139 +1046,293 @@ private static BufferedImage convertToIndexedImage(BufferedImage image)
     double calculate(int argb1, int argb2, double alphaWeight);
   }
 
-  private static class PixelBlock
+  // Color histogram with primitive ARGB keys (open addressing, linear probing)
+  private static class ColorHistogram
   {
-    private final Pixel minCorner, maxCorner;
-    private final Pixel[] pixels;
-    private final int ofs, len;
-
-    public PixelBlock(Pixel[] pixels)
-    {
-      this(pixels, 0, pixels != null ? pixels.length : 0);
-    }
+    private static final int MIN_CAPACITY = 64;
+    // initial capacity is limited to keep memory usage low for large images with few colors
+    private static final int MAX_INITIAL_CAPACITY = 8192;
+    private static final int[] CHANNEL_SHIFT = { 24, 16, 8, 0 };
 
-    public PixelBlock(Pixel[] pixels, int ofs, int len)
-    {
-      if (pixels == null)
-        throw new NullPointerException();
-
-      this.pixels = pixels;
-      this.ofs = ofs;
-      this.len = len;
-      minCorner = new Pixel(0);
-      maxCorner = new Pixel(0xffffffff);
-    }
+    private int[] keys;
+    private int[] counts;   // a count of 0 denotes an unused slot
+    private int shift;
+    private int size;
 
-    public Pixel[] getPixels()
+    public ColorHistogram(int expectedColors)
     {
-      return pixels;
+      int capacity = MIN_CAPACITY;
+      int maxCapacity = Math.min(expectedColors * 2, MAX_INITIAL_CAPACITY);
+      while (capacity < maxCapacity) {
+        capacity <<= 1;
+      }
+      init(capacity);
     }
 
+    /** Returns the number of distinct colors. */
     public int size()
     {
-      return len;
+      return size;
     }
 
-    public int offset()
+    /** Adds all pixels of the specified array to the histogram. */
+    public void addAll(int[] pixels, boolean ignoreAlpha)
     {
-      return ofs;
+      final int mask = ignoreAlpha ? 0xff000000 : 0;
+      int lastColor = 0;
+      int lastSlot = -1;
+      for (final int pixel: pixels) {
+        final int color = pixel | mask;
+        // consecutive pixels often share the same color
+        if (color == lastColor && lastSlot >= 0) {
+          counts[lastSlot]++;
+        } else {
+          lastSlot = add(color, 1);
+          lastColor = color;
+        }
+      }
     }
 
-    public Pixel getPixel(int index)
+    /** Adds the content of the specified histogram to this histogram. */
+    public void addAll(ColorHistogram histogram)
     {
-      if (index >= 0 && index < len) {
-        return pixels[ofs + index];
-      } else {
-        return new Pixel(0);
+      for (int i = 0; i < histogram.keys.length; i++) {
+        if (histogram.counts[i] != 0) {
+          add(histogram.keys[i], histogram.counts[i]);
+        }
       }
     }
 
-    public int getLongestSideIndex()
+    /** Adds the color with the specified weight. Returns the slot of the color. */
+    public int add(int color, int count)
     {
-      int m = Integer.MIN_VALUE;
-      int maxIndex = -1;
-      for (int i = 0; i < Pixel.MAX_SIZE; i++) {
-        int diff = maxCorner.getElement(i) - minCorner.getElement(i);
-        if (diff > m) {
-          m = diff;
-          maxIndex = i;
+      final int mask = keys.length - 1;
+      int slot = (color * 0x9e3779b9) >>> shift;
+      while (counts[slot] != 0) {
+        if (keys[slot] == color) {
+          counts[slot] += count;
+          return slot;
         }
+        slot = (slot + 1) & mask;
       }
-      return maxIndex;
-    }
 
-    public int getLongestSideLength()
-    {
-      int i = getLongestSideIndex();
-      return maxCorner.getElement(i) - minCorner.getElement(i);
+      keys[slot] = color;
+      counts[slot] = count;
+      size++;
+      if (size * 2 > keys.length) {
+        rehash(keys.length << 1);
+        return find(color);
+      }
+      return slot;
     }
 
-    public void shrink()
+    /**
+     * Writes {@code desiredColors} colors of the reduced histogram to the palette. Boxes of colors are split
+     * at the weighted median of their longest side. Entries exceeding the number of distinct colors repeat
+     * the last color.
+     */
+    public void medianCut(int desiredColors, int[] palette)
     {
-      if (len > 0) {
-        for (int i = 0; i < Pixel.MAX_SIZE; i++) {
-          minCorner.color[i] = maxCorner.color[i] = pixels[ofs].color[i];
+      if (size == 0) {
+        Arrays.fill(palette, 0, desiredColors, 0);
+        return;
+      }
+
+      // compacting histogram
+      int[] colors = new int[size];
+      int[] weights = new int[size];
+      for (int i = 0, j = 0; i < keys.length; i++) {
+        if (counts[i] != 0) {
+          colors[j] = keys[i];
+          weights[j] = counts[i];
+          j++;
         }
-      } else {
-        for (int i = 0; i < Pixel.MAX_SIZE; i++) {
-          minCorner.color[i] = maxCorner.color[i] = 0;
+      }
+
+      // box i covers the color range [boxStart[i], boxStart[i+1])
+      final int[] boxStart = new int[desiredColors + 1];
+      final int[] boxAxis = new int[desiredColors];
+      final int[] boxLength = new int[desiredColors];
+      int boxCount = 1;
+      boxStart[1] = size;
+      updateBox(colors, 0, size, boxAxis, boxLength, 0);
+
+      final int[] tmpColors = new int[size];
+      final int[] tmpWeights = new int[size];
+      final int[] bucket = new int[257];
+      while (boxCount < desiredColors) {
+        // finding box with longest side
+        int box = -1;
+        for (int i = 0; i < boxCount; i++) {
+          if (boxLength[i] > 0 && (box < 0 || boxLength[i] > boxLength[box])) {
+            box = i;
+          }
+        }
+        if (box < 0) {
+          // all boxes contain a single color
+          break;
+        }
+
+        // sorting box content by the longest side (counting sort)
+        final int start = boxStart[box];
+        final int end = boxStart[box + 1];
+        final int shift = CHANNEL_SHIFT[boxAxis[box]];
+        Arrays.fill(bucket, 0);
+        long total = 0L;
+        for (int i = start; i < end; i++) {
+          bucket[((colors[i] >>> shift) & 0xff) + 1]++;
+          total += weights[i];
         }
+        for (int i = 1; i < bucket.length; i++) {
+          bucket[i] += bucket[i - 1];
+        }
+        for (int i = start; i < end; i++) {
+          final int ofs = start + bucket[(colors[i] >>> shift) & 0xff]++;
+          tmpColors[ofs] = colors[i];
+          tmpWeights[ofs] = weights[i];
+        }
+        System.arraycopy(tmpColors, start, colors, start, end - start);
+        System.arraycopy(tmpWeights, start, weights, start, end - start);
+
+        // splitting at weighted median
+        final long half = (total + 1L) / 2L;
+        long sum = 0L;
+        int median = start;
+        while (median < end - 1) {
+          sum += weights[median++];
+          if (sum >= half) {
+            break;
+          }
+        }
+
+        // inserting new box after the current box
+        System.arraycopy(boxStart, box + 1, boxStart, box + 2, boxCount - box);
+        System.arraycopy(boxAxis, box + 1, boxAxis, box + 2, boxCount - box - 1);
+        System.arraycopy(boxLength, box + 1, boxLength, box + 2, boxCount - box - 1);
+        boxStart[box + 1] = median;
+        boxCount++;
+        updateBox(colors, start, median, boxAxis, boxLength, box);
+        updateBox(colors, median, end, boxAxis, boxLength, box + 1);
       }
 
-      for (int i = ofs; i < ofs + len; i++) {
-        for (int j = 0; j < Pixel.MAX_SIZE; j++) {
-          if (pixels[i].getElement(j) < minCorner.getElement(j))
-            minCorner.color[j] = pixels[i].color[j];
-          if (pixels[i].getElement(j) > maxCorner.getElement(j))
-            maxCorner.color[j] = pixels[i].color[j];
+      // calculating weighted average color of each box
+      for (int i = 0; i < desiredColors; i++) {
+        if (i < boxCount) {
+          final long[] sum = new long[CHANNEL_SHIFT.length];
+          long total = 0L;
+          for (int j = boxStart[i]; j < boxStart[i + 1]; j++) {
+            final int w = weights[j];
+            for (int k = 0; k < CHANNEL_SHIFT.length; k++) {
+              sum[k] += (long)((colors[j] >>> CHANNEL_SHIFT[k]) & 0xff) * w;
+            }
+            total += w;
+          }
+          int color = 0;
+          for (int k = 0; k < CHANNEL_SHIFT.length; k++) {
+            color |= (int)(sum[k] / total) << CHANNEL_SHIFT[k];
+          }
+          palette[i] = color;
+        } else {
+          palette[i] = palette[boxCount - 1];
         }
       }
     }
 
-    public static final Comparator<PixelBlock> PixelBlockComparator = (pb1, pb2) -> {
-      // inverting natural order by switching sides
-      return pb2.getLongestSideLength() - pb1.getLongestSideLength();
-    };
-  }
+    // Determines longest side and its length of the specified color range
+    private static void updateBox(int[] colors, int start, int end, int[] boxAxis, int[] boxLength, int box)
+    {
+      int maxAxis = 0;
+      int maxLength = -1;
+      for (int k = 0; k < CHANNEL_SHIFT.length; k++) {
+        final int shift = CHANNEL_SHIFT[k];
+        int min = 255, max = 0;
+        for (int i = start; i < end; i++) {
+          final int v = (colors[i] >>> shift) & 0xff;
+          if (v < min) min = v;
+          if (v > max) max = v;
+        }
+        if (max - min > maxLength) {
+          maxLength = max - min;
+          maxAxis = k;
+        }
+      }
+      boxAxis[box] = maxAxis;
+      boxLength[box] = maxLength;
+    }
 
-  private static class Pixel
-  {
-    public static final int MAX_SIZE = 4;
-    public final byte[] color;
+    private void init(int capacity)
+    {
+      keys = new int[capacity];
+      counts = new int[capacity];
+      shift = 32 - Integer.numberOfTrailingZeros(capacity);
+      size = 0;
+    }
 
-    public Pixel()
+    private int find(int color)
     {
-      this.color = new byte[]{0, 0, 0, 0};
+      final int mask = keys.length - 1;
+      int slot = (color * 0x9e3779b9) >>> shift;
+      while (keys[slot] != color || counts[slot] == 0) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
     }
 
-    public Pixel(int color)
+    private void rehash(int capacity)
     {
-      this.color = new byte[]{(byte)((color >>> 24) & 0xff),
-                              (byte)((color >>> 16) & 0xff),
-                              (byte)((color >>> 8) & 0xff),
-                              (byte)(color & 0xff)};
+      final int[] oldKeys = keys;
+      final int[] oldCounts = counts;
+      init(capacity);
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldCounts[i] != 0) {
+          add(oldKeys[i], oldCounts[i]);
+        }
+      }
     }
+  }
+
+  // Creates the color histograms of a range of pixel blocks in parallel
+  private static class HistogramTask extends RecursiveTask<ColorHistogram>
+  {
+    private final List<int[]> frames;
+    private final int start, end;
+    private final boolean ignoreAlpha;
 
-    public int toColor()
+    public HistogramTask(List<int[]> frames, int start, int end, boolean ignoreAlpha)
     {
-      return ((color[0] & 0xff) << 24) | ((color[1] & 0xff) << 16) | ((color[2] & 0xff) << 8) | (color[3] & 0xff);
+      this.frames = frames;
+      this.start = start;
+      this.end = end;
+      this.ignoreAlpha = ignoreAlpha;
     }
 
-    public int getElement(int index)
+    @Override
+    protected ColorHistogram compute()
     {
-      if (index >= 0 && index < MAX_SIZE) {
-        return (color[index] & 0xff);
-      }  else {
-        return 0;
+      if (end - start <= 1) {
+        final int[] pixels = (start < end) ? frames.get(start) : null;
+        final ColorHistogram histogram = new ColorHistogram((pixels != null) ? pixels.length : 0);
+        if (pixels != null) {
+          histogram.addAll(pixels, ignoreAlpha);
+        }
+        return histogram;
       }
-    }
 
-    public static final List<Comparator<Pixel>> PixelComparator = new ArrayList<Comparator<Pixel>>(MAX_SIZE) {{
-      add((p1, p2) -> p1.getElement(0) - p2.getElement(0));
-      add((p1, p2) -> p1.getElement(1) - p2.getElement(1));
-      add((p1, p2) -> p1.getElement(2) - p2.getElement(2));
-      add((p1, p2) -> p1.getElement(3) - p2.getElement(3));
-    }};
+      final int mid = (start + end) >>> 1;
+      final HistogramTask left = new HistogramTask(frames, start, mid, ignoreAlpha);
+      final HistogramTask right = new HistogramTask(frames, mid, end, ignoreAlpha);
+      right.fork();
+      ColorHistogram result = left.compute();
+      ColorHistogram other = right.join();
+      // merging the smaller histogram into the larger one
+      if (other.size() > result.size()) {
+        final ColorHistogram tmp = result;
+        result = other;
+        other = tmp;
+      }
+      result.addAll(other);
+      return result;
+    }
   }
 
 
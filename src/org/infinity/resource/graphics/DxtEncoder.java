@@ -29,6 +29,11 @@
 
 package org.infinity.resource.graphics;
 
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.infinity.util.ResourceTaskExecutor;
+
 /**
  * Encodes pixel data into the DXT1/DXT3/DXT5 format.
  */
@@ -40,7 +45,20 @@
   public static enum DxtType { DXT1, DXT3, DXT5 }
 
   /**
-   * Encodes an image into a series of DXTn code blocks.
+   * Compression quality. Determines how color endpoints of a 4x4 block of pixels are calculated.
+   */
+  public static enum Quality {
+    /** Uses the extremes of the colors along their principle axis (range fit). Fast, but lower quality. */
+    FAST,
+    /** Searches for optimal color clusters along the principle axis (cluster fit). Slow, but high quality. */
+    HIGH
+  }
+
+  // Number of block rows encoded by a single task
+  private static final int TASK_BLOCK_ROWS = 4;
+
+  /**
+   * Encodes an image into a series of DXTn code blocks with {@link Quality#HIGH high} quality.
    * @param pixels The pixel data as array of integers in ARGB format.
    * @param width The width of the image (must be a multiple of 4).
    * @param height The height of the image (must be a multiple of 4).
@@ -50,6 +68,22 @@ public static enum DxtType { DXT1, DXT3, DXT5 }
    */
   static public byte[] encodeImage(final int[] pixels, final int width, final int height,
                                    final DxtType dxtType) throws Exception
+  {
+    return encodeImage(pixels, width, height, dxtType, Quality.HIGH);
+  }
+
+  /**
+   * Encodes an image into a series of DXTn code blocks.
+   * @param pixels The pixel data as array of integers in ARGB format.
+   * @param width The width of the image (must be a multiple of 4).
+   * @param height The height of the image (must be a multiple of 4).
+   * @param dxtType The compression type to use.
+   * @param quality The compression quality.
+   * @return A data block containing the DXT-encoded image.
+   * @throws Exception
+   */
+  static public byte[] encodeImage(final int[] pixels, final int width, final int height,
+                                   final DxtType dxtType, final Quality quality) throws Exception
   {
     // consistency check
     if (dxtType == null)
@@ -64,7 +98,7 @@ static public byte[] encodeImage(final int[] pixels, final int width, final int
     final int size = calcImageSize(width, height, dxtType);
     byte[] output = new byte[size];
     try {
-      encodeImage(pixels, width, height, output, dxtType);
+      encodeImage(pixels, width, height, output, dxtType, quality);
     } catch (Exception e) {
       output = null;
       throw e;
@@ -74,7 +108,7 @@ static public byte[] encodeImage(final int[] pixels, final int width, final int
   }
 
   /**
-   * Encodes an image into a series of DXTn code blocks.
+   * Encodes an image into a series of DXTn code blocks with {@link Quality#HIGH high} quality.
    * @param pixels The pixel data as array of integers in ARGB format.
    * @param width The width of the image (must be a multiple of 4).
    * @param height The height of the image (must be a multiple of 4).
@@ -84,10 +118,28 @@ static public byte[] encodeImage(final int[] pixels, final int width, final int
    */
   static public void encodeImage(final int[] pixels, final int width, final int height, final byte[] output,
                                  final DxtType dxtType) throws Exception
+  {
+    encodeImage(pixels, width, height, output, dxtType, Quality.HIGH);
+  }
+
+  /**
+   * Encodes an image into a series of DXTn code blocks. Rows of blocks are encoded in parallel.
+   * @param pixels The pixel data as array of integers in ARGB format.
+   * @param width The width of the image (must be a multiple of 4).
+   * @param height The height of the image (must be a multiple of 4).
+   * @param output The storage space for the compressed data.
+   * @param dxtType The compression type to use.
+   * @param quality The compression quality.
+   * @throws Exception
+   */
+  static public void encodeImage(final int[] pixels, final int width, final int height, final byte[] output,
+                                 final DxtType dxtType, final Quality quality) throws Exception
   {
     // consistency check
     if (dxtType == null)
       throw new Exception("No DXT type specified");
+    if (quality == null)
+      throw new Exception("No quality specified");
     if (width <= 0 || height <= 0)
       throw new Exception("Invalid width or height specified");
     if ((width & 3) != 0 || (height & 3) != 0)
@@ -98,34 +150,35 @@ static public void encodeImage(final int[] pixels, final int width, final int he
       throw new Exception(String.format("Insufficient space in output array. Needed: %d bytes, available: %d bytes",
                           calcImageSize(width, height, dxtType), (output == null) ? 0 : output.length));
 
-    int outputOfs = 0;    // points to the end of encoded data
-    final int bw = width / 4;
-    final int bh = height / 4;
-    final int[] inBlock = new int[16];
-    final byte[] outBlock = new byte[calcBlockSize(dxtType)];
-    for (int y = 0; y < bh; y++) {
-      for (int x = 0; x < bw; x++) {
-        // create 4x4 block of pixels for DXTn compression
-        int ofs = (y*4)*width + (x*4);
-        for (int i = 0; i < 4; i++, ofs+=width) {
-          System.arraycopy(pixels, ofs, inBlock, i*4, 4);
-        }
-
-        // compress pixel block
-        encodeBlock(inBlock, outBlock, dxtType);
-        System.arraycopy(outBlock, 0, output, outputOfs, outBlock.length);
-        outputOfs += outBlock.length;
-      }
+    final BlockRows task = new BlockRows(pixels, width, output, dxtType, quality, 0, height / 4);
+    if (ForkJoinTask.inForkJoinPool()) {
+      task.invoke();
+    } else {
+      ResourceTaskExecutor.getPool().invoke(task);
     }
   }
 
   /**
-   * Encodes a single 4x4 block of pixel data in ARGB format into a DXTn code block.
+   * Encodes a single 4x4 block of pixel data in ARGB format into a DXTn code block
+   * with {@link Quality#HIGH high} quality.
    * @param pixels The block of pixels to encode.
    * @param block Data block to store the compressed DXTn data in.
    * @param dxtType The DXT type to use.
    */
   public static void encodeBlock(final int[] pixels, final byte[] block, final DxtType dxtType) throws Exception
+  {
+    encodeBlock(pixels, block, dxtType, Quality.HIGH);
+  }
+
+  /**
+   * Encodes a single 4x4 block of pixel data in ARGB format into a DXTn code block.
+   * @param pixels The block of pixels to encode.
+   * @param block Data block to store the compressed DXTn data in.
+   * @param dxtType The DXT type to use.
+   * @param quality The compression quality.
+   */
+  public static void encodeBlock(final int[] pixels, final byte[] block, final DxtType dxtType,
+                                 final Quality quality) throws Exception
   {
     if (pixels == null || pixels.length < 16)
       throw new Exception("Insufficient source data.");
@@ -133,6 +186,13 @@ public static void encodeBlock(final int[] pixels, final byte[] block, final Dxt
       throw new Exception(String.format("Insufficient output space. Needed: %d bytes, available: %d bytes",
                           calcBlockSize(dxtType), (block == null) ? 0 : block.length));
 
+    encodeBlock(pixels, block, 0, dxtType, quality);
+  }
+
+  // Encodes a single 4x4 block of pixels and stores the result in "output", starting at "outputOfs".
+  private static void encodeBlock(final int[] pixels, final byte[] output, final int outputOfs,
+                                  final DxtType dxtType, final Quality quality)
+  {
     final byte[] colorBlock = new byte[8];
     byte[] alphaBlock = null;
     if (dxtType == DxtType.DXT3 || dxtType == DxtType.DXT5) {
@@ -147,7 +207,7 @@ public static void encodeBlock(final int[] pixels, final byte[] block, final Dxt
     if (colors.getCount() == 1) {
       // always do a single color fit
       fit = new SingleColorFit(colors, dxtType);
-    } else if (colors.getCount() == 0) {
+    } else if (colors.getCount() == 0 || quality == Quality.FAST) {
       // do a range fit
       fit = new RangeFit(colors, dxtType);
     } else {
@@ -163,15 +223,12 @@ public static void encodeBlock(final int[] pixels, final byte[] block, final Dxt
       Alpha.compressAlphaDxt5(pixels, alphaBlock);
     }
 
-    int ofs = 0;
+    int ofs = outputOfs;
     if (alphaBlock != null) {
-      for (int i = 0; i < alphaBlock.length; i++, ofs++) {
-        block[ofs] = alphaBlock[i];
-      }
-    }
-    for (int i = 0; i < colorBlock.length; i++, ofs++) {
-      block[ofs] = colorBlock[i];
+      System.arraycopy(alphaBlock, 0, output, ofs, alphaBlock.length);
+      ofs += alphaBlock.length;
     }
+    System.arraycopy(colorBlock, 0, output, ofs, colorBlock.length);
   }
 
 
@@ -215,9 +272,60 @@ public static int calcImageSize(int width, int height, final DxtType dxtType)
 
 // --------------------------- INNER CLASSES ---------------------------
 
+  // Encodes a range of block rows of an image, splits into smaller ranges for work-stealing.
+  private static class BlockRows extends RecursiveAction
+  {
+    private final int[] pixels;
+    private final int width;
+    private final byte[] output;
+    private final DxtType dxtType;
+    private final Quality quality;
+    private final int startRow;
+    private final int endRow;
+
+    public BlockRows(int[] pixels, int width, byte[] output, DxtType dxtType, Quality quality,
+                     int startRow, int endRow)
+    {
+      this.pixels = pixels;
+      this.width = width;
+      this.output = output;
+      this.dxtType = dxtType;
+      this.quality = quality;
+      this.startRow = startRow;
+      this.endRow = endRow;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (endRow - startRow > TASK_BLOCK_ROWS) {
+        final int mid = (startRow + endRow) >>> 1;
+        invokeAll(new BlockRows(pixels, width, output, dxtType, quality, startRow, mid),
+                  new BlockRows(pixels, width, output, dxtType, quality, mid, endRow));
+      } else {
+        final int bw = width / 4;
+        final int blockSize = calcBlockSize(dxtType);
+        final int[] inBlock = new int[16];
+        for (int y = startRow; y < endRow; y++) {
+          int outputOfs = y*bw*blockSize;
+          for (int x = 0; x < bw; x++, outputOfs += blockSize) {
+            // create 4x4 block of pixels for DXTn compression
+            int ofs = (y*4)*width + (x*4);
+            for (int i = 0; i < 4; i++, ofs+=width) {
+              System.arraycopy(pixels, ofs, inBlock, i*4, 4);
+            }
+
+            // compress pixel block
+            encodeBlock(inBlock, output, outputOfs, dxtType, quality);
+          }
+        }
+      }
+    }
+  }
+
   private static class ColorSet
   {
-    private final Vec3[] points;
+    private final float[] points;     // stored as { x, y, z } triplets
     private final float[] weights;
     private final int[] remap;
     private int count;
@@ -231,7 +339,7 @@ public static int argb(final int color, final int pos)
 
     public ColorSet(final int[] pixels, final DxtType dxtType)
     {
-      points = new Vec3[16];
+      points = new float[16*3];
       weights = new float[16];
       remap = new int[16];
       count = 0;
@@ -261,7 +369,9 @@ public ColorSet(final int[] pixels, final DxtType dxtType)
             final float w = (float)(argb(pixels[i], 3) + 1) / 256.0f;
 
             // add the points
-            points[count] = new Vec3(x, y, z);
+            points[count*3] = x;
+            points[count*3+1] = y;
+            points[count*3+2] = z;
             weights[count] = w;
             remap[i] = count;
 
@@ -295,7 +405,7 @@ public ColorSet(final int[] pixels, final DxtType dxtType)
 
     public int getCount() { return count; }
 
-    public Vec3[] getPoints() { return points; }
+    public float[] getPoints() { return points; }
 
     public float[] getWeights() { return weights; }
 
@@ -357,10 +467,10 @@ public SingleColorFit(final ColorSet colors, final DxtType dxtType)
       end = new Vec3();
 
       // grab the single color
-      final Vec3 value = this.colors.getPoints()[0];
-      color[0] = Misc.floatToInt(255.0f*value.x(), 255);
-      color[1] = Misc.floatToInt(255.0f*value.y(), 255);
-      color[2] = Misc.floatToInt(255.0f*value.z(), 255);
+      final float[] value = this.colors.getPoints();
+      color[0] = Misc.floatToInt(255.0f*value[0], 255);
+      color[1] = Misc.floatToInt(255.0f*value[1], 255);
+      color[2] = Misc.floatToInt(255.0f*value[2], 255);
 
       // initialize the best error
       bestError = Integer.MAX_VALUE;
@@ -453,22 +563,26 @@ protected void computeEndPoints(final SingleColorLookup[][] lookups)
 
   private static class RangeFit extends ColorFit
   {
-    private Vec3 metric, start, end;
+    // perceptual metric for color error
+    private static final float MetricX = 0.2126f, MetricY = 0.7152f, MetricZ = 0.0722f;
+
+    private final Vec3 start, end;
+    private final float[] codes;      // stored as { x, y, z } triplets
+    private final int[] closest;
     private float bestError;
 
     public RangeFit(final ColorSet colors, final DxtType dxtType)
     {
       super(colors, dxtType);
-
-      // using perceptual metric for color error
-      metric = new Vec3(0.2126f, 0.7152f, 0.0722f);
+      codes = new float[4*3];
+      closest = new int[16];
 
       // initialize the best error
       bestError = Float.MAX_VALUE;
 
       // cache some values
       final int count = this.colors.getCount();
-      final Vec3[] values = this.colors.getPoints();
+      final float[] values = this.colors.getPoints();
       final float[] weights = this.colors.getWeights();
 
       // get the covariance matrix
@@ -478,74 +592,40 @@ public RangeFit(final ColorSet colors, final DxtType dxtType)
       final Vec3 principle = Sym3x3.computePrincipleComponent(covariance);
 
       // get the min and max range as the codebook endpoints
-      Vec3 start = new Vec3();
-      Vec3 end = new Vec3();
+      int startIdx = -1, endIdx = -1;
       if (count > 0) {
         float min, max;
 
         // compute the range
-        start = end = values[0];
-        min = max = Vec3.dot(values[0], principle);
+        startIdx = endIdx = 0;
+        min = max = values[0]*principle.x() + values[1]*principle.y() + values[2]*principle.z();
         for (int i = 1; i < count; i++) {
-          final float val = Vec3.dot(values[i], principle);
+          final float val = values[i*3]*principle.x() + values[i*3+1]*principle.y() + values[i*3+2]*principle.z();
           if (val < min) {
-            start = values[i];
+            startIdx = i;
             min = val;
           } else if (val > max) {
-            end = values[i];
+            endIdx = i;
             max = val;
           }
         }
       }
 
-      // clamp the output to [0, 1]
-      final Vec3 one = new Vec3(1.0f);
-      final Vec3 zero = new Vec3(0.0f);
-      start = Vec3.min(one, Vec3.max(zero, start));
-      end = Vec3.min(one, Vec3.max(zero, end));
-
-      // clamp the grid and save
-      final Vec3 grid = new Vec3(31.0f, 63.0f, 31.0f);
-      final Vec3 gridrcp = new Vec3(1.0f/31.0f, 1.0f/63.0f, 1.0f/31.0f);
-      final Vec3 half = new Vec3(0.5f);
-      this.start = Vec3.truncate(Vec3.mul(grid, start).add(half)).mul(gridrcp);
-      this.end = Vec3.truncate(Vec3.mul(grid, end).add(half)).mul(gridrcp);
+      // clamp the output to [0, 1] and to the grid
+      this.start = snapToGrid(values, startIdx);
+      this.end = snapToGrid(values, endIdx);
     }
 
     @Override
     protected void compress3(final byte[] block)
     {
-      // cache some values
-      final int count = colors.getCount();
-      final Vec3[] values = colors.getPoints();
-
       // create a codebook
-      final Vec3[] codes = new Vec3[3];
-      codes[0] = start;
-      codes[1] = end;
-      codes[2] = Vec3.mul(start, 0.5f).add(Vec3.mul(end, 0.5f));
+      setCode(0, start.x(), start.y(), start.z());
+      setCode(1, end.x(), end.y(), end.z());
+      setCode(2, start.x()*0.5f + end.x()*0.5f, start.y()*0.5f + end.y()*0.5f, start.z()*0.5f + end.z()*0.5f);
 
       // match each point to the closest code
-      final int[] closest = new int[16];
-      float error = 0.0f;
-      for (int i = 0; i < count; i++) {
-        // find the closest code
-        float dist = Float.MAX_VALUE;
-        int idx = 0;
-        for (int j = 0; j < 3; j++) {
-          float d = Vec3.lengthSquared(Vec3.mul(metric, Vec3.sub(values[i], codes[j])));
-          if (d < dist) {
-            dist = d;
-            idx = j;
-          }
-        }
-
-        // save the index
-        closest[i] = idx;
-
-        // accumulate the error
-        error += dist;
-      }
+      final float error = matchCodes(3);
 
       // save this scheme if it wins
       if (error < bestError) {
@@ -564,26 +644,69 @@ protected void compress3(final byte[] block)
     @Override
     protected void compress4(final byte[] block)
     {
-      // cache some values
-      final int count = colors.getCount();
-      final Vec3[] values = colors.getPoints();
-
       // create a codebook
-      final Vec3[] codes = new Vec3[4];
-      codes[0] = start;
-      codes[1] = end;
-      codes[2] = Vec3.mul(start, 2.0f/3.0f).add(Vec3.mul(end, 1.0f/3.0f));
-      codes[3] = Vec3.mul(start, 1.0f/3.0f).add(Vec3.mul(end, 2.0f/3.0f));
+      setCode(0, start.x(), start.y(), start.z());
+      setCode(1, end.x(), end.y(), end.z());
+      setCode(2, start.x()*(2.0f/3.0f) + end.x()*(1.0f/3.0f),
+                 start.y()*(2.0f/3.0f) + end.y()*(1.0f/3.0f),
+                 start.z()*(2.0f/3.0f) + end.z()*(1.0f/3.0f));
+      setCode(3, start.x()*(1.0f/3.0f) + end.x()*(2.0f/3.0f),
+                 start.y()*(1.0f/3.0f) + end.y()*(2.0f/3.0f),
+                 start.z()*(1.0f/3.0f) + end.z()*(2.0f/3.0f));
 
       // match each point to the closest code
-      final int[] closest = new int[16];
+      final float error = matchCodes(4);
+
+      // save this scheme if it wins
+      if (error < bestError) {
+        // remap the indices
+        int[] indices = new int[16];
+        colors.remapIndices(closest, indices);
+
+        // save the block
+        ColorBlock.writeColorBlock4(start, end, indices, block);
+
+        // save the error
+        bestError = error;
+      }
+    }
+
+    // Clamps the specified point to [0, 1] and rounds it to the nearest RGB565 grid value.
+    // An index of -1 refers to the origin.
+    private static Vec3 snapToGrid(final float[] values, final int index)
+    {
+      final float x = (index >= 0) ? Misc.clamp(values[index*3]) : 0.0f;
+      final float y = (index >= 0) ? Misc.clamp(values[index*3+1]) : 0.0f;
+      final float z = (index >= 0) ? Misc.clamp(values[index*3+2]) : 0.0f;
+      return new Vec3((float)Math.floor(31.0f*x + 0.5f) * (1.0f/31.0f),
+                      (float)Math.floor(63.0f*y + 0.5f) * (1.0f/63.0f),
+                      (float)Math.floor(31.0f*z + 0.5f) * (1.0f/31.0f));
+    }
+
+    private void setCode(final int index, final float x, final float y, final float z)
+    {
+      codes[index*3] = x;
+      codes[index*3+1] = y;
+      codes[index*3+2] = z;
+    }
+
+    // Matches each point to the closest of the first "numCodes" codes. Returns the accumulated error.
+    private float matchCodes(final int numCodes)
+    {
+      // cache some values
+      final int count = colors.getCount();
+      final float[] values = colors.getPoints();
+
       float error = 0.0f;
       for (int i = 0; i < count; i++) {
         // find the closest code
         float dist = Float.MAX_VALUE;
         int idx = 0;
-        for (int j = 0; j < 4; j++) {
-          float d = Vec3.lengthSquared(Vec3.mul(metric, Vec3.sub(values[i], codes[j])));
+        for (int j = 0; j < numCodes; j++) {
+          final float dx = MetricX*(values[i*3] - codes[j*3]);
+          final float dy = MetricY*(values[i*3+1] - codes[j*3+1]);
+          final float dz = MetricZ*(values[i*3+2] - codes[j*3+2]);
+          final float d = dx*dx + dy*dy + dz*dz;
           if (d < dist) {
             dist = d;
             idx = j;
@@ -596,46 +719,33 @@ protected void compress4(final byte[] block)
         // accumulate the error
         error += dist;
       }
-
-      // save this scheme if it wins
-      if (error < bestError) {
-        // remap the indices
-        int[] indices = new int[16];
-        colors.remapIndices(closest, indices);
-
-        // save the block
-        ColorBlock.writeColorBlock4(start, end, indices, block);
-
-        // save the error
-        bestError = error;
-      }
+      return error;
     }
   }
 
   private static class ClusterFit extends ColorFit
   {
     private static final int IterationCount = 8;
+    // perceptual metric for color error
+    private static final float MetricX = 0.2126f, MetricY = 0.7152f, MetricZ = 0.0722f;
 
     private final int[] order;
-    private final Vec4[] pointsWeights;
-
+    private final float[] dps;
+    private final float[] pointsWeights;    // weighted points in current order, stored as { x*w, y*w, z*w, w }
     private final Vec3 principle;
-    private final Vec4 metric;
 
-    private Vec4 xsum_wsum;
-    private Vec4 bestError;
+    private float xsum, ysum, zsum, wsum;
+    private float bestError;
 
     public ClusterFit(final ColorSet colors, final DxtType dxtType)
     {
       super(colors, dxtType);
       order = new int[16*IterationCount];
-      pointsWeights = new Vec4[16];
+      dps = new float[16];
+      pointsWeights = new float[16*4];
 
       // initialize the best error
-      bestError = new Vec4(Float.MAX_VALUE);
-
-      // using perceptual metric for color error
-      metric = new Vec4(0.2126f, 0.7152f, 0.0722f, 0.0f);
+      bestError = Float.MAX_VALUE;
 
       // get the covariance matrix
       final Sym3x3 covariance = Sym3x3.computeWeightedCovariance(this.colors.getCount(),
@@ -651,71 +761,69 @@ protected void compress3(final byte[] block)
     {
       // declare variables
       final int count = colors.getCount();
-      final Vec4 two = new Vec4(2.0f);
-      final Vec4 one = new Vec4(1.0f);
-      final Vec4 halfHalf2 = new Vec4(0.5f, 0.5f, 0.5f, 0.25f);
-      final Vec4 zero = new Vec4(0.0f);
-      final Vec4 half = new Vec4(0.5f);
-      final Vec4 grid = new Vec4(31.0f, 63.0f, 31.0f, 0.0f);
-      final Vec4 gridrcp = new Vec4(1.0f/31.0f, 1.0f/63.0f, 1.0f/31.0f, 0.0f);
+      final float[] pw = pointsWeights;
 
       // prepare an ordering using the principle axis
-      constructOrdering(principle, 0);
+      constructOrdering(principle.x(), principle.y(), principle.z(), 0);
 
       // check all possible clusters and iterate on the total order
-      Vec4 bestStart = new Vec4();
-      Vec4 bestEnd = new Vec4();
-      Vec4 bestError = this.bestError;
-      final int[] bestIndices = new int[16];
+      float bestAx = 0.0f, bestAy = 0.0f, bestAz = 0.0f;
+      float bestBx = 0.0f, bestBy = 0.0f, bestBz = 0.0f;
+      float bestError = this.bestError;
       int bestIteration = 0;
       int bestI = 0, bestJ = 0;
 
       // loop over iterations (we avoid the case that all points in first or last cluster)
       for (int iterIndex = 0; ; ) {
         // first cluster [0, i) is at the start
-        final Vec4 part0 = new Vec4();
+        float p0x = 0.0f, p0y = 0.0f, p0z = 0.0f, p0w = 0.0f;
         for (int i = 0; i < count; i++) {
           // second cluster [i, j) is half along
-          final Vec4 part1 = (i == 0) ? (Vec4)pointsWeights[0].clone() : new Vec4();
+          float p1x = 0.0f, p1y = 0.0f, p1z = 0.0f, p1w = 0.0f;
+          if (i == 0) {
+            p1x = pw[0]; p1y = pw[1]; p1z = pw[2]; p1w = pw[3];
+          }
           final int jmin = (i == 0) ? 1 : i;
           for (int j = jmin; ; ) {
             // last cluster [j, count) is at the end
-            final Vec4 part2 = Vec4.sub(xsum_wsum, part1).sub(part0);
+            final float p2x = xsum - p1x - p0x;
+            final float p2y = ysum - p1y - p0y;
+            final float p2z = zsum - p1z - p0z;
+            final float p2w = wsum - p1w - p0w;
 
             // compute least squares terms directly
-            final Vec4 alphaXSum = Vec4.multiplyAdd(part1, halfHalf2, part0);
-            final Vec4 alpha2Sum = alphaXSum.splatW();
+            final float alphaXSumX = p1x*0.5f + p0x;
+            final float alphaXSumY = p1y*0.5f + p0y;
+            final float alphaXSumZ = p1z*0.5f + p0z;
+            final float alpha2Sum = p1w*0.25f + p0w;
 
-            final Vec4 betaXSum = Vec4.multiplyAdd(part1, halfHalf2, part2);
-            final Vec4 beta2Sum = betaXSum.splatW();
+            final float betaXSumX = p1x*0.5f + p2x;
+            final float betaXSumY = p1y*0.5f + p2y;
+            final float betaXSumZ = p1z*0.5f + p2z;
+            final float beta2Sum = p1w*0.25f + p2w;
 
-            final Vec4 alphaBetaSum = Vec4.mul(part1, halfHalf2).splatW();
+            final float alphaBetaSum = p1w*0.25f;
 
             // compute the least squares optimal points
-            final Vec4 factor = Vec4.reciprocal(Vec4.negMulSub(alphaBetaSum, alphaBetaSum, Vec4.mul(alpha2Sum, beta2Sum)));
-            Vec4 a = Vec4.negMulSub(betaXSum, alphaBetaSum, Vec4.mul(alphaXSum, beta2Sum)).mul(factor);
-            Vec4 b = Vec4.negMulSub(alphaXSum, alphaBetaSum, Vec4.mul(betaXSum, alpha2Sum)).mul(factor);
+            final float factor = 1.0f / (alpha2Sum*beta2Sum - alphaBetaSum*alphaBetaSum);
 
             // clamp to the grid
-            a = Vec4.min(one, Vec4.max(zero, a));
-            b = Vec4.min(one, Vec4.max(zero, b));
-            a = Vec4.truncate(Vec4.multiplyAdd(grid, a, half)).mul(gridrcp);
-            b = Vec4.truncate(Vec4.multiplyAdd(grid, b, half)).mul(gridrcp);
+            final float ax = snap31((alphaXSumX*beta2Sum - betaXSumX*alphaBetaSum)*factor);
+            final float ay = snap63((alphaXSumY*beta2Sum - betaXSumY*alphaBetaSum)*factor);
+            final float az = snap31((alphaXSumZ*beta2Sum - betaXSumZ*alphaBetaSum)*factor);
+            final float bx = snap31((betaXSumX*alpha2Sum - alphaXSumX*alphaBetaSum)*factor);
+            final float by = snap63((betaXSumY*alpha2Sum - alphaXSumY*alphaBetaSum)*factor);
+            final float bz = snap31((betaXSumZ*alpha2Sum - alphaXSumZ*alphaBetaSum)*factor);
 
             // compute the error (we skip the constant xxsum)
-            final Vec4 e1 = Vec4.multiplyAdd(Vec4.mul(a, a), alpha2Sum, Vec4.mul(b, b).mul(beta2Sum));
-            final Vec4 e2 = Vec4.negMulSub(a, alphaXSum, Vec4.mul(a, b).mul(alphaBetaSum));
-            final Vec4 e3 = Vec4.negMulSub(b, betaXSum, e2);
-            final Vec4 e4 = Vec4.multiplyAdd(two, e3, e1);
-
-            // apply the metric to the error terms
-            final Vec4 e5 = Vec4.mul(e4, metric);
-            final Vec4 error = Vec4.add(e5.splatX(), e5.splatY()).add(e5.splatZ());
+            final float error = computeError(ax, ay, az, bx, by, bz, alpha2Sum, beta2Sum, alphaBetaSum,
+                                             alphaXSumX, alphaXSumY, alphaXSumZ,
+                                             betaXSumX, betaXSumY, betaXSumZ);
 
             // keep the solution if it wins
-            if (Vec4.compareAnyLessThan(error, bestError)) {
-              bestStart = a;
-              bestEnd = b;
+            if (error < bestError) {
+              bestAx = ax; bestAy = ay; bestAz = az;
+              bestBx = bx; bestBy = by; bestBz = bz;
               bestI = i;
               bestJ = j;
               bestError = error;
@@ -725,11 +833,11 @@ protected void compress3(final byte[] block)
             // advance
             if (j == count)
               break;
-            part1.add(pointsWeights[j]);
+            p1x += pw[j*4]; p1y += pw[j*4+1]; p1z += pw[j*4+2]; p1w += pw[j*4+3];
             j++;
           }
           // advance
-          part0.add(pointsWeights[i]);
+          p0x += pw[i*4]; p0y += pw[i*4+1]; p0z += pw[i*4+2]; p0w += pw[i*4+3];
         }
         // stop if we didn't improve in this iteration
         if (bestIteration != iterIndex)
@@ -741,16 +849,16 @@ protected void compress3(final byte[] block)
           break;
 
         // stop if a new iteration is an ordering that has already been tried
-        final Vec3 axis = Vec4.sub(bestEnd, bestStart).getVec3();
-        if (!constructOrdering(axis, iterIndex))
+        if (!constructOrdering(bestBx - bestAx, bestBy - bestAy, bestBz - bestAz, iterIndex))
           break;
       }
 
       // save the block if necessary
-      if (Vec4.compareAnyLessThan(bestError, this.bestError)) {
+      if (bestError < this.bestError) {
         // remap the indices
         final int orderIdx = 16*bestIteration;
         final int[] unordered = new int[16];
+        final int[] bestIndices = new int[16];
         for (int m = 0; m < bestI; m++)
           unordered[order[orderIdx+m]] = 0;
         for (int m = bestI; m < bestJ; m++)
@@ -761,7 +869,8 @@ protected void compress3(final byte[] block)
         colors.remapIndices(unordered, bestIndices);
 
         // save the block
-        ColorBlock.writeColorBlock3(bestStart.getVec3(), bestEnd.getVec3(), bestIndices, block);
+        ColorBlock.writeColorBlock3(new Vec3(bestAx, bestAy, bestAz), new Vec3(bestBx, bestBy, bestBz),
+                                    bestIndices, block);
 
         // save the error
         this.bestError = bestError;
@@ -773,79 +882,72 @@ protected void compress4(final byte[] block)
     {
       // declare variables
       final int count = colors.getCount();
-      final Vec4 two = new Vec4(2.0f);
-      final Vec4 one = new Vec4(1.0f);
-      final Vec4 oneThirdOneThird2 = new Vec4(1.0f/3.0f, 1.0f/3.0f, 1.0f/3.0f, 1.0f/9.0f);
-      final Vec4 twoThirdsTwoThirds2 = new Vec4(2.0f/3.0f, 2.0f/3.0f, 2.0f/3.0f, 4.0f/9.0f);
-      final Vec4 twoNineth = new Vec4(2.0f/9.0f);
-      final Vec4 zero = new Vec4(0.0f);
-      final Vec4 half = new Vec4(0.5f);
-      final Vec4 grid = new Vec4(31.0f, 63.0f, 31.0f, 0.0f);
-      final Vec4 gridrcp = new Vec4(1.0f/31.0f, 1.0f/63.0f, 1.0f/31.0f, 0.0f);
+      final float[] pw = pointsWeights;
 
       // prepare an ordering using the principle axis
-      constructOrdering(principle, 0);
+      constructOrdering(principle.x(), principle.y(), principle.z(), 0);
 
       // check all possible clusters and iterate on the total order
-      Vec4 bestStart = new Vec4();
-      Vec4 bestEnd = new Vec4();
-      Vec4 bestError = this.bestError;
-      final int[] bestIndices = new int[16];
+      float bestAx = 0.0f, bestAy = 0.0f, bestAz = 0.0f;
+      float bestBx = 0.0f, bestBy = 0.0f, bestBz = 0.0f;
+      float bestError = this.bestError;
       int bestIteration = 0;
       int bestI = 0, bestJ = 0, bestK = 0;
 
       // loop over iterations (we avoid the case all points in first or last cluster)
       for (int iterIndex = 0; ; ) {
         // first cluster [0, i) is at the start
-        final Vec4 part0 = new Vec4();
+        float p0x = 0.0f, p0y = 0.0f, p0z = 0.0f, p0w = 0.0f;
         for (int i = 0; i < count; i++) {
           // second cluster [i, j) is one third along
-          final Vec4 part1 = new Vec4();
+          float p1x = 0.0f, p1y = 0.0f, p1z = 0.0f, p1w = 0.0f;
           for (int j = i; ; ) {
             // third cluster [j, k) is two thirds along
-            final Vec4 part2 = (j == 0) ? (Vec4)pointsWeights[0].clone() : new Vec4();
+            float p2x = 0.0f, p2y = 0.0f, p2z = 0.0f, p2w = 0.0f;
+            if (j == 0) {
+              p2x = pw[0]; p2y = pw[1]; p2z = pw[2]; p2w = pw[3];
+            }
             final int kmin = (j == 0) ? 1 : j;
             for (int k = kmin; ; ) {
               // last cluster [k, count) is at the end
-              final Vec4 part3 = Vec4.sub(xsum_wsum, part2).sub(part1).sub(part0);
+              final float p3x = xsum - p2x - p1x - p0x;
+              final float p3y = ysum - p2y - p1y - p0y;
+              final float p3z = zsum - p2z - p1z - p0z;
+              final float p3w = wsum - p2w - p1w - p0w;
 
               // compute least squares terms directly
-              final Vec4 alphaXSum = Vec4.multiplyAdd(part2, oneThirdOneThird2,
-                                                      Vec4.multiplyAdd(part1, twoThirdsTwoThirds2, part0));
-              final Vec4 alpha2Sum = alphaXSum.splatW();
+              final float alphaXSumX = p2x*(1.0f/3.0f) + (p1x*(2.0f/3.0f) + p0x);
+              final float alphaXSumY = p2y*(1.0f/3.0f) + (p1y*(2.0f/3.0f) + p0y);
+              final float alphaXSumZ = p2z*(1.0f/3.0f) + (p1z*(2.0f/3.0f) + p0z);
+              final float alpha2Sum = p2w*(1.0f/9.0f) + (p1w*(4.0f/9.0f) + p0w);
 
-              final Vec4 betaXSum = Vec4.multiplyAdd(part1, oneThirdOneThird2,
-                                                     Vec4.multiplyAdd(part2, twoThirdsTwoThirds2, part3));
-              final Vec4 beta2Sum = betaXSum.splatW();
+              final float betaXSumX = p1x*(1.0f/3.0f) + (p2x*(2.0f/3.0f) + p3x);
+              final float betaXSumY = p1y*(1.0f/3.0f) + (p2y*(2.0f/3.0f) + p3y);
+              final float betaXSumZ = p1z*(1.0f/3.0f) + (p2z*(2.0f/3.0f) + p3z);
+              final float beta2Sum = p1w*(1.0f/9.0f) + (p2w*(4.0f/9.0f) + p3w);
 
-              final Vec4 alphaBetaSum = Vec4.mul(twoNineth, Vec4.add(part1, part2).splatW());
+              final float alphaBetaSum = (2.0f/9.0f)*(p1w + p2w);
 
               // compute the least-squares optimal points
-              final Vec4 factor = Vec4.reciprocal(Vec4.negMulSub(alphaBetaSum, alphaBetaSum,
-                                                  Vec4.mul(alpha2Sum, beta2Sum)));
-              Vec4 a = Vec4.negMulSub(betaXSum, alphaBetaSum, Vec4.mul(alphaXSum, beta2Sum)).mul(factor);
-              Vec4 b = Vec4.negMulSub(alphaXSum, alphaBetaSum, Vec4.mul(betaXSum, alpha2Sum)).mul(factor);
+              final float factor = 1.0f / (alpha2Sum*beta2Sum - alphaBetaSum*alphaBetaSum);
 
               // clamp to the grid
-              a = Vec4.min(one, Vec4.max(zero, a));
-              b = Vec4.min(one, Vec4.max(zero, b));
-              a = Vec4.truncate(Vec4.multiplyAdd(grid, a, half)).mul(gridrcp);
-              b = Vec4.truncate(Vec4.multiplyAdd(grid, b, half)).mul(gridrcp);
+              final float ax = snap31((alphaXSumX*beta2Sum - betaXSumX*alphaBetaSum)*factor);
+              final float ay = snap63((alphaXSumY*beta2Sum - betaXSumY*alphaBetaSum)*factor);
+              final float az = snap31((alphaXSumZ*beta2Sum - betaXSumZ*alphaBetaSum)*factor);
+              final float bx = snap31((betaXSumX*alpha2Sum - alphaXSumX*alphaBetaSum)*factor);
+              final float by = snap63((betaXSumY*alpha2Sum - alphaXSumY*alphaBetaSum)*factor);
+              final float bz = snap31((betaXSumZ*alpha2Sum - alphaXSumZ*alphaBetaSum)*factor);
 
               // compute the error (we skip the constant xxsum)
-              final Vec4 e1 = Vec4.multiplyAdd(Vec4.mul(a, a), alpha2Sum, Vec4.mul(b, b).mul(beta2Sum));
-              final Vec4 e2 = Vec4.negMulSub(a, alphaXSum, Vec4.mul(a, b).mul(alphaBetaSum));
-              final Vec4 e3 = Vec4.negMulSub(b, betaXSum, e2);
-              final Vec4 e4 = Vec4.multiplyAdd(two, e3, e1);
-
-              // apply the metric to the error term
-              final Vec4 e5 = Vec4.mul(e4, metric);
-              final Vec4 error = Vec4.add(e5.splatX(), e5.splatY()).add(e5.splatZ());
+              final float error = computeError(ax, ay, az, bx, by, bz, alpha2Sum, beta2Sum, alphaBetaSum,
+                                               alphaXSumX, alphaXSumY, alphaXSumZ,
+                                               betaXSumX, betaXSumY, betaXSumZ);
 
               // keep the solution if it wins
-              if (Vec4.compareAnyLessThan(error, bestError)) {
-                bestStart = a;
-                bestEnd = b;
+              if (error < bestError) {
+                bestAx = ax; bestAy = ay; bestAz = az;
+                bestBx = bx; bestBy = by; bestBz = bz;
                 bestError = error;
                 bestI = i;
                 bestJ = j;
@@ -855,17 +957,17 @@ protected void compress4(final byte[] block)
               // advance
               if (k == count)
                 break;
-              part2.add(pointsWeights[k]);
+              p2x += pw[k*4]; p2y += pw[k*4+1]; p2z += pw[k*4+2]; p2w += pw[k*4+3];
               k++;
             }
             // advance
             if (j == count)
               break;
-            part1.add(pointsWeights[j]);
+            p1x += pw[j*4]; p1y += pw[j*4+1]; p1z += pw[j*4+2]; p1w += pw[j*4+3];
             j++;
           }
           // advance
-          part0.add(pointsWeights[i]);
+          p0x += pw[i*4]; p0y += pw[i*4+1]; p0z += pw[i*4+2]; p0w += pw[i*4+3];
         }
         // stop if we didn't improve in this iteration
         if (bestIteration != iterIndex)
@@ -877,16 +979,16 @@ protected void compress4(final byte[] block)
           break;
 
         // stop if a new iteration is an ordering that has already been tried
-        final Vec3 axis = Vec4.sub(bestEnd, bestStart).getVec3();
-        if (!constructOrdering(axis, iterIndex))
+        if (!constructOrdering(bestBx - bestAx, bestBy - bestAy, bestBz - bestAz, iterIndex))
           break;
       }
 
       // save the block if necessary
-      if (Vec4.compareAnyLessThan(bestError, this.bestError)) {
+      if (bestError < this.bestError) {
         // remap the indices
         final int orderIdx = 16*bestIteration;
         final int[] unordered = new int[16];
+        final int[] bestIndices = new int[16];
         for (int m = 0; m < bestI; m++)
           unordered[order[orderIdx+m]] = 0;
         for (int m = bestI; m < bestJ; m++)
@@ -899,24 +1001,49 @@ protected void compress4(final byte[] block)
         colors.remapIndices(unordered, bestIndices);
 
         // save the block
-        ColorBlock.writeColorBlock4(bestStart.getVec3(), bestEnd.getVec3(), bestIndices, block);
+        ColorBlock.writeColorBlock4(new Vec3(bestAx, bestAy, bestAz), new Vec3(bestBx, bestBy, bestBz),
+                                    bestIndices, block);
 
         // save the error
         this.bestError = bestError;
       }
     }
 
-    private boolean constructOrdering(final Vec3 axis, final int iteration)
+    // Clamps the value to [0, 1] and rounds it to the nearest multiple of 1/31
+    private static float snap31(final float v)
+    {
+      return (float)(int)(31.0f*Misc.clamp(v) + 0.5f) * (1.0f/31.0f);
+    }
+
+    // Clamps the value to [0, 1] and rounds it to the nearest multiple of 1/63
+    private static float snap63(final float v)
+    {
+      return (float)(int)(63.0f*Misc.clamp(v) + 0.5f) * (1.0f/63.0f);
+    }
+
+    // Returns the metric-weighted least squares error of the endpoints "a" and "b" (without the constant xxsum)
+    private static float computeError(final float ax, final float ay, final float az,
+                                      final float bx, final float by, final float bz,
+                                      final float alpha2Sum, final float beta2Sum, final float alphaBetaSum,
+                                      final float alphaXSumX, final float alphaXSumY, final float alphaXSumZ,
+                                      final float betaXSumX, final float betaXSumY, final float betaXSumZ)
+    {
+      final float ex = 2.0f*(ax*bx*alphaBetaSum - ax*alphaXSumX - bx*betaXSumX) + (ax*ax*alpha2Sum + bx*bx*beta2Sum);
+      final float ey = 2.0f*(ay*by*alphaBetaSum - ay*alphaXSumY - by*betaXSumY) + (ay*ay*alpha2Sum + by*by*beta2Sum);
+      final float ez = 2.0f*(az*bz*alphaBetaSum - az*alphaXSumZ - bz*betaXSumZ) + (az*az*alpha2Sum + bz*bz*beta2Sum);
+      return ex*MetricX + ey*MetricY + ez*MetricZ;
+    }
+
+    private boolean constructOrdering(final float axisX, final float axisY, final float axisZ, final int iteration)
     {
       // cache some values
       final int count = colors.getCount();
-      final Vec3[] values = colors.getPoints();
+      final float[] values = colors.getPoints();
 
       // build list of dot products
-      final float[] dps = new float[16];
       final int orderIdx = 16*iteration;
       for (int i = 0; i < count; i++) {
-        dps[i] = Vec3.dot(values[i], axis);
+        dps[i] = values[i*3]*axisX + values[i*3+1]*axisY + values[i*3+2]*axisZ;
         order[orderIdx+i] = i;
       }
 
@@ -943,16 +1070,19 @@ private boolean constructOrdering(final Vec3 axis, final int iteration)
       }
 
       // copy the ordering and weight all the points
-      final Vec3[] unweighted = colors.getPoints();
       final float[] weights = colors.getWeights();
-      xsum_wsum = new Vec4();
+      xsum = ysum = zsum = wsum = 0.0f;
       for (int i = 0; i < count; i++) {
-        int j = order[orderIdx+i];
-        final Vec4 p = new Vec4(unweighted[j].x(), unweighted[j].y(), unweighted[j].z(), 1.0f);
-        final Vec4 w = new Vec4(weights[j]);
-        final Vec4 x = Vec4.mul(p, w);
-        pointsWeights[i] = x;
-        xsum_wsum.add(x);
+        final int j = order[orderIdx+i];
+        final float w = weights[j];
+        pointsWeights[i*4] = values[j*3]*w;
+        pointsWeights[i*4+1] = values[j*3+1]*w;
+        pointsWeights[i*4+2] = values[j*3+2]*w;
+        pointsWeights[i*4+3] = w;
+        xsum += pointsWeights[i*4];
+        ysum += pointsWeights[i*4+1];
+        zsum += pointsWeights[i*4+2];
+        wsum += w;
       }
       return true;
     }
@@ -2671,29 +2801,38 @@ private Vec4 fixNaN()
 
     private final float[] m;
 
-    public static Sym3x3 computeWeightedCovariance(final int count, final Vec3[] points, final float[] weights)
+    public static Sym3x3 computeWeightedCovariance(final int count, final float[] points, final float[] weights)
     {
       // computing the centroid
       float total = 0.0f;
-      final Vec3 centroid = new Vec3();
+      float cx = 0.0f, cy = 0.0f, cz = 0.0f;
       for (int i = 0; i < count; i++) {
         total += weights[i];
-        centroid.add(Vec3.mul(points[i], weights[i]));
+        cx += points[i*3]*weights[i];
+        cy += points[i*3+1]*weights[i];
+        cz += points[i*3+2]*weights[i];
       }
-      centroid.div(total);
+      final float t = 1.0f / total;
+      cx *= t;
+      cy *= t;
+      cz *= t;
 
       // accumulating the covariance matrix
       final Sym3x3 covariance = new Sym3x3(0.0f);
       for (int i = 0; i < count; i++) {
-        final Vec3 a = Vec3.sub(points[i], centroid);
-        final Vec3 b = Vec3.mul(a, weights[i]);
-
-        covariance.m[0] += a.x()*b.x();
-        covariance.m[1] += a.x()*b.y();
-        covariance.m[2] += a.x()*b.z();
-        covariance.m[3] += a.y()*b.y();
-        covariance.m[4] += a.y()*b.z();
-        covariance.m[5] += a.z()*b.z();
+        final float ax = points[i*3] - cx;
+        final float ay = points[i*3+1] - cy;
+        final float az = points[i*3+2] - cz;
+        final float bx = ax*weights[i];
+        final float by = ay*weights[i];
+        final float bz = az*weights[i];
+
+        covariance.m[0] += ax*bx;
+        covariance.m[1] += ax*by;
+        covariance.m[2] += ax*bz;
+        covariance.m[3] += ay*by;
+        covariance.m[4] += ay*bz;
+        covariance.m[5] += az*bz;
       }
 
       return covariance;
@@ -2906,5 +3045,11 @@ else if (i > limit)
 
       return i;
     }
+
+    // Clamps the value to [0, 1]. NaN is treated as 0.
+    public static float clamp(final float a)
+    {
+      return Float.isNaN(a) ? 0.0f : Math.min(1.0f, Math.max(0.0f, a));
+    }
   }
 }
@@ -522,6 +522,7 @@ private byte[] convertToMosV1(boolean compressed) throws Exception
             tilePalette[(i << 2) + 3] = 0;
             colorCache.put(palette[i - 1], (byte)(i - 1));
           }
+          PaletteMatcher matcher = new PaletteMatcher(palette, 0.0);
           // filling pixel data
           for (int i = 0; i < pixels.length; i++) {
             if ((pixels[i] & 0xff000000) == 0) {
@@ -531,7 +532,7 @@ private byte[] convertToMosV1(boolean compressed) throws Exception
               if (palIndex != null) {
                 tileData[i] = (byte)(palIndex + 1);
               } else {
-                byte color = (byte)ColorConvert.getNearestColor(pixels[i], palette, 0.0, null);
+                byte color = (byte)matcher.getNearestColor(pixels[i]);
                 tileData[i] = (byte)(color + 1);
                 colorCache.put(pixels[i], color);
               }
@@ -0,0 +1,287 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.graphics;
+
+import java.util.Arrays;
+
+import org.infinity.util.tuples.Triple;
+
+/**
+ * Finds the nearest color of a fixed palette for arbitrary ARGB colors.
+ * <p>
+ * The palette is organized in a k-d tree, which reduces the number of distance calculations per lookup
+ * considerably compared to {@link ColorConvert#getNearestColor(int, int[], double, ColorConvert.ColorDistanceFunc)}.
+ * Results are identical to that method, including the preference of lower palette indices for colors of equal
+ * distance. Results of recent lookups are memoized.
+ * <p>
+ * The k-d tree is available for {@link ColorConvert#COLOR_DISTANCE_ARGB} and {@link ColorConvert#COLOR_DISTANCE_CIE94}.
+ * Other distance functions use a linear search. Instances are not thread-safe.
+ */
+public final class PaletteMatcher
+{
+  // Number of memoized lookups (must be a power of two)
+  private static final int CACHE_SIZE = 1 << 12;
+  // Number of coordinates per palette entry
+  private static final int DIMS = 4;
+  // Relative tolerance for pruning branches of the k-d tree to compensate for rounding errors
+  private static final double PRUNE_TOLERANCE = 1.0 + 1e-9;
+
+  private final int[] palette;
+  private final double alphaWeight;
+  private final ColorConvert.ColorDistanceFunc calculator;
+  private final boolean isArgb;
+  private final boolean isCie94;
+  private final double[] coords;      // coordinates of the palette entries, DIMS values per entry
+  private final double[] axisScale;   // scale factors of the coordinate axes
+  private final int[] tree;           // palette indices in k-d tree order
+  private final byte[] splitAxis;     // split axes of the k-d tree nodes
+  private final long[] cache;         // memoized lookups: ARGB value in upper 32 bits, (index + 1) in lower 32 bits
+
+  // per lookup state
+  private final double[] query = new double[DIMS];
+  private final double[] queryScale = new double[DIMS];
+  private int queryArgb;
+  private double bestDist;
+  private int bestIndex;
+
+  /**
+   * Creates a palette matcher which uses the fast but slightly inaccurate {@link ColorConvert#COLOR_DISTANCE_ARGB}
+   * distance calculation.
+   * @param palette palette with ARGB colors to search.
+   * @param alphaWeight Weight factor of the alpha component. Supported range: [0.0, 2.0].
+   */
+  public PaletteMatcher(int[] palette, double alphaWeight)
+  {
+    this(palette, alphaWeight, null);
+  }
+
+  /**
+   * Creates a palette matcher for the specified palette.
+   * @param palette palette with ARGB colors to search. Later modifications of the array are not reflected
+   *                by the palette matcher.
+   * @param alphaWeight Weight factor of the alpha component. Supported range: [0.0, 2.0].
+   *                    A value < 1.0 makes alpha less important for the distance calculation.
+   *                    A value > 1.0 makes alpha more important for the distance calculation.
+   *                    Specify 0.0 to ignore the alpha part in the calculation.
+   * @param calculator the function for distance calculation. Specify {@code null} to use
+   *                   {@link ColorConvert#COLOR_DISTANCE_ARGB}.
+   */
+  public PaletteMatcher(int[] palette, double alphaWeight, ColorConvert.ColorDistanceFunc calculator)
+  {
+    if (palette == null) {
+      throw new NullPointerException();
+    }
+    this.palette = palette.clone();
+    this.alphaWeight = Math.max(0.0, Math.min(2.0, alphaWeight));
+    this.calculator = (calculator != null) ? calculator : ColorConvert.COLOR_DISTANCE_ARGB;
+    this.isArgb = (this.calculator == ColorConvert.COLOR_DISTANCE_ARGB);
+    this.isCie94 = (this.calculator == ColorConvert.COLOR_DISTANCE_CIE94);
+    this.cache = new long[CACHE_SIZE];
+
+    if (isArgb || isCie94) {
+      coords = new double[this.palette.length * DIMS];
+      axisScale = new double[DIMS];
+      for (int i = 0; i < this.palette.length; i++) {
+        setCoordinates(this.palette[i], coords, i * DIMS);
+      }
+      if (isArgb) {
+        axisScale[0] = 48.0 * this.alphaWeight;
+        axisScale[1] = 14.0;
+        axisScale[2] = 28.0;
+        axisScale[3] = 6.0;
+      } else {
+        Arrays.fill(axisScale, 1.0);
+      }
+      tree = new int[this.palette.length];
+      splitAxis = new byte[this.palette.length];
+      for (int i = 0; i < tree.length; i++) {
+        tree[i] = i;
+      }
+      buildTree(0, tree.length);
+    } else {
+      coords = null;
+      axisScale = null;
+      tree = null;
+      splitAxis = null;
+    }
+  }
+
+  /** Returns the number of palette entries. */
+  public int getColorCount()
+  {
+    return palette.length;
+  }
+
+  /** Returns the ARGB color of the specified palette entry. */
+  public int getColor(int index)
+  {
+    return palette[index];
+  }
+
+  /**
+   * Returns the index of the palette entry nearest to the specified color.
+   * @param argb the reference ARGB color.
+   * @return Palette index pointing to the nearest color value. Returns -1 if the palette is empty.
+   */
+  public int getNearestColor(int argb)
+  {
+    final int slot = (argb ^ (argb >>> 14) ^ (argb >>> 23)) & (CACHE_SIZE - 1);
+    final long entry = cache[slot];
+    if (entry != 0L && (int)(entry >>> 32) == argb) {
+      return (int)entry - 1;
+    }
+
+    final int retVal;
+    if (tree != null) {
+      retVal = searchTree(argb);
+    } else {
+      retVal = ColorConvert.getNearestColor(argb, palette, alphaWeight, calculator);
+    }
+    cache[slot] = ((long)argb << 32) | ((retVal + 1) & 0xffffffffL);
+    return retVal;
+  }
+
+  /** Discards all memoized lookups. */
+  public void clearCache()
+  {
+    Arrays.fill(cache, 0L);
+  }
+
+  // Performs a nearest neighbor search in the k-d tree
+  private int searchTree(int argb)
+  {
+    queryArgb = argb;
+    setCoordinates(argb, query, 0);
+    if (isCie94) {
+      // CIE94 weights chroma and hue differences by factors depending on the chroma of the reference color.
+      // Their lower bound is used for the a and b axes.
+      final double c1 = Math.sqrt(query[1]*query[1] + query[2]*query[2]);
+      final double sc = 1.0 + 0.045*c1;
+      queryScale[0] = 1.0;
+      queryScale[1] = 1.0 / sc;
+      queryScale[2] = 1.0 / sc;
+      queryScale[3] = 1.0;
+    } else {
+      System.arraycopy(axisScale, 0, queryScale, 0, DIMS);
+    }
+    bestDist = Double.MAX_VALUE;
+    bestIndex = -1;
+    search(0, tree.length);
+    return bestIndex;
+  }
+
+  // Searches the k-d tree node of the specified range recursively
+  private void search(int start, int end)
+  {
+    if (start >= end) {
+      return;
+    }
+    final int mid = (start + end) >>> 1;
+    final int index = tree[mid];
+    final double dist = getDistance(index);
+    if (dist < bestDist || (dist == bestDist && index < bestIndex)) {
+      bestDist = dist;
+      bestIndex = index;
+    }
+
+    final int axis = splitAxis[mid];
+    final double delta = query[axis] - coords[index*DIMS + axis];
+    final boolean lowerFirst = (delta < 0.0);
+    search(lowerFirst ? start : mid + 1, lowerFirst ? mid : end);
+    // entries of equal distance may be located on both sides of the split plane
+    if (Math.abs(delta) * queryScale[axis] <= bestDist * PRUNE_TOLERANCE) {
+      search(lowerFirst ? mid + 1 : start, lowerFirst ? end : mid);
+    }
+  }
+
+  // Calculates the distance between the current query color and the specified palette entry.
+  // Performs the same calculations as the respective ColorDistanceFunc to produce identical results.
+  private double getDistance(int index)
+  {
+    final int ofs = index * DIMS;
+    if (isArgb) {
+      double da = (query[0] - coords[ofs]) * 48.0 * alphaWeight;
+      double dr = (query[1] - coords[ofs+1]) * 14.0;
+      double dg = (query[2] - coords[ofs+2]) * 28.0;
+      double db = (query[3] - coords[ofs+3]) * 6.0;
+      return Math.sqrt(da*da + dr*dr + dg*dg + db*db);
+    } else {
+      final double alpha1 = (double)((queryArgb >> 24) & 0xff) * alphaWeight;
+      final double alpha2 = (double)((palette[index] >> 24) & 0xff) * alphaWeight;
+      return ColorConvert.getColorDistanceLabCIE94(query[0], query[1], query[2], alpha1,
+                                                   coords[ofs], coords[ofs+1], coords[ofs+2], alpha2);
+    }
+  }
+
+  // Stores the k-d tree coordinates of the specified color in the array.
+  // ARGB: premultiplied {a, r, g, b}, CIE94: {L, a, b, weighted alpha}
+  private void setCoordinates(int argb, double[] buffer, int offset)
+  {
+    if (isArgb) {
+      int a = (argb >> 24) & 0xff;
+      int r = (argb >> 16) & 0xff;
+      int g = (argb >> 8) & 0xff;
+      int b = argb & 0xff;
+      if (a != 0xff) {
+        r = r * a / 255;
+        g = g * a / 255;
+        b = b * a / 255;
+      }
+      buffer[offset] = a;
+      buffer[offset+1] = r;
+      buffer[offset+2] = g;
+      buffer[offset+3] = b;
+    } else {
+      final Triple<Double, Double, Double> lab = ColorConvert.convertRGBtoLab(argb);
+      buffer[offset] = lab.getValue0().doubleValue();
+      buffer[offset+1] = lab.getValue1().doubleValue();
+      buffer[offset+2] = lab.getValue2().doubleValue();
+      buffer[offset+3] = (double)((argb >> 24) & 0xff) * alphaWeight;
+    }
+  }
+
+  // Builds the k-d tree for the specified range of the tree array recursively.
+  // The median entry of the range is the node, lower and upper parts are the subtrees.
+  private void buildTree(int start, int end)
+  {
+    if (end - start < 2) {
+      return;
+    }
+
+    // splitting along the axis of greatest (scaled) extent
+    int axis = 0;
+    double maxExtent = -1.0;
+    for (int d = 0; d < DIMS; d++) {
+      double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+      for (int i = start; i < end; i++) {
+        final double v = coords[tree[i]*DIMS + d];
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      final double extent = (max - min) * axisScale[d];
+      if (extent > maxExtent) {
+        maxExtent = extent;
+        axis = d;
+      }
+    }
+
+    // sorting range by the split axis (small ranges, insertion sort is sufficient)
+    for (int i = start + 1; i < end; i++) {
+      final int idx = tree[i];
+      final double v = coords[idx*DIMS + axis];
+      int j = i - 1;
+      while (j >= start && coords[tree[j]*DIMS + axis] > v) {
+        tree[j+1] = tree[j];
+        j--;
+      }
+      tree[j+1] = idx;
+    }
+
+    final int mid = (start + end) >>> 1;
+    splitAxis[mid] = (byte)axis;
+    buildTree(start, mid);
+    buildTree(mid + 1, end);
+  }
+}
@@ -24,6 +24,7 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 import javax.swing.ProgressMonitor;
 
@@ -481,7 +482,7 @@ private void renderFrame(BamControl control, int frameIdx, Image canvas)
       }
 
       // decoding frame data
-      BufferedImage srcImage = listFrames.get(frameIdx).frame;
+      BufferedImage srcImage = listFrames.get(frameIdx).getFrame();
       BufferedImage dstImage = ColorConvert.toBufferedImage(canvas, true, false);
       int srcPixelStride = srcImage.getRaster().getSampleModel().getNumDataElements();
       int srcBufferType = srcImage.getRaster().getDataBuffer().getDataType();
@@ -675,9 +676,11 @@ public boolean exportBamV1(Path fileName, ProgressMonitor progress, int curProgr
       int transIndex = -1;
       for (int i = 0; i < listFrames.size(); i++) {
         PseudoBamFrameEntry entry = listFrames.get(i);
+        // virtual frames are composed on each request
+        BufferedImage frame = entry.getFrame();
 
         // checking source frame type
-        if (entry.getFrame().getType() != BufferedImage.TYPE_BYTE_INDEXED) {
+        if (frame.getType() != BufferedImage.TYPE_BYTE_INDEXED) {
           throw new Exception("Unsupported source frame image type.");
         }
 
@@ -691,7 +694,7 @@ public boolean exportBamV1(Path fileName, ProgressMonitor progress, int curProgr
         // rudimentary palette check
         if (palette == null) {
           final int Green = 0x0000ff00;
-          IndexColorModel cm = (IndexColorModel)entry.getFrame().getColorModel();
+          IndexColorModel cm = (IndexColorModel)frame.getColorModel();
           palette = new int[1 << cm.getPixelSize()];
           cm.getRGBs(palette);
           for (int j = 0; j < palette.length; j++) {
@@ -705,7 +708,7 @@ public boolean exportBamV1(Path fileName, ProgressMonitor progress, int curProgr
             transIndex = 0;
           }
         } else {
-          IndexColorModel cm = (IndexColorModel)entry.getFrame().getColorModel();
+          IndexColorModel cm = (IndexColorModel)frame.getColorModel();
           if (palette.length != (1 <<cm.getPixelSize())) {
             throw new Exception("Incompatible palette found in source frame " + i);
           }
@@ -737,7 +740,7 @@ public boolean exportBamV1(Path fileName, ProgressMonitor progress, int curProgr
         o = listFrames.get(idx).getOption(OPTION_BOOL_COMPRESSED);
         boolean frameCompressed = (o != null) ? ((Boolean)o).booleanValue() : false;
         PseudoBamFrameEntry entry = listFrames.get(idx);
-        byte[] srcBuffer = ((DataBufferByte)entry.frame.getRaster().getDataBuffer()).getData();
+        byte[] srcBuffer = ((DataBufferByte)entry.getFrame().getRaster().getDataBuffer()).getData();
 
         if (frameCompressed) {
           // creating RLE compressed frame
@@ -945,7 +948,7 @@ public boolean exportBamV2(Path fileName, DxtEncoder.DxtType dxtType, int pvrzIn
             FrameDataV2 frame = listFrameData.get(idx);
             PseudoBamFrameEntry bfe = listFrames.get(idx);
 
-            PseudoBamFrameEntry entry = new PseudoBamFrameEntry(bfe.frame, bfe.getCenterX(), bfe.getCenterY());
+            PseudoBamFrameEntry entry = new PseudoBamFrameEntry(bfe.getFrame(), bfe.getCenterX(), bfe.getCenterY());
             entry.setOption(OPTION_INT_BLOCKINDEX, Integer.valueOf(blockStartIndex));
             entry.setOption(OPTION_INT_BLOCKCOUNT, Integer.valueOf(1));
             listFrameEntries.add(entry);
@@ -1048,7 +1051,7 @@ public int[] createGlobalPalette(HashMap<Integer, Integer> colorMap)
       if (colorMap == null) {
         newMap = new HashMap<>();
         for (int i = 0; i < listFrames.size(); i++) {
-          registerColors(newMap, listFrames.get(i).frame);
+          registerColors(newMap, listFrames.get(i).getFrame());
         }
       } else {
         newMap = new HashMap<>(colorMap.size());
@@ -1224,8 +1227,8 @@ private boolean buildFrameDataList(List<FrameDataV2> framesList, List<BinPack2D>
       final BinPack2D.HeuristicRules binPackRule = BinPack2D.HeuristicRules.BOTTOM_LEFT_RULE;
 
       for (int frameIdx = 0; frameIdx < listFrames.size(); frameIdx++) {
-        int imgWidth = listFrames.get(frameIdx).frame.getWidth() + 2;
-        int imgHeight = listFrames.get(frameIdx).frame.getHeight() + 2;
+        int imgWidth = listFrames.get(frameIdx).getWidth() + 2;
+        int imgHeight = listFrames.get(frameIdx).getHeight() + 2;
 
         // use multiple of 4 to take advantage of texture compression algorithm
         Dimension space = new Dimension((imgWidth+3) & ~3, (imgHeight+3) & ~3);
@@ -1316,7 +1319,7 @@ private boolean createPvrzPages(Path path, DxtEncoder.DxtType dxtType, List<BinP
         g.setColor(TransparentColor);
         g.fillRect(0, 0, texture.getWidth(), texture.getHeight());
         for (int frameIdx = 0; frameIdx < listFrames.size(); frameIdx++) {
-          BufferedImage image = listFrames.get(frameIdx).frame;
+          BufferedImage image = listFrames.get(frameIdx).getFrame();
           FrameDataV2 frame = framesList.get(frameIdx);
           if (frame.page == i) {
             int sx = frame.dx, sy = frame.dy;
@@ -1405,6 +1408,7 @@ public static class PseudoBamFrameEntry implements FrameEntry
     private int width, height, centerX, centerY;
     private int overrideCenterX, overrideCenterY;
     private BufferedImage frame;
+    private Supplier<BufferedImage> frameSource;
 
     public PseudoBamFrameEntry(BufferedImage image, int centerX, int centerY)
     {
@@ -1415,6 +1419,24 @@ public PseudoBamFrameEntry(BufferedImage image, int centerX, int centerY)
       this.centerY = getCenterY();
     }
 
+    /**
+     * Creates a virtual frame entry. The image is not stored but requested from the specified function
+     * whenever it is needed.
+     * @param source Function that returns the frame image. The image must be of the specified dimension.
+     * @param width Width of the frame image.
+     * @param height Height of the frame image.
+     * @param centerX Horizontal center position of the frame.
+     * @param centerY Vertical center position of the frame.
+     */
+    public PseudoBamFrameEntry(Supplier<BufferedImage> source, int width, int height, int centerX, int centerY)
+    {
+      setFrameSource(source, width, height);
+      setCenterX(centerX);
+      setCenterY(centerY);
+      this.centerX = getCenterX();
+      this.centerY = getCenterY();
+    }
+
     @Override
     public int getWidth() { return width; }
     @Override
@@ -1431,15 +1453,53 @@ public PseudoBamFrameEntry(BufferedImage image, int centerX, int centerY)
     @Override
     public void resetCenter() { overrideCenterX = centerX; overrideCenterY = centerY; }
 
-    /** Returns the image object of this frame entry. */
+    /**
+     * Returns the image object of this frame entry. Images of virtual frame entries are requested
+     * from the frame source on each call.
+     */
     public BufferedImage getFrame()
     {
+      if (frameSource != null) {
+        BufferedImage image = frameSource.get();
+        return (image != null) ? image : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      }
       return frame;
     }
 
+    /** Returns whether the image of this frame entry is created on demand by a frame source. */
+    public boolean isVirtual()
+    {
+      return frameSource != null;
+    }
+
+    /** Returns the frame source of a virtual frame entry. Returns {@code null} otherwise. */
+    public Supplier<BufferedImage> getFrameSource()
+    {
+      return frameSource;
+    }
+
+    /**
+     * Turns this frame entry into a virtual frame entry whose image is requested from the specified
+     * frame source. A previously assigned image object is discarded.
+     * @param source Function that returns the frame image. The image must be of the specified dimension.
+     * @param width Width of the frame image.
+     * @param height Height of the frame image.
+     */
+    public void setFrameSource(Supplier<BufferedImage> source, int width, int height)
+    {
+      if (source == null) {
+        throw new NullPointerException();
+      }
+      frameSource = source;
+      frame = null;
+      this.width = Math.max(1, width);
+      this.height = Math.max(1, height);
+    }
+
     /** Assigns a new image object to this frame entry. */
     public void setFrame(BufferedImage image)
     {
+      frameSource = null;
       if (image != null) {
         frame = image;
         width = frame.getWidth();
@@ -1453,7 +1513,12 @@ public void setFrame(BufferedImage image)
     @Override
     public Object clone()
     {
-      PseudoBamFrameEntry retVal = new PseudoBamFrameEntry(frame, centerX, centerY);
+      PseudoBamFrameEntry retVal;
+      if (frameSource != null) {
+        retVal = new PseudoBamFrameEntry(frameSource, width, height, centerX, centerY);
+      } else {
+        retVal = new PseudoBamFrameEntry(frame, centerX, centerY);
+      }
       retVal.overrideCenterX = overrideCenterX;
       retVal.overrideCenterY = overrideCenterY;
       return retVal;
@@ -1765,7 +1830,7 @@ public boolean cycleFrameHasPalette(int cycleIdx, int frameIdx)
     {
       int index = cycleGetFrameIndexAbsolute(cycleIdx, frameIdx);
       if (index >= 0) {
-        BufferedImage image = getDecoder().listFrames.get(index).frame;
+        BufferedImage image = getDecoder().listFrames.get(index).getFrame();
         if (image != null && image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
           return true;
         }
@@ -1791,7 +1856,7 @@ public int[] cycleFrameGetPalette(int cycleIdx, int frameIdx)
     {
       int index = cycleGetFrameIndexAbsolute(cycleIdx, frameIdx);
       if (index >= 0) {
-        BufferedImage image = getDecoder().listFrames.get(index).frame;
+        BufferedImage image = getDecoder().listFrames.get(index).getFrame();
         if (image != null && image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
           if (image.getColorModel() instanceof IndexColorModel) {
             IndexColorModel cm = (IndexColorModel)image.getColorModel();
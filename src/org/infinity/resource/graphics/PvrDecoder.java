@@ -12,7 +12,9 @@
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.FilterInputStream;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
@@ -20,11 +22,19 @@
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.InflaterInputStream;
 
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.DynamicArray;
+import org.infinity.util.ResourceTaskExecutor;
 import org.infinity.util.io.FileManager;
 import org.infinity.util.io.StreamUtils;
 
@@ -62,10 +72,28 @@ public enum ChannelType {
     FLOAT
   }
 
-  // The global cache list for PVR objects. The "key" has to be a unique String (e.g. filename or integer as string)
-  private static final Map<String, PvrDecoder> pvrCache = new LinkedHashMap<>();
-  // The max. number of cache entries to hold
-  private static int MaxCacheEntries = 32;
+  /** Default memory budget of the PVR cache, in bytes. */
+  public static final long DEFAULT_CACHE_CAPACITY = 64L * 1024L * 1024L;
+
+  // The global cache for PVR objects. The "key" has to be a unique String (e.g. filename or integer as string)
+  private static final ConcurrentHashMap<String, CacheEntry> PVR_CACHE = new ConcurrentHashMap<>();
+  // Evicted PVR objects which can be reused until they are reclaimed by the garbage collector
+  private static final ConcurrentHashMap<String, SoftReference<PvrDecoder>> SPILL_CACHE = new ConcurrentHashMap<>();
+  // PVR objects which are currently being loaded
+  private static final ConcurrentHashMap<String, CompletableFuture<PvrDecoder>> PENDING = new ConcurrentHashMap<>();
+  // Used to synchronize insertion and eviction of cache entries
+  private static final Object CACHE_LOCK = new Object();
+  // Provides access order of cache entries
+  private static final AtomicLong CACHE_TICK = new AtomicLong();
+  private static final LongAdder CACHE_HITS = new LongAdder();
+  private static final LongAdder CACHE_SPILL_HITS = new LongAdder();
+  private static final LongAdder CACHE_MISSES = new LongAdder();
+  private static final LongAdder CACHE_EVICTIONS = new LongAdder();
+
+  private static volatile long cacheCapacity = DEFAULT_CACHE_CAPACITY;
+  private static volatile boolean softSpill = true;
+  // Total data size of all cached PVR objects, guarded by CACHE_LOCK
+  private static long cacheSize;
 
   // Supported pixel formats
   private static final EnumSet<PixelFormat> SupportedFormat =
@@ -78,6 +106,7 @@ public enum ChannelType {
 
   /**
    * Returns an initialized PvrDecoder object with the specified resource (if available).
+   * Resource data is only read if the PVR object is not already cached.
    * @param entry The ResourceEntry object of the pvr(z) resource to load.
    * @return the PvrDecoder object containing the decoded PVR resource, or {@code null} on error.
    */
@@ -86,17 +115,14 @@ public static PvrDecoder loadPvr(ResourceEntry entry)
     if (entry == null) {
       throw new NullPointerException();
     }
-    try (InputStream is = entry.getResourceDataAsStream()) {
+    try {
       String key = null;
       if (entry instanceof FileResourceEntry) {
         key = ((FileResourceEntry)entry).getActualPath().toString();
       } else {
         key = entry.getResourceName();
       }
-      PvrDecoder decoder = createPvrDecoder(key, is);
-      if (decoder != null) {
-        return decoder;
-      }
+      return getPvrDecoder(key, entry::getResourceDataAsStream);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -113,12 +139,8 @@ public static PvrDecoder loadPvr(String fileName)
     if (fileName == null) {
       throw new NullPointerException();
     }
-    try (InputStream is = StreamUtils.getInputStream(FileManager.resolve(fileName))) {
-      String key = fileName;
-      PvrDecoder decoder = createPvrDecoder(key, is);
-      if (decoder != null) {
-        return decoder;
-      }
+    try {
+      return getPvrDecoder(fileName, () -> StreamUtils.getInputStream(FileManager.resolve(fileName)));
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -132,12 +154,8 @@ public static PvrDecoder loadPvr(String fileName)
    */
   public static PvrDecoder loadPvr(Path file)
   {
-    try (InputStream is = StreamUtils.getInputStream(file)) {
-      String key = file.getFileName().toString();
-      PvrDecoder decoder = createPvrDecoder(key, is);
-      if (decoder != null) {
-        return decoder;
-      }
+    try {
+      return getPvrDecoder(file.getFileName().toString(), () -> StreamUtils.getInputStream(file));
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -146,6 +164,7 @@ public static PvrDecoder loadPvr(Path file)
 
   /**
    * Returns an initialized PvrDecoder object with the specified input stream (if available).
+   * The stream is not closed.
    * @param input The input stream of the pvr(z) resource to load.
    * @return the PvrDecoder object containing the decoded PVR resource, or {@code null} on error.
    */
@@ -155,111 +174,205 @@ public static PvrDecoder loadPvr(InputStream input)
       throw new NullPointerException();
     }
     try {
-      String key = Integer.valueOf(input.hashCode()).toString();
-      PvrDecoder decoder = createPvrDecoder(key, input);
-      if (decoder != null) {
-        return decoder;
-      }
+      // stream is owned by the caller and must not be closed
+      return getPvrDecoder(Integer.valueOf(input.hashCode()).toString(), () -> new FilterInputStream(input) {
+        @Override
+        public void close() {}
+      });
     } catch (Exception e) {
       e.printStackTrace();
     }
     return null;
   }
 
-  /** Returns the max. number of PvrDecoder objects to cache. */
-  public static int getMaxCacheEntries()
+  /** Returns the memory budget of the PVR cache, in bytes. */
+  public static long getCacheCapacity()
   {
-    return MaxCacheEntries;
+    return cacheCapacity;
   }
 
-  /** Specify the new max. number of PvrDecoder objects to cache. Specifying 0 disables the cache. */
-  public static synchronized void setMaxCacheEntries(int maxValue)
+  /**
+   * Sets the memory budget of the PVR cache, in bytes. Least recently used PVR objects are removed
+   * if the cache exceeds the new budget. Specifying 0 disables the cache.
+   */
+  public static void setCacheCapacity(long capacity)
   {
-    if (maxValue < 0) maxValue = 0; else if (maxValue > 65535) maxValue = 65535;
-    if (maxValue != MaxCacheEntries) {
-      MaxCacheEntries = maxValue;
-      while (pvrCache.size() > MaxCacheEntries) {
-        pvrCache.remove(pvrCache.keySet().iterator().next());
-      }
+    synchronized (CACHE_LOCK) {
+      cacheCapacity = Math.max(0L, capacity);
+      trimCache();
     }
   }
 
+  /** Returns the total data size of all cached PVR objects, in bytes. */
+  public static long getCacheSize()
+  {
+    synchronized (CACHE_LOCK) {
+      return cacheSize;
+    }
+  }
+
+  /** Returns whether PVR objects removed from the cache are kept as soft references. */
+  public static boolean isSoftReferenceSpill()
+  {
+    return softSpill;
+  }
+
+  /**
+   * Specifies whether PVR objects removed from the cache are kept as soft references. These objects
+   * can be reused without reloading them until the garbage collector needs the memory.
+   */
+  public static void setSoftReferenceSpill(boolean enable)
+  {
+    softSpill = enable;
+    if (!enable) {
+      SPILL_CACHE.clear();
+    }
+  }
+
+  /** Returns the number of requests that were served by a cached PVR object. */
+  public static long getCacheHits()
+  {
+    return CACHE_HITS.sum();
+  }
+
+  /** Returns the number of requests that were served by a PVR object recovered from a soft reference. */
+  public static long getCacheSpillHits()
+  {
+    return CACHE_SPILL_HITS.sum();
+  }
+
+  /** Returns the number of requests that required loading the PVR resource. */
+  public static long getCacheMisses()
+  {
+    return CACHE_MISSES.sum();
+  }
+
+  /** Returns the number of PVR objects that were removed from the cache to satisfy the memory budget. */
+  public static long getCacheEvictions()
+  {
+    return CACHE_EVICTIONS.sum();
+  }
+
   /** Clears all available caches. */
-  public static synchronized void flushCache()
+  public static void flushCache()
   {
-    pvrCache.clear();
+    synchronized (CACHE_LOCK) {
+      PVR_CACHE.clear();
+      SPILL_CACHE.clear();
+      cacheSize = 0L;
+    }
     DecodePVRT.flushCache();
   }
 
-  /** Returns the current cache load as percentage value. */
+  /** Returns the current cache load as percentage value of the memory budget. */
   public static int getCacheLoad()
   {
-    if (MaxCacheEntries > 0) {
-      return (pvrCache.size()*100) / MaxCacheEntries;
+    final long capacity = cacheCapacity;
+    if (capacity > 0L) {
+      return (int)((getCacheSize() * 100L) / capacity);
     } else {
       return 0;
     }
   }
 
-//  // Returns a PvrDecoder object only if it already exists in the cache.
-//  private static synchronized PvrDecoder getCachedPvrDecoder(String key)
-//  {
-//    PvrDecoder retVal = null;
-//    if (key != null && !key.isEmpty()) {
-//      key = key.toUpperCase(Locale.ENGLISH);
-//      if (pvrCache.containsKey(key)) {
-//        retVal = pvrCache.get(key);
-//        // re-inserting entry to prevent premature removal from cache
-//        pvrCache.remove(key);
-//        pvrCache.put(key, retVal);
-//      }
-//    }
-//    return retVal;
-//  }
-
   // Returns a PvrDecoder object of the specified key if available, or creates and returns a new one otherwise.
-  private static synchronized PvrDecoder createPvrDecoder(String key, InputStream input)
+  // Concurrent requests of the same key wait for the first request instead of loading the resource again.
+  private static PvrDecoder getPvrDecoder(String key, Callable<InputStream> source) throws Exception
   {
-    PvrDecoder retVal = null;
-    if (key != null && !key.isEmpty()) {
-      key = key.toUpperCase(Locale.ENGLISH);
-      if (pvrCache.containsKey(key)) {
-        retVal = pvrCache.get(key);
-        // re-inserting entry to prevent premature removal from cache
-        pvrCache.remove(key);
-        pvrCache.put(key, retVal);
+    if (key == null || key.isEmpty()) {
+      return null;
+    }
+    key = key.toUpperCase(Locale.ENGLISH);
+
+    // fast path: cache hit without locking
+    CacheEntry entry = PVR_CACHE.get(key);
+    if (entry != null) {
+      CACHE_HITS.increment();
+      return entry.touch();
+    }
+
+    final CompletableFuture<PvrDecoder> future = new CompletableFuture<>();
+    final CompletableFuture<PvrDecoder> pending = PENDING.putIfAbsent(key, future);
+    if (pending != null) {
+      CACHE_HITS.increment();
+      return pending.join();
+    }
+
+    try {
+      // entry may have been added after the first lookup
+      entry = PVR_CACHE.get(key);
+      PvrDecoder retVal = null;
+      if (entry != null) {
+        CACHE_HITS.increment();
+        retVal = entry.touch();
       } else {
-        try {
-          retVal = new PvrDecoder(input);
-          if (retVal != null) {
-            pvrCache.put(key, retVal);
-            // removing excess cache entries
-            while (pvrCache.size() > MaxCacheEntries) {
-              pvrCache.remove(pvrCache.keySet().iterator().next());
-            }
+        final SoftReference<PvrDecoder> ref = SPILL_CACHE.remove(key);
+        retVal = (ref != null) ? ref.get() : null;
+        if (retVal != null) {
+          CACHE_SPILL_HITS.increment();
+        } else {
+          CACHE_MISSES.increment();
+          try (InputStream is = source.call()) {
+            retVal = new PvrDecoder(is);
           }
-        } catch (Exception e) {
-          e.printStackTrace();
         }
+        addCacheEntry(key, retVal);
+      }
+      future.complete(retVal);
+      return retVal;
+    } catch (Throwable t) {
+      future.completeExceptionally(t);
+      throw t;
+    } finally {
+      PENDING.remove(key, future);
+    }
+  }
+
+  // Adds the PvrDecoder object to the cache and removes least recently used entries if needed.
+  private static void addCacheEntry(String key, PvrDecoder decoder)
+  {
+    final long size = decoder.getDataSize();
+    synchronized (CACHE_LOCK) {
+      if (size > cacheCapacity) {
+        // doesn't fit into the cache
+        if (softSpill && cacheCapacity > 0L) {
+          SPILL_CACHE.put(key, new SoftReference<>(decoder));
+        }
+        return;
+      }
+      final CacheEntry oldEntry = PVR_CACHE.put(key, new CacheEntry(decoder, size));
+      if (oldEntry != null) {
+        cacheSize -= oldEntry.size;
+      }
+      cacheSize += size;
+      trimCache();
+    }
+  }
+
+  // Removes least recently used entries until the memory budget is satisfied.
+  // Must be called while holding CACHE_LOCK.
+  private static void trimCache()
+  {
+    if (cacheSize > cacheCapacity) {
+      // discard soft references which have already been cleared
+      SPILL_CACHE.values().removeIf(ref -> ref.get() == null);
+    }
+    while (cacheSize > cacheCapacity && !PVR_CACHE.isEmpty()) {
+      Map.Entry<String, CacheEntry> oldest = null;
+      for (final Map.Entry<String, CacheEntry> e: PVR_CACHE.entrySet()) {
+        if (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess) {
+          oldest = e;
+        }
+      }
+      if (oldest == null || !PVR_CACHE.remove(oldest.getKey(), oldest.getValue())) {
+        break;
+      }
+      cacheSize -= oldest.getValue().size;
+      CACHE_EVICTIONS.increment();
+      if (softSpill && cacheCapacity > 0L) {
+        SPILL_CACHE.put(oldest.getKey(), new SoftReference<>(oldest.getValue().decoder));
       }
     }
-    return retVal;
-//    PvrDecoder retVal = getCachedPvrDecoder(key);
-//    if (retVal == null && input != null) {
-//      try {
-//        retVal = new PvrDecoder(input);
-//        if (retVal != null) {
-//          pvrCache.put(key, retVal);
-//          // removing excess cache entries
-//          while (pvrCache.size() > MaxCacheEntries) {
-//            pvrCache.remove(pvrCache.keySet().iterator().next());
-//          }
-//        }
-//      } catch (Exception e) {
-//        e.printStackTrace();
-//      }
-//    }
-//    return retVal;
   }
 
   // Returns a rectangle that is aligned to the values specified as arguments 2 and 3
@@ -342,6 +455,12 @@ private static Rectangle alignRectangle(Rectangle rect, int alignX, int alignY)
   /** Provides direct access to the content of the encoded pixel data. */
   public byte[] getData() { return info.data; }
 
+  /** Returns the memory occupied by the encoded pixel data and meta data, in bytes. */
+  public long getDataSize()
+  {
+    return (long)info.data.length + (info.metaData != null ? info.metaData.length : 0);
+  }
+
   /** Returns whether the pixel format of the current texture is supported by the PvrDecoder. */
   public boolean isSupported()
   {
@@ -432,16 +551,52 @@ public boolean decode(BufferedImage image, int x, int y, int width, int height)
       case PVRTC_4BPP_RGBA:
         return DecodePVRT.decodePVRT4bpp(info, image, region);
       case DXT1:
-        return DecodeDXT.decodeDXT1(info, image, region);
+      case DXT5:
+        return DecodeDXT.decode(info, image, region);
       case DXT3:
         return DecodeDXT.decodeDXT3(info, image, region);
-      case DXT5:
-        return DecodeDXT.decodeDXT5(info, image, region);
       default:
         return DecodeDummy.decode(info, image, region);
     }
   }
 
+  /**
+   * Decodes a rectangular block of pixels of the currently loaded PVR data into an array of ARGB pixels.
+   * DXT1 and DXT5 data is decoded directly into the array. Large regions are decoded in parallel.
+   * @param buffer The array for the pixel data. The top-left pixel of the block is stored at index 0.
+   * @param scanline Number of array elements per pixel row.
+   * @param x Left-most x coordinate of the pixel block.
+   * @param y Top-most y coordinate of the pixel block.
+   * @param width Width in pixels.
+   * @param height Height in pixels.
+   * @return {@code true} if the pixel data has been decoded successfully, {@code false} otherwise.
+   * @throws Exception on error.
+   */
+  public boolean decode(int[] buffer, int scanline, int x, int y, int width, int height) throws Exception
+  {
+    if (buffer == null) {
+      throw new Exception("No target buffer specified");
+    }
+    if (x < 0 || y < 0 || width < 1 || height < 1 || x+width > getWidth() || y+height > getHeight() ||
+        scanline < width || (long)(height - 1)*scanline + width > buffer.length) {
+      throw new Exception("Invalid dimensions specified");
+    }
+    if (getChannelType() != ChannelType.UBYTE_NORM) {
+      throw new Exception(String.format("Channel type '%s' not supported", getChannelType().toString()));
+    }
+    if (getPixelFormat() == PixelFormat.DXT1 || getPixelFormat() == PixelFormat.DXT5) {
+      DecodeDXT.decode(info, new Rectangle(x, y, width, height), buffer, 0, scanline);
+      return true;
+    }
+
+    BufferedImage image = decode(x, y, width, height);
+    if (image != null) {
+      image.getRGB(0, 0, width, height, buffer, 0, scanline);
+      return true;
+    }
+    return false;
+  }
+
 
   private PvrDecoder(InputStream input) throws Exception
   {
@@ -502,6 +657,28 @@ private PvrDecoder(InputStream input) throws Exception
 
 // ----------------------------- INNER CLASSES -----------------------------
 
+  // Associates a cached PvrDecoder object with its data size and access order
+  private static class CacheEntry
+  {
+    private final PvrDecoder decoder;
+    private final long size;
+    private volatile long lastAccess;
+
+    public CacheEntry(PvrDecoder decoder, long size)
+    {
+      this.decoder = decoder;
+      this.size = size;
+      touch();
+    }
+
+    // Updates access order and returns the PvrDecoder object
+    public PvrDecoder touch()
+    {
+      lastAccess = CACHE_TICK.incrementAndGet();
+      return decoder;
+    }
+  }
+
   // Contains preprocessed data of a single PVR resource
   private class PvrInfo
   {
@@ -694,131 +871,119 @@ public static boolean decode(PvrInfo pvr, BufferedImage image, Rectangle region)
   // Decodes DXTn pixel data.
   private static class DecodeDXT
   {
+    // Min. number of pixels of a region to be decoded in parallel
+    private static final int PARALLEL_MIN_PIXELS = 256*256;
+    // Max. number of block rows decoded by a single task
+    private static final int PARALLEL_BLOCK_ROWS = 16;
+
     /**
-     * Decodes PVR data in DXT1 format and draws the specified "region" into "image".
+     * Decodes PVR data in DXT1 or DXT5 format and draws the specified "region" into "image".
+     * Pixel data is decoded directly into the image buffer if possible.
      * @param pvr The PVR data
      * @param image The output image
      * @param region The of the PVR texture region to draw onto "image"
      * @return The success state of the operation.
      * @throws Exception on error.
      */
-    public static boolean decodeDXT1(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
+    public static boolean decode(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
     {
       if (pvr == null || image == null || region == null) {
         return false;
       }
 
-      int imgWidth = image.getWidth();
-      int imgHeight = image.getHeight();
-      int[] imgData = null;
+      // checking region bounds
+      Rectangle rect = region.intersection(new Rectangle(0, 0, pvr.width, pvr.height));
+      rect.width = Math.min(rect.width, image.getWidth());
+      rect.height = Math.min(rect.height, image.getHeight());
+      if (rect.isEmpty()) {
+        return true;
+      }
 
-      // checking region bounds and alignment
-      if (region.x < 0) {region.width += -region.x; region.x = 0; }
-      if (region.y < 0) {region.height += -region.y; region.y = 0; }
-      if (region.x + region.width > pvr.width) region.width = pvr.width - region.x;
-      if (region.y + region.height > pvr.height) region.height = pvr.height - region.y;
-      Rectangle rect = alignRectangle(region, 4, 4);
+      if (image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+        int[] imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        decode(pvr, rect, imgData, 0, image.getWidth());
+      } else {
+        int[] buffer = new int[rect.width*rect.height];
+        decode(pvr, rect, buffer, 0, rect.width);
+        image.setRGB(0, 0, rect.width, rect.height, buffer, 0, rect.width);
+      }
+      return true;
+    }
 
-      // preparing aligned image buffer for faster rendering
-      BufferedImage alignedImage = null;
-      int imgWidthAligned;
-      if (!region.equals(rect)) {
-        alignedImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-        imgWidthAligned = alignedImage.getWidth();
-        imgData = ((DataBufferInt)alignedImage.getRaster().getDataBuffer()).getData();
-        // translating "region" to be relative to "rect"
-        region.x -= rect.x;
-        region.y -= rect.y;
-        if (imgWidth < region.width) {
-          region.width= imgWidth;
-        }
-        if (imgHeight < region.height) {
-          region.height = imgHeight;
+    /**
+     * Decodes the specified region of PVR data in DXT1 or DXT5 format into an array of ARGB pixels.
+     * Large regions are split into rows of blocks which are decoded in parallel.
+     * @param pvr The PVR data
+     * @param region The PVR texture region to decode. Must be located within the texture bounds.
+     * @param buffer The output array
+     * @param offset Array index of the top-left pixel of the region.
+     * @param scanline Number of array elements per pixel row.
+     */
+    public static void decode(PvrInfo pvr, Rectangle region, int[] buffer, int offset, int scanline)
+    {
+      final BlockRows task = new BlockRows(pvr, region, buffer, offset, scanline,
+                                           region.y >>> 2, (region.y + region.height + 3) >>> 2);
+      if (region.width*region.height >= PARALLEL_MIN_PIXELS &&
+          ResourceTaskExecutor.getPool().getParallelism() > 1) {
+        if (ForkJoinTask.inForkJoinPool()) {
+          task.invoke();
+        } else {
+          ResourceTaskExecutor.getPool().invoke(task);
         }
       } else {
-        imgWidthAligned = imgWidth;
-        imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        task.decodeRows(task.startRow, task.endRow);
       }
+    }
 
-      final int wordSize = 8;                   // data size of an encoded 4x4 pixel block
-      int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
-      int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
-      int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
-      int wordPosX = rect.x >>> 2;
-      int wordPosY = rect.y >>> 2;
-
-      int[] colors = new int[8];
-      int pvrOfs = (wordPosY*wordImageWidth + wordPosX)*wordSize;
-      int imgOfs = 0;
-      for (int y = 0; y < wordRectHeight; y++) {
-        for (int x = 0; x < wordRectWidth; x++) {
-          // decoding single DXT1 block
-          int c = DynamicArray.getInt(pvr.data, pvrOfs);
-          unpackColors565(c, colors);
-          int code = DynamicArray.getInt(pvr.data, pvrOfs+4);
-          for (int idx = 0; idx < 16; idx++, code >>>= 2) {
-            int ofs = imgOfs + (idx >>> 2)*imgWidthAligned + (idx & 3);
-            if ((code & 3) == 0) {
-              // 100% c0, 0% c1
-              imgData[ofs] = 0xff000000 | (colors[2] << 16) | (colors[1] << 8) | colors[0];
-            } else if ((code & 3) == 1) {
-              // 0% c0, 100% c1
-              imgData[ofs] = 0xff000000 | (colors[6] << 16) | (colors[5] << 8) | colors[4];
-            } else if ((code & 3) == 2) {
-              if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
-                // 66% c0, 33% c1
-                int v = 0xff000000;
-                v |= (((colors[2] << 1) + colors[6]) / 3) << 16;
-                v |= (((colors[1] << 1) + colors[5]) / 3) << 8;
-                v |=  ((colors[0] << 1) + colors[4]) / 3;
-                imgData[ofs] = v;
-              } else {
-                // 50% c0, 50% c1
-                int v = 0xff000000;
-                v |= ((colors[2] + colors[6]) >>> 1) << 16;
-                v |= ((colors[1] + colors[5]) >>> 1) << 8;
-                v |=  (colors[0] + colors[4]) >>> 1;
-                imgData[ofs] = v;
-              }
-            } else {
-              if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
-                // 33% c0, 66% c1
-                int v = 0xff000000;
-                v |= ((colors[2] + (colors[6] << 1)) / 3) << 16;
-                v |= ((colors[1] + (colors[5] << 1)) / 3) << 8;
-                v |=  (colors[0] + (colors[4] << 1)) / 3;
-                imgData[ofs] = v;
-              } else {
-                // transparent
-                imgData[ofs] = 0;
-              }
-            }
-          }
-
-          pvrOfs += wordSize;
-          imgOfs += 4;
-        }
-        pvrOfs += (wordImageWidth - wordRectWidth)*wordSize;
-        imgOfs += imgWidthAligned*4 - rect.width;
+    // Creates the color table of a DXT1 block.
+    // Returns the table with three colors and transparency if "threeColors" is set, four colors otherwise.
+    private static void createColorTable(int c, boolean threeColors, int[] table)
+    {
+      final int r0 = ((c >>> 8) & 0xf8) | ((c >>> 13) & 0x07);
+      final int g0 = ((c >>> 3) & 0xfc) | ((c >>> 9) & 0x03);
+      final int b0 = ((c << 3) & 0xf8) | ((c >>> 2) & 0x07);
+      final int r1 = ((c >>> 24) & 0xf8) | ((c >>> 29) & 0x07);
+      final int g1 = ((c >>> 19) & 0xfc) | ((c >>> 25) & 0x03);
+      final int b1 = ((c >>> 13) & 0xf8) | ((c >>> 18) & 0x07);
+      table[0] = 0xff000000 | (r0 << 16) | (g0 << 8) | b0;
+      table[1] = 0xff000000 | (r1 << 16) | (g1 << 8) | b1;
+      if (threeColors) {
+        // 50% c0, 50% c1; transparent
+        table[2] = 0xff000000 | (((r0 + r1) >>> 1) << 16) | (((g0 + g1) >>> 1) << 8) | ((b0 + b1) >>> 1);
+        table[3] = 0;
+      } else {
+        // 66% c0, 33% c1; 33% c0, 66% c1
+        table[2] = 0xff000000 | ((((r0 << 1) + r1) / 3) << 16) | ((((g0 << 1) + g1) / 3) << 8) | (((b0 << 1) + b1) / 3);
+        table[3] = 0xff000000 | (((r0 + (r1 << 1)) / 3) << 16) | (((g0 + (g1 << 1)) / 3) << 8) | ((b0 + (b1 << 1)) / 3);
       }
-      imgData = null;
+    }
 
-      // rendering aligned image to target image
-      if (alignedImage != null) {
-        Graphics2D g = image.createGraphics();
-        try {
-          g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC));
-          g.drawImage(alignedImage, 0, 0, region.width, region.height,
-                      region.x, region.y, region.x+region.width, region.y+region.height, null);
-        } finally {
-          g.dispose();
-          g = null;
-        }
-        alignedImage = null;
+    // Creates the alpha table of a DXT5 block, with alpha values shifted to the alpha channel.
+    private static void createAlphaTable(int a0, int a1, int[] table)
+    {
+      table[0] = a0;
+      table[1] = a1;
+      if (a0 > a1) {
+        table[2] = (6*a0 +   a1) / 7;
+        table[3] = (5*a0 + 2*a1) / 7;
+        table[4] = (4*a0 + 3*a1) / 7;
+        table[5] = (3*a0 + 4*a1) / 7;
+        table[6] = (2*a0 + 5*a1) / 7;
+        table[7] = (  a0 + 6*a1) / 7;
+      } else {
+        table[2] = (4*a0 +   a1) / 5;
+        table[3] = (3*a0 + 2*a1) / 5;
+        table[4] = (2*a0 + 3*a1) / 5;
+        table[5] = (  a0 + 4*a1) / 5;
+        table[6] = 0;
+        table[7] = 255;
+      }
+      for (int i = 0; i < 8; i++) {
+        table[i] <<= 24;
       }
-      return true;
     }
 
+
     /**
      * Decodes PVR data in DXT3 format and draws the specified "region" into "image".
      * @param pvr The PVR data
@@ -939,155 +1104,117 @@ public static boolean decodeDXT3(PvrInfo pvr, BufferedImage image, Rectangle reg
       return true;
     }
 
-    /**
-     * Decodes PVR data in DXT5 format and draws the specified "region" into "image".
-     * @param pvr The PVR data
-     * @param image The output image
-     * @param region The of the PVR texture region to draw onto "image"
-     * @return The success state of the operation.
-     * @throws Exception on error.
-     */
-    public static boolean decodeDXT5(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
+    // Converts two RGB565 words into separate components, ordered { B, G, R, A, B, G, R, A }
+    private static void unpackColors565(int inData, int[] outData)
     {
-      if (pvr == null || image == null || region == null) {
-        return false;
-      }
+      outData[0] = ((inData << 3)  & 0xf8) | (inData >>> 2)  & 0x07;      // b1
+      outData[1] = ((inData >>> 3) & 0xfc) | (inData >>> 9)  & 0x03;      // g1
+      outData[2] = ((inData >>> 8) & 0xf8) | (inData >>> 13) & 0x07;      // r1
+      outData[3] = 255;                                                   // a1
+      outData[4] = ((inData >>> 13) & 0xf8) | (inData >>> 18) & 0x07;     // b2
+      outData[5] = ((inData >>> 19) & 0xfc) | (inData >>> 25) & 0x03;     // g2
+      outData[6] = ((inData >>> 24) & 0xf8) | (inData >>> 29) & 0x07;     // r2
+      outData[7] = 255;                                                   // a2
+    }
 
-      int imgWidth = image.getWidth();
-      int imgHeight = image.getHeight();
-      int[] imgData = null;
 
-      // checking region bounds and alignment
-      if (region.x < 0) {region.width += -region.x; region.x = 0; }
-      if (region.y < 0) {region.height += -region.y; region.y = 0; }
-      if (region.x + region.width > pvr.width) region.width = pvr.width - region.x;
-      if (region.y + region.height > pvr.height) region.height = pvr.height - region.y;
-      Rectangle rect = alignRectangle(region, 4, 4);
+    // Decodes a range of block rows of DXT1 or DXT5 data, splits into smaller ranges for work-stealing.
+    private static class BlockRows extends RecursiveAction
+    {
+      private final PvrInfo pvr;
+      private final Rectangle region;
+      private final int[] buffer;
+      private final int offset;
+      private final int scanline;
+      private final int startRow;
+      private final int endRow;
+
+      public BlockRows(PvrInfo pvr, Rectangle region, int[] buffer, int offset, int scanline,
+                       int startRow, int endRow)
+      {
+        this.pvr = pvr;
+        this.region = region;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.scanline = scanline;
+        this.startRow = startRow;
+        this.endRow = endRow;
+      }
 
-      // preparing aligned image buffer for faster rendering
-      BufferedImage alignedImage = null;
-      int imgWidthAligned;
-      if (!region.equals(rect)) {
-        alignedImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-        imgWidthAligned = alignedImage.getWidth();
-        imgData = ((DataBufferInt)alignedImage.getRaster().getDataBuffer()).getData();
-        // translating "region" to be relative to "rect"
-        region.x -= rect.x;
-        region.y -= rect.y;
-        if (imgWidth < region.width) {
-          region.width= imgWidth;
-        }
-        if (imgHeight < region.height) {
-          region.height = imgHeight;
+      @Override
+      protected void compute()
+      {
+        if (endRow - startRow > PARALLEL_BLOCK_ROWS) {
+          final int mid = (startRow + endRow) >>> 1;
+          invokeAll(new BlockRows(pvr, region, buffer, offset, scanline, startRow, mid),
+                    new BlockRows(pvr, region, buffer, offset, scanline, mid, endRow));
+        } else {
+          decodeRows(startRow, endRow);
         }
-      } else {
-        imgWidthAligned = imgWidth;
-        imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
       }
 
-      final int wordSize = 16;                  // data size of an encoded 4x4 pixel block
-      int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
-      int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
-      int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
-      int wordPosX = rect.x >>> 2;
-      int wordPosY = rect.y >>> 2;
-
-      int[] alpha = new int[8];
-      int[] colors = new int[8];
-      int pvrOfs = (wordPosY*wordImageWidth + wordPosX)*wordSize;
-      int imgOfs = 0;
-      for (int y = 0; y < wordRectHeight; y++) {
-        for (int x = 0; x < wordRectWidth; x++) {
-          // creating alpha table
-          alpha[0] = DynamicArray.getByte(pvr.data, pvrOfs) & 0xff;
-          alpha[1] = DynamicArray.getByte(pvr.data, pvrOfs+1) & 0xff;
-          if (alpha[0] > alpha[1]) {
-            alpha[2] = (6*alpha[0] +   alpha[1]) / 7;
-            alpha[3] = (5*alpha[0] + 2*alpha[1]) / 7;
-            alpha[4] = (4*alpha[0] + 3*alpha[1]) / 7;
-            alpha[5] = (3*alpha[0] + 4*alpha[1]) / 7;
-            alpha[6] = (2*alpha[0] + 5*alpha[1]) / 7;
-            alpha[7] = (  alpha[0] + 6*alpha[1]) / 7;
-          } else {
-            alpha[2] = (4*alpha[0] +   alpha[1]) / 5;
-            alpha[3] = (3*alpha[0] + 2*alpha[1]) / 5;
-            alpha[4] = (2*alpha[0] + 3*alpha[1]) / 5;
-            alpha[5] = (  alpha[0] + 4*alpha[1]) / 5;
-            alpha[6] = 0;
-            alpha[7] = 255;
-          }
-
-          // decoding single DXT5 block
-          long ctrl = DynamicArray.getLong(pvr.data, pvrOfs+2) & 0xffffffffffffL;
-          int c = DynamicArray.getInt(pvr.data, pvrOfs+8);
-          unpackColors565(c, colors);
-          int code = DynamicArray.getInt(pvr.data, pvrOfs+12);
-          for (int idx = 0; idx < 16; idx++, code >>>= 2, ctrl >>>= 3) {
-            int ofs = imgOfs + (idx >>> 2)*imgWidthAligned + (idx & 3);
-            int color = alpha[(int)(ctrl & 7L)] << 24;
-            if ((code & 3) == 0) {
-              // 100% c0, 0% c1
-              color |= (colors[2] << 16) | (colors[1] << 8) | colors[0];
-            } else if ((code & 3) == 1) {
-              // 0% c0, 100% c1
-              color |= (colors[6] << 16) | (colors[5] << 8) | colors[4];
-            } else if ((code & 3) == 2) {
-              // 66% c0, 33% c1
-              int v = (((colors[2] << 1) + colors[6]) / 3) << 16;
-              color |= v;
-              v = (((colors[1] << 1) + colors[5]) / 3) << 8;
-              color |= v;
-              v = ((colors[0] << 1) + colors[4]) / 3;
-              color |= v;
+      // Decodes the block rows [rowStart, rowEnd) of the region.
+      public void decodeRows(int rowStart, int rowEnd)
+      {
+        final boolean isDxt5 = (pvr.pixelFormat == PixelFormat.DXT5);
+        final int wordSize = isDxt5 ? 16 : 8;           // data size of an encoded 4x4 pixel block
+        final int wordImageWidth = (pvr.width + 3) >>> 2;
+        final int x0 = region.x, y0 = region.y;
+        final int x1 = region.x + region.width, y1 = region.y + region.height;
+        final int colStart = x0 >>> 2, colEnd = (x1 + 3) >>> 2;
+
+        // scratch buffers, reused for all blocks
+        final int[] colors = new int[4];
+        final int[] alpha = new int[8];
+        final int[] block = new int[16];
+
+        for (int row = rowStart; row < rowEnd; row++) {
+          final int py = row << 2;
+          int pvrOfs = (row*wordImageWidth + colStart)*wordSize;
+          for (int col = colStart; col < colEnd; col++, pvrOfs += wordSize) {
+            final int px = col << 2;
+            final boolean inside = (px >= x0 && py >= y0 && px + 4 <= x1 && py + 4 <= y1);
+            // whole blocks are written directly into the output buffer
+            final int[] dst = inside ? buffer : block;
+            final int stride = inside ? scanline : 4;
+            int dstOfs = inside ? offset + (py - y0)*scanline + (px - x0) : 0;
+
+            if (isDxt5) {
+              final byte[] data = pvr.data;
+              createAlphaTable(data[pvrOfs] & 0xff, data[pvrOfs+1] & 0xff, alpha);
+              long ctrl = DynamicArray.getLong(data, pvrOfs+2) & 0xffffffffffffL;
+              createColorTable(DynamicArray.getInt(data, pvrOfs+8), false, colors);
+              int code = DynamicArray.getInt(data, pvrOfs+12);
+              for (int y = 0; y < 4; y++, dstOfs += stride, code >>>= 8, ctrl >>>= 12) {
+                dst[dstOfs]   = alpha[(int)ctrl & 7]         | (colors[code & 3] & 0xffffff);
+                dst[dstOfs+1] = alpha[(int)(ctrl >>> 3) & 7] | (colors[(code >>> 2) & 3] & 0xffffff);
+                dst[dstOfs+2] = alpha[(int)(ctrl >>> 6) & 7] | (colors[(code >>> 4) & 3] & 0xffffff);
+                dst[dstOfs+3] = alpha[(int)(ctrl >>> 9) & 7] | (colors[(code >>> 6) & 3] & 0xffffff);
+              }
             } else {
-              // 33% c0, 66% c1
-              int v = ((colors[2] + (colors[6] << 1)) / 3) << 16;
-              color |= v;
-              v = ((colors[1] + (colors[5] << 1)) / 3) << 8;
-              color |= v;
-              v = (colors[0] + (colors[4] << 1)) / 3;
-              if (v > 255) v = 255;
-              color |= v;
+              final int c = DynamicArray.getInt(pvr.data, pvrOfs);
+              createColorTable(c, (c & 0xffff) <= (c >>> 16), colors);
+              int code = DynamicArray.getInt(pvr.data, pvrOfs+4);
+              for (int y = 0; y < 4; y++, dstOfs += stride, code >>>= 8) {
+                dst[dstOfs]   = colors[code & 3];
+                dst[dstOfs+1] = colors[(code >>> 2) & 3];
+                dst[dstOfs+2] = colors[(code >>> 4) & 3];
+                dst[dstOfs+3] = colors[(code >>> 6) & 3];
+              }
             }
-            imgData[ofs] = color;
-          }
-
-          pvrOfs += wordSize;
-          imgOfs += 4;
-        }
-        pvrOfs += (wordImageWidth - wordRectWidth)*wordSize;
-        imgOfs += (imgWidthAligned << 2) - rect.width;
-      }
-      imgData = null;
 
-      // rendering aligned image to target image
-      if (alignedImage != null) {
-        Graphics2D g = image.createGraphics();
-        try {
-          g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC));
-          g.drawImage(alignedImage, 0, 0, region.width, region.height,
-                      region.x, region.y, region.x+region.width, region.y+region.height, null);
-        } finally {
-          g.dispose();
-          g = null;
+            if (!inside) {
+              // copying visible part of the block
+              final int left = Math.max(px, x0), right = Math.min(px + 4, x1);
+              final int top = Math.max(py, y0), bottom = Math.min(py + 4, y1);
+              for (int y = top; y < bottom; y++) {
+                System.arraycopy(block, (y - py)*4 + (left - px), buffer,
+                                 offset + (y - y0)*scanline + (left - x0), right - left);
+              }
+            }
+          }
         }
-        alignedImage = null;
       }
-      return true;
-    }
-
-
-    // Converts two RGB565 words into separate components, ordered { B, G, R, A, B, G, R, A }
-    private static void unpackColors565(int inData, int[] outData)
-    {
-      outData[0] = ((inData << 3)  & 0xf8) | (inData >>> 2)  & 0x07;      // b1
-      outData[1] = ((inData >>> 3) & 0xfc) | (inData >>> 9)  & 0x03;      // g1
-      outData[2] = ((inData >>> 8) & 0xf8) | (inData >>> 13) & 0x07;      // r1
-      outData[3] = 255;                                                   // a1
-      outData[4] = ((inData >>> 13) & 0xf8) | (inData >>> 18) & 0x07;     // b2
-      outData[5] = ((inData >>> 19) & 0xfc) | (inData >>> 25) & 0x03;     // g2
-      outData[6] = ((inData >>> 24) & 0xf8) | (inData >>> 29) & 0x07;     // r2
-      outData[7] = 255;                                                   // a2
     }
   }
 
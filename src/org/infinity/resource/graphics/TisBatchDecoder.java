@@ -0,0 +1,388 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.graphics;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+import org.infinity.util.ResourceTaskExecutor;
+
+/**
+ * Decodes a set of TIS tiles in parallel on the shared work-stealing pool of {@link ResourceTaskExecutor}.
+ * <p>
+ * Tiles of PVRZ-based tilesets are grouped by PVRZ page. Each page is loaded and decoded only once
+ * and shared by all of its tiles. Tiles of palette-based tilesets are split into groups of adjacent tiles.
+ * Decoded tiles are passed to the consumer as soon as their group has been finished, which allows
+ * callers to publish tiles progressively while decoding is still in progress.
+ */
+public class TisBatchDecoder
+{
+  private static final int TileSize = 64;
+  private static final int PaletteGroupSize = 64;
+
+  private final TisDecoder decoder;
+
+  private volatile boolean cancelled;
+
+  /**
+   * Creates a new batch decoder for the specified TIS decoder.
+   * @param decoder The TIS decoder providing tile graphics.
+   */
+  public TisBatchDecoder(TisDecoder decoder)
+  {
+    if (decoder == null) {
+      throw new NullPointerException();
+    }
+    this.decoder = decoder;
+  }
+
+  /** Returns the underlying TIS decoder. */
+  public TisDecoder getDecoder()
+  {
+    return decoder;
+  }
+
+  /** Cancels decoding. Tile groups currently being decoded are completed. */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  /** Returns whether decoding has been cancelled. */
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * Decodes the specified tiles in the background.
+   * @param tileIndices Indices of the tiles to decode. Duplicate and invalid indices are skipped.
+   * @param consumer Receives the graphics data (Format: ARGB) and index of each decoded tile. Called
+   *                 concurrently from several threads. Tiles which could not be decoded are passed
+   *                 as transparent pixel data.
+   * @return A future which provides metrics of the operation when all tiles have been decoded.
+   */
+  public CompletableFuture<Metrics> decodeAsync(int[] tileIndices, ObjIntConsumer<int[]> consumer)
+  {
+    if (consumer == null) {
+      throw new NullPointerException();
+    }
+    final List<int[]> groups = createGroups(tileIndices);
+    final Metrics metrics = new Metrics(ResourceTaskExecutor.getPool().getParallelism());
+    final long startTime = System.nanoTime();
+    return CompletableFuture.supplyAsync(() -> {
+      new GroupTask(groups, 0, groups.size(), consumer, metrics).invoke();
+      metrics.elapsedNanos.addAndGet(System.nanoTime() - startTime);
+      return metrics;
+    }, ResourceTaskExecutor.getPool());
+  }
+
+  /**
+   * Decodes the specified tiles in parallel and blocks until all tiles have been decoded.
+   * @param tileIndices Indices of the tiles to decode. Duplicate and invalid indices are skipped.
+   * @param consumer Receives the graphics data (Format: ARGB) and index of each decoded tile. Called
+   *                 concurrently from several threads.
+   * @return Metrics of the operation.
+   */
+  public Metrics decode(int[] tileIndices, ObjIntConsumer<int[]> consumer)
+  {
+    return decodeAsync(tileIndices, consumer).join();
+  }
+
+  /**
+   * Decodes the specified tiles one after another on the calling thread, using
+   * {@link TisDecoder#getTileData(int, int[])}. Provided for comparison with the parallel path.
+   * @param tileIndices Indices of the tiles to decode. Invalid indices are skipped.
+   * @param consumer Receives the graphics data (Format: ARGB) and index of each decoded tile.
+   * @return Metrics of the operation.
+   */
+  public Metrics decodeSerial(int[] tileIndices, ObjIntConsumer<int[]> consumer)
+  {
+    if (consumer == null) {
+      throw new NullPointerException();
+    }
+    final Metrics metrics = new Metrics(1);
+    final long startTime = System.nanoTime();
+    for (final int tileIdx: tileIndices) {
+      if (cancelled) {
+        break;
+      }
+      if (tileIdx >= 0 && tileIdx < decoder.getTileCount()) {
+        int[] data = new int[TileSize*TileSize];
+        if (!decoder.getTileData(tileIdx, data)) {
+          metrics.failedCount.incrementAndGet();
+        }
+        metrics.tileCount.incrementAndGet();
+        consumer.accept(data, tileIdx);
+      }
+    }
+    long elapsed = System.nanoTime() - startTime;
+    metrics.groupCount.set(metrics.getTileCount());
+    metrics.elapsedNanos.set(elapsed);
+    metrics.busyNanos.set(elapsed);
+    return metrics;
+  }
+
+  // Splits the specified tiles into groups which are decoded as a single unit of work
+  private List<int[]> createGroups(int[] tileIndices)
+  {
+    final int[] indices = Arrays.stream(tileIndices)
+                                .filter(i -> i >= 0 && i < decoder.getTileCount())
+                                .distinct()
+                                .sorted()
+                                .toArray();
+    final List<int[]> retVal = new ArrayList<>();
+    if (decoder instanceof TisV2Decoder) {
+      // one group per PVRZ page
+      final TisV2Decoder v2 = (TisV2Decoder)decoder;
+      final Map<Integer, List<Integer>> pages = new TreeMap<>();
+      for (final int tileIdx: indices) {
+        pages.computeIfAbsent(Integer.valueOf(v2.getPvrzPage(tileIdx)), k -> new ArrayList<>()).add(Integer.valueOf(tileIdx));
+      }
+      for (final List<Integer> list: pages.values()) {
+        retVal.add(list.stream().mapToInt(Integer::intValue).toArray());
+      }
+    } else {
+      for (int i = 0; i < indices.length; i += PaletteGroupSize) {
+        retVal.add(Arrays.copyOfRange(indices, i, Math.min(indices.length, i + PaletteGroupSize)));
+      }
+    }
+    return retVal;
+  }
+
+  // Decodes a single group of tiles and passes the results to the consumer
+  private void decodeGroup(int[] group, ObjIntConsumer<int[]> consumer, Metrics metrics)
+  {
+    final long startTime = System.nanoTime();
+    final int[][] tiles = new int[group.length][];
+    int failed = 0;
+    if (decoder instanceof TisV2Decoder) {
+      failed = decodePvrzGroup((TisV2Decoder)decoder, group, tiles);
+    } else {
+      for (int i = 0; i < group.length; i++) {
+        tiles[i] = new int[TileSize*TileSize];
+        if (!decoder.getTileData(group[i], tiles[i])) {
+          failed++;
+        }
+      }
+    }
+    metrics.busyNanos.addAndGet(System.nanoTime() - startTime);
+    metrics.tileCount.addAndGet(group.length);
+    metrics.groupCount.incrementAndGet();
+    metrics.failedCount.addAndGet(failed);
+
+    for (int i = 0; i < group.length; i++) {
+      consumer.accept(tiles[i], group[i]);
+    }
+  }
+
+  // Decodes tiles located on the same PVRZ page. The page region covering all tiles is decoded only once.
+  // Returns the number of tiles which could not be decoded.
+  private static int decodePvrzGroup(TisV2Decoder decoder, int[] group, int[][] tiles)
+  {
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = new int[TileSize*TileSize];
+    }
+
+    final int page = decoder.getPvrzPage(group[0]);
+    if (page == -1) {
+      // tiles without graphics data are painted black
+      for (final int[] tile: tiles) {
+        Arrays.fill(tile, 0xff000000);
+      }
+      return 0;
+    }
+
+    final PvrDecoder pvr = decoder.getPVR(page);
+    if (pvr == null) {
+      return tiles.length;
+    }
+
+    // determining page region to decode
+    final Point[] locations = new Point[group.length];
+    Rectangle region = null;
+    for (int i = 0; i < group.length; i++) {
+      Point pt = decoder.getPvrzLocation(group[i]);
+      if (pt != null && pt.x >= 0 && pt.y >= 0 &&
+          pt.x + TileSize <= pvr.getWidth() && pt.y + TileSize <= pvr.getHeight()) {
+        locations[i] = pt;
+        Rectangle rect = new Rectangle(pt.x, pt.y, TileSize, TileSize);
+        region = (region != null) ? region.union(rect) : rect;
+      }
+    }
+    if (region == null) {
+      return tiles.length;
+    }
+
+    int failed = 0;
+    try {
+      final int[] pixels = new int[region.width * region.height];
+      if (!pvr.decode(pixels, region.width, region.x, region.y, region.width, region.height)) {
+        return tiles.length;
+      }
+      for (int i = 0; i < group.length; i++) {
+        if (locations[i] != null) {
+          int srcOfs = (locations[i].y - region.y) * region.width + (locations[i].x - region.x);
+          for (int y = 0, dstOfs = 0; y < TileSize; y++, srcOfs += region.width, dstOfs += TileSize) {
+            System.arraycopy(pixels, srcOfs, tiles[i], dstOfs, TileSize);
+          }
+        } else {
+          failed++;
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      failed = tiles.length;
+    }
+    return failed;
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /**
+   * Timing and throughput metrics of tile decoding operations. Metrics of several operations
+   * can be combined with {@link #add(Metrics)}.
+   */
+  public static class Metrics
+  {
+    private final AtomicInteger tileCount = new AtomicInteger();
+    private final AtomicInteger groupCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger operationCount = new AtomicInteger();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile int parallelism;
+
+    /** Creates empty metrics. */
+    public Metrics()
+    {
+      this(0);
+    }
+
+    private Metrics(int parallelism)
+    {
+      this.parallelism = parallelism;
+      if (parallelism > 0) {
+        operationCount.set(1);
+      }
+    }
+
+    /** Adds the values of the specified metrics to this instance. */
+    public void add(Metrics metrics)
+    {
+      if (metrics != null) {
+        tileCount.addAndGet(metrics.tileCount.get());
+        groupCount.addAndGet(metrics.groupCount.get());
+        failedCount.addAndGet(metrics.failedCount.get());
+        operationCount.addAndGet(metrics.operationCount.get());
+        elapsedNanos.addAndGet(metrics.elapsedNanos.get());
+        busyNanos.addAndGet(metrics.busyNanos.get());
+        parallelism = Math.max(parallelism, metrics.parallelism);
+      }
+    }
+
+    /** Returns the number of decoded tiles. */
+    public int getTileCount()
+    {
+      return tileCount.get();
+    }
+
+    /** Returns the number of decoded tile groups (PVRZ pages or batches of palette-based tiles). */
+    public int getGroupCount()
+    {
+      return groupCount.get();
+    }
+
+    /** Returns the number of tiles which could not be decoded. */
+    public int getFailedCount()
+    {
+      return failedCount.get();
+    }
+
+    /** Returns the number of decoding operations. */
+    public int getOperationCount()
+    {
+      return operationCount.get();
+    }
+
+    /** Returns the max. number of threads used by the decoding operations. */
+    public int getParallelism()
+    {
+      return parallelism;
+    }
+
+    /** Returns the total wall-clock time of all decoding operations, in milliseconds. */
+    public double getElapsedMillis()
+    {
+      return elapsedNanos.get() / 1_000_000.0;
+    }
+
+    /** Returns the total time spent by all threads on decoding tiles, in milliseconds. */
+    public double getBusyMillis()
+    {
+      return busyNanos.get() / 1_000_000.0;
+    }
+
+    /** Returns the number of decoded tiles per second of wall-clock time. */
+    public double getTilesPerSecond()
+    {
+      long elapsed = elapsedNanos.get();
+      return (elapsed > 0L) ? getTileCount() * 1_000_000_000.0 / elapsed : 0.0;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%d tiles (%d groups, %d failed) in %.1f ms, %.0f tiles/s, busy: %.1f ms, threads: %d",
+                           getTileCount(), getGroupCount(), getFailedCount(), getElapsedMillis(),
+                           getTilesPerSecond(), getBusyMillis(), getParallelism());
+    }
+  }
+
+  /** Decodes a range of tile groups, splits into smaller ranges for work-stealing. */
+  private class GroupTask extends RecursiveAction
+  {
+    private final List<int[]> groups;
+    private final int start;
+    private final int end;
+    private final ObjIntConsumer<int[]> consumer;
+    private final Metrics metrics;
+
+    public GroupTask(List<int[]> groups, int start, int end, ObjIntConsumer<int[]> consumer, Metrics metrics)
+    {
+      this.groups = groups;
+      this.start = start;
+      this.end = end;
+      this.consumer = consumer;
+      this.metrics = metrics;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (end - start > 1) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new GroupTask(groups, start, mid, consumer, metrics),
+                  new GroupTask(groups, mid, end, consumer, metrics));
+      } else if (end > start && !cancelled) {
+        try {
+          decodeGroup(groups.get(start), consumer, metrics);
+        } catch (Throwable t) {
+          t.printStackTrace();
+        }
+      }
+    }
+  }
+}
@@ -712,6 +712,7 @@ public Status convertToPaletteTis(Path output, boolean showProgress)
                 tilePalette[(i << 2) + 3] = 0;
                 colorCache.put(palette[i - 1], (byte)(i - 1));
               }
+              PaletteMatcher matcher = new PaletteMatcher(palette, 0.0);
               // filling pixel data
               for (int i = 0; i < tileData.length; i++) {
                 if ((pixels[i] & 0xff000000) == 0) {
@@ -721,7 +722,7 @@ public Status convertToPaletteTis(Path output, boolean showProgress)
                   if (palIndex != null) {
                     tileData[i] = (byte)(palIndex + 1);
                   } else {
-                    byte color = (byte)ColorConvert.getNearestColor(pixels[i], palette, 0.0, null);
+                    byte color = (byte)matcher.getNearestColor(pixels[i]);
                     tileData[i] = (byte)(color + 1);
                     colorCache.put(pixels[i], color);
                   }
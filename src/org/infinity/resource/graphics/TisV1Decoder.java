@@ -16,6 +16,8 @@
 
 /**
  * Handles legacy TIS resources (using palettized tiles).
+ * <p>
+ * {@link #getTileData(int, int[])} may be called concurrently from several threads.
  */
 public class TisV1Decoder extends TisDecoder
 {
@@ -24,7 +26,6 @@ public class TisV1Decoder extends TisDecoder
 
   private ByteBuffer tisBuffer;
   private int tileCount, tileSize;
-  private int[] workingPalette;
   private BufferedImage workingCanvas;
 
   public TisV1Decoder(ResourceEntry tisEntry)
@@ -115,7 +116,6 @@ public void close()
     tisBuffer = null;
     tileCount = 0;
     tileSize = 0;
-    workingPalette = null;
     if (workingCanvas != null) {
       workingCanvas.flush();
       workingCanvas = null;
@@ -204,7 +204,6 @@ private void init()
 
         setType(Type.PALETTE);
 
-        workingPalette = new int[256];
         workingCanvas = new BufferedImage(TileDimension, TileDimension, BufferedImage.BITMASK);
       } catch (Exception e) {
         e.printStackTrace();
@@ -255,9 +254,10 @@ private boolean renderTile(int tileIdx, int[] buffer)
       int ofs = getTileOffset(tileIdx);
       if (ofs > 0) {
         ofs += 1024;    // skipping palette data
-        getTilePalette(tileIdx, workingPalette);
+        int[] palette = new int[256];
+        getTilePalette(tileIdx, palette);
         for (int i = 0; i < size; i++, ofs++) {
-          buffer[i] = workingPalette[tisBuffer.get(ofs) & 0xff];
+          buffer[i] = palette[tisBuffer.get(ofs) & 0xff];
         }
         return true;
       }
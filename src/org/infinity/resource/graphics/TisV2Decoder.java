@@ -8,6 +8,7 @@
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.nio.ByteBuffer;
@@ -182,7 +183,7 @@ private void init()
   }
 
   // Returns and caches the PVRZ resource of the specified page
-  private PvrDecoder getPVR(int page)
+  PvrDecoder getPVR(int page)
   {
     try {
       String name = String.format("%s%02d.PVRZ", pvrzNameBase, page);
@@ -196,6 +197,17 @@ private PvrDecoder getPVR(int page)
     return null;
   }
 
+  // Returns the location of the specified tile within its PVRZ page. Returns null on error.
+  Point getPvrzLocation(int tileIdx)
+  {
+    int ofs = getTileOffset(tileIdx);
+    if (ofs > 0) {
+      return new Point(tisBuffer.getInt(ofs+4), tisBuffer.getInt(ofs+8));
+    } else {
+      return null;
+    }
+  }
+
   // Returns the start offset of the specified tile. Returns -1 on error.
   private int getTileOffset(int tileIdx)
   {
@@ -8,8 +8,16 @@
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjIntConsumer;
 
 import org.infinity.util.io.StreamUtils;
 
@@ -28,24 +36,64 @@ public enum Type {
     BIFC,
   }
 
+  /** Default number of BIFF readers kept in the cache. */
+  public static final int DEFAULT_CACHE_CAPACITY = 128;
+
   // A cache for AbstractBIFFReader instances
-  private static final LinkedHashMap<Path, AbstractBIFFReader> BIFF_CACHE = new LinkedHashMap<>();
+  private static final ConcurrentHashMap<Path, CacheEntry> BIFF_CACHE = new ConcurrentHashMap<>();
+  // Used to synchronize eviction and invalidation of cache entries
+  private static final Object CACHE_LOCK = new Object();
+  // Provides access order of cache entries
+  private static final AtomicLong CACHE_TICK = new AtomicLong();
+  private static final LongAdder CACHE_HITS = new LongAdder();
+  private static final LongAdder CACHE_MISSES = new LongAdder();
+  private static final LongAdder CACHE_EVICTIONS = new LongAdder();
+  // Number of file handles kept open by BIFF readers
+  private static final AtomicInteger OPEN_HANDLES = new AtomicInteger();
+
+  private static volatile int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+  // Incremented whenever the cache is reset
+  private static volatile int cacheGeneration;
 
   // Maps resource locators to BIFF entry structures
   private final HashMap<Integer, Entry> mapEntries = new HashMap<>();
 
   protected final Path file;
 
+  // Indicates whether the reader has been removed from the cache
+  private volatile boolean detached;
+
   /**
    * Opens the specified BIFF file (of any supported type) and returns it fully initialized and
    * ready for read operations as a BIFFReader object.
+   * <p>
+   * BIFF readers are cached. Lookups of cached readers don't block and can be performed
+   * concurrently by any number of threads.
    * @param file Path to the BIFF file.
    * @return A BIFFReader object for accessing the BIFF archive.
    * @throws IOException On error.
    */
-  public static synchronized AbstractBIFFReader open(Path file) throws Exception
+  public static AbstractBIFFReader open(Path file) throws Exception
+  {
+    return queryBIFFReader(file, cacheGeneration);
+  }
+
+  /**
+   * Adds a BIFF reader for the specified BIFF file to the cache if the cache has not been reset
+   * since the specified generation.
+   * @param file Path to the BIFF file.
+   * @param generation The cache generation as returned by {@link #getCacheGeneration()}.
+   * @return {@code true} if the BIFF reader is available in the cache, {@code false} if the cache has been
+   *         reset in the meantime.
+   * @throws IOException On error.
+   */
+  public static boolean preload(Path file, int generation) throws Exception
   {
-    return queryBIFFReader(file);
+    if (generation != cacheGeneration) {
+      return false;
+    }
+    AbstractBIFFReader reader = queryBIFFReader(file, generation);
+    return (reader != null && !reader.isDetached());
   }
 
   /** Returns a fully initialized TIS header as {@link ByteBuffer} object. */
@@ -61,38 +109,180 @@ public static ByteBuffer getTisHeader(int tileCount, int tileSize)
     return bb;
   }
 
-  /** Removes all {@code AbstractBIFFReader} entries from the cache. */
+  /**
+   * Removes all {@code AbstractBIFFReader} entries from the cache and starts a new cache generation.
+   * Open file handles and mapped regions held by the cached readers are released. Readers which are
+   * currently being created are not added to the cache.
+   */
   public static void resetCache()
   {
-    BIFF_CACHE.clear();
-  }
-
-  // Fetches a cached AbstractBIFFReader associated of the specified path or creates a new one
-  private static AbstractBIFFReader queryBIFFReader(Path file) throws Exception
-  {
-    AbstractBIFFReader retVal = null;
-    if (file != null) {
-      // get and remove an available cached entry
-      retVal = BIFF_CACHE.get(file);
-      if (retVal == null) {
-        Type type = detectBiffType(file);
-        switch (type) {
-          case BIFF:
-            retVal = new BIFFReader(file);
-            break;
-          case BIF:
-            retVal = new BIFReader(file);
-            break;
-          case BIFC:
-            retVal = new BIFCReader(file);
-            break;
-          default:
-            throw new IOException("Unsupported BIFF type");
+    synchronized (CACHE_LOCK) {
+      cacheGeneration++;
+      for (final CacheEntry entry: BIFF_CACHE.values()) {
+        if (entry.isReady()) {
+          detachReader(entry.reader.join());
         }
-        BIFF_CACHE.put(file, retVal);
       }
+      BIFF_CACHE.clear();
     }
-    return retVal;
+  }
+
+  /** Returns the current cache generation, which changes whenever the cache is reset. */
+  public static int getCacheGeneration()
+  {
+    return cacheGeneration;
+  }
+
+  /** Returns the max. number of BIFF readers kept in the cache. */
+  public static int getCacheCapacity()
+  {
+    return cacheCapacity;
+  }
+
+  /**
+   * Sets the max. number of BIFF readers kept in the cache. Least recently used readers are
+   * removed if the cache contains more entries.
+   */
+  public static void setCacheCapacity(int capacity)
+  {
+    synchronized (CACHE_LOCK) {
+      cacheCapacity = Math.max(1, capacity);
+      evictEntries();
+    }
+  }
+
+  /** Returns the number of BIFF readers currently kept in the cache. */
+  public static int getCacheSize()
+  {
+    return BIFF_CACHE.size();
+  }
+
+  /** Returns the number of {@link #open(Path)} calls that were served by a cached BIFF reader. */
+  public static long getCacheHits()
+  {
+    return CACHE_HITS.sum();
+  }
+
+  /** Returns the number of {@link #open(Path)} calls that required to create a new BIFF reader. */
+  public static long getCacheMisses()
+  {
+    return CACHE_MISSES.sum();
+  }
+
+  /** Returns the number of BIFF readers that were removed from the cache to satisfy the capacity limit. */
+  public static long getCacheEvictions()
+  {
+    return CACHE_EVICTIONS.sum();
+  }
+
+  /** Returns the number of file handles currently kept open by BIFF readers. */
+  public static int getOpenHandleCount()
+  {
+    return OPEN_HANDLES.get();
+  }
+
+  // Fetches a cached AbstractBIFFReader associated of the specified path or creates a new one.
+  // Readers are created without blocking requests for other BIFF files.
+  private static AbstractBIFFReader queryBIFFReader(Path file, int generation) throws Exception
+  {
+    if (file == null) {
+      return null;
+    }
+
+    // fast path: cache hit without locking
+    CacheEntry entry = BIFF_CACHE.get(file);
+    if (entry == null) {
+      CacheEntry newEntry = new CacheEntry();
+      entry = BIFF_CACHE.putIfAbsent(file, newEntry);
+      if (entry == null) {
+        // concurrent requests for the same BIFF file wait for this thread to create the reader
+        CACHE_MISSES.increment();
+        AbstractBIFFReader reader;
+        try {
+          reader = createReader(file);
+        } catch (Exception e) {
+          BIFF_CACHE.remove(file, newEntry);
+          newEntry.reader.completeExceptionally(e);
+          throw e;
+        }
+        newEntry.reader.complete(reader);
+
+        synchronized (CACHE_LOCK) {
+          if (generation != cacheGeneration || BIFF_CACHE.get(file) != newEntry) {
+            // cache has been reset in the meantime
+            BIFF_CACHE.remove(file, newEntry);
+            detachReader(reader);
+          } else {
+            evictEntries();
+          }
+        }
+        return reader;
+      }
+    }
+
+    CACHE_HITS.increment();
+    entry.touch();
+    try {
+      return entry.reader.join();
+    } catch (CompletionException e) {
+      throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+    }
+  }
+
+  // Creates a new reader of the type matching the specified BIFF file
+  private static AbstractBIFFReader createReader(Path file) throws Exception
+  {
+    Type type = detectBiffType(file);
+    switch (type) {
+      case BIFF:
+        return new BIFFReader(file);
+      case BIF:
+        return new BIFReader(file);
+      case BIFC:
+        return new BIFCReader(file);
+      default:
+        throw new IOException("Unsupported BIFF type");
+    }
+  }
+
+  // Removes least recently used entries until the cache capacity is satisfied.
+  // Readers which are still being created are skipped. Must be called while holding CACHE_LOCK.
+  private static void evictEntries()
+  {
+    while (BIFF_CACHE.size() > cacheCapacity) {
+      Map.Entry<Path, CacheEntry> oldest = null;
+      for (final Map.Entry<Path, CacheEntry> e: BIFF_CACHE.entrySet()) {
+        if (e.getValue().isReady() && (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess)) {
+          oldest = e;
+        }
+      }
+      if (oldest == null || !BIFF_CACHE.remove(oldest.getKey(), oldest.getValue())) {
+        break;
+      }
+      CACHE_EVICTIONS.increment();
+      detachReader(oldest.getValue().reader.join());
+    }
+  }
+
+  private static void detachReader(AbstractBIFFReader reader)
+  {
+    try {
+      reader.detach();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** Registers a file handle which is kept open by a BIFF reader beyond a single read operation. */
+  protected static void handleOpened()
+  {
+    OPEN_HANDLES.incrementAndGet();
+  }
+
+  /** Unregisters a file handle which has been registered by {@link #handleOpened()}. */
+  protected static void handleClosed()
+  {
+    OPEN_HANDLES.decrementAndGet();
   }
 
 
@@ -108,6 +298,25 @@ public Path getFile()
     return file;
   }
 
+  /**
+   * Returns whether the reader has been removed from the BIFF reader cache. Detached readers
+   * should not keep file handles open beyond a single read operation.
+   */
+  public boolean isDetached()
+  {
+    return detached;
+  }
+
+  /**
+   * Releases resources of a reader which is no longer cached. The reader remains usable for callers
+   * which still hold a reference to it, but won't keep file handles open anymore.
+   */
+  protected void detach() throws IOException
+  {
+    detached = true;
+    close();
+  }
+
   /**
    * Returns a ResourceInfo array containing size for regular resources
    * and tile count and size for TIS resources.
@@ -129,9 +338,45 @@ public int[] getResourceInfo(int locator) throws IOException
     }
   }
 
+  /**
+   * Returns the offset of the specified resource in the (decompressed) BIFF data.
+   * Returns -1 if the resource does not exist.
+   * @param locator The unmodified locator of the desired resource as found in the KEY file.
+   */
+  public int getResourceOffset(int locator)
+  {
+    Entry entry = getEntry(locator);
+    return (entry != null) ? entry.offset : -1;
+  }
+
+  /**
+   * Reads the specified resources in the order of their location in the BIFF archive and passes
+   * them to the consumer together with their locators. Resources that do not exist are skipped.
+   * <p>
+   * The default implementation reads each resource separately. Subclasses may override it to
+   * share work between adjacent resources.
+   * @param locators The unmodified locators of the desired resources as found in the KEY file.
+   * @param consumer Receives the resource data and the associated locator.
+   */
+  public void readResources(int[] locators, ObjIntConsumer<ByteBuffer> consumer) throws IOException
+  {
+    for (final int locator: sortByOffset(locators)) {
+      consumer.accept(getResourceBuffer(locator), locator);
+    }
+  }
+
   /** Returns whether the BIFF file is open and ready for read operations. */
 //  public abstract boolean isOpen();
 
+  /**
+   * Releases file handles or memory mappings held by this reader. The reader remains usable and
+   * will transparently reacquire required resources on the next read operation.
+   * Does nothing by default.
+   */
+  public void close() throws IOException
+  {
+  }
+
   /** Re-opens the BIFF file if it had been {@code close}d before. Does nothing if the BIFF file is open. */
   public abstract void open() throws Exception;
 
@@ -182,6 +427,39 @@ protected Entry getEntry(int locator)
     return mapEntries.get(Integer.valueOf(locator & 0xfffff));
   }
 
+  // Returns all available locators ordered by the offset of the associated resource data
+  protected int[] sortByOffset(int[] locators)
+  {
+    long[] list = new long[locators.length];
+    int count = 0;
+    for (final int locator: locators) {
+      Entry entry = getEntry(locator);
+      if (entry != null) {
+        list[count++] = ((long)entry.offset << 32) | (locator & 0xffffffffL);
+      }
+    }
+    Arrays.sort(list, 0, count);
+    int[] retVal = new int[count];
+    for (int i = 0; i < count; i++) {
+      retVal[i] = (int)list[i];
+    }
+    return retVal;
+  }
+
+  // Returns a buffer for the specified resource, positioned after the TIS header if needed
+  protected static ByteBuffer createResourceBuffer(Entry entry)
+  {
+    ByteBuffer buffer;
+    if (entry.isTile) {
+      ByteBuffer header = getTisHeader(entry.count, entry.size);
+      buffer = StreamUtils.getByteBuffer(entry.getDataSize() + header.limit());
+      StreamUtils.copyBytes(header, buffer, header.limit());
+    } else {
+      buffer = StreamUtils.getByteBuffer(entry.getDataSize());
+    }
+    return buffer;
+  }
+
   // Internally used to remove all entries from the map
   protected void resetEntries()
   {
@@ -211,6 +489,30 @@ private static Type detectBiffType(Path file) throws Exception
 
 //-------------------------- INNER CLASSES --------------------------
 
+  /** Associates a cached BIFF reader with its access order. */
+  private static class CacheEntry
+  {
+    /** Provides the BIFF reader once it has been created. */
+    public final CompletableFuture<AbstractBIFFReader> reader = new CompletableFuture<>();
+    public volatile long lastAccess;
+
+    public CacheEntry()
+    {
+      touch();
+    }
+
+    /** Returns whether the reader has been created successfully. */
+    public boolean isReady()
+    {
+      return reader.isDone() && !reader.isCompletedExceptionally();
+    }
+
+    public void touch()
+    {
+      lastAccess = CACHE_TICK.incrementAndGet();
+    }
+  }
+
   /** File or tileset entry definition. */
   protected static class Entry
   {
@@ -246,5 +548,11 @@ public Entry(int locator, int offset, int count, int size, short type)
       this.type = type;
       this.isTile = (type == Keyfile.TYPE_TIS);
     }
+
+    /** Returns the size of the resource data in the BIFF archive. */
+    public int getDataSize()
+    {
+      return isTile ? count * size : size;
+    }
   }
 }
@@ -7,12 +7,16 @@
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
 import org.infinity.NearInfinity;
@@ -27,6 +31,10 @@ public class BIFCReader extends AbstractBIFFReader
 {
   private final WindowBlocker blocker;
 
+  // Minimum number of blocks spanned by a resource to decompress blocks in parallel
+  private static final int PARALLEL_BLOCK_THRESHOLD = 16;
+
+  private BlockIndex blockIndex;
   private int uncSize;
   private int numFiles, numTilesets;
 
@@ -51,6 +59,7 @@ public synchronized void open() throws Exception
         throw new Exception("Invalid BIFF archive");
       }
     }
+    blockIndex = null;
     init();
   }
 
@@ -102,11 +111,8 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
       blocker.setBlocked(true);
     }
 
-    try (InputStream is = new BifcInputStream(
-        new BufferedInputStream(
-            Files.newInputStream(getFile(), StandardOpenOption.READ)),
-        entry.offset, size)) {
-      StreamUtils.readBytes(is, buffer);
+    try {
+      readData(entry.offset, size, buffer);
     } finally {
       blocker.setBlocked(false);
     }
@@ -118,29 +124,102 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
   @Override
   public InputStream getResourceAsStream(int locator) throws IOException
   {
-    Entry entry = getEntry(locator);
-    if (entry == null) {
-      throw new IOException("Resource not found");
+    return new ByteBufferInputStream(getResourceBuffer(locator));
+  }
+
+
+  @Override
+  public void readResources(int[] locators, ObjIntConsumer<ByteBuffer> consumer) throws IOException
+  {
+    final BlockIndex index = getBlockIndex();
+    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
+      // adjacent resources usually share blocks which are decompressed only once
+      int curBlock = -1;
+      byte[] curData = null;
+      for (final int locator: sortByOffset(locators)) {
+        Entry entry = getEntry(locator);
+        int offset = entry.offset;
+        int size = entry.getDataSize();
+        if (offset < 0 || size < 0 || offset + size > uncSize) {
+          throw new IOException("Resource data out of bounds");
+        }
+
+        ByteBuffer buffer = createResourceBuffer(entry);
+        byte[] dst = buffer.array();
+        int dstBase = buffer.arrayOffset() + buffer.position();
+        for (int pos = offset; pos < offset + size; ) {
+          int block = index.find(pos);
+          if (block < 0) {
+            throw new IOException("Resource data out of bounds");
+          }
+          if (block != curBlock) {
+            curData = index.inflate(channel, block);
+            curBlock = block;
+          }
+          int blockStart = index.uncOffsets[block];
+          int len = Math.min(offset + size, blockStart + index.uncSizes[block]) - pos;
+          System.arraycopy(curData, pos - blockStart, dst, dstBase + pos - offset, len);
+          pos += len;
+        }
+        buffer.position(0);
+        consumer.accept(buffer, locator);
+      }
     }
+  }
 
-    if (entry.isTile) {
-      ByteBuffer header = getTisHeader(entry.count, entry.size);
-      InputStream is1 = new ByteBufferInputStream(header);
-      @SuppressWarnings("resource")
-      InputStream is2 = new BifcInputStream(
-          new BufferedInputStream(
-              Files.newInputStream(getFile(), StandardOpenOption.READ)),
-          entry.offset, entry.count*entry.size);
-      InputStream is = new SequenceInputStream(is1, is2);
-      return is;
-    } else {
-      return new BifcInputStream(
-          new BufferedInputStream(
-              Files.newInputStream(getFile(), StandardOpenOption.READ)),
-          entry.offset, entry.size);
+
+  // Decompresses "size" bytes of data, starting at "offset" in the decompressed BIFF,
+  // into "buffer" at its current position. Only blocks covering the requested range are processed.
+  private void readData(int offset, int size, ByteBuffer buffer) throws IOException
+  {
+    if (size <= 0) {
+      return;
+    }
+    if (offset < 0 || offset + size > uncSize || buffer.remaining() < size) {
+      throw new IOException("Resource data out of bounds");
+    }
+
+    final BlockIndex index = getBlockIndex();
+    final int firstBlock = index.find(offset);
+    final int lastBlock = index.find(offset + size - 1);
+    if (firstBlock < 0 || lastBlock < 0) {
+      throw new IOException("Resource data out of bounds");
+    }
+
+    final byte[] dst = buffer.array();
+    final int dstBase = buffer.arrayOffset() + buffer.position();
+    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
+      IntStream blocks = IntStream.rangeClosed(firstBlock, lastBlock);
+      if (lastBlock - firstBlock + 1 >= PARALLEL_BLOCK_THRESHOLD) {
+        // blocks are independent of each other and map to disjoint output regions
+        blocks = blocks.parallel();
+      }
+      blocks.forEach(block -> {
+        try {
+          byte[] data = index.inflate(channel, block);
+          int blockStart = index.uncOffsets[block];
+          int srcOfs = Math.max(offset, blockStart) - blockStart;
+          int dstOfs = Math.max(offset, blockStart) - offset;
+          int len = Math.min(offset + size, blockStart + index.uncSizes[block]) - (blockStart + srcOfs);
+          System.arraycopy(data, srcOfs, dst, dstBase + dstOfs, len);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
+    buffer.position(buffer.position() + size);
   }
 
+  // Returns the block index of the BIFC archive, creates it if needed
+  private synchronized BlockIndex getBlockIndex() throws IOException
+  {
+    if (blockIndex == null) {
+      blockIndex = new BlockIndex(getFile(), uncSize);
+    }
+    return blockIndex;
+  }
 
   private void init() throws Exception
   {
@@ -191,6 +270,108 @@ private void init() throws Exception
 
 //-------------------------- INNER CLASSES --------------------------
 
+  /**
+   * Maps offsets in decompressed BIFF data to the compressed blocks of the BIFC archive.
+   * Only block headers are read to build the index, which allows random access to any resource
+   * without decompressing preceding data.
+   */
+  private static class BlockIndex
+  {
+    /** Start offsets of blocks in decompressed data. */
+    private final int[] uncOffsets;
+    /** Decompressed block sizes. */
+    private final int[] uncSizes;
+    /** File offsets of compressed block data. */
+    private final long[] compOffsets;
+    /** Compressed block sizes. */
+    private final int[] compSizes;
+
+    public BlockIndex(Path file, int uncSize) throws IOException
+    {
+      // BIFF archives are compressed in blocks of 8 KB
+      int capacity = Math.max(1, uncSize / 8192 + 1);
+      int[] uncOfsList = new int[capacity];
+      int[] uncSizeList = new int[capacity];
+      int[] compSizeList = new int[capacity];
+      long[] compOfsList = new long[capacity];
+      int count = 0;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        ByteBuffer header = StreamUtils.getByteBuffer(8);
+        long filePos = 12L;   // skip signature and decompressed size
+        long fileSize = channel.size();
+        int uncPos = 0;
+        while (uncPos < uncSize && filePos + 8 <= fileSize) {
+          header.clear();
+          while (header.hasRemaining() && channel.read(header, filePos + header.position()) > 0) {}
+          int blockUnc = header.getInt(0);
+          int blockComp = header.getInt(4);
+          if (blockUnc < 0 || blockComp < 0) {
+            throw new IOException("Invalid BIFC block header");
+          }
+          if (count == capacity) {
+            capacity *= 2;
+            uncOfsList = Arrays.copyOf(uncOfsList, capacity);
+            uncSizeList = Arrays.copyOf(uncSizeList, capacity);
+            compSizeList = Arrays.copyOf(compSizeList, capacity);
+            compOfsList = Arrays.copyOf(compOfsList, capacity);
+          }
+          uncOfsList[count] = uncPos;
+          uncSizeList[count] = blockUnc;
+          compSizeList[count] = blockComp;
+          compOfsList[count] = filePos + 8;
+          count++;
+          uncPos += blockUnc;
+          filePos += 8 + blockComp;
+        }
+      }
+
+      uncOffsets = Arrays.copyOf(uncOfsList, count);
+      uncSizes = Arrays.copyOf(uncSizeList, count);
+      compSizes = Arrays.copyOf(compSizeList, count);
+      compOffsets = Arrays.copyOf(compOfsList, count);
+    }
+
+    /** Returns the index of the block containing the specified decompressed offset. Returns -1 if not found. */
+    public int find(int offset)
+    {
+      int idx = Arrays.binarySearch(uncOffsets, offset);
+      if (idx < 0) {
+        idx = -idx - 2;
+      }
+      if (idx >= 0 && offset < uncOffsets[idx] + uncSizes[idx]) {
+        return idx;
+      }
+      return -1;
+    }
+
+    /** Reads and decompresses the specified block. Safe to be called concurrently. */
+    public byte[] inflate(FileChannel channel, int block) throws IOException
+    {
+      ByteBuffer compBuffer = ByteBuffer.allocate(compSizes[block]);
+      long pos = compOffsets[block];
+      while (compBuffer.hasRemaining()) {
+        int n = channel.read(compBuffer, pos + compBuffer.position());
+        if (n < 0) {
+          throw new IOException("Unexpected end of BIFC archive");
+        }
+      }
+
+      byte[] outBuffer = new byte[uncSizes[block]];
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(compBuffer.array(), 0, compSizes[block]);
+        if (inflater.inflate(outBuffer, 0, outBuffer.length) != outBuffer.length) {
+          throw new IOException("Unexpected end of decompressed data");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      } finally {
+        inflater.end();
+      }
+      return outBuffer;
+    }
+  }
+
   private static class BifcInputStream extends InputStream
   {
     private final Inflater inflater;
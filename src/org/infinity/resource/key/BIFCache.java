@@ -0,0 +1,329 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.InflaterInputStream;
+
+import org.infinity.util.io.FileEx;
+import org.infinity.util.io.StreamUtils;
+
+/**
+ * Manages an on-disk cache of decompressed file-compressed BIF V1.0 archives.
+ * <p>
+ * Each cached archive is stored as uncompressed BIFF V1 file in a subfolder of the system temp folder,
+ * accompanied by a small info file which stores size and modification time of the source archive.
+ * Cached archives are invalidated automatically when the source archive changes. The total size
+ * of the cache is limited. Least recently used archives are removed first when the limit is exceeded.
+ * <p>
+ * Each successful call of {@link #get(Path, int, int)} adds a reference to the returned archive, which
+ * must be balanced by a call of {@link #release(Path)}. Referenced archives are never removed from the cache.
+ */
+public final class BIFCache
+{
+  /** Default size limit of the cache, in bytes. */
+  public static final long DEFAULT_MAX_CACHE_SIZE = 2L * 1024L * 1024L * 1024L;
+
+  private static final String CACHE_FOLDER  = "NearInfinity-bifcache";
+  private static final String EXT_DATA      = ".bif";
+  private static final String EXT_INFO      = ".info";
+  private static final String KEY_PATH      = "path";
+  private static final String KEY_SIZE      = "size";
+  private static final String KEY_MODIFIED  = "modified";
+
+  // Number of references to cached archives, by base name
+  private static final HashMap<String, Integer> references = new HashMap<>();
+  // Serializes decompression of individual archives, by base name
+  private static final ConcurrentHashMap<String, Object> archiveLocks = new ConcurrentHashMap<>();
+
+  private static boolean enabled = false;
+  private static long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /** Returns whether decompressed BIF archives should be cached. */
+  public static synchronized boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /** Specify whether decompressed BIF archives should be cached. */
+  public static synchronized void setEnabled(boolean enable)
+  {
+    enabled = enable;
+  }
+
+  /** Returns the size limit of the cache, in bytes. */
+  public static synchronized long getMaxCacheSize()
+  {
+    return maxCacheSize;
+  }
+
+  /** Sets the size limit of the cache, in bytes. Superfluous cache entries are removed immediately. */
+  public static synchronized void setMaxCacheSize(long size)
+  {
+    maxCacheSize = Math.max(0L, size);
+    cleanup(null);
+  }
+
+  /** Returns the folder containing cached BIFF files. */
+  public static Path getCacheFolder()
+  {
+    return Paths.get(System.getProperty("java.io.tmpdir"), CACHE_FOLDER);
+  }
+
+  /**
+   * Returns the path to a decompressed copy of the specified BIF V1.0 archive and adds a reference to it.
+   * The archive is decompressed on first access. Returns {@code null} if the archive could not
+   * be cached.
+   * @param bifFile Path to the file-compressed BIF V1.0 archive.
+   * @param compOffset Start offset of the compressed data in the archive.
+   * @param uncSize Size of the decompressed data.
+   */
+  public static Path get(Path bifFile, int compOffset, int uncSize)
+  {
+    if (bifFile == null) {
+      return null;
+    }
+
+    try {
+      Path folder = getCacheFolder();
+      String baseName = getBaseName(bifFile);
+      Path dataFile = folder.resolve(baseName + EXT_DATA);
+      Path infoFile = folder.resolve(baseName + EXT_INFO);
+      long size = Files.size(bifFile);
+      long modified = Files.getLastModifiedTime(bifFile).toMillis();
+
+      // decompression blocks only concurrent requests for the same archive
+      synchronized (archiveLocks.computeIfAbsent(baseName, k -> new Object())) {
+        synchronized (BIFCache.class) {
+          if (isValid(bifFile, dataFile, infoFile, size, modified)) {
+            // marks entry as recently used
+            Files.setLastModifiedTime(infoFile, FileTime.fromMillis(System.currentTimeMillis()));
+            addReference(baseName);
+            return dataFile;
+          }
+          if (uncSize > maxCacheSize) {
+            return null;
+          }
+        }
+
+        Files.createDirectories(folder);
+        Path tempFile = folder.resolve(baseName + ".tmp");
+        try {
+          try (InputStream is = StreamUtils.getInputStream(bifFile)) {
+            long remaining = compOffset;
+            while (remaining > 0) {
+              long n = is.skip(remaining);
+              if (n <= 0) {
+                throw new IOException("Unexpected end of BIF archive");
+              }
+              remaining -= n;
+            }
+            try (InflaterInputStream iis = new InflaterInputStream(is);
+                 OutputStream os = StreamUtils.getOutputStream(tempFile, true)) {
+              StreamUtils.writeBytes(os, iis);
+            }
+          }
+
+          synchronized (BIFCache.class) {
+            // an outdated copy of the archive may still be in use
+            if (getReferenceCount(baseName) > 0) {
+              return null;
+            }
+            Files.deleteIfExists(infoFile);
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
+
+            Properties props = new Properties();
+            props.setProperty(KEY_PATH, bifFile.toAbsolutePath().toString());
+            props.setProperty(KEY_SIZE, Long.toString(size));
+            props.setProperty(KEY_MODIFIED, Long.toString(modified));
+            try (OutputStream os = StreamUtils.getOutputStream(infoFile, true)) {
+              props.store(os, null);
+            }
+
+            addReference(baseName);
+            cleanup(baseName);
+            return dataFile;
+          }
+        } finally {
+          Files.deleteIfExists(tempFile);
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
+  /**
+   * Removes a reference from the specified cached archive. Unreferenced archives may be removed
+   * from the cache to satisfy the size limit.
+   * @param dataFile Path to the decompressed archive as returned by {@link #get(Path, int, int)}.
+   */
+  public static synchronized void release(Path dataFile)
+  {
+    if (dataFile != null) {
+      String name = dataFile.getFileName().toString();
+      if (name.endsWith(EXT_DATA)) {
+        String baseName = name.substring(0, name.length() - EXT_DATA.length());
+        int count = getReferenceCount(baseName);
+        if (count > 1) {
+          references.put(baseName, Integer.valueOf(count - 1));
+        } else if (count == 1) {
+          references.remove(baseName);
+          cleanup(null);
+        }
+      }
+    }
+  }
+
+  /** Removes all cached archives which are not referenced. */
+  public static synchronized void clear()
+  {
+    for (final Entry entry: getEntries()) {
+      if (getReferenceCount(entry.baseName) == 0) {
+        entry.delete();
+      }
+    }
+  }
+
+  // Returns whether the cache entry exists and matches the source archive
+  private static boolean isValid(Path bifFile, Path dataFile, Path infoFile, long size, long modified)
+  {
+    if (!FileEx.create(dataFile).isFile() || !FileEx.create(infoFile).isFile()) {
+      return false;
+    }
+
+    Properties props = new Properties();
+    try (InputStream is = StreamUtils.getInputStream(infoFile)) {
+      props.load(is);
+    } catch (IOException e) {
+      return false;
+    }
+    return bifFile.toAbsolutePath().toString().equals(props.getProperty(KEY_PATH)) &&
+           Long.toString(size).equals(props.getProperty(KEY_SIZE)) &&
+           Long.toString(modified).equals(props.getProperty(KEY_MODIFIED));
+  }
+
+  // Returns the number of references to the specified cache entry
+  private static int getReferenceCount(String baseName)
+  {
+    Integer count = references.get(baseName);
+    return (count != null) ? count.intValue() : 0;
+  }
+
+  private static void addReference(String baseName)
+  {
+    references.put(baseName, Integer.valueOf(getReferenceCount(baseName) + 1));
+  }
+
+  // Removes least recently used entries until the cache size limit is satisfied.
+  // The entry specified by "keepName" and referenced entries are never removed.
+  private static void cleanup(String keepName)
+  {
+    List<Entry> entries = getEntries();
+    entries.sort((e1, e2) -> Long.compare(e1.lastUsed, e2.lastUsed));
+    long total = 0L;
+    for (final Entry entry: entries) {
+      total += entry.size;
+    }
+    for (int i = 0; i < entries.size() && total > maxCacheSize; i++) {
+      Entry entry = entries.get(i);
+      if (!entry.baseName.equals(keepName) && getReferenceCount(entry.baseName) == 0 && entry.delete()) {
+        total -= entry.size;
+      }
+    }
+  }
+
+  // Returns all available cache entries
+  private static List<Entry> getEntries()
+  {
+    List<Entry> retVal = new ArrayList<>();
+    Path folder = getCacheFolder();
+    if (FileEx.create(folder).isDirectory()) {
+      try (DirectoryStream<Path> ds = Files.newDirectoryStream(folder, "*" + EXT_DATA)) {
+        for (final Path file: ds) {
+          String name = file.getFileName().toString();
+          retVal.add(new Entry(folder, name.substring(0, name.length() - EXT_DATA.length())));
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return retVal;
+  }
+
+  // Generates a unique file name for the specified archive path
+  private static String getBaseName(Path bifFile)
+  {
+    String path = bifFile.toAbsolutePath().normalize().toString();
+    String name = bifFile.getFileName().toString();
+    int p = name.lastIndexOf('.');
+    if (p > 0) {
+      name = name.substring(0, p);
+    }
+    return String.format("%s-%08x", name, path.hashCode());
+  }
+
+  private BIFCache()
+  {
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static class Entry
+  {
+    public final String baseName;
+    public final Path dataFile;
+    public final Path infoFile;
+    public final long size;
+    public final long lastUsed;
+
+    public Entry(Path folder, String baseName)
+    {
+      this.baseName = baseName;
+      this.dataFile = folder.resolve(baseName + EXT_DATA);
+      this.infoFile = folder.resolve(baseName + EXT_INFO);
+      long size = 0L, lastUsed = 0L;
+      try {
+        size = Files.size(dataFile);
+        lastUsed = Files.getLastModifiedTime(FileEx.create(infoFile).isFile() ? infoFile : dataFile).toMillis();
+      } catch (IOException e) {
+      }
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+
+    // Removes the data file first, which invalidates the entry even if the info file can't be removed.
+    // Returns whether the data file has been removed.
+    public boolean delete()
+    {
+      try {
+        Files.deleteIfExists(dataFile);
+      } catch (IOException e) {
+        // data file may still be in use by another process
+        return false;
+      }
+      try {
+        Files.deleteIfExists(infoFile);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      return true;
+    }
+  }
+}
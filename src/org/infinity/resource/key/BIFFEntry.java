@@ -62,6 +62,20 @@ public BIFFEntry(Path keyFile, int index, ByteBuffer buffer, int offset)
     updateBIFF(keyFile, index, buffer, offset);
   }
 
+  /** Restores a BIFF entry from a {@link ResourceIndexSnapshot}. */
+  BIFFEntry(Path keyFile, int index, String fileName, char separatorChar, int location, int fileSize,
+            int stringOffset, Path biffFile)
+  {
+    this.keyFile = keyFile.toAbsolutePath();
+    this.index = index;
+    this.fileName = fileName;
+    this.separatorChar = separatorChar;
+    this.location = location;
+    this.fileSize = fileSize;
+    this.stringOffset = stringOffset;
+    this.biffFile = biffFile;
+  }
+
 //--------------------- Begin Interface Comparable ---------------------
 
   @Override
@@ -192,6 +206,24 @@ public int getFileSize()
     return fileSize;
   }
 
+  /** Returns the supposed location of the BIFF file as bit field. */
+  int getLocation()
+  {
+    return location;
+  }
+
+  /** Returns the offset to the BIFF filename in the KEY file. */
+  int getStringOffset()
+  {
+    return stringOffset;
+  }
+
+  /** Returns the path separator used by the BIFF filename in the KEY file. */
+  char getSeparatorChar()
+  {
+    return separatorChar;
+  }
+
   public void setFileSize(int fileSize)
   {
     this.fileSize = fileSize;
@@ -8,6 +8,8 @@
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
@@ -21,11 +23,27 @@
 
 /**
  * Provides read operations for uncompressed BIFF V1 archives.
+ * <p>
+ * A single file channel is kept open for the lifetime of the reader and shared by all threads.
+ * Resource data is fetched by positional reads. Large resources are handed out as read-only
+ * memory mappings of the resource region. Call {@link #close()} to release the file handle.
+ * <p>
+ * Only resources of 1 MB or more are mapped. Each mapping costs a system call and a page-aligned
+ * address range, which is more expensive than copying the few kilobytes of a typical resource.
+ * Mappings are not tracked by the reader and are not released by {@link #close()}: Java 8 offers
+ * no safe way to unmap a buffer which may still be read by another thread. They are released by the
+ * garbage collector when the returned buffer is no longer referenced.
  */
 public class BIFFReader extends AbstractBIFFReader
 {
+  // Resources of at least this size are memory-mapped instead of being copied
+  private static final int MAP_THRESHOLD = 0x100000;
+  // Number of attempts to repeat a read operation if the channel has been closed concurrently
+  private static final int MAX_RETRIES = 3;
+
   private final WindowBlocker blocker;
 
+  private FileChannel channel;
   private int numFiles, numTilesets;
 
   protected BIFFReader(Path file) throws Exception
@@ -38,6 +56,7 @@ protected BIFFReader(Path file) throws Exception
   @Override
   public synchronized void open() throws Exception
   {
+    close();
     try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
       String sigver = StreamUtils.readString(channel, 8);
       if (!"BIFFV1  ".equals(sigver)) {
@@ -91,30 +110,26 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
     }
 
     ByteBuffer buffer;
-    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
-      channel.position(entry.offset);
-      if (entry.isTile) {
-        ByteBuffer header = getTisHeader(entry.count, entry.size);
-        int remaining = entry.count*entry.size + header.limit();
-        if (remaining > 1000000) {
-          blocker.setBlocked(true);
-        }
-        try {
-          buffer = StreamUtils.getByteBuffer(remaining);
-          StreamUtils.copyBytes(header, buffer, header.limit());
-          remaining -= header.limit();
-          while (channel.read(buffer) > 0) {}
-        } finally {
-          blocker.setBlocked(false);
-        }
-      } else {
-        buffer = StreamUtils.getByteBuffer(entry.size);
-        while (channel.read(buffer) > 0) {}
+    if (entry.isTile) {
+      ByteBuffer header = getTisHeader(entry.count, entry.size);
+      int remaining = entry.count*entry.size + header.limit();
+      if (remaining > 1000000) {
+        blocker.setBlocked(true);
       }
-
-      buffer.position(0);
-      return buffer;
+      try {
+        buffer = StreamUtils.getByteBuffer(remaining);
+        StreamUtils.copyBytes(header, buffer, header.limit());
+        readFully(entry.offset, buffer);
+      } finally {
+        blocker.setBlocked(false);
+      }
+    } else {
+      buffer = StreamUtils.getByteBuffer(entry.size);
+      readFully(entry.offset, buffer);
     }
+
+    buffer.position(0);
+    return buffer;
   }
 
   @Override
@@ -125,18 +140,147 @@ public InputStream getResourceAsStream(int locator) throws IOException
       throw new IOException("Resource not found");
     }
 
-    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
-      int size = entry.isTile ? entry.count*entry.size : entry.size;
-      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, entry.offset, size).order(ByteOrder.LITTLE_ENDIAN);
-      InputStream is;
-      if (entry.isTile) {
-        ByteBuffer header = getTisHeader(entry.count, entry.size);
-        is = new ByteBufferInputStream(header, buffer);
-      } else {
-        is = new ByteBufferInputStream(buffer);
+    int size = entry.isTile ? entry.count*entry.size : entry.size;
+    ByteBuffer buffer = getResourceSlice(entry.offset, size);
+    InputStream is;
+    if (entry.isTile) {
+      ByteBuffer header = getTisHeader(entry.count, entry.size);
+      is = new ByteBufferInputStream(header, buffer);
+    } else {
+      is = new ByteBufferInputStream(buffer);
+    }
+    return is;
+  }
+
+  @Override
+  public synchronized void close() throws IOException
+  {
+    if (channel != null) {
+      try {
+        channel.close();
+      } finally {
+        channel = null;
+        handleClosed();
+      }
+    }
+  }
+
+  /**
+   * Returns a read-only view of the specified region of the BIFF archive. Regions of 1 MB or more
+   * are memory-mapped without copying data. The mapping is owned by the returned buffer and is
+   * released when the buffer is garbage collected, not when the reader is closed. Smaller regions
+   * are read into a heap buffer.
+   * @param offset Start offset of the region.
+   * @param size Size of the region, in bytes.
+   * @return A read-only {@link ByteBuffer} in little endian byte order.
+   */
+  public ByteBuffer getResourceSlice(int offset, int size) throws IOException
+  {
+    if (offset < 0 || size < 0) {
+      throw new IOException("Resource data out of bounds");
+    }
+
+    ByteBuffer buffer;
+    if (size >= MAP_THRESHOLD) {
+      buffer = mapRegion(offset, size);
+    } else {
+      buffer = StreamUtils.getByteBuffer(size);
+      readFully(offset, buffer);
+      if (buffer.hasRemaining()) {
+        throw new IOException("Resource data out of bounds");
+      }
+      buffer.position(0);
+      buffer = buffer.asReadOnlyBuffer();
+    }
+    return buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // Reads data from the specified BIFF offset into "buffer" until buffer is full.
+  // Positional reads don't alter the channel state and can safely be performed by multiple threads.
+  // Reads are repeated with a new channel if the channel has been closed by another thread. An interrupted
+  // thread closes the channel for all threads, the next access of any thread will reopen it.
+  private void readFully(long offset, ByteBuffer buffer) throws IOException
+  {
+    final int start = buffer.position();
+    for (int retry = 0; ; retry++) {
+      if (isDetached()) {
+        // detached readers don't keep file handles open
+        try (FileChannel ch = FileChannel.open(getFile(), StandardOpenOption.READ)) {
+          readFully(ch, offset + buffer.position() - start, buffer);
+        }
+        return;
+      }
+      try {
+        readFully(getChannel(), offset + buffer.position() - start, buffer);
+        return;
+      } catch (ClosedByInterruptException e) {
+        throw e;
+      } catch (ClosedChannelException e) {
+        if (retry >= MAX_RETRIES) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  // Maps the specified region of the BIFF file. Retries with a new channel if the channel has been closed
+  // by another thread.
+  private ByteBuffer mapRegion(int offset, int size) throws IOException
+  {
+    for (int retry = 0; ; retry++) {
+      if (isDetached()) {
+        try (FileChannel ch = FileChannel.open(getFile(), StandardOpenOption.READ)) {
+          return mapRegion(ch, offset, size);
+        }
       }
-      return is;
+      try {
+        return mapRegion(getChannel(), offset, size);
+      } catch (ClosedByInterruptException e) {
+        throw e;
+      } catch (ClosedChannelException e) {
+        if (retry >= MAX_RETRIES) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  // Returns the shared file channel, (re-)opens it if needed.
+  // Throws a ClosedChannelException if the reader has been detached from the BIFF reader cache.
+  private synchronized FileChannel getChannel() throws IOException
+  {
+    if (isDetached()) {
+      throw new ClosedChannelException();
+    }
+    if (channel == null || !channel.isOpen()) {
+      if (channel != null) {
+        // closed by an interrupted thread
+        channel = null;
+        handleClosed();
+      }
+      channel = FileChannel.open(getFile(), StandardOpenOption.READ);
+      handleOpened();
+    }
+    return channel;
+  }
+
+  private static void readFully(FileChannel ch, long offset, ByteBuffer buffer) throws IOException
+  {
+    while (buffer.hasRemaining()) {
+      int n = ch.read(buffer, offset);
+      if (n < 0) {
+        break;
+      }
+      offset += n;
+    }
+  }
+
+  private static ByteBuffer mapRegion(FileChannel ch, int offset, int size) throws IOException
+  {
+    if ((long)offset + size > ch.size()) {
+      throw new IOException("Resource data out of bounds");
     }
+    return ch.map(MapMode.READ_ONLY, offset, size);
   }
 
   private void init(ByteBuffer buffer, int numFiles, int numTilesets)
@@ -73,6 +73,23 @@ public BIFFResourceEntry(BIFFEntry bifEntry, String resourceName, int offset)
     this.locator = buffer.getInt();
   }
 
+  /** Restores a resource entry from a {@link ResourceIndexSnapshot}. */
+  BIFFResourceEntry(Path keyFile, String resourceName, int type, int locator, boolean hasOverride)
+  {
+    this.keyFile = keyFile;
+    this.resourceName = resourceName;
+    this.type = type;
+
+    String ext = ResourceFactory.getKeyfile().getExtension(type);
+    if (ext == null) {
+      ext = "Unknown (" + Integer.toHexString(type) + "h)";
+    }
+    this.extension = ext;
+
+    this.locator = locator;
+    this.hasOverride = hasOverride;
+  }
+
 // --------------------- Begin Interface Writeable ---------------------
 
   @Override
@@ -309,6 +326,12 @@ public synchronized void setOverride(boolean hasOverride)
     this.hasOverride = hasOverride;
   }
 
+  /** Returns the cached override state without querying the override folders. */
+  synchronized boolean getOverrideFlag()
+  {
+    return hasOverride;
+  }
+
   synchronized void adjustSourceIndex(int index)
   {
     int sourceindex = (locator >> 20) & 0xfff;
@@ -13,6 +13,7 @@
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.function.ObjIntConsumer;
 import java.util.zip.InflaterInputStream;
 
 import org.infinity.NearInfinity;
@@ -22,12 +23,16 @@
 
 /**
  * Provides read operations for file-compressed BIF V1.0 archives.
+ * <p>
+ * If enabled by {@link BIFCache}, resources are read from a decompressed copy of the archive instead.
  */
 public class BIFReader extends AbstractBIFFReader
 {
   private final WindowBlocker blocker;
 
   private MappedByteBuffer mappedBuffer;
+  private volatile BIFFReader cachedReader;   // provides access to the decompressed archive if available
+  private boolean cacheUnavailable;           // whether the archive could not be acquired from the cache
   private int uncSize, compSize, compOffset;
   private int numFiles, numTilesets;
 
@@ -61,6 +66,27 @@ public synchronized void open() throws Exception
       mappedBuffer.order(ByteOrder.LITTLE_ENDIAN);
     }
     init();
+
+    releaseCachedReader();
+    cacheUnavailable = false;
+    getCachedReader();
+  }
+
+  /**
+   * Releases the decompressed copy of the archive if available. It is acquired again from the
+   * {@link BIFCache} on the next read operation.
+   */
+  @Override
+  public synchronized void close() throws IOException
+  {
+    releaseCachedReader();
+    cacheUnavailable = false;
+  }
+
+  /** Returns whether resources are read from a decompressed copy of the BIF archive. */
+  public boolean isCached()
+  {
+    return (cachedReader != null);
   }
 
   @Override
@@ -90,6 +116,11 @@ public int getBIFFSize()
   @Override
   public ByteBuffer getResourceBuffer(int locator) throws IOException
   {
+    BIFFReader reader = getCachedReader();
+    if (reader != null) {
+      return reader.getResourceBuffer(locator);
+    }
+
     Entry entry = getEntry(locator);
     if (entry == null) {
       throw new IOException("Resource not found");
@@ -109,11 +140,7 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
     }
 
     try (InflaterInputStream iis = getInflaterInputStream()) {
-      int remaining = entry.offset;
-      while (remaining > 0) {
-        long n = iis.skip(entry.offset);
-        remaining -= n;
-      }
+      skipBytes(iis, entry.offset);
       StreamUtils.readBytes(iis, buffer);
     } finally {
       blocker.setBlocked(false);
@@ -126,9 +153,82 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
   @Override
   public InputStream getResourceAsStream(int locator) throws IOException
   {
+    BIFFReader reader = getCachedReader();
+    if (reader != null) {
+      return reader.getResourceAsStream(locator);
+    }
     return new ByteBufferInputStream(getResourceBuffer(locator));
   }
 
+  @Override
+  public void readResources(int[] locators, ObjIntConsumer<ByteBuffer> consumer) throws IOException
+  {
+    BIFFReader reader = getCachedReader();
+    if (reader != null) {
+      reader.readResources(locators, consumer);
+      return;
+    }
+
+    // decompressing the archive in a single pass instead of once per resource
+    try (InflaterInputStream iis = getInflaterInputStream()) {
+      int pos = 0;
+      for (final int locator: sortByOffset(locators)) {
+        Entry entry = getEntry(locator);
+        ByteBuffer buffer;
+        if (entry.offset < pos) {
+          // resource data overlaps with the previous resource
+          buffer = getResourceBuffer(locator);
+        } else {
+          skipBytes(iis, entry.offset - pos);
+          buffer = createResourceBuffer(entry);
+          StreamUtils.readBytes(iis, buffer);
+          buffer.position(0);
+          pos = entry.offset + entry.getDataSize();
+        }
+        consumer.accept(buffer, locator);
+      }
+    }
+  }
+
+  // Returns the reader of the decompressed copy of the archive. Acquires it from the BIF cache if needed.
+  // Returns null if the archive is not cached.
+  private BIFFReader getCachedReader()
+  {
+    BIFFReader reader = cachedReader;
+    if (reader == null && BIFCache.isEnabled() && !isDetached()) {
+      synchronized (this) {
+        if (cachedReader == null && !cacheUnavailable) {
+          Path cachedFile = BIFCache.get(getFile(), compOffset, uncSize);
+          if (cachedFile != null) {
+            try {
+              cachedReader = new BIFFReader(cachedFile);
+            } catch (Exception e) {
+              e.printStackTrace();
+              BIFCache.release(cachedFile);
+            }
+          }
+          cacheUnavailable = (cachedReader == null);
+        }
+        reader = cachedReader;
+      }
+    }
+    return reader;
+  }
+
+  // Closes the reader of the decompressed archive and releases the reference to the BIF cache entry
+  private synchronized void releaseCachedReader() throws IOException
+  {
+    BIFFReader reader = cachedReader;
+    if (reader != null) {
+      cachedReader = null;
+      try {
+        reader.detach();
+      } finally {
+        BIFCache.release(reader.getFile());
+      }
+    }
+  }
+
   private void init() throws Exception
   {
     try (InflaterInputStream iis = new InflaterInputStream(
@@ -179,4 +279,16 @@ private InflaterInputStream getInflaterInputStream()
   {
     return new InflaterInputStream(new ByteBufferInputStream(mappedBuffer.duplicate()));
   }
+
+  // Skips the specified number of bytes in the input stream
+  private static void skipBytes(InputStream is, int count) throws IOException
+  {
+    while (count > 0) {
+      long n = is.skip(count);
+      if (n <= 0) {
+        throw new IOException("Unexpected end of BIF archive");
+      }
+      count -= n;
+    }
+  }
 }
@@ -21,7 +21,6 @@
 import java.util.TreeMap;
 
 import javax.swing.ImageIcon;
-import javax.swing.SwingUtilities;
 
 import org.infinity.icon.Icons;
 import org.infinity.resource.ResourceFactory;
@@ -281,9 +280,25 @@ public void addKeyfile(Path keyFile)
   }
 
   public void populateResourceTree(ResourceTreeModel treeModel) throws Exception
+  {
+    populateResourceTree(treeModel, null);
+  }
+
+  /**
+   * Adds all effective BIFF resource entries to the specified resource tree.
+   * @param treeModel The resource tree model.
+   * @param snapshot Optional snapshot. The key files are only parsed if the resource table
+   *                 cannot be restored from the snapshot.
+   */
+  public void populateResourceTree(ResourceTreeModel treeModel, ResourceIndexSnapshot snapshot) throws Exception
   {
     if (treeModel != null) {
-      init();
+      if (snapshot == null || !restore(snapshot)) {
+        init();
+      }
+      if (snapshot != null) {
+        snapshot.setResourceTable(biffEntries, resourceEntries.values());
+      }
 
       resourceEntries.values().forEach((entry) -> treeModel.addResourceEntry(entry, entry.getExtension(), true));
 
@@ -464,29 +479,41 @@ public void write() throws IOException
     }
   }
 
-  /** Caches all BIFF files referenced in the current KEY file. */
+  /**
+   * Caches BIFF files referenced in the current KEY file in a background thread.
+   * No more BIFF files than supported by the BIFF reader cache are opened.
+   */
   private void cacheBIFFs()
   {
-    SwingUtilities.invokeLater(new Runnable() {
-      @Override
-      public void run()
-      {
-        biffEntries.values().forEach((biffList) -> {
-          biffList.forEach((entry) -> {
-            if (entry != null) {
-              Path biffPath = entry.getPath();
-              if (biffPath != null && FileEx.create(biffPath).isFile()) {
-                try {
-                  AbstractBIFFReader.open(biffPath);
-                } catch (Exception e) {
-                  e.printStackTrace();
-                }
-              }
+    final List<Path> biffPaths = new ArrayList<>();
+    biffEntries.values().forEach((biffList) -> {
+      biffList.forEach((entry) -> {
+        if (entry != null && entry.getPath() != null) {
+          biffPaths.add(entry.getPath());
+        }
+      });
+    });
+
+    // stops as soon as the BIFF reader cache is reset, e.g. when the game is reloaded
+    final int generation = AbstractBIFFReader.getCacheGeneration();
+    Thread thread = new Thread(() -> {
+      int capacity = AbstractBIFFReader.getCacheCapacity();
+      for (int i = 0, count = Math.min(capacity, biffPaths.size()); i < count; i++) {
+        Path biffPath = biffPaths.get(i);
+        if (FileEx.create(biffPath).isFile()) {
+          try {
+            if (!AbstractBIFFReader.preload(biffPath, generation)) {
+              break;
             }
-          });
-        });
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+        }
       }
-    });
+    }, "BIFF cache");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
   }
 
   // Creates a list of ResourceEntry objects from the specified key file
@@ -586,6 +613,21 @@ private void init() throws IOException
     }
   }
 
+  /** Restores cached biff maps and entry tables from the specified snapshot. */
+  private boolean restore(ResourceIndexSnapshot snapshot)
+  {
+    closeBIFFFiles();
+    resourceEntries.clear();
+    biffEntries.clear();
+
+    List<BIFFResourceEntry> entries = snapshot.readResourceTable(biffEntries);
+    if (entries == null) {
+      return false;
+    }
+    entries.forEach((entry) -> addResourceEntry(entry));
+    return true;
+  }
+
   /** Returns the list of BIFFEntry objects for the specified key file, optionally removes it. */
   private List<BIFFEntry> getBIFFList(Path keyFile, boolean remove)
   {
@@ -0,0 +1,145 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.infinity.resource.ResourceFactory;
+
+/**
+ * A group of resources sharing the same physical source.
+ * <p>
+ * Resources of a BIFF archive are grouped together and ordered by their offsets in the archive.
+ * Override and other loose files form a separate group which is ordered by name. Processing resources
+ * in this order turns random access to BIFF archives into sequential reads.
+ */
+public class ResourceGroup
+{
+  private final BIFFEntry bifEntry;
+  private final List<ResourceEntry> entries;
+
+  /**
+   * Groups the specified resources by their physical source. Archive groups are returned in the order
+   * of the BIFF files in the KEY file, followed by the group of loose files. {@code null} elements are skipped.
+   */
+  public static List<ResourceGroup> groupByLocation(List<? extends ResourceEntry> entries)
+  {
+    final Map<BIFFEntry, List<BIFFResourceEntry>> archives = new HashMap<>();
+    final List<ResourceEntry> files = new ArrayList<>();
+    for (final ResourceEntry entry: entries) {
+      BIFFEntry bifEntry = null;
+      if (entry instanceof BIFFResourceEntry && !entry.hasOverride()) {
+        bifEntry = ((BIFFResourceEntry)entry).getBIFFEntry();
+      }
+      if (bifEntry != null) {
+        archives.computeIfAbsent(bifEntry, k -> new ArrayList<>()).add((BIFFResourceEntry)entry);
+      } else if (entry != null) {
+        files.add(entry);
+      }
+    }
+
+    final List<BIFFEntry> bifList = new ArrayList<>(archives.keySet());
+    bifList.sort(Comparator.comparingInt(BIFFEntry::getIndex));
+    final List<ResourceGroup> retVal = new ArrayList<>(bifList.size() + 1);
+    for (final BIFFEntry bifEntry: bifList) {
+      retVal.add(new ResourceGroup(bifEntry, sortByOffset(bifEntry, archives.get(bifEntry))));
+    }
+    if (!files.isEmpty()) {
+      files.sort(Comparator.comparing(ResourceEntry::getResourceName, String.CASE_INSENSITIVE_ORDER));
+      retVal.add(new ResourceGroup(null, files));
+    }
+    return retVal;
+  }
+
+  private ResourceGroup(BIFFEntry bifEntry, List<ResourceEntry> entries)
+  {
+    this.bifEntry = bifEntry;
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  /** Returns the BIFF archive of the group. Returns {@code null} for the group of loose files. */
+  public BIFFEntry getBIFFEntry()
+  {
+    return bifEntry;
+  }
+
+  /** Returns whether the resources of the group are located in a BIFF archive. */
+  public boolean isArchive()
+  {
+    return (bifEntry != null);
+  }
+
+  /** Returns the resources of the group in the order of their location. */
+  public List<ResourceEntry> getEntries()
+  {
+    return entries;
+  }
+
+  /**
+   * Reads all resources of the group in the order of their location and passes them to the consumer.
+   * Resources of BIFF archives are read in a single sequential pass over the archive. Loose files
+   * which cannot be read are skipped.
+   * @param consumer Receives the resource and its data.
+   */
+  public void read(BiConsumer<ResourceEntry, ByteBuffer> consumer) throws Exception
+  {
+    if (isArchive()) {
+      final Map<Integer, ResourceEntry> map = new HashMap<>();
+      final int[] locators = new int[entries.size()];
+      for (int i = 0; i < locators.length; i++) {
+        locators[i] = ((BIFFResourceEntry)entries.get(i)).getLocator();
+        map.put(Integer.valueOf(locators[i]), entries.get(i));
+      }
+      AbstractBIFFReader reader = ResourceFactory.getKeyfile().getBIFFFile(bifEntry);
+      reader.readResources(locators, (buffer, locator) -> consumer.accept(map.get(Integer.valueOf(locator)), buffer));
+    } else {
+      for (final ResourceEntry entry: entries) {
+        ByteBuffer buffer;
+        try {
+          buffer = entry.getResourceBuffer();
+        } catch (Exception e) {
+          e.printStackTrace();
+          continue;
+        }
+        consumer.accept(entry, buffer);
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return isArchive() ? bifEntry.toString() : "Files";
+  }
+
+  // Orders resources of a single BIFF archive by their offsets in the archive.
+  // Falls back to locator order if the archive is not available.
+  private static List<ResourceEntry> sortByOffset(BIFFEntry bifEntry, List<BIFFResourceEntry> list)
+  {
+    AbstractBIFFReader reader = null;
+    try {
+      reader = ResourceFactory.getKeyfile().getBIFFFile(bifEntry);
+    } catch (Exception e) {
+    }
+
+    final Map<BIFFResourceEntry, Long> keys = new LinkedHashMap<>();
+    for (final BIFFResourceEntry entry: list) {
+      int offset = (reader != null) ? reader.getResourceOffset(entry.getLocator()) : -1;
+      long key = (offset >= 0) ? offset : (entry.getLocator() & 0xfffffL) | (1L << 32);
+      keys.put(entry, Long.valueOf(key));
+    }
+    final List<ResourceEntry> retVal = new ArrayList<>(list);
+    retVal.sort(Comparator.comparingLong(e -> keys.get(e).longValue()));
+    return retVal;
+  }
+}
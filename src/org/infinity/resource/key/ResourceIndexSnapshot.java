@@ -0,0 +1,426 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.infinity.util.Misc;
+import org.infinity.util.io.FileEx;
+import org.infinity.util.io.StreamUtils;
+
+/**
+ * Persistent snapshot of the resolved resource table and the override folder listings of a game installation.
+ * <p>
+ * The resource table contains the BIFF entries of all key files and the effective BIFF resource entries
+ * with names, types, locators and override flags. It is only reused if none of the key files and BIFF
+ * archives has changed in size or modification time. Override flags are only restored if the override
+ * folders have not been modified. The table is not stored if a BIFF archive referenced by a key file is missing.
+ * <p>
+ * Only the names of the regular files in each override folder are stored, together with the folder's
+ * modification time. A folder listing is only reused if the folder has not been modified since the
+ * snapshot was taken. The whole snapshot is discarded if any of the key files of the game has changed.
+ * Extra folders are not covered by the snapshot and are scanned on every start.
+ * <p>
+ * Snapshots are stored in a subfolder of the system temp folder and loaded with a single mapped read.
+ */
+public class ResourceIndexSnapshot
+{
+  private static final String CACHE_FOLDER  = "NearInfinity-index";
+  private static final String SIGNATURE     = "NIRI";
+  private static final int VERSION          = 2;
+
+  private final Path snapshotFile;
+  private final List<Path> keyFiles;
+  private final List<Path> overrideFolders;
+  // Key file path -> [file size, modification time]
+  private final Map<String, long[]> keyInfo = new LinkedHashMap<>();
+  // Folder path -> folder listing
+  private final Map<String, FolderInfo> folders = new HashMap<>();
+
+  // Serialized resource table from the last session, or null if not available
+  private ByteBuffer tableData;
+  // Resource table of the current session
+  private Map<Path, List<BIFFEntry>> tableBiffs;
+  private Collection<BIFFResourceEntry> tableEntries;
+
+  private boolean modified;
+
+  /**
+   * Opens the resource index snapshot associated with the specified game. Returns an empty snapshot
+   * if no valid snapshot is available.
+   * @param gameRoot The game's root folder.
+   * @param keyFiles List of key files used by the game.
+   * @param overrideFolders List of override folders used by the game.
+   */
+  public static ResourceIndexSnapshot open(Path gameRoot, List<Path> keyFiles, List<Path> overrideFolders)
+  {
+    ResourceIndexSnapshot retVal = new ResourceIndexSnapshot(getSnapshotFile(gameRoot), keyFiles, overrideFolders);
+    for (final Path keyFile: keyFiles) {
+      retVal.keyInfo.put(keyFile.toAbsolutePath().toString(), getFileInfo(keyFile));
+    }
+    try {
+      retVal.load();
+    } catch (Exception e) {
+      // snapshot is corrupt or out of date
+      retVal.folders.clear();
+      retVal.tableData = null;
+      retVal.modified = true;
+    }
+    return retVal;
+  }
+
+  /** Removes the snapshot associated with the specified game. */
+  public static void invalidate(Path gameRoot)
+  {
+    if (gameRoot != null) {
+      try {
+        Files.deleteIfExists(getSnapshotFile(gameRoot));
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Returns the names of all regular files in the specified folder. Names are taken from the
+   * snapshot if the folder has not been modified. Otherwise the folder is scanned and the
+   * snapshot updated.
+   */
+  public List<String> getFileNames(Path folder)
+  {
+    if (folder == null) {
+      return Collections.emptyList();
+    }
+
+    folder = folder.toAbsolutePath();
+    long folderTime = getModifiedTime(folder);
+    FolderInfo info = folders.get(folder.toString());
+    if (info == null || info.modified != folderTime || folderTime == 0L) {
+      List<String> names = new ArrayList<>();
+      if (FileEx.create(folder).isDirectory()) {
+        try (DirectoryStream<Path> dstream = Files.newDirectoryStream(folder)) {
+          dstream.forEach((path) -> {
+            if (FileEx.create(path).isFile()) {
+              names.add(path.getFileName().toString());
+            }
+          });
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      info = new FolderInfo(folderTime, names);
+      folders.put(folder.toString(), info);
+      modified = true;
+    }
+    return Collections.unmodifiableList(info.names);
+  }
+
+  /**
+   * Restores the resource table of the last session. BIFF entries are added to the specified map.
+   * Returns the effective BIFF resource entries, or {@code null} if no valid resource table is available.
+   */
+  List<BIFFResourceEntry> readResourceTable(Map<Path, List<BIFFEntry>> biffEntries)
+  {
+    if (tableData == null) {
+      return null;
+    }
+
+    ByteBuffer bb = tableData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      // override flags are only valid if the override folders are unchanged
+      int numOverrides = bb.getInt();
+      boolean overridesValid = (numOverrides == overrideFolders.size());
+      for (int i = 0; i < numOverrides; i++) {
+        String folder = readString(bb);
+        long time = bb.getLong();
+        overridesValid = overridesValid &&
+                          folder.equals(overrideFolders.get(i).toAbsolutePath().toString()) &&
+                          time == getModifiedTime(overrideFolders.get(i));
+      }
+
+      Map<Path, List<BIFFEntry>> biffs = new HashMap<>();
+      for (final Path keyFile: keyFiles) {
+        int numBiffs = bb.getInt();
+        List<BIFFEntry> biffList = new ArrayList<>(numBiffs);
+        for (int i = 0; i < numBiffs; i++) {
+          String fileName = readString(bb);
+          char separatorChar = (char)bb.getShort();
+          int location = bb.getShort() & 0xffff;
+          int fileSize = bb.getInt();
+          int stringOffset = bb.getInt();
+          Path biffFile = Paths.get(readString(bb));
+          long size = bb.getLong();
+          long time = bb.getLong();
+          long[] info = getFileInfo(biffFile);
+          Misc.requireCondition(info[0] == size && info[1] == time, "BIFF files changed", IOException.class);
+          biffList.add(new BIFFEntry(keyFile, i, fileName, separatorChar, location, fileSize, stringOffset, biffFile));
+        }
+        biffs.put(keyFile, biffList);
+      }
+
+      int numEntries = bb.getInt();
+      List<BIFFResourceEntry> retVal = new ArrayList<>(numEntries);
+      for (int i = 0; i < numEntries; i++) {
+        Path keyFile = keyFiles.get(bb.getShort() & 0xffff);
+        String resourceName = readString(bb);
+        int type = bb.getShort() & 0xffff;
+        int locator = bb.getInt();
+        boolean hasOverride = (bb.get() != 0);
+        retVal.add(new BIFFResourceEntry(keyFile, resourceName, type, locator, overridesValid && hasOverride));
+      }
+
+      biffEntries.putAll(biffs);
+      return retVal;
+    } catch (Exception e) {
+      // resource table is corrupt or out of date
+      tableData = null;
+    }
+    return null;
+  }
+
+  /**
+   * Associates the resource table of the current session with the snapshot. The table is only
+   * written to disk if it could not be restored from the last session.
+   */
+  void setResourceTable(Map<Path, List<BIFFEntry>> biffEntries, Collection<BIFFResourceEntry> entries)
+  {
+    tableBiffs = biffEntries;
+    tableEntries = entries;
+    if (tableData == null) {
+      modified = true;
+    }
+  }
+
+  /** Writes the snapshot to disk if it contains changes. */
+  public void save()
+  {
+    if (!modified) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(snapshotFile.getParent());
+      Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName().toString() + ".tmp");
+      try (OutputStream os = StreamUtils.getOutputStream(tempFile, true)) {
+        StreamUtils.writeString(os, SIGNATURE, 4);
+        StreamUtils.writeInt(os, VERSION);
+        StreamUtils.writeInt(os, keyInfo.size());
+        for (final Map.Entry<String, long[]> entry: keyInfo.entrySet()) {
+          writeString(os, entry.getKey());
+          writeLong(os, entry.getValue()[0]);
+          writeLong(os, entry.getValue()[1]);
+        }
+        StreamUtils.writeInt(os, folders.size());
+        for (final Map.Entry<String, FolderInfo> entry: folders.entrySet()) {
+          writeString(os, entry.getKey());
+          writeLong(os, entry.getValue().modified);
+          StreamUtils.writeInt(os, entry.getValue().names.size());
+          for (final String name: entry.getValue().names) {
+            writeString(os, name);
+          }
+        }
+        byte[] table = getResourceTable();
+        StreamUtils.writeInt(os, table.length);
+        StreamUtils.writeBytes(os, table);
+      }
+      Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+      modified = false;
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private ResourceIndexSnapshot(Path snapshotFile, List<Path> keyFiles, List<Path> overrideFolders)
+  {
+    this.snapshotFile = snapshotFile;
+    this.keyFiles = keyFiles;
+    this.overrideFolders = overrideFolders;
+  }
+
+  // Loads the snapshot from disk. Throws an exception if the snapshot is not valid.
+  private void load() throws Exception
+  {
+    if (!FileEx.create(snapshotFile).isFile()) {
+      throw new IOException("No snapshot available");
+    }
+
+    ByteBuffer bb;
+    try (FileChannel ch = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+      bb = ch.map(FileChannel.MapMode.READ_ONLY, 0L, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    try {
+      Misc.requireCondition(SIGNATURE.equals(StreamUtils.readString(bb, 4)), "Invalid signature", IOException.class);
+      bb.position(4);
+      Misc.requireCondition(bb.getInt() == VERSION, "Unsupported version", IOException.class);
+
+      // key files must match exactly
+      int numKeys = bb.getInt();
+      Misc.requireCondition(numKeys == keyInfo.size(), "Key files changed", IOException.class);
+      for (int i = 0; i < numKeys; i++) {
+        long[] info = keyInfo.get(readString(bb));
+        long size = bb.getLong();
+        long time = bb.getLong();
+        Misc.requireCondition(info != null && info[0] == size && info[1] == time, "Key files changed", IOException.class);
+      }
+
+      int numFolders = bb.getInt();
+      for (int i = 0; i < numFolders; i++) {
+        String folder = readString(bb);
+        long time = bb.getLong();
+        int numNames = bb.getInt();
+        List<String> names = new ArrayList<>(numNames);
+        for (int j = 0; j < numNames; j++) {
+          names.add(readString(bb));
+        }
+        folders.put(folder, new FolderInfo(time, names));
+      }
+
+      // resource table is evaluated on demand
+      int tableSize = bb.getInt();
+      if (tableSize > 0) {
+        Misc.requireCondition(tableSize <= bb.remaining(), "Unexpected end of snapshot data", IOException.class);
+        ByteBuffer table = bb.slice();
+        table.limit(tableSize);
+        tableData = table.order(ByteOrder.LITTLE_ENDIAN);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Unexpected end of snapshot data");
+    }
+  }
+
+  // Serializes the resource table of the current session. Returns an empty array if the table cannot be stored.
+  private byte[] getResourceTable() throws IOException
+  {
+    if (tableBiffs == null || tableEntries == null) {
+      return new byte[0];
+    }
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    StreamUtils.writeInt(os, overrideFolders.size());
+    for (final Path folder: overrideFolders) {
+      writeString(os, folder.toAbsolutePath().toString());
+      writeLong(os, getModifiedTime(folder));
+    }
+
+    for (final Path keyFile: keyFiles) {
+      List<BIFFEntry> biffList = tableBiffs.getOrDefault(keyFile, Collections.emptyList());
+      StreamUtils.writeInt(os, biffList.size());
+      for (final BIFFEntry biff: biffList) {
+        if (biff.getPath() == null) {
+          // missing BIFF archives may be added any time
+          return new byte[0];
+        }
+        long[] info = getFileInfo(biff.getPath());
+        writeString(os, biff.getFileName());
+        StreamUtils.writeShort(os, (short)biff.getSeparatorChar());
+        StreamUtils.writeShort(os, (short)biff.getLocation());
+        StreamUtils.writeInt(os, biff.getFileSize());
+        StreamUtils.writeInt(os, biff.getStringOffset());
+        writeString(os, biff.getPath().toAbsolutePath().toString());
+        writeLong(os, info[0]);
+        writeLong(os, info[1]);
+      }
+    }
+
+    StreamUtils.writeInt(os, tableEntries.size());
+    for (final BIFFResourceEntry entry: tableEntries) {
+      int keyIndex = keyFiles.indexOf(entry.getKeyfile());
+      if (keyIndex < 0) {
+        return new byte[0];
+      }
+      StreamUtils.writeShort(os, (short)keyIndex);
+      writeString(os, entry.getResourceRef());
+      StreamUtils.writeShort(os, (short)entry.getType());
+      StreamUtils.writeInt(os, entry.getLocator());
+      StreamUtils.writeByte(os, (byte)(entry.getOverrideFlag() ? 1 : 0));
+    }
+    return os.toByteArray();
+  }
+
+  private static Path getSnapshotFile(Path gameRoot)
+  {
+    String path = gameRoot.toAbsolutePath().normalize().toString();
+    Path name = gameRoot.toAbsolutePath().getFileName();
+    String fileName = String.format("%s-%08x.idx", (name != null) ? name.toString() : "root", path.hashCode());
+    return Paths.get(System.getProperty("java.io.tmpdir"), CACHE_FOLDER, fileName);
+  }
+
+  // Returns file size and modification time of the specified file
+  private static long[] getFileInfo(Path file)
+  {
+    long size = 0L;
+    try {
+      size = Files.size(file);
+    } catch (IOException e) {
+    }
+    return new long[] { size, getModifiedTime(file) };
+  }
+
+  private static long getModifiedTime(Path file)
+  {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+    }
+    return 0L;
+  }
+
+  private static String readString(ByteBuffer bb)
+  {
+    int len = bb.getShort() & 0xffff;
+    byte[] data = new byte[len];
+    bb.get(data);
+    return new String(data, Misc.CHARSET_UTF8);
+  }
+
+  private static void writeString(OutputStream os, String s) throws IOException
+  {
+    byte[] data = s.getBytes(Misc.CHARSET_UTF8);
+    StreamUtils.writeShort(os, (short)data.length);
+    StreamUtils.writeBytes(os, data);
+  }
+
+  private static void writeLong(OutputStream os, long value) throws IOException
+  {
+    StreamUtils.writeInt(os, (int)value);
+    StreamUtils.writeInt(os, (int)(value >>> 32));
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static class FolderInfo
+  {
+    /** Modification time of the folder. */
+    public final long modified;
+    /** Names of all regular files in the folder. */
+    public final List<String> names;
+
+    public FolderInfo(long modified, List<String> names)
+    {
+      this.modified = modified;
+      this.names = names;
+    }
+  }
+}
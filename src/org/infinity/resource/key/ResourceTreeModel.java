@@ -12,10 +12,12 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import javax.swing.event.TreeModelEvent;
@@ -29,7 +31,8 @@
 public final class ResourceTreeModel implements TreeModel
 {
   private final List<TreeModelListener> treeModelListeners = new ArrayList<>();
-  private final Map<String, ResourceEntry> entries = new HashMap<>(25000);
+  // Lookup index of key, override, special and extra folder resources, keyed by upper-cased resource name
+  private final Map<String, IndexEntry> index = new HashMap<>(25000);
   private final Map<String, ResourceTreeFolder> folders = new TreeMap<>(Misc.getIgnoreCaseComparator());
   private final ResourceTreeFolder root = new ResourceTreeFolder(null, "");
 
@@ -117,7 +120,9 @@ public void addDirectory(ResourceTreeFolder parentFolder, Path directory, boolea
           if (FileEx.create(path).isDirectory()) {
             addDirectory(folder, path, overwrite);
           } else {
-            folder.addResourceEntry(new FileResourceEntry(path), overwrite);
+            FileResourceEntry entry = new FileResourceEntry(path);
+            folder.addResourceEntry(entry, overwrite);
+            addExtraEntry(entry, overwrite);
           }
         });
         parentFolder.sortChildren(true);
@@ -133,7 +138,7 @@ public ResourceTreeFolder addResourceEntry(ResourceEntry entry, String folderNam
     if (entry.isVisible()) {
       ResourceTreeFolder folder = addFolder(folderName);
       folder.addResourceEntry(entry, overwrite);
-      entries.put(entry.getResourceName().toUpperCase(Locale.ENGLISH), entry);
+      getIndexEntry(entry.getResourceName().toUpperCase(Locale.ENGLISH)).entry = entry;
       folder.sortChildren(false);
       return folder;
     }
@@ -245,7 +250,13 @@ public TreePath getPathToNode(ResourceTreeFolder folder)
 
   public Collection<ResourceEntry> getResourceEntries()
   {
-    return entries.values();
+    List<ResourceEntry> retVal = new ArrayList<>(index.size());
+    for (final IndexEntry indexEntry: index.values()) {
+      if (indexEntry.entry != null) {
+        retVal.add(indexEntry.entry);
+      }
+    }
+    return retVal;
   }
 
   public ResourceEntry getResourceEntry(String entryname)
@@ -253,28 +264,37 @@ public ResourceEntry getResourceEntry(String entryname)
     return getResourceEntry(entryname, false);
   }
 
+  /**
+   * Returns the resource entry of the specified name.
+   * @param entryname The resource name including extension (case-insensitive).
+   * @param includeExtraFolders Whether resources of extra folders should be considered if the resource
+   *                            is not available in the regular resource folders.
+   * @return The matching {@code ResourceEntry}, or {@code null} if not available.
+   */
   public ResourceEntry getResourceEntry(String entryname, boolean includeExtraFolders)
   {
-    ResourceEntry retVal = null;
-
-    if (entryname != null) {
-      entryname = entryname.toUpperCase(Locale.ENGLISH);
-      ResourceEntry entry = entries.get(entryname);
-      if (entry != null) {
-        retVal = entry;
-      } else if (includeExtraFolders) {
-        for (final ResourceTreeFolder folder: folders.values()) {
-          List<ResourceEntry> entries = folder.getResourceEntries();
-          for (final ResourceEntry curEntry: entries) {
-            if (curEntry.getResourceName().equalsIgnoreCase(entryname)) {
-              return curEntry;
-            }
-          }
-        }
-      }
+    if (entryname == null) {
+      return null;
     }
+    return getResourceEntry(index.get(entryname.toUpperCase(Locale.ENGLISH)), includeExtraFolders);
+  }
 
-    return retVal;
+  /**
+   * Returns the resource entry of the specified resource reference and type.
+   * @param resref The resource name without extension (case-insensitive).
+   * @param ext The resource extension without leading dot (case-insensitive).
+   * @param includeExtraFolders Whether resources of extra folders should be considered if the resource
+   *                            is not available in the regular resource folders.
+   * @return The matching {@code ResourceEntry}, or {@code null} if not available.
+   */
+  public ResourceEntry getResourceEntry(String resref, String ext, boolean includeExtraFolders)
+  {
+    if (resref == null || ext == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(resref.length() + ext.length() + 1);
+    String key = sb.append(resref).append('.').append(ext).toString().toUpperCase(Locale.ENGLISH);
+    return getResourceEntry(index.get(key), includeExtraFolders);
   }
 
   public List<ResourceEntry> removeDirectory(ResourceTreeFolder parentFolder, String folderName)
@@ -294,6 +314,13 @@ public List<ResourceEntry> removeDirectory(ResourceTreeFolder parentFolder, Stri
         parentFolder.removeFolder(folder);
         folders.remove(folder.folderName());
         retVal.addAll(entries);
+
+        List<String> keys = new ArrayList<>();
+        removeExtraEntries(entries, keys);
+        for (final ResourceTreeFolder subFolder: folder.getFolders()) {
+          removeExtraEntries(subFolder, keys);
+        }
+        updateExtraEntries(keys);
       }
     }
     return retVal;
@@ -314,7 +341,16 @@ public void removeResourceEntry(ResourceEntry entry, String folder)
     TreeModelEvent event = new TreeModelEvent(this, path, new int[]{getIndexOfChild(parent, entry)},
                                               new Object[]{entry});
     parent.removeResourceEntry(entry);
-    entries.remove(entry.getResourceName().toUpperCase(Locale.ENGLISH));
+    final String key = entry.getResourceName().toUpperCase(Locale.ENGLISH);
+    IndexEntry indexEntry = index.get(key);
+    if (indexEntry != null) {
+      indexEntry.entry = null;
+      if (indexEntry.extra == entry) {
+        indexEntry.extra = null;
+        updateExtraEntries(Collections.singletonList(key));
+      }
+      removeUnusedIndexEntry(key);
+    }
     if (parent.getChildCount() == 0) {
       root.removeFolder(parent);
       folders.remove(parent.folderName());
@@ -357,6 +393,93 @@ public void updateFolders(ResourceTreeFolder... folders)
     }
   }
 
+  // Returns the resource of the specified index entry
+  private static ResourceEntry getResourceEntry(IndexEntry indexEntry, boolean includeExtraFolders)
+  {
+    if (indexEntry == null) {
+      return null;
+    }
+    return (indexEntry.entry == null && includeExtraFolders) ? indexEntry.extra : indexEntry.entry;
+  }
+
+  // Returns the index entry of the specified key. A new index entry is created if needed.
+  private IndexEntry getIndexEntry(String key)
+  {
+    return index.computeIfAbsent(key, k -> new IndexEntry());
+  }
+
+  // Removes the index entry of the specified key if it doesn't reference any resources
+  private void removeUnusedIndexEntry(String key)
+  {
+    IndexEntry indexEntry = index.get(key);
+    if (indexEntry != null && indexEntry.entry == null && indexEntry.extra == null) {
+      index.remove(key);
+    }
+  }
+
+  // Registers a resource entry of an extra folder for lookup
+  private void addExtraEntry(ResourceEntry entry, boolean overwrite)
+  {
+    if (entry.isVisible()) {
+      IndexEntry indexEntry = getIndexEntry(entry.getResourceName().toUpperCase(Locale.ENGLISH));
+      if (overwrite || indexEntry.extra == null) {
+        indexEntry.extra = entry;
+      }
+    }
+  }
+
+  // Unregisters the extra entries of the specified folder and its subfolders. Keys of removed entries are added to the list.
+  private void removeExtraEntries(ResourceTreeFolder folder, List<String> keys)
+  {
+    removeExtraEntries(folder.getResourceEntries(), keys);
+    for (final ResourceTreeFolder subFolder: folder.getFolders()) {
+      removeExtraEntries(subFolder, keys);
+    }
+  }
+
+  // Unregisters the specified extra entries. Keys of removed entries are added to the list.
+  private void removeExtraEntries(List<ResourceEntry> list, List<String> keys)
+  {
+    for (final ResourceEntry entry: list) {
+      final String key = entry.getResourceName().toUpperCase(Locale.ENGLISH);
+      IndexEntry indexEntry = index.get(key);
+      if (indexEntry != null && indexEntry.extra == entry) {
+        indexEntry.extra = null;
+        removeUnusedIndexEntry(key);
+        keys.add(key);
+      }
+    }
+  }
+
+  // Looks up replacements for removed extra entries of the specified names in the remaining resource tree
+  private void updateExtraEntries(List<String> keys)
+  {
+    if (!keys.isEmpty()) {
+      findExtraEntries(root, new HashSet<>(keys));
+    }
+  }
+
+  // Registers the first visible entry of each specified name found in the folder hierarchy
+  private void findExtraEntries(ResourceTreeFolder folder, Set<String> keys)
+  {
+    if (keys.isEmpty()) {
+      return;
+    }
+    for (final ResourceEntry entry: folder.getResourceEntries()) {
+      final String key = entry.getResourceName().toUpperCase(Locale.ENGLISH);
+      if (keys.contains(key) && entry.isVisible()) {
+        keys.remove(key);
+        IndexEntry indexEntry = index.get(key);
+        if (indexEntry == null || indexEntry.entry == null) {
+          getIndexEntry(key).extra = entry;
+        }
+      }
+    }
+    for (final ResourceTreeFolder subFolder: folder.getFolders()) {
+      findExtraEntries(subFolder, keys);
+    }
+  }
+
   private void fireTreeStructureChanged(TreePath changed)
   {
     TreeModelEvent event = new TreeModelEvent(this, changed);
@@ -364,4 +487,15 @@ private void fireTreeStructureChanged(TreePath changed)
       treeModelListeners.get(i).treeStructureChanged(event);
     }
   }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  // Resources associated with a single resource name
+  private static final class IndexEntry
+  {
+    // resource of key, override or special folders
+    ResourceEntry entry;
+    // first resource of extra folders, used if no regular resource is available
+    ResourceEntry extra;
+  }
 }
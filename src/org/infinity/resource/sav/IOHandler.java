@@ -13,7 +13,12 @@
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import org.infinity.datatype.TextString;
 import org.infinity.resource.Profile;
@@ -21,13 +26,19 @@
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.FileDeletionHook;
+import org.infinity.util.ResourceTaskExecutor;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.StreamUtils;
 
 public final class IOHandler implements Writeable
 {
+  /** Max. number of SAV members compressed by a single task. */
+  private static final int TASK_ENTRIES = 4;
+
   private final ResourceEntry entry;
   private final TextString header;
+  /** Members of the SAV resource associated with their (potential) location in the temp folder. */
+  private final HashMap<Path, Member> members = new HashMap<>();
   private Path tempFolder;
   private final List<SavResourceEntry> fileEntries;
 
@@ -84,17 +95,54 @@ public void close()
       }
       tempFolder = null;
     }
+    members.clear();
   }
 
+  /**
+   * Compresses the specified resources with the best compression level and replaces the
+   * content of the SAV resource by them.
+   * @see #compress(List, int)
+   */
   public void compress(List<? extends ResourceEntry> entries) throws Exception
   {
-    fileEntries.clear();
-    for (final ResourceEntry entry : entries) {
-      fileEntries.add(new SavResourceEntry(entry));
+    compress(entries, Deflater.BEST_COMPRESSION);
+  }
+
+  /**
+   * Compresses the specified resources and replaces the content of the SAV resource by them.
+   * Members of the SAV resource which have not been modified since {@link #decompress()} keep their
+   * compressed data. All other resources are compressed concurrently.
+   * @param entries List of resources to store in the SAV resource.
+   * @param level Compression level in range [0, 9].
+   */
+  public void compress(List<? extends ResourceEntry> entries, int level) throws Exception
+  {
+    final SavResourceEntry[] results = new SavResourceEntry[entries.size()];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = getUnmodifiedMember(entries.get(i));
+    }
+
+    final CompressTask task = new CompressTask(entries, results, level, 0, results.length);
+    try {
+      if (ForkJoinTask.inForkJoinPool()) {
+        task.invoke();
+      } else {
+        ResourceTaskExecutor.getPool().invoke(task);
+      }
+    } catch (RuntimeException e) {
+      throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
     }
+
+    fileEntries.clear();
+    Collections.addAll(fileEntries, results);
     close();
   }
 
+  /**
+   * Prepares the content of the SAV resource for editing. Member files are placed in the temporary folder
+   * when they are requested by {@link #extract(ResourceEntry)} for the first time.
+   * @return List of resources in the temporary folder.
+   */
   public List<ResourceEntry> decompress() throws Exception
   {
     tempFolder = createTempFolder();
@@ -103,13 +151,12 @@ public List<ResourceEntry> decompress() throws Exception
     }
     Files.createDirectory(tempFolder);
 
-    // placing content of .sav resource in the temporary folder
+    // content of .sav resource is placed in the temporary folder on demand
+    members.clear();
     final List<ResourceEntry> entries = new ArrayList<>(fileEntries.size());
     for (final SavResourceEntry entry: fileEntries) {
       Path file = tempFolder.resolve(entry.getResourceName());
-      try (OutputStream os = StreamUtils.getOutputStream(file, true)) {
-        StreamUtils.writeBytes(os, entry.decompress());
-      }
+      members.put(file, new Member(entry));
       entries.add(new FileResourceEntry(file));
     }
 
@@ -124,6 +171,58 @@ public List<ResourceEntry> decompress() throws Exception
     return entries;
   }
 
+  /**
+   * Places the uncompressed data of the specified SAV member in the temporary folder if needed.
+   * Does nothing for resources which are not members of the SAV resource or which have already been extracted.
+   * @param entry A resource returned by {@link #decompress()}.
+   */
+  public void extract(ResourceEntry entry) throws Exception
+  {
+    Path file = (entry != null) ? entry.getActualPath() : null;
+    Member member = (file != null) ? members.get(file) : null;
+    if (member != null && !member.extracted && !FileEx.create(file).exists()) {
+      ByteBuffer buffer = member.entry.decompress();
+      try (OutputStream os = StreamUtils.getOutputStream(file, true)) {
+        StreamUtils.writeBytes(os, buffer.duplicate());
+      }
+      member.size = buffer.remaining();
+      member.crc = getChecksum(buffer);
+      member.extracted = true;
+    }
+  }
+
+  /**
+   * Removes the specified resource from the temporary folder. SAV members which are removed this way
+   * are no longer available.
+   * @param entry A resource returned by {@link #decompress()} or added to the temporary folder.
+   */
+  public void remove(ResourceEntry entry) throws IOException
+  {
+    Path file = (entry != null) ? entry.getActualPath() : null;
+    if (file != null) {
+      members.remove(file);
+      if (FileEx.create(file).exists()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the specified file exists in the temporary folder or is a SAV member which has not
+   * been extracted yet.
+   */
+  public boolean exists(Path file)
+  {
+    if (file == null) {
+      return false;
+    }
+    Member member = members.get(file);
+    if (member != null && !member.extracted) {
+      return true;
+    }
+    return FileEx.create(file).exists();
+  }
+
   public List<? extends ResourceEntry> getFileEntries()
   {
     return fileEntries;
@@ -134,6 +233,33 @@ public Path getTempFolder()
     return tempFolder;
   }
 
+  // Returns the original SAV member if the specified resource refers to an unmodified SAV member
+  private SavResourceEntry getUnmodifiedMember(ResourceEntry entry) throws IOException
+  {
+    Path file = entry.getActualPath();
+    Member member = (file != null) ? members.get(file) : null;
+    if (member != null) {
+      if (!FileEx.create(file).exists()) {
+        // never extracted
+        return member.extracted ? null : member.entry;
+      }
+      // timestamps are not reliable on all filesystems: content has to be compared
+      if (member.extracted && Files.size(file) == member.size &&
+          getChecksum(StreamUtils.getByteBuffer(Files.readAllBytes(file))) == member.crc) {
+        return member.entry;
+      }
+    }
+    return null;
+  }
+
+  // Returns the CRC32 checksum of the remaining data in the specified buffer
+  private static long getChecksum(ByteBuffer buffer)
+  {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    return crc.getValue();
+  }
+
   /** Create a unique temp folder for current baldur.sav. */
   private Path createTempFolder()
   {
@@ -145,4 +271,60 @@ private Path createTempFolder()
     }
     return null;
   }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  // Original SAV member and state of the extracted file
+  private static class Member
+  {
+    private final SavResourceEntry entry;
+    private boolean extracted;
+    private long size;  // size of the extracted data
+    private long crc;   // CRC32 checksum of the extracted data
+
+    public Member(SavResourceEntry entry)
+    {
+      this.entry = entry;
+    }
+  }
+
+  // Compresses a range of resources which are not yet available as SAV members
+  private static class CompressTask extends RecursiveAction
+  {
+    private final List<? extends ResourceEntry> entries;
+    private final SavResourceEntry[] results;
+    private final int level;
+    private final int start;
+    private final int end;
+
+    public CompressTask(List<? extends ResourceEntry> entries, SavResourceEntry[] results, int level,
+                        int start, int end)
+    {
+      this.entries = entries;
+      this.results = results;
+      this.level = level;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (end - start > TASK_ENTRIES) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new CompressTask(entries, results, level, start, mid),
+                  new CompressTask(entries, results, level, mid, end));
+      } else {
+        for (int i = start; i < end; i++) {
+          if (results[i] == null) {
+            try {
+              results[i] = new SavResourceEntry(entries.get(i), level);
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            }
+          }
+        }
+      }
+    }
+  }
 }
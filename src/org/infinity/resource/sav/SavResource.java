@@ -15,7 +15,6 @@
 import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -50,7 +49,6 @@
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.SimpleListModel;
-import org.infinity.util.io.FileEx;
 
 /**
  * This resource acts as a standalone compressed archive. The file is zlib compressed,
@@ -101,9 +99,7 @@ public void actionPerformed(ActionEvent event)
     } else if (buttonPanel.getControlByType(CtrlDecompress) == event.getSource()) {
       decompressData(true);
     } else if (buttonPanel.getControlByType(CtrlEdit) == event.getSource()) {
-      ResourceEntry fileentry = entries.get(filelist.getSelectedIndex());
-      Resource res = ResourceFactory.getResource(fileentry);
-      new ViewFrame(panel.getTopLevelAncestor(), res);
+      openResource(entries.get(filelist.getSelectedIndex()));
     } else if (buttonPanel.getControlByType(ButtonPanel.Control.EXPORT_BUTTON) == event.getSource()) {
       ResourceFactory.exportResource(entry, panel.getTopLevelAncestor());
     } else if (buttonPanel.getControlByType(CtrlDelete) == event.getSource()) {
@@ -200,9 +196,7 @@ public JComponent makeViewer(ViewableContainer container)
       public void mouseClicked(MouseEvent event)
       {
         if (event.getClickCount() == 2) {
-          ResourceEntry fileentry = entries.get(filelist.getSelectedIndex());
-          Resource res = ResourceFactory.getResource(fileentry);
-          new ViewFrame(panel.getTopLevelAncestor(), res);
+          openResource(entries.get(filelist.getSelectedIndex()));
         }
       }
     });
@@ -353,6 +347,21 @@ private boolean decompressData(boolean showError)
     return true;
   }
 
+  // Opens the specified resource of the decompressed SAV file in a new window
+  private void openResource(ResourceEntry fileEntry)
+  {
+    try {
+      handler.extract(fileEntry);
+    } catch (Exception e) {
+      e.printStackTrace();
+      JOptionPane.showMessageDialog(panel.getTopLevelAncestor(), "Error decompressing " + fileEntry,
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    Resource res = ResourceFactory.getResource(fileEntry);
+    new ViewFrame(panel.getTopLevelAncestor(), res);
+  }
+
   private void addResource(String resourceName)
   {
     addResource(ResourceFactory.getResourceEntry(resourceName));
@@ -363,7 +372,7 @@ private void addResource(ResourceEntry resourceEntry)
     if (resourceEntry != null) {
       Path output = handler.getTempFolder().resolve(resourceEntry.getResourceName());
       try {
-        if (FileEx.create(output).exists()) {
+        if (handler.exists(output)) {
           String msg = "File " + resourceEntry.getResourceName() + " already exists. Overwrite?";
           int ret = JOptionPane.showConfirmDialog(panel.getTopLevelAncestor(),
                                                   msg, "Overwrite file?", JOptionPane.YES_NO_OPTION,
@@ -410,13 +419,10 @@ private void removeResource(int entryIndex)
   {
     if (entryIndex >= 0 && entryIndex < entries.size()) {
       ResourceEntry resourceEntry = entries.get(entryIndex);
-      Path file = resourceEntry.getActualPath();
-      if (FileEx.create(file).exists()) {
-        try {
-          Files.delete(file);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
+      try {
+        handler.remove(resourceEntry);
+      } catch (IOException e) {
+        e.printStackTrace();
       }
       entries.remove(resourceEntry);
       listModel.remove(entryIndex);
@@ -45,16 +45,28 @@ public SavResourceEntry(ByteBuffer buffer, int offset)
   }
 
   public SavResourceEntry(ResourceEntry entry) throws Exception
+  {
+    this(entry, Deflater.BEST_COMPRESSION);
+  }
+
+  /**
+   * Creates a SAV member from the specified resource.
+   * @param entry The resource to compress.
+   * @param level Compression level in range [0, 9].
+   */
+  public SavResourceEntry(ResourceEntry entry, int level) throws Exception
   {
     comprLength = 0;
     uncomprLength = 0;
     fileName = entry.getResourceName();
     byte[] udata = StreamUtils.toArray(entry.getResourceBuffer(true));
     cdata = StreamUtils.getByteBuffer(udata.length * 2 + 8);
-    try (DeflaterOutputStream dos = new DeflaterOutputStream(new ByteBufferOutputStream(cdata),
-                                                             new Deflater(Deflater.BEST_COMPRESSION))) {
+    Deflater deflater = new Deflater(Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, level)));
+    try (DeflaterOutputStream dos = new DeflaterOutputStream(new ByteBufferOutputStream(cdata), deflater)) {
       dos.write(udata);
       dos.finish();
+    } finally {
+      deflater.end();
     }
     cdata.flip();
     uncomprLength = udata.length;
@@ -172,10 +184,14 @@ public long getResourceSize(boolean ignoreOverride)
   public ByteBuffer decompress() throws Exception
   {
     Inflater inflater = new Inflater();
-    byte udata[] = new byte[uncomprLength];
-    inflater.setInput(cdata.array());
-    inflater.inflate(udata);
-    return StreamUtils.getByteBuffer(udata);
+    try {
+      byte udata[] = new byte[uncomprLength];
+      inflater.setInput(cdata.array());
+      inflater.inflate(udata);
+      return StreamUtils.getByteBuffer(udata);
+    } finally {
+      inflater.end();
+    }
   }
 
   @Override
@@ -0,0 +1,237 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.wed;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.infinity.datatype.IsNumeric;
+
+/**
+ * Read-only tilemap and tilemap lookup table of a single WED overlay, stored in primitive arrays.
+ * <p>
+ * Tilemap data can be decoded directly from the raw WED data, which is considerably faster for large
+ * maps than resolving individual {@link Tilemap} and {@link IndexNumber} structures by offset.
+ */
+public final class OverlayTilemap
+{
+  /** Size of a single tilemap entry, in bytes. */
+  public static final int TILEMAP_ENTRY_SIZE = 10;
+  /** Size of a single tilemap lookup entry, in bytes. */
+  public static final int LOOKUP_ENTRY_SIZE = 2;
+
+  private final int width;
+  private final int height;
+  private final int numTilemaps;
+  private final boolean[] tilemapAvailable;
+  private final short[] primaryIndex;
+  private final short[] primaryCount;
+  private final short[] secondaryIndex;
+  private final byte[] flags;
+  private short[] lookup;
+  private boolean[] lookupAvailable;
+
+  /**
+   * Decodes the overlay located at the specified offset directly from the raw WED data.
+   * Data outside of the buffer is treated as unavailable.
+   * @param buffer Raw data of the WED resource.
+   * @param offset Start offset of the overlay structure.
+   * @return Tilemap data of the overlay.
+   */
+  public static OverlayTilemap read(ByteBuffer buffer, int offset)
+  {
+    final ByteBuffer bb = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int width = bb.getShort(offset) & 0xffff;
+    final int height = bb.getShort(offset + 2) & 0xffff;
+    final int mapOfs = bb.getInt(offset + 16);
+    final int idxOfs = bb.getInt(offset + 20);
+
+    final OverlayTilemap retVal = new OverlayTilemap(width, height);
+    int lookupSize = 0;
+    for (int i = 0; i < retVal.numTilemaps; i++) {
+      final int ofs = mapOfs + i * TILEMAP_ENTRY_SIZE;
+      if (ofs < 0 || ofs + TILEMAP_ENTRY_SIZE > bb.limit()) {
+        break;
+      }
+      retVal.primaryIndex[i] = bb.getShort(ofs);
+      retVal.primaryCount[i] = bb.getShort(ofs + 2);
+      retVal.secondaryIndex[i] = bb.getShort(ofs + 4);
+      retVal.flags[i] = bb.get(ofs + 6);
+      retVal.tilemapAvailable[i] = true;
+      lookupSize += retVal.primaryCount[i];
+    }
+
+    retVal.initLookup(lookupSize);
+    for (int i = 0; i < lookupSize; i++) {
+      final int ofs = idxOfs + i * LOOKUP_ENTRY_SIZE;
+      if (ofs < 0 || ofs + LOOKUP_ENTRY_SIZE > bb.limit()) {
+        break;
+      }
+      retVal.lookup[i] = bb.getShort(ofs);
+      retVal.lookupAvailable[i] = true;
+    }
+    return retVal;
+  }
+
+  /**
+   * Collects tilemap data from the specified overlay structure. This variant reflects modifications
+   * to the structure which have not been saved yet.
+   * @param ovl The overlay structure.
+   * @return Tilemap data of the overlay.
+   */
+  public static OverlayTilemap read(Overlay ovl)
+  {
+    final int width = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_WIDTH)).getValue();
+    final int height = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_HEIGHT)).getValue();
+    final int mapOfs = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_OFFSET_TILEMAP)).getValue();
+    final int idxOfs = ((IsNumeric)ovl.getAttribute(Overlay.WED_OVERLAY_OFFSET_TILEMAP_LOOKUP)).getValue();
+
+    final OverlayTilemap retVal = new OverlayTilemap(width, height);
+    int lookupSize = 0;
+    for (int i = 0; i < retVal.numTilemaps; i++) {
+      final Tilemap tile = ovl.getAttribute(mapOfs + i * TILEMAP_ENTRY_SIZE, Tilemap.class, false);
+      if (tile != null) {
+        retVal.primaryIndex[i] = (short)((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_INDEX_PRI)).getValue();
+        retVal.primaryCount[i] = (short)((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_COUNT_PRI)).getValue();
+        retVal.secondaryIndex[i] = (short)((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_TILE_INDEX_SEC)).getValue();
+        retVal.flags[i] = (byte)((IsNumeric)tile.getAttribute(Tilemap.WED_TILEMAP_DRAW_OVERLAYS)).getValue();
+        retVal.tilemapAvailable[i] = true;
+        lookupSize += retVal.primaryCount[i];
+      }
+    }
+
+    retVal.initLookup(lookupSize);
+    for (int i = 0; i < lookupSize; i++) {
+      final IndexNumber index = ovl.getAttribute(idxOfs + i * LOOKUP_ENTRY_SIZE, IndexNumber.class, false);
+      if (index != null) {
+        retVal.lookup[i] = (short)index.getValue();
+        retVal.lookupAvailable[i] = true;
+      }
+    }
+    return retVal;
+  }
+
+  private OverlayTilemap(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    this.numTilemaps = Math.max(0, width * height);
+    this.tilemapAvailable = new boolean[numTilemaps];
+    this.primaryIndex = new short[numTilemaps];
+    this.primaryCount = new short[numTilemaps];
+    this.secondaryIndex = new short[numTilemaps];
+    this.flags = new byte[numTilemaps];
+    initLookup(0);
+  }
+
+  /** Returns the overlay width, in tiles. */
+  public int getWidth()
+  {
+    return width;
+  }
+
+  /** Returns the overlay height, in tiles. */
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /** Returns the number of tilemap entries ({@code width * height}). */
+  public int getTilemapCount()
+  {
+    return numTilemaps;
+  }
+
+  /** Returns whether tilemap data is available for the specified tilemap entry. */
+  public boolean isTilemapAvailable(int tile)
+  {
+    return tilemapAvailable[tile];
+  }
+
+  /** Returns the number of primary tile indices of the specified tilemap entry. Never negative. */
+  public int getPrimaryTileCount(int tile)
+  {
+    return Math.max(0, primaryCount[tile]);
+  }
+
+  /**
+   * Returns the primary tile index at the specified position of the tilemap entry.
+   * Returns -1 if the tile index is not available.
+   */
+  public int getPrimaryTileIndex(int tile, int pos)
+  {
+    final int index = primaryIndex[tile];
+    if (index >= 0 && pos >= 0 && pos < getPrimaryTileCount(tile)) {
+      return getLookupValue(index + pos);
+    }
+    return -1;
+  }
+
+  /**
+   * Stores all primary tile indices of the specified tilemap entry in the given array.
+   * Unavailable tile indices are set to -1.
+   * @param tile The tilemap entry.
+   * @param indices Array for the tile indices. A new array is created if {@code null} or too small.
+   * @return Array with the primary tile indices.
+   */
+  public int[] getPrimaryTileIndices(int tile, int[] indices)
+  {
+    final int count = getPrimaryTileCount(tile);
+    if (indices == null || indices.length < count) {
+      indices = new int[count];
+    }
+    for (int i = 0; i < count; i++) {
+      indices[i] = getPrimaryTileIndex(tile, i);
+    }
+    return indices;
+  }
+
+  /** Returns the secondary tile index of the specified tilemap entry, or -1 if not available. */
+  public int getSecondaryTileIndex(int tile)
+  {
+    return tilemapAvailable[tile] ? secondaryIndex[tile] : -1;
+  }
+
+  /** Returns the "Draw Overlays" flags of the specified tilemap entry. */
+  public int getOverlayFlags(int tile)
+  {
+    return flags[tile] & 0xff;
+  }
+
+  /** Returns the value of the specified tilemap lookup entry, or -1 if not available. */
+  public int getLookupValue(int index)
+  {
+    if (index >= 0 && index < lookup.length && lookupAvailable[index]) {
+      return lookup[index];
+    }
+    return -1;
+  }
+
+  /**
+   * Reads a range of tilemap lookup entries directly from the raw WED data.
+   * Entries outside of the buffer are set to -1.
+   * @param buffer Raw data of the WED resource.
+   * @param offset Start offset of the lookup table.
+   * @param index Index of the first lookup entry.
+   * @param count Number of lookup entries to read.
+   * @return Array with {@code count} lookup values.
+   */
+  public static int[] readLookup(ByteBuffer buffer, int offset, int index, int count)
+  {
+    final ByteBuffer bb = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int[] retVal = new int[Math.max(0, count)];
+    for (int i = 0; i < retVal.length; i++) {
+      final int ofs = offset + (index + i) * LOOKUP_ENTRY_SIZE;
+      retVal[i] = (index >= 0 && ofs >= 0 && ofs + LOOKUP_ENTRY_SIZE <= bb.limit()) ? bb.getShort(ofs) : -1;
+    }
+    return retVal;
+  }
+
+  private void initLookup(int size)
+  {
+    lookup = new short[Math.max(0, size)];
+    lookupAvailable = new boolean[lookup.length];
+  }
+}
@@ -114,6 +114,16 @@ else if (event.getSource() == bCancel) {
   @Override
   public void run()
   {
+    // resources without indexed references to the target don't have to be searched
+    final ReferenceIndex index = usesReferenceIndex() ? ReferenceIndex.getInstance() : null;
+    if (index != null) {
+      if (!index.update()) {
+        hitFrame.close();
+        return;
+      }
+      files.removeIf(entry -> entry != null && canSkip(index, entry));
+    }
+
     // executing multithreaded search
     if (runSearch("Searching", files)) {
       hitFrame.close();
@@ -132,7 +142,6 @@ protected Runnable newWorker(ResourceEntry entry)
       if (resource != null) {
         search(entry, resource);
       }
-      advanceProgress();
     };
   }
 
@@ -169,6 +178,28 @@ synchronized void addHit(ResourceEntry entry, String line, int lineNr)
    */
   abstract void search(ResourceEntry entry, Resource resource);
 
+  /**
+   * Returns whether {@link #canSkip} should be consulted to reduce the number of searched resources.
+   * The default implementation returns {@code false}.
+   */
+  boolean usesReferenceIndex()
+  {
+    return false;
+  }
+
+  /**
+   * Returns whether the specified resource can be excluded from the search because the reference
+   * index guarantees that it does not contain any matches. The default implementation returns
+   * {@code false}.
+   *
+   * @param index The up to date reference index
+   * @param entry Pointer to the resource in which search would be performed
+   */
+  boolean canSkip(ReferenceIndex index, ResourceEntry entry)
+  {
+    return false;
+  }
+
   ResourceEntry getTargetEntry()
   {
     return targetEntry;
@@ -6,7 +6,6 @@
 
 import java.awt.Component;
 import java.util.List;
-import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.swing.JOptionPane;
 import javax.swing.ProgressMonitor;
@@ -15,6 +14,7 @@
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.Debugging;
 import org.infinity.util.Misc;
+import org.infinity.util.ResourceTaskExecutor;
 
 /**
  * Utility class for performing searching of resources in several threads with
@@ -31,16 +31,10 @@
   public static final String CHECK_ONE_TYPE_FORMAT   = "Checking resource %2$d/%3$d";
   public static final String CHECK_MULTI_TYPE_FORMAT = "Checking %1$ss %2$d/%3$d";
 
-  /**
-   * Handle to widget that shows search progress. Creates when {@link #runSearch}
-   * invoked and resetted to {@code null} when {@link #advanceProgress advanceProgress(true)}
-   * is called.
-   */
+  /** Handle to widget that shows search progress. Exists only while {@link #runSearch} is running. */
   private ProgressMonitor progress;
-  /** Current number of checked items, that progress shows. */
-  private int progressIndex;
   /** Extension of the last processed resource. */
-  private String lastExt;
+  private volatile String lastExt;
   /** Text for progress note. Contains two int placeholders: current and maximum count of items. */
   private final String operationFormat;
   /** GUI component that own search window. */
@@ -78,7 +72,6 @@ protected boolean runSearch(String operation, List<ResourceEntry> entries)
     }
     try {
       final int max = entries.size();
-      progressIndex = 0;
       progress = new ProgressMonitor(
         NearInfinity.getInstance(), operation + "..." + Misc.MSG_EXPAND_LARGE,
         String.format(operationFormat, "WWWW", max, max),
@@ -86,48 +79,19 @@ protected boolean runSearch(String operation, List<ResourceEntry> entries)
       );
       progress.setMillisToDecideToPopup(100);
       lastExt = entries.get(0).getExtension();
-      updateProgressNote();
+      updateProgressNote(0);
 
-      final ThreadPoolExecutor executor = Misc.createThreadPool();
-      boolean isCancelled = false;
+      // workers are distributed over a shared work-stealing pool, progress is polled periodically
+      final ResourceTaskExecutor executor = new ResourceTaskExecutor(entries, entry -> {
+        lastExt = entry.getExtension();
+        newWorker(entry).run();
+      });
       Debugging.timerReset();
-      int i = 0;
-      for (ResourceEntry entry : entries) {
-        if (progress.isCanceled()) {
-          break;
-        }
-        if (entry == null) {
-          ++i;
-          advanceProgress(false);
-          continue;
-        }
-        if (i++ % 10 == 0) {
-          final String ext = entry.getExtension();
-          if (!lastExt.equalsIgnoreCase(ext)) {
-            lastExt = ext;
-            updateProgressNote();
-          }
-        }
-
-        Misc.isQueueReady(executor, true, -1);
-        executor.execute(newWorker(entry));
-      }
-
-      // enforcing thread termination if process has been cancelled
-      if (isCancelled) {
-        executor.shutdownNow();
-      } else {
-        executor.shutdown();
-      }
-
-      // waiting for pending threads to terminate
-      while (!executor.isTerminated()) {
-        if (!isCancelled && progress.isCanceled()) {
-          executor.shutdownNow();
-          isCancelled = true;
-        }
-        try { Thread.sleep(1); } catch (InterruptedException e) {}
-      }
+      final boolean isCancelled = !executor.await(count -> {
+        updateProgressNote(count);
+        progress.setProgress(count);
+        return !progress.isCanceled();
+      });
 
       Debugging.timerShow(operation + " completed", Debugging.TimeFormat.MILLISECONDS);
 
@@ -137,36 +101,14 @@ protected boolean runSearch(String operation, List<ResourceEntry> entries)
       }
       return isCancelled;
     } finally {
-      advanceProgress(true);
-    }
-  }
-
-  /** Move progress along. */
-  protected final void advanceProgress() { advanceProgress(false); }
-
-  /**
-   * Move progress along.
-   *
-   * @param finished If {@code true}, progress dialog is closed, otherwise progress advanced
-   */
-  private synchronized void advanceProgress(boolean finished)
-  {
-    if (progress != null) {
-      if (finished) {
-        progressIndex = 0;
+      if (progress != null) {
         progress.close();
         progress = null;
-      } else {
-        progressIndex++;
-        if (progressIndex % 100 == 0) {
-          updateProgressNote();
-        }
-        progress.setProgress(progressIndex);
       }
     }
   }
 
-  private void updateProgressNote() {
-    progress.setNote(String.format(operationFormat, lastExt, progressIndex, progress.getMaximum()));
+  private void updateProgressNote(int count) {
+    progress.setNote(String.format(operationFormat, lastExt, count, progress.getMaximum()));
   }
 }
@@ -285,7 +285,6 @@ protected Runnable newWorker(ResourceEntry entry)
           }
         }
       }
-      advanceProgress();
     };
   }
 
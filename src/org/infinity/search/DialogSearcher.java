@@ -218,7 +218,6 @@ protected Runnable newWorker(ResourceEntry entry)
           }
         }
       }
-      advanceProgress();
     };
   }
 
@@ -0,0 +1,76 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2018 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.search;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.infinity.util.ConcurrentBitSet;
+
+/**
+ * Collects references to resources and strings found by the workers of an {@link AbstractSearcher}.
+ * <p>
+ * All methods can be called from several threads without external synchronization. Checkers
+ * evaluate the collected references once after the search has completed instead of updating
+ * a shared result on every hit.
+ */
+public final class ReferenceCollector
+{
+  private final Set<String> resources = ConcurrentHashMap.newKeySet();
+  private final ConcurrentBitSet strrefs;
+
+  /**
+   * Creates a collector for resource and string references.
+   * @param numStrings Number of string references to track. String references outside of the
+   *                   range [0, numStrings) are ignored.
+   */
+  public ReferenceCollector(int numStrings)
+  {
+    this.strrefs = new ConcurrentBitSet(Math.max(0, numStrings));
+  }
+
+  /** Registers a reference to the specified resource name (including extension, case-insensitive). */
+  public void addResource(String resourceName)
+  {
+    if (resourceName != null) {
+      resources.add(resourceName.toUpperCase(Locale.ENGLISH));
+    }
+  }
+
+  /** Returns whether the specified resource name (including extension, case-insensitive) has been referenced. */
+  public boolean isResourceReferenced(String resourceName)
+  {
+    return resourceName != null && resources.contains(resourceName.toUpperCase(Locale.ENGLISH));
+  }
+
+  /** Returns an unmodifiable view of all referenced resource names in upper case. */
+  public Set<String> getResources()
+  {
+    return Collections.unmodifiableSet(resources);
+  }
+
+  /** Registers a reference to the specified string. Out of range values are ignored. */
+  public void addStringRef(int strref)
+  {
+    if (strref >= 0 && strref < strrefs.size()) {
+      strrefs.set(strref);
+    }
+  }
+
+  /** Returns whether the specified string has been referenced. */
+  public boolean isStringReferenced(int strref)
+  {
+    return strref >= 0 && strref < strrefs.size() && strrefs.get(strref);
+  }
+
+  /** Returns a snapshot of all referenced strings. */
+  public BitSet getStringRefs()
+  {
+    return strrefs.toBitSet();
+  }
+}
@@ -0,0 +1,821 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.infinity.NearInfinity;
+import org.infinity.datatype.ProRef;
+import org.infinity.datatype.ResourceRef;
+import org.infinity.datatype.StringRef;
+import org.infinity.resource.AbstractStruct;
+import org.infinity.resource.Profile;
+import org.infinity.resource.Resource;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.StructEntry;
+import org.infinity.resource.bcs.BcsReferenceExtractor;
+import org.infinity.resource.bcs.BcsResource;
+import org.infinity.resource.bcs.Compiler;
+import org.infinity.resource.bcs.ScriptType;
+import org.infinity.resource.bcs.Signatures;
+import org.infinity.resource.dlg.AbstractCode;
+import org.infinity.resource.dlg.Action;
+import org.infinity.resource.key.BIFFResourceEntry;
+import org.infinity.resource.key.FileResourceEntry;
+import org.infinity.resource.key.Keyfile;
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.text.PlainTextResource;
+import org.infinity.util.Misc;
+import org.infinity.util.io.FileEx;
+import org.infinity.util.io.FileWatcher;
+import org.infinity.util.io.FileWatcher.FileWatchEvent;
+import org.infinity.util.io.StreamUtils;
+
+/**
+ * Persistent index of the resource and string references of all game resources.
+ * <p>
+ * For each indexed resource the index stores the outgoing references: names of referenced resources,
+ * words of text resources and string references. Incoming references are derived when the index is
+ * loaded. The index is built once in several threads and stored in a subfolder of the system temp folder.
+ * Resources are indexed again if they have been saved, reported by the {@link FileWatcher} or if size
+ * or modification time of the underlying file has changed.
+ * <p>
+ * Referenced resource names are resolved against the resource tree when a resource is indexed. The index
+ * keeps the names of all available resources and the names each resource has been resolved against. When
+ * resources are added or removed, only resources which looked up one of the affected names are indexed
+ * again. Script code and projectile references depend on the IDS files of the game. Resources containing
+ * them are indexed again whenever any IDS file changes.
+ * <p>
+ * Reference searchers use the index to skip resources which cannot contain matches. Checkers for unused
+ * resources and strings query the index directly.
+ */
+public final class ReferenceIndex implements FileWatcher.FileWatchListener
+{
+  /** Resource types whose references are recorded by the index. */
+  public static final String[] FILE_TYPES = {"2DA", "ARE", "BCS", "BS", "CHR", "CHU", "CRE", "DLG", "EFF",
+                                             "GAM", "INI", "ITM", "MENU", "PRO", "SPL", "SRC", "STO", "TOH",
+                                             "VEF", "VVC", "WED", "WMP"};
+
+  private static final String CACHE_FOLDER  = "NearInfinity-index";
+  private static final String SIGNATURE     = "NIRX";
+  private static final int VERSION          = 3;
+
+  // same pattern as used by ResourceUseChecker for text resources
+  private static final Pattern WORD_PATTERN = Pattern.compile("\\w{3,8}");
+
+  private static boolean enabled = false;
+  private static ReferenceIndex instance;
+
+  private final Path indexFile;
+  // Key file path -> [file size, modification time]
+  private final Map<String, long[]> keyInfo = new LinkedHashMap<>();
+  // Resource name -> outgoing references
+  private final Map<String, Node> nodes = new HashMap<>();
+  // Referenced resource name or word -> names of referencing resources
+  private final Map<String, Set<String>> incoming = new HashMap<>();
+  // Looked up resource name without extension -> names of resources which looked it up
+  private final Map<String, Set<String>> lookups = new HashMap<>();
+  // Names of resources which have to be indexed again
+  private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+  // Names of all resources the indexed references have been resolved against
+  private Set<String> resourceNames = new HashSet<>();
+  // Signature of the IDS files the indexed script code has been resolved against
+  private long idsStamp;
+
+  private boolean modified;
+
+  /** Returns whether searches and checks make use of the reference index. */
+  public static synchronized boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /** Specify whether searches and checks make use of the reference index. */
+  public static synchronized void setEnabled(boolean enable)
+  {
+    enabled = enable;
+    if (!enabled) {
+      close();
+    }
+  }
+
+  /**
+   * Returns the reference index of the current game. Returns {@code null} if the index is disabled
+   * or no game is loaded. Call {@link #update()} before querying the index.
+   */
+  public static synchronized ReferenceIndex getInstance()
+  {
+    if (enabled && instance == null) {
+      final Keyfile keyfile = ResourceFactory.getKeyfile();
+      final Path gameRoot = Profile.getGameRoot();
+      if (keyfile != null && gameRoot != null) {
+        final List<Path> keyFiles = new ArrayList<>(keyfile.getDlcKeyfiles());
+        keyFiles.add(0, keyfile.getKeyfile());
+        instance = new ReferenceIndex(gameRoot, keyFiles);
+        FileWatcher.getInstance().addFileWatchListener(instance);
+      }
+    }
+    return instance;
+  }
+
+  /** Releases the reference index of the current game. Call this before opening another game. */
+  public static synchronized void close()
+  {
+    if (instance != null) {
+      FileWatcher.getInstance().removeFileWatchListener(instance);
+      instance = null;
+    }
+  }
+
+  /** Marks the specified resource for reindexing, e.g. after it has been saved. */
+  public static synchronized void invalidate(ResourceEntry entry)
+  {
+    if (instance != null && entry != null) {
+      instance.dirty.add(getKey(entry.getResourceName()));
+    }
+  }
+
+  /**
+   * Indexes all new, modified and invalidated resources and writes the index to disk.
+   * Shows a progress monitor if resources have to be indexed.
+   * @return {@code true} if the index is up to date, {@code false} if the operation has been cancelled.
+   */
+  public synchronized boolean update()
+  {
+    final Set<String> names = new HashSet<>();
+    final long stamp = getResourceNames(names);
+    if (stamp != idsStamp) {
+      // script code may be resolved differently
+      for (final Map.Entry<String, Node> entry: nodes.entrySet()) {
+        if ((entry.getValue().flags & (Node.FLAG_CODE | Node.FLAG_IDS)) != 0) {
+          dirty.add(entry.getKey());
+        }
+      }
+      idsStamp = stamp;
+      modified = true;
+    }
+    if (!names.equals(resourceNames)) {
+      // resources which looked up added or removed resource names may be resolved differently
+      for (final String name: names) {
+        if (!resourceNames.contains(name)) {
+          dirty.addAll(lookups.getOrDefault(getResRef(name), Collections.emptySet()));
+        }
+      }
+      for (final String name: resourceNames) {
+        if (!names.contains(name)) {
+          dirty.addAll(lookups.getOrDefault(getResRef(name), Collections.emptySet()));
+        }
+      }
+      resourceNames = names;
+      modified = true;
+    }
+
+    final List<ResourceEntry> pending = new ArrayList<>();
+    final Set<String> existing = new HashSet<>();
+    for (final String type: FILE_TYPES) {
+      for (final ResourceEntry entry: ResourceFactory.getResources(type)) {
+        final String key = getKey(entry.getResourceName());
+        existing.add(key);
+        final boolean isDirty = dirty.remove(key);
+        final Node node = nodes.get(key);
+        if (isDirty || node == null || !Arrays.equals(node.stamp, getStamp(entry))) {
+          pending.add(entry);
+        }
+      }
+    }
+
+    // removing resources which are not available anymore
+    for (final Iterator<String> iter = nodes.keySet().iterator(); iter.hasNext(); ) {
+      final String key = iter.next();
+      if (!existing.contains(key)) {
+        unlinkNode(key, nodes.get(key));
+        dirty.remove(key);
+        iter.remove();
+        modified = true;
+      }
+    }
+
+    boolean retVal = true;
+    if (!pending.isEmpty()) {
+      final Indexer indexer = new Indexer();
+      retVal = !indexer.runSearch("Indexing references", pending);
+      for (final Map.Entry<String, Node> entry: indexer.results.entrySet()) {
+        putNode(entry.getKey(), entry.getValue());
+      }
+      modified |= !indexer.results.isEmpty();
+      if (!retVal) {
+        // skipped resources have to be indexed next time
+        for (final ResourceEntry entry: pending) {
+          final String key = getKey(entry.getResourceName());
+          if (!indexer.results.containsKey(key)) {
+            dirty.add(key);
+          }
+        }
+      }
+    }
+
+    save();
+    return retVal;
+  }
+
+  /** Returns whether references of the specified resource are recorded by the index. */
+  public synchronized boolean isIndexed(ResourceEntry entry)
+  {
+    return entry != null && nodes.containsKey(getKey(entry.getResourceName()));
+  }
+
+  /**
+   * Returns whether the specified resource contains script code or text which may refer to
+   * other resources in ways not covered by the index, e.g. by script name.
+   */
+  public synchronized boolean hasScriptOrText(ResourceEntry entry)
+  {
+    final Node node = (entry != null) ? nodes.get(getKey(entry.getResourceName())) : null;
+    return node == null || (node.flags & (Node.FLAG_CODE | Node.FLAG_TEXT)) != 0;
+  }
+
+  /** Returns whether resource {@code source} may contain a reference to resource {@code target}. */
+  public synchronized boolean references(ResourceEntry source, ResourceEntry target)
+  {
+    final Node node = (source != null) ? nodes.get(getKey(source.getResourceName())) : null;
+    if (node == null || target == null) {
+      return node == null;
+    }
+    return Arrays.binarySearch(node.refs, getKey(target.getResourceName())) >= 0 ||
+           Arrays.binarySearch(node.refs, getKey(target.getResourceRef())) >= 0;
+  }
+
+  /** Returns whether resource {@code source} may contain a reference to the specified string. */
+  public synchronized boolean referencesString(ResourceEntry source, int strref)
+  {
+    final Node node = (source != null) ? nodes.get(getKey(source.getResourceName())) : null;
+    if (node == null) {
+      return true;
+    }
+    return Arrays.binarySearch(node.strrefs, strref) >= 0 || Arrays.binarySearch(node.codeStrrefs, strref) >= 0;
+  }
+
+  /** Returns the names of all resources and words referenced by the specified resource. */
+  public synchronized List<String> getReferences(ResourceEntry source)
+  {
+    final Node node = (source != null) ? nodes.get(getKey(source.getResourceName())) : null;
+    return (node != null) ? Collections.unmodifiableList(Arrays.asList(node.refs)) : Collections.emptyList();
+  }
+
+  /** Returns all resources which may contain references to the specified resource. */
+  public synchronized List<ResourceEntry> getReferencingResources(ResourceEntry target)
+  {
+    final List<ResourceEntry> retVal = new ArrayList<>();
+    for (final String name: getSources(target)) {
+      final ResourceEntry entry = ResourceFactory.getResourceEntry(name);
+      if (entry != null) {
+        retVal.add(entry);
+      }
+    }
+    return retVal;
+  }
+
+  /**
+   * Returns whether the specified resource is referenced by any resource of the specified types.
+   * @param target The referenced resource.
+   * @param sourceTypes Extensions of resources to consider.
+   */
+  public synchronized boolean isReferenced(ResourceEntry target, String[] sourceTypes)
+  {
+    for (final String name: getSources(target)) {
+      if (hasType(name, sourceTypes)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns all string references found in resources of the specified types.
+   * @param sourceTypes Extensions of resources to consider.
+   * @param fieldsOnly Whether to consider only string reference fields. Otherwise string references
+   *                   of script code and numbers in text resources are included.
+   */
+  public synchronized BitSet getStringRefs(String[] sourceTypes, boolean fieldsOnly)
+  {
+    final BitSet retVal = new BitSet();
+    for (final Map.Entry<String, Node> entry: nodes.entrySet()) {
+      if (hasType(entry.getKey(), sourceTypes)) {
+        for (final int strref: entry.getValue().strrefs) {
+          retVal.set(strref);
+        }
+        if (!fieldsOnly) {
+          for (final int strref: entry.getValue().codeStrrefs) {
+            retVal.set(strref);
+          }
+        }
+      }
+    }
+    return retVal;
+  }
+
+//--------------------- Begin Interface FileWatchListener ---------------------
+
+  @Override
+  public void fileChanged(FileWatchEvent e)
+  {
+    final Path fileName = e.getPath().getFileName();
+    if (fileName != null) {
+      dirty.add(getKey(fileName.toString()));
+    }
+  }
+
+//--------------------- End Interface FileWatchListener ---------------------
+
+  private ReferenceIndex(Path gameRoot, List<Path> keyFiles)
+  {
+    this.indexFile = getIndexFile(gameRoot);
+    for (final Path keyFile: keyFiles) {
+      keyInfo.put(keyFile.toAbsolutePath().toString(), getFileInfo(keyFile));
+    }
+    try {
+      load();
+    } catch (Exception e) {
+      // index is corrupt or out of date
+      nodes.clear();
+      incoming.clear();
+      lookups.clear();
+      resourceNames.clear();
+      idsStamp = 0L;
+      modified = true;
+    }
+  }
+
+  // Returns the names of all resources which may refer to the specified resource
+  private Set<String> getSources(ResourceEntry target)
+  {
+    if (target == null) {
+      return Collections.emptySet();
+    }
+    final Set<String> retVal = new HashSet<>();
+    retVal.addAll(incoming.getOrDefault(getKey(target.getResourceName()), Collections.emptySet()));
+    retVal.addAll(incoming.getOrDefault(getKey(target.getResourceRef()), Collections.emptySet()));
+    return retVal;
+  }
+
+  private void putNode(String key, Node node)
+  {
+    unlinkNode(key, nodes.put(key, node));
+    for (final String ref: node.refs) {
+      incoming.computeIfAbsent(ref, k -> new HashSet<>()).add(key);
+    }
+    for (final String name: node.lookups) {
+      lookups.computeIfAbsent(name, k -> new HashSet<>()).add(key);
+    }
+  }
+
+  // Removes incoming references and lookups of the specified node
+  private void unlinkNode(String key, Node node)
+  {
+    if (node != null) {
+      unlink(incoming, node.refs, key);
+      unlink(lookups, node.lookups, key);
+    }
+  }
+
+  private static void unlink(Map<String, Set<String>> map, String[] names, String key)
+  {
+    for (final String name: names) {
+      final Set<String> set = map.get(name);
+      if (set != null) {
+        set.remove(key);
+        if (set.isEmpty()) {
+          map.remove(name);
+        }
+      }
+    }
+  }
+
+  // Writes the index to disk if it contains changes
+  private void save()
+  {
+    if (!modified) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(indexFile.getParent());
+      final Path tempFile = indexFile.resolveSibling(indexFile.getFileName().toString() + ".tmp");
+      try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(StreamUtils.getOutputStream(tempFile, true)))) {
+        os.writeBytes(SIGNATURE);
+        os.writeInt(VERSION);
+        os.writeInt(keyInfo.size());
+        for (final Map.Entry<String, long[]> entry: keyInfo.entrySet()) {
+          os.writeUTF(entry.getKey());
+          os.writeLong(entry.getValue()[0]);
+          os.writeLong(entry.getValue()[1]);
+        }
+        os.writeLong(idsStamp);
+        os.writeInt(resourceNames.size());
+        for (final String name: resourceNames) {
+          os.writeUTF(name);
+        }
+        os.writeInt(nodes.size());
+        for (final Map.Entry<String, Node> entry: nodes.entrySet()) {
+          os.writeUTF(entry.getKey());
+          entry.getValue().write(os);
+        }
+      }
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+      modified = false;
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  // Loads the index from disk. Throws an exception if the index is not valid.
+  private void load() throws Exception
+  {
+    if (!FileEx.create(indexFile).isFile()) {
+      throw new IOException("No index available");
+    }
+
+    try (DataInputStream is = new DataInputStream(new BufferedInputStream(StreamUtils.getInputStream(indexFile)))) {
+      final byte[] sig = new byte[SIGNATURE.length()];
+      is.readFully(sig);
+      if (!SIGNATURE.equals(new String(sig, Misc.CHARSET_ASCII)) || is.readInt() != VERSION) {
+        throw new IOException("Unsupported index format");
+      }
+
+      // key files must match exactly
+      final int numKeys = is.readInt();
+      if (numKeys != keyInfo.size()) {
+        throw new IOException("Key files changed");
+      }
+      for (int i = 0; i < numKeys; i++) {
+        final long[] info = keyInfo.get(is.readUTF());
+        final long size = is.readLong();
+        final long time = is.readLong();
+        if (info == null || info[0] != size || info[1] != time) {
+          throw new IOException("Key files changed");
+        }
+      }
+
+      // checked by update()
+      idsStamp = is.readLong();
+      final int numNames = is.readInt();
+      for (int i = 0; i < numNames; i++) {
+        resourceNames.add(is.readUTF());
+      }
+
+      final int numNodes = is.readInt();
+      for (int i = 0; i < numNodes; i++) {
+        final String key = is.readUTF();
+        putNode(key, Node.read(is));
+      }
+    }
+  }
+
+  // Indexes the specified resource, returns null on error
+  private static Node createNode(ResourceEntry entry)
+  {
+    final Resource resource = ResourceFactory.getResource(entry);
+    if (resource == null) {
+      return null;
+    }
+
+    final Set<String> refs = new HashSet<>();
+    final Set<String> names = new HashSet<>();
+    final Set<Integer> strrefs = new HashSet<>();
+    final Set<Integer> codeStrrefs = new HashSet<>();
+    int flags = 0;
+    if (resource instanceof BcsResource) {
+      flags |= Node.FLAG_CODE;
+      try {
+        addCode(((BcsResource)resource).getCode(), ScriptType.BCS, refs, names, codeStrrefs);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    } else if (resource instanceof PlainTextResource) {
+      flags |= Node.FLAG_TEXT;
+      final String text = ((PlainTextResource)resource).getText();
+      addWords(text, refs);
+      final Matcher m = StringReferenceSearcher.NUMBER_PATTERN.matcher(text);
+      while (m.find()) {
+        try {
+          codeStrrefs.add(Integer.valueOf(m.group()));
+        } catch (NumberFormatException e) {
+          // not a valid string reference
+        }
+      }
+    } else if (resource instanceof AbstractStruct) {
+      final AbstractStruct struct = (AbstractStruct)resource;
+      for (final StructEntry field: struct.getFlatFields()) {
+        if (field instanceof ResourceRef) {
+          final String name = ((ResourceRef)field).getResourceName();
+          if (name != null && !name.isEmpty()) {
+            refs.add(getKey(name));
+            if (!((ResourceRef)field).isEmpty()) {
+              names.add(getResRef(getKey(name)));
+            }
+          }
+        } else if (field instanceof ProRef) {
+          flags |= Node.FLAG_IDS;
+          final ResourceEntry proEntry = ((ProRef)field).getSelectedEntry();
+          if (proEntry != null) {
+            refs.add(getKey(proEntry.getResourceName()));
+          }
+          final String name = ((ProRef)field).getResourceName();
+          if (name != null && name.indexOf('.') > 0) {
+            names.add(getResRef(getKey(name)));
+          }
+        } else if (field instanceof StringRef) {
+          strrefs.add(Integer.valueOf(((StringRef)field).getValue()));
+        } else if (field instanceof AbstractCode) {
+          flags |= Node.FLAG_CODE;
+          final AbstractCode code = (AbstractCode)field;
+          try {
+            final ScriptType type = (code instanceof Action) ? ScriptType.ACTION : ScriptType.TRIGGER;
+            final Compiler compiler = new Compiler(code.getText(), type);
+            addCode(compiler.getCode(), type, refs, names, codeStrrefs);
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+        }
+      }
+    }
+
+    return new Node(getStamp(entry), flags, refs, names, strrefs, codeStrrefs);
+  }
+
+  // Adds resources, looked up resource names and strings used by the specified compiled script code
+  private static void addCode(String code, ScriptType type, Set<String> refs, Set<String> names,
+                              Set<Integer> strrefs) throws Exception
+  {
+    new BcsReferenceExtractor(code, type).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitResource(Signatures.Function function, int paramIndex, ResourceEntry entry)
+      {
+        refs.add(getKey(entry.getResourceName()));
+      }
+
+      @Override
+      public void visitResourceName(Signatures.Function function, int paramIndex, String name)
+      {
+        names.add(getResRef(getKey(name)));
+      }
+
+      @Override
+      public void visitStringRef(Signatures.Function function, int paramIndex, int strref)
+      {
+        strrefs.add(Integer.valueOf(strref));
+      }
+    });
+  }
+
+  // Adds all words of the specified text which may refer to resources
+  private static void addWords(String text, Set<String> refs)
+  {
+    if (text == null) {
+      return;
+    }
+    final Matcher m = WORD_PATTERN.matcher(text);
+    while (m.find()) {
+      refs.add(getKey(m.group()));
+    }
+  }
+
+  // Adds the names of all available resources to the specified set. Returns a signature of the content of all IDS files.
+  private static long getResourceNames(Set<String> names)
+  {
+    long retVal = 0L;
+    final List<ResourceEntry> entries = ResourceFactory.getResources();
+    if (entries != null) {
+      for (final ResourceEntry entry: entries) {
+        final String key = getKey(entry.getResourceName());
+        names.add(key);
+        if ("IDS".equalsIgnoreCase(entry.getExtension())) {
+          // independent of the order of entries
+          final long[] stamp = getStamp(entry);
+          retVal += mix(mix(key.hashCode()) + 31L * stamp[0] + stamp[1]);
+        }
+      }
+    }
+    return retVal;
+  }
+
+  // Spreads the bits of the specified value over the whole long range
+  private static long mix(long value)
+  {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+
+  // Returns information for detecting changes of the resource content
+  private static long[] getStamp(ResourceEntry entry)
+  {
+    Path file = null;
+    if (entry instanceof FileResourceEntry ||
+        (entry instanceof BIFFResourceEntry && entry.hasOverride())) {
+      file = entry.getActualPath();
+    } else if (entry instanceof BIFFResourceEntry) {
+      // content of BIFF resources is covered by the key file
+      return new long[] { -1L, ((BIFFResourceEntry)entry).getLocator() };
+    }
+    return (file != null) ? getFileInfo(file) : new long[] { -1L, -1L };
+  }
+
+  // Returns file size and modification time of the specified file
+  private static long[] getFileInfo(Path file)
+  {
+    try {
+      return new long[] { Files.size(file), Files.getLastModifiedTime(file).toMillis() };
+    } catch (IOException e) {
+    }
+    return new long[] { 0L, 0L };
+  }
+
+  private static Path getIndexFile(Path gameRoot)
+  {
+    final String path = gameRoot.toAbsolutePath().normalize().toString();
+    final Path name = gameRoot.toAbsolutePath().getFileName();
+    final String fileName = String.format("%s-%08x.refs", (name != null) ? name.toString() : "root", path.hashCode());
+    return Paths.get(System.getProperty("java.io.tmpdir"), CACHE_FOLDER, fileName);
+  }
+
+  private static String getKey(String name)
+  {
+    return name.toUpperCase(Locale.ENGLISH);
+  }
+
+  // Returns the specified resource name without extension
+  private static String getResRef(String name)
+  {
+    final int p = name.lastIndexOf('.');
+    return (p > 0) ? name.substring(0, p) : name;
+  }
+
+  // Returns whether the specified resource name has one of the given extensions
+  private static boolean hasType(String name, String[] types)
+  {
+    final int p = name.lastIndexOf('.');
+    final String ext = (p >= 0) ? name.substring(p + 1) : "";
+    for (final String type: types) {
+      if (type.equalsIgnoreCase(ext)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /** Outgoing references of a single resource. */
+  private static class Node
+  {
+    /** Resource contains script code. */
+    public static final int FLAG_CODE = 1;
+    /** Resource is a text resource. */
+    public static final int FLAG_TEXT = 2;
+    /** Resource contains references resolved by IDS files. */
+    public static final int FLAG_IDS = 4;
+
+    /** Size and modification time of the resource when it was indexed. */
+    public final long[] stamp;
+    public final int flags;
+    /** Sorted names of referenced resources and words. */
+    public final String[] refs;
+    /** Sorted resource names without extension which have been looked up in the resource tree. */
+    public final String[] lookups;
+    /** Sorted string references of structure fields. */
+    public final int[] strrefs;
+    /** Sorted string references of script code and text. */
+    public final int[] codeStrrefs;
+
+    public Node(long[] stamp, int flags, Set<String> refs, Set<String> lookups, Set<Integer> strrefs,
+                Set<Integer> codeStrrefs)
+    {
+      this(stamp, flags, refs.toArray(new String[refs.size()]), lookups.toArray(new String[lookups.size()]),
+           toArray(strrefs), toArray(codeStrrefs));
+    }
+
+    private Node(long[] stamp, int flags, String[] refs, String[] lookups, int[] strrefs, int[] codeStrrefs)
+    {
+      this.stamp = stamp;
+      this.flags = flags;
+      this.refs = refs;
+      this.lookups = lookups;
+      this.strrefs = strrefs;
+      this.codeStrrefs = codeStrrefs;
+      Arrays.sort(this.refs);
+      Arrays.sort(this.lookups);
+      Arrays.sort(this.strrefs);
+      Arrays.sort(this.codeStrrefs);
+    }
+
+    public static Node read(DataInputStream is) throws IOException
+    {
+      final long[] stamp = { is.readLong(), is.readLong() };
+      final int flags = is.readInt();
+      return new Node(stamp, flags, readStrings(is), readStrings(is), readInts(is), readInts(is));
+    }
+
+    public void write(DataOutputStream os) throws IOException
+    {
+      os.writeLong(stamp[0]);
+      os.writeLong(stamp[1]);
+      os.writeInt(flags);
+      writeStrings(os, refs);
+      writeStrings(os, lookups);
+      writeInts(os, strrefs);
+      writeInts(os, codeStrrefs);
+    }
+
+    // Returns all non-negative values as array
+    private static int[] toArray(Set<Integer> set)
+    {
+      return set.stream().mapToInt(Integer::intValue).filter(v -> v >= 0).toArray();
+    }
+
+    private static String[] readStrings(DataInputStream is) throws IOException
+    {
+      final String[] retVal = new String[is.readInt()];
+      for (int i = 0; i < retVal.length; i++) {
+        retVal[i] = is.readUTF();
+      }
+      return retVal;
+    }
+
+    private static void writeStrings(DataOutputStream os, String[] values) throws IOException
+    {
+      os.writeInt(values.length);
+      for (final String value: values) {
+        os.writeUTF(value);
+      }
+    }
+
+    private static int[] readInts(DataInputStream is) throws IOException
+    {
+      final int[] retVal = new int[is.readInt()];
+      for (int i = 0; i < retVal.length; i++) {
+        retVal[i] = is.readInt();
+      }
+      return retVal;
+    }
+
+    private static void writeInts(DataOutputStream os, int[] values) throws IOException
+    {
+      os.writeInt(values.length);
+      for (final int value: values) {
+        os.writeInt(value);
+      }
+    }
+  }
+
+  /** Indexes a list of resources in several threads. */
+  private static class Indexer extends AbstractSearcher
+  {
+    public final Map<String, Node> results = new ConcurrentHashMap<>();
+
+    public Indexer()
+    {
+      super("Indexing %1$ss %2$d/%3$d", NearInfinity.getInstance());
+    }
+
+    @Override
+    protected Runnable newWorker(ResourceEntry entry)
+    {
+      return () -> {
+        try {
+          final Node node = createNode(entry);
+          if (node != null) {
+            results.put(getKey(entry.getResourceName()), node);
+          }
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      };
+    }
+  }
+}
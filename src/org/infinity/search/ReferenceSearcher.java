@@ -87,6 +87,27 @@ protected void search(ResourceEntry entry, Resource resource)
     }
   }
 
+  @Override
+  boolean usesReferenceIndex()
+  {
+    return true;
+  }
+
+  @Override
+  boolean canSkip(ReferenceIndex index, ResourceEntry entry)
+  {
+    // resource names in text fields of effects are not covered by the index
+    if (!index.isIndexed(entry) || "EFF".equalsIgnoreCase(entry.getExtension())) {
+      return false;
+    }
+    // script names and symbolic spell names are not covered by the index
+    if ((creDeathVar != null || "SPL".equalsIgnoreCase(targetEntry.getExtension())) &&
+        index.hasScriptOrText(entry)) {
+      return false;
+    }
+    return !index.references(entry, targetEntry);
+  }
+
   private void searchDialog(ResourceEntry entry, AbstractStruct dialog)
   {
     final String targetName = targetEntry.getResourceName();
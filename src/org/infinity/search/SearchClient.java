@@ -21,5 +21,17 @@
    * @param nr Index of the matched object
    */
   void hitFound(int nr);
+
+  /**
+   * Returns the sorted indices of all objects which may contain the specified text, ignoring case.
+   * Objects not returned are skipped by the search. The default implementation returns {@code null}.
+   *
+   * @param literal Text that has to be contained in matching objects
+   * @return Sorted array of indices, or {@code null} if all objects have to be searched
+   */
+  default int[] getCandidates(String literal)
+  {
+    return null;
+  }
 }
 
@@ -13,6 +13,7 @@
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -182,6 +183,9 @@ public void run()
   {
     index = 0;
     String term = tfinput.getText();
+    // text required by all matches, used to skip objects which cannot match
+    final String literal = cbregex.isSelected() ? getRequiredLiteral(term) : term;
+    int[] candidates = slave.getCandidates(literal);
     if (!cbregex.isSelected()) {
       term = term.replaceAll("(\\W)", "\\\\$1");
     }
@@ -207,6 +211,12 @@ public void run()
     cbcase.setEnabled(false);
     tfinput.setEnabled(false);
     while (true) {
+      if (candidates != null) {
+        index = getNextCandidate(candidates, index, rbdown.isSelected());
+        if (index < 0) {
+          break;
+        }
+      }
       String s = slave.getText(index);
       if (s == null)
         break;
@@ -227,6 +237,8 @@ public void run()
           term = null;
           break;
         }
+        // objects may have been changed in the meantime
+        candidates = slave.getCandidates(literal);
       }
       if (rbdown.isSelected())
         index++;
@@ -244,5 +256,113 @@ public void run()
   }
 
 // --------------------- End Interface Runnable ---------------------
-}
 
+  // Returns the first candidate at or after "index" (or at or before if "forward" is false),
+  // returns -1 if no more candidates are available
+  private static int getNextCandidate(int[] candidates, int index, boolean forward)
+  {
+    int pos = Arrays.binarySearch(candidates, index);
+    if (pos < 0) {
+      pos = forward ? -pos - 1 : -pos - 2;
+    }
+    return (pos >= 0 && pos < candidates.length) ? candidates[pos] : -1;
+  }
+
+  // Returns the longest sequence of plain characters that must be contained in every match
+  // of the specified regular expression. Returns null if no such sequence could be determined.
+  static String getRequiredLiteral(String regex)
+  {
+    if (regex == null || regex.indexOf('|') >= 0 || regex.contains("(?") ||
+        Pattern.compile("\\\\[0cxuNpPkQ]").matcher(regex).find()) {
+      // alternatives, embedded flags and escape sequences with arguments may change the meaning of plain characters
+      return null;
+    }
+
+    String retVal = "";
+    StringBuilder sb = new StringBuilder();
+    int depth = 0;
+    for (int i = 0, len = regex.length(); i < len; i++) {
+      char ch = regex.charAt(i);
+      // sequences inside groups or followed by an optional quantifier are not required
+      boolean isLiteral = (depth == 0);
+      switch (ch) {
+        case '\\':
+          i++;
+          if (i < len && !Character.isLetterOrDigit(regex.charAt(i))) {
+            ch = regex.charAt(i);
+          } else {
+            isLiteral = false;
+          }
+          break;
+        case '[':
+          i = skipCharacterClass(regex, i);
+          isLiteral = false;
+          break;
+        case '(':
+          depth++;
+          isLiteral = false;
+          break;
+        case ')':
+          depth = Math.max(0, depth - 1);
+          isLiteral = false;
+          break;
+        case '.': case '^': case '$': case '+': case ']': case '}':
+          isLiteral = false;
+          break;
+        case '?': case '*': case '{':
+          if (sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+          }
+          if (ch == '{') {
+            // skipping quantifier arguments
+            while (i + 1 < len && regex.charAt(i) != '}') {
+              i++;
+            }
+          }
+          isLiteral = false;
+          break;
+      }
+
+      if (isLiteral) {
+        sb.append(ch);
+      } else {
+        if (sb.length() > retVal.length()) {
+          retVal = sb.toString();
+        }
+        sb.setLength(0);
+      }
+    }
+    if (sb.length() > retVal.length()) {
+      retVal = sb.toString();
+    }
+
+    return retVal.isEmpty() ? null : retVal;
+  }
+
+  // Returns the index of the closing bracket of the character class starting at "start".
+  // Character classes may be nested, a closing bracket at the beginning of a class is a plain character.
+  private static int skipCharacterClass(String regex, int start)
+  {
+    int depth = 0;
+    for (int i = start, len = regex.length(); i < len; i++) {
+      char ch = regex.charAt(i);
+      if (ch == '\\') {
+        i++;
+      } else if (ch == '[') {
+        depth++;
+        if (i + 1 < len && regex.charAt(i + 1) == '^') {
+          i++;
+        }
+        if (i + 1 < len && regex.charAt(i + 1) == ']') {
+          i++;
+        }
+      } else if (ch == ']') {
+        depth--;
+        if (depth == 0) {
+          return i;
+        }
+      }
+    }
+    return regex.length();
+  }
+}
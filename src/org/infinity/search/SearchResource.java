@@ -28,8 +28,6 @@
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.Vector;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.swing.BorderFactory;
 import javax.swing.ComboBoxEditor;
@@ -96,6 +94,7 @@
 import org.infinity.util.Debugging;
 import org.infinity.util.IdsMapEntry;
 import org.infinity.util.Misc;
+import org.infinity.util.ResourceTaskExecutor;
 import org.infinity.util.SimpleListModel;
 import org.infinity.util.io.StreamUtils;
 import org.infinity.util.tuples.Couple;
@@ -233,19 +232,11 @@ public void run()
           SearchOptions so = panel.getOptions();
 
           // using parallel jobs to speed up search
-          ThreadPoolExecutor executor = Misc.createThreadPool();
-          for (int i = 0; i < resources.size(); i++) {
-            Misc.isQueueReady(executor, true, -1);
-            executor.execute(new SearchWorker(found, so, resources.get(i)));
-          }
-
-          // waiting for threads to finish
-          executor.shutdown();
-          try {
-            executor.awaitTermination(60, TimeUnit.SECONDS);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
+          ResourceTaskExecutor executor = new ResourceTaskExecutor(resources, entry -> new SearchWorker(found, so, entry).run());
+          executor.await(count -> {
+            pbProgress.setValue(count);
+            return true;
+          });
 
           // preparing results for output
           listResults.ensureIndexIsVisible(0);
@@ -560,9 +551,6 @@ public void run()
       if (entry.matchSearchOptions(so)) {
         matched.add(entry);
       }
-      synchronized (pbProgress) {
-        pbProgress.setValue(pbProgress.getValue() + 1);
-      }
     }
   }
 
@@ -13,9 +13,9 @@
 import org.infinity.resource.Resource;
 import org.infinity.resource.ResourceFactory;
 import org.infinity.resource.StructEntry;
+import org.infinity.resource.bcs.BcsReferenceExtractor;
 import org.infinity.resource.bcs.BcsResource;
 import org.infinity.resource.bcs.Compiler;
-import org.infinity.resource.bcs.Decompiler;
 import org.infinity.resource.bcs.ScriptType;
 import org.infinity.resource.dlg.AbstractCode;
 import org.infinity.resource.dlg.Action;
@@ -74,6 +74,18 @@ protected void search(ResourceEntry entry, Resource resource)
     }
   }
 
+  @Override
+  boolean usesReferenceIndex()
+  {
+    return true;
+  }
+
+  @Override
+  boolean canSkip(ReferenceIndex index, ResourceEntry entry)
+  {
+    return searchvalue >= 0 && index.isIndexed(entry) && !index.referencesString(entry, searchvalue);
+  }
+
   private void searchDialog(ResourceEntry entry, AbstractStruct dialog)
   {
     for (final StructEntry o : dialog.getFields()) {
@@ -93,11 +105,7 @@ private void searchDialog(ResourceEntry entry, AbstractStruct dialog)
           final ScriptType type = sourceCode instanceof Action ? ScriptType.ACTION : ScriptType.TRIGGER;
           final Compiler compiler = new Compiler(sourceCode.getText(), type);
           if (compiler.getErrors().isEmpty()) {
-            final Decompiler decompiler = new Decompiler(compiler.getCode(), type, true);
-            decompiler.setGenerateComments(false);
-            decompiler.setGenerateResourcesUsed(true);
-            decompiler.decompile();
-            for (final Integer stringRef : decompiler.getStringRefsUsed()) {
+            for (final Integer stringRef : BcsReferenceExtractor.getStringRefsUsed(compiler.getCode(), type)) {
               if (stringRef.intValue() == searchvalue) {
                 addHit(entry, sourceCode.getName(), sourceCode);
               }
@@ -136,12 +144,8 @@ private void searchSave(ResourceEntry entry, SavResource savfile)
 
   private void searchScript(ResourceEntry entry, BcsResource bcsfile)
   {
-    Decompiler decompiler = new Decompiler(bcsfile.getCode(), true);
-    decompiler.setGenerateComments(false);
-    decompiler.setGenerateResourcesUsed(true);
     try {
-      decompiler.decompile();
-      for (final Integer stringRef : decompiler.getStringRefsUsed()) {
+      for (final Integer stringRef : BcsReferenceExtractor.getStringRefsUsed(bcsfile.getCode(), ScriptType.BCS)) {
         if (stringRef.intValue() == searchvalue)
           addHit(entry, null, null);
       }
@@ -190,7 +190,6 @@ protected Runnable newWorker(ResourceEntry entry)
           }
         }
       }
-      advanceProgress();
     };
   }
 
@@ -27,8 +27,6 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.swing.AbstractButton;
@@ -76,6 +74,7 @@
 import org.infinity.search.ReferenceHitFrame;
 import org.infinity.util.Debugging;
 import org.infinity.util.Misc;
+import org.infinity.util.ResourceTaskExecutor;
 import org.infinity.util.SimpleListModel;
 
 public class AdvancedSearch extends ChildFrame implements Runnable
@@ -516,19 +515,12 @@ public void run()
         List<SearchOptions> searchOptions = getSearchOptions();
 
         // using parallel jobs to speed up search
-        ThreadPoolExecutor executor = Misc.createThreadPool();
-        for (final ResourceEntry entry : resources) {
-          Misc.isQueueReady(executor, true, -1);
-          executor.execute(new AdvancedSearchWorker(found, filterOp, searchOptions, entry, pbProgress));
-        }
-
-        // waiting for threads to finish
-        executor.shutdown();
-        try {
-          executor.awaitTermination(60, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-          e.printStackTrace();
-        }
+        ResourceTaskExecutor executor = new ResourceTaskExecutor(resources, entry ->
+            new AdvancedSearchWorker(found, filterOp, searchOptions, entry, null).run());
+        executor.await(count -> {
+          pbProgress.setValue(count);
+          return true;
+        });
 
         // preparing results for output
         int resourceCount = 0;
@@ -0,0 +1,95 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size bit set that can be modified by several threads without locking.
+ * Bits can only be set, which makes it suitable for collecting results of concurrent searches.
+ */
+public class ConcurrentBitSet
+{
+  private final AtomicLongArray words;
+  private final int size;
+
+  /**
+   * Creates a bit set for the specified number of bits. All bits are initially cleared.
+   * @param size Number of bits.
+   */
+  public ConcurrentBitSet(int size)
+  {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative size: " + size);
+    }
+    this.size = size;
+    this.words = new AtomicLongArray((size + 63) >>> 6);
+  }
+
+  /** Returns the number of bits in this set. */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Sets the bit at the specified index.
+   * @param index Index of the bit.
+   * @return {@code true} if the bit was cleared before, {@code false} otherwise.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  public boolean set(int index)
+  {
+    checkIndex(index);
+    final int wordIndex = index >>> 6;
+    final long mask = 1L << index;
+    long word = words.get(wordIndex);
+    while ((word & mask) == 0L) {
+      if (words.compareAndSet(wordIndex, word, word | mask)) {
+        return true;
+      }
+      word = words.get(wordIndex);
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the bit at the specified index is set.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  public boolean get(int index)
+  {
+    checkIndex(index);
+    return (words.get(index >>> 6) & (1L << index)) != 0L;
+  }
+
+  /** Returns the number of set bits. */
+  public int cardinality()
+  {
+    int retVal = 0;
+    for (int i = 0, cnt = words.length(); i < cnt; i++) {
+      retVal += Long.bitCount(words.get(i));
+    }
+    return retVal;
+  }
+
+  /** Returns a snapshot of the current state as {@link BitSet}. */
+  public BitSet toBitSet()
+  {
+    final long[] data = new long[words.length()];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = words.get(i);
+    }
+    return BitSet.valueOf(data);
+  }
+
+  private void checkIndex(int index)
+  {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
@@ -28,7 +28,6 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.imageio.ImageIO;
 import javax.swing.JButton;
@@ -104,7 +103,6 @@ public final class MassExporter extends ChildFrame implements ActionListener, Li
   private Path outputPath;
   private List<String> selectedTypes;
   private ProgressMonitor progress;
-  private int progressIndex;
   private List<ResourceEntry> selectedFiles;
 
   public MassExporter()
@@ -294,8 +292,7 @@ public void run()
       }
 
       // executing multithreaded search
-      boolean isCancelled = false;
-      ThreadPoolExecutor executor = Misc.createThreadPool();
+      ResourceTaskExecutor executor = new ResourceTaskExecutor(selectedFiles, entry -> new Worker(entry).run());
       progress = new ProgressMonitor(NearInfinity.getInstance(), "Exporting...",
                                      String.format(FMT_PROGRESS, getResourceCount(), getResourceCount()),
                                      0, selectedFiles.size());
@@ -304,30 +301,11 @@ public void run()
       progress.setProgress(0);
       progress.setNote(String.format(FMT_PROGRESS, 0, getResourceCount()));
       Debugging.timerReset();
-      for (int i = 0, count = getResourceCount(); i < count; i++) {
-        Misc.isQueueReady(executor, true, -1);
-        executor.execute(new Worker(selectedFiles.get(i)));
-        if (progress.isCanceled()) {
-          isCancelled = true;
-          break;
-        }
-      }
-
-      // enforcing thread termination if process has been cancelled
-      if (isCancelled) {
-        executor.shutdownNow();
-      } else {
-        executor.shutdown();
-      }
-
-      // waiting for pending threads to terminate
-      while (!executor.isTerminated()) {
-        if (!isCancelled && progress.isCanceled()) {
-          executor.shutdownNow();
-          isCancelled = true;
-        }
-        try { Thread.sleep(1); } catch (InterruptedException e) {}
-      }
+      boolean isCancelled = !executor.await(count -> {
+        progress.setNote(String.format(FMT_PROGRESS, count, getResourceCount()));
+        progress.setProgress(count);
+        return !progress.isCanceled();
+      });
 
       if (isCancelled) {
         JOptionPane.showMessageDialog(NearInfinity.getInstance(), "Mass export aborted",
@@ -337,7 +315,10 @@ public void run()
                                       "Info", JOptionPane.INFORMATION_MESSAGE);
       }
     } finally {
-      advanceProgress(true);
+      if (progress != null) {
+        progress.close();
+        progress = null;
+      }
       if (selectedFiles != null) {
         selectedFiles.clear();
       }
@@ -353,23 +334,6 @@ private int getResourceCount()
     return (selectedFiles != null) ? selectedFiles.size() : 0;
   }
 
-  private synchronized void advanceProgress(boolean finished)
-  {
-    if (progress != null) {
-      if (finished) {
-        progressIndex = 0;
-        progress.close();
-        progress = null;
-      } else {
-        progressIndex++;
-        if (getResourceCount() < 50 || progressIndex % 10 == 0) {
-          progress.setNote(String.format(FMT_PROGRESS, progressIndex, getResourceCount()));
-        }
-        progress.setProgress(progressIndex);
-      }
-    }
-  }
-
   private void exportText(ResourceEntry entry, Path output) throws Exception
   {
     ByteBuffer bb = entry.getResourceBuffer();
@@ -737,7 +701,6 @@ public void run()
       if (entry != null) {
         export(entry);
       }
-      advanceProgress(false);
     }
   }
 }
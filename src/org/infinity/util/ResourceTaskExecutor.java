@@ -0,0 +1,193 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.key.ResourceEntry;
+
+/**
+ * Processes a list of resources in parallel on a shared work-stealing thread pool.
+ * <p>
+ * Resources are ordered by {@link ResourceFactory#sortByLocation} and split into batches of adjacent
+ * resources, which reduces random access to BIFF archives. Idle threads steal batches from busy
+ * threads. Processing can be cancelled at any time and stops after the current resource of each
+ * batch. Progress is reported periodically on the waiting thread instead of by the workers.
+ */
+public class ResourceTaskExecutor
+{
+  /** Default interval for progress notifications, in milliseconds. */
+  public static final long DEFAULT_PROGRESS_INTERVAL = 100L;
+
+  private static final int MAX_BATCH_SIZE = 64;
+
+  private static ForkJoinPool pool;
+
+  private final List<ResourceEntry> entries;
+  private final Consumer<ResourceEntry> task;
+  private final int batchSize;
+  private final AtomicInteger processed = new AtomicInteger();
+
+  private volatile boolean cancelled;
+  private CompletableFuture<Void> future;
+
+  /** Returns the work-stealing pool shared by all executors. */
+  public static synchronized ForkJoinPool getPool()
+  {
+    if (pool == null) {
+      pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+    return pool;
+  }
+
+  /**
+   * Creates a new executor.
+   * @param entries List of resources to process. {@code null} elements are skipped.
+   * @param task Processes a single resource. Called concurrently from several threads.
+   */
+  public ResourceTaskExecutor(List<? extends ResourceEntry> entries, Consumer<ResourceEntry> task)
+  {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    this.entries = sortByLocality(entries);
+    this.task = task;
+    int parallelism = getPool().getParallelism();
+    this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, this.entries.size() / (parallelism * 8)));
+  }
+
+  /** Returns the number of resources to process. */
+  public int getCount()
+  {
+    return entries.size();
+  }
+
+  /** Returns the number of resources processed so far. {@code null} elements are counted as well. */
+  public int getProcessedCount()
+  {
+    return processed.get();
+  }
+
+  /**
+   * Starts processing the resources in the background.
+   * @return A future which completes when all resources have been processed or the operation has been cancelled.
+   */
+  public synchronized CompletableFuture<Void> start()
+  {
+    if (future == null) {
+      future = CompletableFuture.runAsync(() -> new Batch(0, entries.size()).invoke(), getPool());
+    }
+    return future;
+  }
+
+  /** Cancels processing. Resources currently being processed are completed. */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  /** Returns whether processing has been cancelled. */
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * Starts processing if needed and blocks until all resources have been processed.
+   * @param progress Optional callback which is invoked periodically on the calling thread with the number
+   *                 of processed resources. Processing is cancelled if the callback returns {@code false}.
+   * @return {@code true} if all resources have been processed, {@code false} if processing has been cancelled.
+   */
+  public boolean await(IntPredicate progress)
+  {
+    return await(DEFAULT_PROGRESS_INTERVAL, progress);
+  }
+
+  /**
+   * Starts processing if needed and blocks until all resources have been processed.
+   * @param interval Interval between progress notifications, in milliseconds.
+   * @param progress Optional callback which is invoked periodically on the calling thread with the number
+   *                 of processed resources. Processing is cancelled if the callback returns {@code false}.
+   * @return {@code true} if all resources have been processed, {@code false} if processing has been cancelled.
+   */
+  public boolean await(long interval, IntPredicate progress)
+  {
+    final CompletableFuture<Void> f = start();
+    while (true) {
+      try {
+        f.get(Math.max(1L, interval), TimeUnit.MILLISECONDS);
+        break;
+      } catch (TimeoutException e) {
+        if (progress != null && !progress.test(getProcessedCount())) {
+          cancel();
+        }
+      } catch (InterruptedException e) {
+        cancel();
+      } catch (ExecutionException e) {
+        e.printStackTrace();
+        break;
+      }
+    }
+    if (progress != null) {
+      progress.test(getProcessedCount());
+    }
+    return !isCancelled();
+  }
+
+  // Orders resources by their physical location, followed by null elements
+  private static List<ResourceEntry> sortByLocality(List<? extends ResourceEntry> entries)
+  {
+    final List<ResourceEntry> retVal = ResourceFactory.sortByLocation(entries);
+    retVal.addAll(Collections.nCopies(entries.size() - retVal.size(), null));
+    return retVal;
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /** Processes a range of resources, splits into smaller ranges for work-stealing. */
+  private class Batch extends RecursiveAction
+  {
+    private final int start;
+    private final int end;
+
+    public Batch(int start, int end)
+    {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (end - start > batchSize) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new Batch(start, mid), new Batch(mid, end));
+      } else {
+        for (int i = start; i < end && !cancelled; i++) {
+          final ResourceEntry entry = entries.get(i);
+          if (entry != null) {
+            try {
+              task.accept(entry);
+            } catch (Throwable t) {
+              t.printStackTrace();
+            }
+          }
+          processed.incrementAndGet();
+        }
+      }
+    }
+  }
+}
@@ -7,13 +7,17 @@
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
 
@@ -582,6 +586,32 @@ public static void ensureFullyLoaded()
     }
   }
 
+  /**
+   * Starts building the text index of all available string tables in the background.
+   */
+  public static void buildIndex()
+  {
+    instance(Type.MALE)._buildIndex();
+    if (hasFemaleTable()) {
+      instance(Type.FEMALE)._buildIndex();
+    }
+  }
+
+  /**
+   * Returns the sorted indices of all string entries of the specified table which may contain
+   * the specified literal, ignoring case. Modified entries are always included.
+   * Returns {@code null} if the text index is not available yet or if the literal is too short
+   * to be looked up. All string entries have to be searched in this case.
+   * (Defaults to {@code Type.MALE} if specified type is not available.)
+   * @param type The string table
+   * @param literal Text that has to be contained in matching string entries.
+   * @return Sorted array of string entry indices, or {@code null}.
+   */
+  public static int[] findCandidates(Type type, String literal)
+  {
+    return instance(type)._findCandidates(literal);
+  }
+
   /**
    * Adds a new empty string entry to the male string table and returns its index.
    * @return index of the new string entry, or -1 on error.
@@ -969,14 +999,19 @@ private static StringTable instance(Type type)
     return retVal;
   }
 
+  // Overlay of loaded, edited or added string entries; unloaded entries are read from tlkData
   private final ArrayList<StringEntry> entries = new ArrayList<>();
   private final HashMap<Integer, Integer> entriesVirtual = new HashMap<>();
   private final Path tlkPath;
   private final StringTable.Type tlkType;
 
-  // cached TLK header data
-  private int numEntries, ofsStrings;
-  private ByteBuffer headerData;
+  // mapped TLK file data
+  private volatile TlkData tlkData;
+  // text index over all string entries, built in the background
+  private volatile StringTableIndex textIndex;
+  private Thread indexThread;
+  private volatile int indexGeneration;
+  private int numEntries;
   private int entriesPending;
 //  private boolean fullyLoaded;
 
@@ -1040,8 +1075,9 @@ private int _getTranslatedIndex(int index)
   private String _getStringRef(int index, Format fmt) throws IndexOutOfBoundsException
   {
     index = _getTranslatedIndex(index);
-    StringEntry entry = _getEntry(index);
-    return (fmt == null ? format : fmt).format(entry.getText(), index);
+    StringEntry entry = _getLoadedEntry(index);
+    String text = (entry != null) ? entry.getText() : _decodeText(index);
+    return (fmt == null ? format : fmt).format(text, index);
   }
 
   private void _setStringRef(int index, String text) throws IndexOutOfBoundsException
@@ -1051,7 +1087,9 @@ private void _setStringRef(int index, String text) throws IndexOutOfBoundsExcept
 
   private String _getSoundResource(int index) throws IndexOutOfBoundsException
   {
-    return _getEntry(_getTranslatedIndex(index)).getSoundRef();
+    index = _getTranslatedIndex(index);
+    StringEntry entry = _getLoadedEntry(index);
+    return (entry != null) ? entry.getSoundRef() : _getTlkData().getSoundRef(index);
   }
 
   private void _setSoundResource(int index, String resRef) throws IndexOutOfBoundsException
@@ -1061,7 +1099,9 @@ private void _setSoundResource(int index, String resRef) throws IndexOutOfBounds
 
   private short _getFlags(int index) throws IndexOutOfBoundsException
   {
-    return _getEntry(_getTranslatedIndex(index)).getFlags();
+    index = _getTranslatedIndex(index);
+    StringEntry entry = _getLoadedEntry(index);
+    return (entry != null) ? entry.getFlags() : _getTlkData().getFlags(index);
   }
 
   private void _setFlags(int index, short value) throws IndexOutOfBoundsException
@@ -1071,7 +1111,9 @@ private void _setFlags(int index, short value) throws IndexOutOfBoundsException
 
   private int _getVolume(int index) throws IndexOutOfBoundsException
   {
-    return _getEntry(_getTranslatedIndex(index)).getVolume();
+    index = _getTranslatedIndex(index);
+    StringEntry entry = _getLoadedEntry(index);
+    return (entry != null) ? entry.getVolume() : _getTlkData().getVolume(index);
   }
 
   private void _setVolume(int index, int value) throws IndexOutOfBoundsException
@@ -1081,7 +1123,9 @@ private void _setVolume(int index, int value) throws IndexOutOfBoundsException
 
   private int _getPitch(int index) throws IndexOutOfBoundsException
   {
-    return _getEntry(_getTranslatedIndex(index)).getPitch();
+    index = _getTranslatedIndex(index);
+    StringEntry entry = _getLoadedEntry(index);
+    return (entry != null) ? entry.getPitch() : _getTlkData().getPitch(index);
   }
 
   private void _setPitch(int index, int value) throws IndexOutOfBoundsException
@@ -1089,6 +1133,33 @@ private void _setPitch(int index, int value) throws IndexOutOfBoundsException
     _getEntry(_getTranslatedIndex(index)).setPitch(value);
   }
 
+  // Returns the loaded StringEntry instance at the specified index, the invalid entry for
+  // out-of-bounds indices or null if the entry has not been loaded yet and can be read directly
+  // from the TLK data. Does not block.
+  private StringEntry _getLoadedEntry(int index)
+  {
+    StringEntry entry = null;
+    if (index >= 0 && index < entries.size()) {
+      entry = entries.get(index);
+      if (entry == null && index >= _getTlkData().getNumEntries()) {
+        entry = _getEntry(index);
+      }
+    } else {
+      entry = StringEntry.getInvalidEntry();
+    }
+    return entry;
+  }
+
+  // Decodes the text of the specified string entry directly from TLK data
+  private String _decodeText(int index)
+  {
+    String text = _getTlkData().getText(index, getCharset());
+    if (!text.isEmpty() && !CharsetDetector.getLookup().isExcluded(index)) {
+      text = CharsetDetector.getLookup().decodeString(text);
+    }
+    return text;
+  }
+
   // Always returns a non-null StringEntry instance
   private StringEntry _getEntry(int index) throws IndexOutOfBoundsException
   {
@@ -1107,23 +1178,10 @@ private void _init()
   {
     if (!_initialized()) {
       synchronized (entries) {
-        try (FileChannel ch = _open()) {
-          // parsing header
-          String sig = StreamUtils.readString(ch, 8);
-          if (!"TLK V1  ".equals(sig)) {
-            throw new Exception("Invalid TLK signature");
-          }
-
-          langId = StreamUtils.readShort(ch);
-          numEntries = StreamUtils.readInt(ch);
-          ofsStrings = StreamUtils.readInt(ch);
-
-          int bufferSize = 26 * numEntries;
-          headerData = StreamUtils.getByteBuffer(bufferSize);
-          if (ch.read(headerData) < bufferSize) {
-            throw new Exception("Not enough data");
-          }
-          headerData.position(0);
+        try {
+          tlkData = new TlkData(_getPath());
+          langId = tlkData.getLanguageId();
+          numEntries = tlkData.getNumEntries();
 
           // fill cache with placeholder string entries
           entries.ensureCapacity(numEntries + 10);
@@ -1149,55 +1207,43 @@ private void _reset()
   {
     synchronized (entries) {
       entries.clear();
-      headerData = null;
-      ofsStrings = numEntries = entriesPending = -1;
+      tlkData = null;
+      _invalidateIndex(false);
+      numEntries = entriesPending = -1;
       initialized = false;
       _resetModified();
     }
     _init();
   }
 
-  private FileChannel _open() throws IOException
+  private StringEntry _loadEntry(int index) throws IndexOutOfBoundsException
   {
-    return FileChannel.open(_getPath(), StandardOpenOption.READ);
-  }
-
-  private StringEntry _loadEntry(FileChannel ch, int index) throws IOException, IndexOutOfBoundsException,
-                                                            IllegalArgumentException
-  {
-    if (index < 0 || index >= _getNumEntries()) {
+    final TlkData data = _getTlkData();
+    if (index < 0 || index >= _getNumEntries() || index >= data.getNumEntries()) {
       throw new IndexOutOfBoundsException();
     }
 
-    StringEntry entry = null;
-    if (ch != null) {
-      int ofs = index * 26; // rel. offset entry
-      headerData.position(ofs);
-      short flags = headerData.getShort();
-      String soundRef = StreamUtils.readString(headerData, 8);
-      int volume = headerData.getInt();
-      int pitch = headerData.getInt();
-      int ofsString = ofsStrings + headerData.getInt();
-      int lenString = headerData.getInt();
-      headerData.position(0);
-      String text = null;
-      if (lenString > 0) {
-        try {
-          ch.position(ofsString);
-          text = StreamUtils.readString(ch, lenString, getCharset());
-          if (!CharsetDetector.getLookup().isExcluded(index)) {
-            text = CharsetDetector.getLookup().decodeString(text);
+    return new StringEntry(this, data.getFlags(index), data.getSoundRef(index),
+                           data.getVolume(index), data.getPitch(index), _decodeText(index));
+  }
+
+  // Returns the mapped TLK data, maps the TLK file again if it had been released
+  private TlkData _getTlkData()
+  {
+    TlkData data = tlkData;
+    if (data == null) {
+      synchronized (entries) {
+        if (tlkData == null) {
+          try {
+            tlkData = new TlkData(_getPath());
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
           }
-        } catch (IllegalArgumentException e) {
-          System.err.println("Error: Illegal offset " + ofsString + " for string entry " + index);
-          text = "";
         }
-      } else {
-        text = "";
+        data = tlkData;
       }
-      entry = new StringEntry(this, flags, soundRef, volume, pitch, text);
     }
-    return entry;
+    return data;
   }
 
   private int _insertEntry(int index) throws IndexOutOfBoundsException
@@ -1220,6 +1266,7 @@ private int _insertEntry(int index, StringEntry newEntry) throws IndexOutOfBound
     newEntry.setModified();
     synchronized (entries) {
       entries.add(index, newEntry);
+      _invalidateIndex(true);
     }
 
     return index;
@@ -1234,6 +1281,7 @@ private void _removeEntry(int index) throws IndexOutOfBoundsException
     _ensureFullyLoaded();
     synchronized (entries) {
       entries.remove(index);
+      _invalidateIndex(true);
     }
   }
 
@@ -1242,10 +1290,10 @@ private void _ensureFullyLoaded()
   {
     if (entriesPending > 0) {
       synchronized (entries) {
-        try (FileChannel ch = _open()) {
+        try {
           for (int idx = 0, num = _getNumEntries(); idx < num; idx++) {
             if (entries.get(idx) == null) {
-              StringEntry entry = _loadEntry(ch, idx);
+              StringEntry entry = _loadEntry(idx);
               if (entry != null) {
                 entries.set(idx, entry);
               } else {
@@ -1267,8 +1315,12 @@ private void _ensureIndexIsLoaded(int index)
     index = _getTranslatedIndex(index);
     if (entriesPending > 0 && index >= 0 && index < _getNumEntries() && entries.get(index) == null) {
       synchronized (entries) {
-        try (FileChannel ch = _open()) {
-          StringEntry entry = _loadEntry(ch, index);
+        try {
+          StringEntry entry = entries.get(index);
+          if (entry != null) {
+            return;
+          }
+          entry = _loadEntry(index);
           if (entry != null) {
             entries.set(index, entry);
             entriesPending--;
@@ -1293,6 +1345,102 @@ private void _resetEntries()
           }
         }
         _resetModified();
+        _invalidateIndex(true);
+      }
+    }
+  }
+
+  // Returns indices of all string entries which may contain the specified literal
+  private int[] _findCandidates(String literal)
+  {
+    if (literal == null || literal.length() < StringTableIndex.MIN_LITERAL_LENGTH) {
+      return null;
+    }
+
+    StringTableIndex index = textIndex;
+    if (index == null) {
+      _buildIndex();
+      return null;
+    }
+
+    int[] retVal = index.find(literal);
+    if (retVal == null || !_isModified()) {
+      return retVal;
+    }
+
+    // modified entries are not reflected by the index
+    synchronized (entries) {
+      int[] modifiedList = new int[16];
+      int numModified = 0;
+      for (int idx = 0, count = entries.size(); idx < count; idx++) {
+        StringEntry entry = entries.get(idx);
+        if (entry != null && entry.isModified()) {
+          if (numModified == modifiedList.length) {
+            modifiedList = Arrays.copyOf(modifiedList, numModified * 2);
+          }
+          modifiedList[numModified++] = idx;
+        }
+      }
+      if (numModified > 0) {
+        // merging sorted lists
+        int[] merged = new int[retVal.length + numModified];
+        int i = 0, j = 0, n = 0;
+        while (i < retVal.length || j < numModified) {
+          if (j >= numModified || (i < retVal.length && retVal[i] < modifiedList[j])) {
+            merged[n++] = retVal[i++];
+          } else {
+            if (i < retVal.length && retVal[i] == modifiedList[j]) {
+              i++;
+            }
+            merged[n++] = modifiedList[j++];
+          }
+        }
+        retVal = Arrays.copyOf(merged, n);
+      }
+    }
+    return retVal;
+  }
+
+  // Builds the text index in a background thread if not yet available
+  private void _buildIndex()
+  {
+    synchronized (entries) {
+      if (textIndex != null || (indexThread != null && indexThread.isAlive())) {
+        return;
+      }
+
+      final int generation = indexGeneration;
+      indexThread = new Thread(() -> {
+        try {
+          StringTableIndex index = new StringTableIndex(_getNumEntries(), idx -> _getStringRef(idx, Format.NONE));
+          synchronized (entries) {
+            if (generation == indexGeneration) {
+              textIndex = index;
+            }
+          }
+        } catch (Exception e) {
+          // string table has been changed while building the index
+          if (generation == indexGeneration) {
+            e.printStackTrace();
+          }
+        }
+      }, "TLK index");
+      indexThread.setDaemon(true);
+      indexThread.setPriority(Thread.MIN_PRIORITY);
+      indexThread.start();
+    }
+  }
+
+  // Discards the current text index and optionally starts building a new one if an index had been requested
+  private void _invalidateIndex(boolean rebuild)
+  {
+    synchronized (entries) {
+      boolean requested = (textIndex != null || indexThread != null);
+      textIndex = null;
+      indexThread = null;
+      indexGeneration++;
+      if (rebuild && requested) {
+        _buildIndex();
       }
     }
   }
@@ -1337,100 +1485,107 @@ private void _write(Path tlkPath, ProgressCallback callback) throws IOException
     synchronized (entries) {
       boolean success = false;
 
-      // 1. backing up current string table file if needed
-      Path pathBackup = null;
-      if (FileEx.create(tlkPath).isFile()) {
-        String name = tlkPath.getFileName().toString();
-        for (int i = 0; i < 999; i++) {
-          Path path = tlkPath.getParent().resolve(name + "-" + i);
-          if (!FileEx.create(path).exists()) {
-            pathBackup = path;
-            break;
-          }
-        }
-        if (pathBackup != null) {
-          Files.move(tlkPath, pathBackup);
+      // all entries are loaded: mapped TLK data is not needed anymore.
+      // The mapping itself is only released by the garbage collector. The TLK file is therefore
+      // never written in place, but replaced by a temporary file once all data has been written.
+      if (entriesPending == 0) {
+        tlkData = null;
+      }
+
+      // 1. preparing temporary file in the target folder
+      Path pathTemp = null;
+      String name = tlkPath.getFileName().toString();
+      for (int i = 0; i < 999; i++) {
+        Path path = tlkPath.resolveSibling(name + "-" + i + ".tmp");
+        if (!FileEx.create(path).exists()) {
+          pathTemp = path;
+          break;
         }
       }
+      if (pathTemp == null) {
+        throw new IOException("Could not create temporary file for " + tlkPath);
+      }
 
-      // 2. writing changes to disk
+      // 2. writing changes to temporary file
       if (callback != null) { callback.init(_getNumEntries()); }
-      try (FileChannel ch = FileChannel.open(tlkPath, StandardOpenOption.CREATE,
-                                                      StandardOpenOption.WRITE,
-                                                      StandardOpenOption.TRUNCATE_EXISTING)) {
-        int headerSize = 18;
-        int entrySize = 26;
-        int numEntries = _getNumEntries();
-        int ofsStrings = headerSize + (numEntries * entrySize);
-
-        // write global header
-        ByteBuffer buffer = StreamUtils.getByteBuffer(headerSize);
-        buffer.position(0);
-        buffer.put("TLK V1  ".getBytes(Misc.CHARSET_DEFAULT));
-        buffer.putShort(_getLanguageId());
-        buffer.putInt(numEntries);
-        buffer.putInt(ofsStrings);
-        buffer.position(0);
-        ch.write(buffer);
-
-        // write entry headers
-        ArrayList<byte[]> stringList = new ArrayList<>(numEntries);
-        buffer = StreamUtils.getByteBuffer(entrySize);
-        int curStringOfs = 0;
-        CharsetDetector.CharLookup lookup = CharsetDetector.getLookup();
-        for (int idx = 0, count = entries.size(); idx < count; idx++) {
-          final StringEntry entry = entries.get(idx);
-          // apply character encoding if required
-          String text;
-          if (lookup.isExcluded(idx)) {
-            text = entry.getText();
-          } else {
-            text = lookup.encodeString(entry.getText());
-          }
-          byte[] data = entry.getTextBytes(text);
-          byte[] soundRef = entry.getSoundRefBytes();
+      try {
+        try (FileChannel ch = FileChannel.open(pathTemp, StandardOpenOption.CREATE_NEW,
+                                                         StandardOpenOption.WRITE)) {
+          int headerSize = 18;
+          int entrySize = 26;
+          int numEntries = _getNumEntries();
+          int ofsStrings = headerSize + (numEntries * entrySize);
+
+          // write global header
+          ByteBuffer buffer = StreamUtils.getByteBuffer(headerSize);
           buffer.position(0);
-          buffer.putShort(entry.getFlags());
-          buffer.put(soundRef);
-          buffer.putInt(entry.getVolume());
-          buffer.putInt(entry.getPitch());
-          buffer.putInt(curStringOfs);
-          buffer.putInt(data.length);
+          buffer.put("TLK V1  ".getBytes(Misc.CHARSET_DEFAULT));
+          buffer.putShort(_getLanguageId());
+          buffer.putInt(numEntries);
+          buffer.putInt(ofsStrings);
           buffer.position(0);
           ch.write(buffer);
-          stringList.add(data);
-          curStringOfs += data.length;
-        }
 
-        // write strings
-        int index = 0;
-        for (final byte[] data: stringList) {
-          if (callback != null) {
-            success = callback.progress(index++);
-            if (!success) {
+          // write entry headers
+          ArrayList<byte[]> stringList = new ArrayList<>(numEntries);
+          buffer = StreamUtils.getByteBuffer(entrySize);
+          int curStringOfs = 0;
+          CharsetDetector.CharLookup lookup = CharsetDetector.getLookup();
+          for (int idx = 0, count = entries.size(); idx < count; idx++) {
+            final StringEntry entry = entries.get(idx);
+            // apply character encoding if required
+            String text;
+            if (lookup.isExcluded(idx)) {
+              text = entry.getText();
+            } else {
+              text = lookup.encodeString(entry.getText());
+            }
+            byte[] data = entry.getTextBytes(text);
+            byte[] soundRef = entry.getSoundRefBytes();
+            buffer.position(0);
+            buffer.putShort(entry.getFlags());
+            buffer.put(soundRef);
+            buffer.putInt(entry.getVolume());
+            buffer.putInt(entry.getPitch());
+            buffer.putInt(curStringOfs);
+            buffer.putInt(data.length);
+            buffer.position(0);
+            ch.write(buffer);
+            stringList.add(data);
+            curStringOfs += data.length;
+          }
+
+          // write strings
+          int index = 0;
+          for (final byte[] data: stringList) {
+            if (callback != null && !callback.progress(index++)) {
               throw new Exception("Operation cancelled");
             }
+            buffer = StreamUtils.getByteBuffer(data);
+            buffer.position(0);
+            buffer.put(data);
+            buffer.position(0);
+            ch.write(buffer);
           }
-          buffer = StreamUtils.getByteBuffer(data);
-          buffer.position(0);
-          buffer.put(data);
-          buffer.position(0);
-          ch.write(buffer);
+        }
+
+        // 3. replacing TLK file
+        try {
+          Files.move(pathTemp, tlkPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(pathTemp, tlkPath, StandardCopyOption.REPLACE_EXISTING);
         }
 
         _resetModified();
+        _invalidateIndex(true);
         success = true;
       } catch (IOException | UnsupportedOperationException e) {
         throw e;
       } catch (Exception e) {
       } finally {
-        // 3. removing or restoring backup
-        if (pathBackup != null) {
-          if (success) {
-            Files.delete(pathBackup);
-          } else {
-            Files.move(pathBackup, _getPath(), StandardCopyOption.REPLACE_EXISTING);
-          }
+        // 4. removing temporary file if TLK file has not been replaced
+        if (!success) {
+          Files.deleteIfExists(pathTemp);
         }
 
         if (callback != null) { callback.done(success); }
@@ -1474,6 +1629,104 @@ private void _exportText(Path outFile, ProgressCallback callback) throws IOExcep
 
 //-------------------------- INNER CLASSES --------------------------
 
+  // Provides lock-free access to the data of a TLK file. The file is mapped into memory and
+  // the fixed-size entry table is kept in primitive arrays. Strings are decoded on demand.
+  private static class TlkData
+  {
+    private static final int HEADER_SIZE  = 18;
+    private static final int ENTRY_SIZE   = 26;
+
+    private final ByteBuffer data;
+    private final short langId;
+    private final short[] flags;
+    private final long[] soundRefs;
+    private final int[] volumes;
+    private final int[] pitches;
+    private final int[] textOffsets;
+    private final int[] textLengths;
+
+    public TlkData(Path tlkPath) throws Exception
+    {
+      try (FileChannel ch = FileChannel.open(tlkPath, StandardOpenOption.READ)) {
+        ByteBuffer buffer;
+        try {
+          buffer = ch.map(MapMode.READ_ONLY, 0L, ch.size());
+        } catch (UnsupportedOperationException e) {
+          // file system doesn't support mapping
+          buffer = StreamUtils.getByteBuffer((int)ch.size());
+          while (buffer.hasRemaining() && ch.read(buffer) > 0) {}
+          buffer.flip();
+        }
+        data = buffer.order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      if (data.limit() < HEADER_SIZE || !"TLK V1  ".equals(StreamUtils.readString(data, 0, 8))) {
+        throw new Exception("Invalid TLK signature");
+      }
+      langId = data.getShort(8);
+      int numEntries = data.getInt(10);
+      int ofsStrings = data.getInt(14);
+      if (numEntries < 0 || HEADER_SIZE + (long)numEntries * ENTRY_SIZE > data.limit()) {
+        throw new Exception("Not enough data");
+      }
+
+      flags = new short[numEntries];
+      soundRefs = new long[numEntries];
+      volumes = new int[numEntries];
+      pitches = new int[numEntries];
+      textOffsets = new int[numEntries];
+      textLengths = new int[numEntries];
+      for (int i = 0, ofs = HEADER_SIZE; i < numEntries; i++, ofs += ENTRY_SIZE) {
+        flags[i] = data.getShort(ofs);
+        soundRefs[i] = data.getLong(ofs + 2);
+        volumes[i] = data.getInt(ofs + 10);
+        pitches[i] = data.getInt(ofs + 14);
+        textOffsets[i] = ofsStrings + data.getInt(ofs + 18);
+        textLengths[i] = data.getInt(ofs + 22);
+      }
+    }
+
+    public short getLanguageId() { return langId; }
+
+    public int getNumEntries() { return flags.length; }
+
+    public short getFlags(int index) { return flags[index]; }
+
+    public int getVolume(int index) { return volumes[index]; }
+
+    public int getPitch(int index) { return pitches[index]; }
+
+    public String getSoundRef(int index)
+    {
+      long value = soundRefs[index];
+      byte[] buf = new byte[8];
+      int len = 0;
+      while (len < buf.length && (value & 0xff) != 0) {
+        buf[len++] = (byte)value;
+        value >>>= 8;
+      }
+      return new String(buf, 0, len, Misc.CHARSET_DEFAULT);
+    }
+
+    public String getText(int index, Charset cs)
+    {
+      int ofs = textOffsets[index];
+      int len = textLengths[index];
+      if (len <= 0) {
+        return "";
+      }
+      if (ofs < 0 || ofs + len > data.limit()) {
+        System.err.println("Error: Illegal offset " + ofs + " for string entry " + index);
+        return "";
+      }
+      byte[] buf = new byte[len];
+      ByteBuffer bb = data.duplicate();
+      bb.position(ofs);
+      bb.get(buf);
+      return new String(buf, cs);
+    }
+  }
+
   // Manages a single string entry
   public static class StringEntry extends AbstractStruct
   {
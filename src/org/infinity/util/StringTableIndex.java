@@ -0,0 +1,199 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2005 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Case-insensitive trigram index over the strings of a string table.
+ * <p>
+ * Every string is split into overlapping sequences of three lowercased characters which are hashed
+ * into a fixed number of buckets. Each bucket stores a delta- and varint-encoded list of the string
+ * indices containing one of its trigrams. A lookup intersects the lists of all trigrams of the search
+ * literal and returns a superset of the matching string indices, which have to be verified by the caller.
+ */
+public class StringTableIndex
+{
+  /** Minimum number of characters a search literal requires to make use of the index. */
+  public static final int MIN_LITERAL_LENGTH = 3;
+
+  private static final int BUCKET_BITS  = 18;
+  private static final int NUM_BUCKETS  = 1 << BUCKET_BITS;
+
+  private final int numEntries;
+  // encoded index lists of all buckets
+  private final byte[][] postings;
+  // number of valid bytes in each posting list
+  private final int[] postingSizes;
+  // number of string indices in each posting list
+  private final int[] postingCounts;
+
+  /**
+   * Builds the index over the specified strings.
+   * @param numEntries Number of strings to index.
+   * @param textProvider Returns the text of the string at the specified index.
+   */
+  public StringTableIndex(int numEntries, IntFunction<String> textProvider)
+  {
+    this.numEntries = Math.max(0, numEntries);
+    this.postings = new byte[NUM_BUCKETS][];
+    this.postingSizes = new int[NUM_BUCKETS];
+    this.postingCounts = new int[NUM_BUCKETS];
+
+    // last string index added to each bucket
+    final int[] lastIndex = new int[NUM_BUCKETS];
+    Arrays.fill(lastIndex, -1);
+    for (int idx = 0; idx < this.numEntries; idx++) {
+      String text = textProvider.apply(idx);
+      if (text == null || text.length() < MIN_LITERAL_LENGTH) {
+        continue;
+      }
+      char c1 = Character.toLowerCase(text.charAt(0));
+      char c2 = Character.toLowerCase(text.charAt(1));
+      for (int i = 2, len = text.length(); i < len; i++) {
+        char c3 = Character.toLowerCase(text.charAt(i));
+        int bucket = getBucket(c1, c2, c3);
+        if (lastIndex[bucket] != idx) {
+          addPosting(bucket, idx - lastIndex[bucket]);
+          lastIndex[bucket] = idx;
+        }
+        c1 = c2;
+        c2 = c3;
+      }
+    }
+
+    // trimming excess capacity
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      if (postings[i] != null && postings[i].length > postingSizes[i]) {
+        postings[i] = Arrays.copyOf(postings[i], postingSizes[i]);
+      }
+    }
+  }
+
+  /** Returns the number of indexed strings. */
+  public int getNumEntries()
+  {
+    return numEntries;
+  }
+
+  /**
+   * Returns the sorted indices of all strings that may contain the specified literal, ignoring case.
+   * Returns {@code null} if the literal is too short to be looked up in the index.
+   */
+  public int[] find(String literal)
+  {
+    if (literal == null || literal.length() < MIN_LITERAL_LENGTH) {
+      return null;
+    }
+
+    // collecting distinct buckets of the literal
+    int[] buckets = new int[literal.length() - 2];
+    int numBuckets = 0;
+    char c1 = Character.toLowerCase(literal.charAt(0));
+    char c2 = Character.toLowerCase(literal.charAt(1));
+    for (int i = 2, len = literal.length(); i < len; i++) {
+      char c3 = Character.toLowerCase(literal.charAt(i));
+      buckets[numBuckets++] = getBucket(c1, c2, c3);
+      c1 = c2;
+      c2 = c3;
+    }
+    Arrays.sort(buckets, 0, numBuckets);
+    int n = 0;
+    for (int i = 0; i < numBuckets; i++) {
+      if (i == 0 || buckets[i] != buckets[i - 1]) {
+        buckets[n++] = buckets[i];
+      }
+    }
+
+    // intersecting posting lists, starting with the shortest list
+    long[] order = new long[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = ((long)postingCounts[buckets[i]] << 32) | buckets[i];
+    }
+    Arrays.sort(order);
+    int[] retVal = decode((int)order[0]);
+    for (int i = 1; i < n && retVal.length > 0; i++) {
+      retVal = intersect(retVal, (int)order[i]);
+    }
+    return retVal;
+  }
+
+  // Appends a varint-encoded delta value to the specified bucket
+  private void addPosting(int bucket, int delta)
+  {
+    byte[] data = postings[bucket];
+    int size = postingSizes[bucket];
+    if (data == null) {
+      data = postings[bucket] = new byte[8];
+    } else if (size + 5 > data.length) {
+      data = postings[bucket] = Arrays.copyOf(data, data.length * 2);
+    }
+    while ((delta & ~0x7f) != 0) {
+      data[size++] = (byte)((delta & 0x7f) | 0x80);
+      delta >>>= 7;
+    }
+    data[size++] = (byte)delta;
+    postingSizes[bucket] = size;
+    postingCounts[bucket]++;
+  }
+
+  // Returns all string indices of the specified bucket
+  private int[] decode(int bucket)
+  {
+    int[] retVal = new int[postingCounts[bucket]];
+    byte[] data = postings[bucket];
+    int value = -1;
+    for (int i = 0, pos = 0; i < retVal.length; i++) {
+      int delta = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[pos++];
+        delta |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      value += delta;
+      retVal[i] = value;
+    }
+    return retVal;
+  }
+
+  // Returns the string indices of "list" which are also present in the specified bucket
+  private int[] intersect(int[] list, int bucket)
+  {
+    int[] retVal = new int[list.length];
+    int count = 0;
+    byte[] data = postings[bucket];
+    int size = postingSizes[bucket];
+    int value = -1;
+    int pos = 0, idx = 0;
+    while (pos < size && idx < list.length) {
+      int delta = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[pos++];
+        delta |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      value += delta;
+      while (idx < list.length && list[idx] < value) {
+        idx++;
+      }
+      if (idx < list.length && list[idx] == value) {
+        retVal[count++] = value;
+        idx++;
+      }
+    }
+    return Arrays.copyOf(retVal, count);
+  }
+
+  private static int getBucket(char c1, char c2, char c3)
+  {
+    int h = (c1 * 31 + c2) * 31 + c3;
+    return (h * 0x9e3779b1) >>> (32 - BUCKET_BITS);
+  }
+}
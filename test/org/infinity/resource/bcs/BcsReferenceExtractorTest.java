@@ -0,0 +1,203 @@
+package org.infinity.resource.bcs;
+
+import java.awt.GraphicsEnvironment;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.infinity.resource.Profile;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.key.ResourceEntry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the references found by {@link BcsReferenceExtractor}.
+ * <p>
+ * Most tests use small scripts which are compiled from hand-written trigger and action
+ * definitions. They do not require a game. The remaining tests compare the references with the
+ * references collected by the {@link Decompiler}. These tests use the scripts of an installed game
+ * as samples and are skipped unless the path of the game's chitin.key is specified:
+ * {@code ant test -Dtest.game=/path/to/chitin.key}
+ */
+public class BcsReferenceExtractorTest {
+  private static final String GAME_PROPERTY = "test.game";
+
+  private static final String TRIGGER_IDS =
+      "0x4017 Race(O:Object*,I:Race*Race)\n" +
+      "0x4061 HasItem(S:Item*,O:Object*)\n";
+  private static final String ACTION_IDS =
+      "7 CreateCreature(S:NewObject*,P:Location*,I:Face*DIR)\n" +
+      "31 Spell(O:Target*,I:Spell*Spell)\n" +
+      "151 DisplayString(O:Object*,I:StrRef*)\n";
+
+  private static final Signatures TRIGGERS = Signatures.parse("trigger.ids", TRIGGER_IDS, true);
+  private static final Signatures ACTIONS = Signatures.parse("action.ids", ACTION_IDS, false);
+
+  private static List<ResourceEntry> scripts;
+
+  @BeforeClass
+  public static void openGame() {
+    final String keyFile = System.getProperty(GAME_PROPERTY);
+    if (keyFile != null && !keyFile.isEmpty() && !GraphicsEnvironment.isHeadless()) {
+      Assert.assertTrue("Could not open game: " + keyFile, Profile.openGame(Paths.get(keyFile)));
+      scripts = ResourceFactory.getResources("BCS");
+    }
+  }
+
+  @AfterClass
+  public static void closeGame() {
+    scripts = null;
+  }
+
+  //public void accept(Visitor visitor)
+  @Test
+  public void testResourceNames() throws Exception {
+    final List<String> names = new ArrayList<>();
+    extractor(createScript(), ScriptType.BCS).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitResourceName(Signatures.Function function, int paramIndex, String name) {
+        names.add(function.getName() + ":" + paramIndex + ":" + name);
+      }
+    });
+    Assert.assertEquals(Arrays.asList("HasItem:0:SW1H01", "CreateCreature:0:VAMPIRE", "Spell:1:SPWI101.SPL"),
+                        names);
+  }
+
+  @Test
+  public void testStringRefs() throws Exception {
+    final List<Integer> strrefs = new ArrayList<>();
+    extractor(createScript(), ScriptType.BCS).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitStringRef(Signatures.Function function, int paramIndex, int strref) {
+        strrefs.add(Integer.valueOf(strref));
+      }
+    });
+    Assert.assertEquals(Collections.singletonList(Integer.valueOf(12345)), strrefs);
+  }
+
+  @Test
+  public void testIdsValues() throws Exception {
+    final List<String> values = new ArrayList<>();
+    extractor(createScript(), ScriptType.BCS).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitIdsValue(Signatures.Function function, int paramIndex, String ids, long value) {
+        values.add(function.getName() + ":" + paramIndex + ":" + ids + "=" + value);
+      }
+    });
+    Assert.assertEquals(Arrays.asList("Race:0:ea=2", "Race:1:race=3", "HasItem:1:object=1",
+                                      "CreateCreature:2:dir=0", "Spell:0:ea=255", "Spell:1:spell=2101",
+                                      "DisplayString:0:object=1"),
+                        values);
+  }
+
+  @Test
+  public void testTriggerScriptIgnoresActions() throws Exception {
+    final List<String> names = new ArrayList<>();
+    final String code = createTrigger(0x4061, 0, "SW1H01", createObject(0, 0)).toByteCode() +
+                        createAction(7, null, 0, "VAMPIRE").toByteCode();
+    extractor(code, ScriptType.TRIGGER).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitResourceName(Signatures.Function function, int paramIndex, String name) {
+        names.add(name);
+      }
+    });
+    Assert.assertEquals(Collections.singletonList("SW1H01"), names);
+  }
+
+  @Test
+  public void testEmptyCode() throws Exception {
+    extractor("", ScriptType.BCS).accept(new BcsReferenceExtractor.Visitor() {
+      @Override
+      public void visitIdsValue(Signatures.Function function, int paramIndex, String ids, long value) {
+        Assert.fail();
+      }
+    });
+  }
+
+  @Test(expected=NullPointerException.class)
+  public void testNullVisitor() throws Exception {
+    extractor(createScript(), ScriptType.BCS).accept(null);
+  }
+
+  //public static Set<ResourceEntry> getResourcesUsed(String code, ScriptType type)
+  @Test
+  public void testResourcesUsedMatchDecompiler() throws Exception {
+    Assume.assumeTrue("No game specified", scripts != null);
+    for (final ResourceEntry entry : scripts) {
+      final Decompiler decompiler = decompile(entry);
+      Assert.assertEquals(entry.getResourceName(), decompiler.getResourcesUsed(),
+                          BcsReferenceExtractor.getResourcesUsed(decompiler.getCode(), ScriptType.BCS));
+    }
+  }
+
+  //public static Set<Integer> getStringRefsUsed(String code, ScriptType type)
+  @Test
+  public void testStringRefsUsedMatchDecompiler() throws Exception {
+    Assume.assumeTrue("No game specified", scripts != null);
+    for (final ResourceEntry entry : scripts) {
+      final Decompiler decompiler = decompile(entry);
+      Assert.assertEquals(entry.getResourceName(), decompiler.getStringRefsUsed(),
+                          BcsReferenceExtractor.getStringRefsUsed(decompiler.getCode(), ScriptType.BCS));
+    }
+  }
+
+  private static BcsReferenceExtractor extractor(String code, ScriptType type) {
+    return new BcsReferenceExtractor(code, type, TRIGGERS, ACTIONS);
+  }
+
+  // IF Race([PC],HUMAN) HasItem("SW1H01",Myself)
+  // THEN RESPONSE #100 CreateCreature("VAMPIRE",[0.0],0) Spell([ANYONE],2101) DisplayString(Myself,12345) END
+  private static String createScript() throws Exception {
+    final StringBuilder sb = new StringBuilder("SC\nCR\nCO\n");
+    sb.append(createTrigger(0x4017, 3, "", createObject(2, 0)).toByteCode());
+    sb.append(createTrigger(0x4061, 0, "SW1H01", createObject(0, 1)).toByteCode());
+    sb.append("CO\nRS\nRE\n100");
+    sb.append(createAction(7, null, 0, "VAMPIRE").toByteCode());
+    sb.append(createAction(31, createObject(255, 0), 2101, "").toByteCode());
+    sb.append(createAction(151, createObject(0, 1), 12345, "").toByteCode());
+    sb.append("RE\nRS\nCR\nSC\n");
+    return sb.toString();
+  }
+
+  private static BcsTrigger createTrigger(int id, long number, String string, BcsObject object) {
+    final BcsTrigger trigger = new BcsTrigger(TRIGGERS);
+    trigger.id = id;
+    trigger.t1 = number;
+    trigger.t4 = string;
+    trigger.t6 = object;
+    return trigger;
+  }
+
+  private static BcsAction createAction(int id, BcsObject object, long number, String string) {
+    final BcsAction action = new BcsAction(ACTIONS);
+    action.id = id;
+    if (object != null) {
+      action.a2 = object;
+    }
+    action.a4 = number;
+    action.a8 = string;
+    return action;
+  }
+
+  private static BcsObject createObject(long ea, long identifier) {
+    final BcsObject object = new BcsObject();
+    object.setTargetValue(0, ea);
+    object.setIdentifierValue(0, identifier);
+    return object;
+  }
+
+  private static Decompiler decompile(ResourceEntry entry) throws Exception {
+    final Decompiler decompiler = new Decompiler("", ScriptType.BCS, false);
+    decompiler.setCode(entry);
+    decompiler.setGenerateComments(false);
+    decompiler.setGenerateResourcesUsed(true);
+    decompiler.decompile();
+    return decompiler;
+  }
+}
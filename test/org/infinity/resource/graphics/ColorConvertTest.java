@@ -0,0 +1,135 @@
+package org.infinity.resource.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColorConvertTest {
+  //public static int[] medianCut(int[] pixels, int desiredColors, boolean ignoreAlpha)
+  @Test
+  public void testMedianCutPaletteSize() {
+    final int[] pixels = createPixels(10000, 1);
+    for (final int numColors : new int[]{1, 2, 16, 255, 256}) {
+      final int[] palette = ColorConvert.medianCut(pixels, numColors, false);
+      Assert.assertNotNull(palette);
+      Assert.assertEquals(numColors, palette.length);
+      Assert.assertEquals(numColors, distinct(palette).size());
+    }
+  }
+
+  @Test
+  public void testMedianCutInvalidPaletteSize() {
+    final int[] pixels = createPixels(100, 2);
+    Assert.assertNull(ColorConvert.medianCut(pixels, 0, false));
+    Assert.assertNull(ColorConvert.medianCut(pixels, 257, false));
+  }
+
+  @Test
+  public void testMedianCutWithFewColorsPadsWithLastColor() {
+    final int[] colors = {0xff102030, 0xff405060, 0xff708090, 0x80a0b0c0};
+    final int[] pixels = new int[100];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = colors[i % colors.length];
+    }
+    final int[] palette = ColorConvert.medianCut(pixels, 16, false);
+    Assert.assertEquals(16, palette.length);
+    // each distinct color gets its own entry
+    Assert.assertEquals(distinct(colors), distinct(Arrays.copyOf(palette, colors.length)));
+    for (int i = colors.length; i < palette.length; i++) {
+      Assert.assertEquals(palette[colors.length - 1], palette[i]);
+    }
+  }
+
+  @Test
+  public void testMedianCutWithSingleColor() {
+    final int[] pixels = new int[50];
+    Arrays.fill(pixels, 0xff336699);
+    final int[] palette = ColorConvert.medianCut(pixels, 8, false);
+    for (final int color : palette) {
+      Assert.assertEquals(0xff336699, color);
+    }
+  }
+
+  @Test
+  public void testMedianCutWithoutPixels() {
+    Assert.assertArrayEquals(new int[4], ColorConvert.medianCut(new int[0], 4, false));
+  }
+
+  @Test
+  public void testMedianCutIgnoreAlpha() {
+    final int[] pixels = {0x00ff0000, 0x80ff0000, 0xffff0000, 0x4000ff00};
+    final int[] palette = ColorConvert.medianCut(pixels, 4, true);
+    Assert.assertEquals(distinct(new int[]{0xffff0000, 0xff00ff00}), distinct(palette));
+  }
+
+  @Test
+  public void testMedianCutWeightsColors() {
+    // box averages are weighted by the number of pixels
+    final int[] pixels = new int[400];
+    Arrays.fill(pixels, 0, 300, 0xff000000);
+    Arrays.fill(pixels, 300, 400, 0xff0000ff);
+    Assert.assertArrayEquals(new int[]{0xff00003f}, ColorConvert.medianCut(pixels, 1, false));
+  }
+
+  //public static boolean medianCut(int[] pixels, int desiredColors, int[] palette, boolean ignoreAlpha)
+  @Test
+  public void testMedianCutIntoLargerPalette() {
+    final int[] palette = new int[256];
+    Arrays.fill(palette, 0x12345678);
+    Assert.assertTrue(ColorConvert.medianCut(createPixels(1000, 3), 16, palette, false));
+    Assert.assertEquals(16, distinct(Arrays.copyOf(palette, 16)).size());
+    for (int i = 16; i < palette.length; i++) {
+      Assert.assertEquals(0x12345678, palette[i]);
+    }
+  }
+
+  @Test
+  public void testMedianCutIntoSmallerPalette() {
+    Assert.assertFalse(ColorConvert.medianCut(createPixels(100, 4), 16, new int[8], false));
+  }
+
+  //public static int[] medianCut(List<int[]> frames, int desiredColors, boolean ignoreAlpha)
+  @Test
+  public void testMedianCutOfFramesMatchesSingleBlock() {
+    final List<int[]> frames = new ArrayList<>();
+    int total = 0;
+    for (int i = 0; i < 20; i++) {
+      final int[] frame = createPixels(500 + i * 37, 10 + i);
+      frames.add(frame);
+      total += frame.length;
+    }
+    final int[] pixels = new int[total];
+    int ofs = 0;
+    for (final int[] frame : frames) {
+      System.arraycopy(frame, 0, pixels, ofs, frame.length);
+      ofs += frame.length;
+    }
+    for (final boolean ignoreAlpha : new boolean[]{false, true}) {
+      Assert.assertArrayEquals(ColorConvert.medianCut(pixels, 200, ignoreAlpha),
+                               ColorConvert.medianCut(frames, 200, ignoreAlpha));
+    }
+  }
+
+  private static Set<Integer> distinct(int[] colors) {
+    final Set<Integer> retVal = new HashSet<>();
+    for (final int color : colors) {
+      retVal.add(color);
+    }
+    return retVal;
+  }
+
+  private static int[] createPixels(int numPixels, long seed) {
+    final Random rnd = new Random(seed);
+    final int[] retVal = new int[numPixels];
+    for (int i = 0; i < numPixels; i++) {
+      retVal[i] = rnd.nextInt();
+    }
+    return retVal;
+  }
+}
@@ -0,0 +1,161 @@
+package org.infinity.resource.graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import org.infinity.util.DynamicArray;
+
+/**
+ * Compares the bulk DXT1/DXT5 decoder of {@link PvrDecoder} with the previous per-pixel block decoder
+ * on 1024x1024 PVRZ pages with random block data. Results of both decoders are checked for equality.
+ * Run manually: {@code java org.infinity.resource.graphics.DxtDecodeBenchmark [iterations]}
+ */
+public class DxtDecodeBenchmark {
+  private static final int SIZE = 1024;
+
+  public static void main(String[] args) throws Exception {
+    int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+    Random rnd = new Random(42L);
+    for (final boolean dxt5: new boolean[] { false, true }) {
+      byte[] data = new byte[(SIZE / 4) * (SIZE / 4) * (dxt5 ? 16 : 8)];
+      rnd.nextBytes(data);
+      PvrDecoder decoder = PvrDecoder.loadPvr(new ByteArrayInputStream(createPvrz(data, dxt5)));
+
+      int[] expected = new int[SIZE * SIZE];
+      int[] actual = new int[SIZE * SIZE];
+      BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+      decodeLegacy(data, dxt5, expected);
+      decoder.decode(actual, SIZE, 0, 0, SIZE, SIZE);
+      decoder.decode(image);
+      if (!Arrays.equals(expected, actual) ||
+          !Arrays.equals(expected, ((DataBufferInt)image.getRaster().getDataBuffer()).getData())) {
+        throw new IllegalStateException("Result mismatch for " + (dxt5 ? "DXT5" : "DXT1"));
+      }
+
+      // warmup
+      for (int i = 0; i < iterations; i++) {
+        decodeLegacy(data, dxt5, expected);
+        decoder.decode(actual, SIZE, 0, 0, SIZE, SIZE);
+      }
+
+      long t0 = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        decodeLegacy(data, dxt5, expected);
+      }
+      long legacyTime = System.nanoTime() - t0;
+
+      t0 = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        decoder.decode(image);
+      }
+      long imageTime = System.nanoTime() - t0;
+
+      t0 = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        decoder.decode(actual, SIZE, 0, 0, SIZE, SIZE);
+      }
+      long bulkTime = System.nanoTime() - t0;
+
+      System.out.printf("%s %dx%d: per-pixel: %7.2f ms/page, bulk (image): %7.2f ms/page, bulk (int[]): %7.2f ms/page%n",
+                        dxt5 ? "DXT5" : "DXT1", SIZE, SIZE, legacyTime / 1e6 / iterations,
+                        imageTime / 1e6 / iterations, bulkTime / 1e6 / iterations);
+    }
+  }
+
+  private static byte[] createPvrz(byte[] data, boolean dxt5) throws IOException {
+    ByteBuffer bb = ByteBuffer.allocate(52 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+    bb.putInt(0x03525650).putInt(0).putLong(dxt5 ? 11 : 7).putInt(0).putInt(0)
+      .putInt(SIZE).putInt(SIZE).putInt(1).putInt(1).putInt(1).putInt(1).putInt(0).put(data);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(bb.capacity()).array());
+    try (DeflaterOutputStream dos = new DeflaterOutputStream(out)) {
+      dos.write(bb.array());
+    }
+    return out.toByteArray();
+  }
+
+  // The previous decoder: computes every pixel color individually
+  private static void decodeLegacy(byte[] data, boolean dxt5, int[] imgData) {
+    final int wordSize = dxt5 ? 16 : 8;
+    final int words = SIZE >>> 2;
+    int[] alpha = new int[8];
+    int[] colors = new int[8];
+    int pvrOfs = 0;
+    int imgOfs = 0;
+    for (int y = 0; y < words; y++) {
+      for (int x = 0; x < words; x++) {
+        long ctrl = 0;
+        int colorOfs = pvrOfs;
+        if (dxt5) {
+          alpha[0] = data[pvrOfs] & 0xff;
+          alpha[1] = data[pvrOfs + 1] & 0xff;
+          if (alpha[0] > alpha[1]) {
+            for (int i = 2; i < 8; i++) {
+              alpha[i] = ((8 - i) * alpha[0] + (i - 1) * alpha[1]) / 7;
+            }
+          } else {
+            for (int i = 2; i < 6; i++) {
+              alpha[i] = ((6 - i) * alpha[0] + (i - 1) * alpha[1]) / 5;
+            }
+            alpha[6] = 0;
+            alpha[7] = 255;
+          }
+          ctrl = DynamicArray.getLong(data, pvrOfs + 2) & 0xffffffffffffL;
+          colorOfs += 8;
+        }
+        int c = DynamicArray.getInt(data, colorOfs);
+        unpackColors565(c, colors);
+        int code = DynamicArray.getInt(data, colorOfs + 4);
+        boolean fourColors = dxt5 || (c & 0xffff) > ((c >>> 16) & 0xffff);
+        for (int idx = 0; idx < 16; idx++, code >>>= 2, ctrl >>>= 3) {
+          int ofs = imgOfs + (idx >>> 2) * SIZE + (idx & 3);
+          int color = dxt5 ? alpha[(int)(ctrl & 7L)] << 24 : 0xff000000;
+          if ((code & 3) == 0) {
+            color |= (colors[2] << 16) | (colors[1] << 8) | colors[0];
+          } else if ((code & 3) == 1) {
+            color |= (colors[6] << 16) | (colors[5] << 8) | colors[4];
+          } else if ((code & 3) == 2) {
+            if (fourColors) {
+              color |= (((colors[2] << 1) + colors[6]) / 3) << 16;
+              color |= (((colors[1] << 1) + colors[5]) / 3) << 8;
+              color |= ((colors[0] << 1) + colors[4]) / 3;
+            } else {
+              color |= ((colors[2] + colors[6]) >>> 1) << 16;
+              color |= ((colors[1] + colors[5]) >>> 1) << 8;
+              color |= (colors[0] + colors[4]) >>> 1;
+            }
+          } else {
+            if (fourColors) {
+              color |= ((colors[2] + (colors[6] << 1)) / 3) << 16;
+              color |= ((colors[1] + (colors[5] << 1)) / 3) << 8;
+              color |= (colors[0] + (colors[4] << 1)) / 3;
+            } else {
+              color = 0;
+            }
+          }
+          imgData[ofs] = color;
+        }
+        pvrOfs += wordSize;
+        imgOfs += 4;
+      }
+      imgOfs += SIZE * 3;
+    }
+  }
+
+  private static void unpackColors565(int inData, int[] outData) {
+    outData[0] = ((inData << 3) & 0xf8) | (inData >>> 2) & 0x07;
+    outData[1] = ((inData >>> 3) & 0xfc) | (inData >>> 9) & 0x03;
+    outData[2] = ((inData >>> 8) & 0xf8) | (inData >>> 13) & 0x07;
+    outData[4] = ((inData >>> 13) & 0xf8) | (inData >>> 18) & 0x07;
+    outData[5] = ((inData >>> 19) & 0xfc) | (inData >>> 25) & 0x03;
+    outData[6] = ((inData >>> 24) & 0xf8) | (inData >>> 29) & 0x07;
+  }
+}
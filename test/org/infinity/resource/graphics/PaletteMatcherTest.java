@@ -0,0 +1,134 @@
+package org.infinity.resource.graphics;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PaletteMatcherTest {
+  //public int getNearestColor(int argb)
+  @Test
+  public void testArgbMatchesBruteForce() {
+    assertMatchesBruteForce(createPalette(256, 1), 1.0, ColorConvert.COLOR_DISTANCE_ARGB, 20000);
+  }
+
+  @Test
+  public void testArgbWithoutAlphaMatchesBruteForce() {
+    assertMatchesBruteForce(createPalette(256, 2), 0.0, ColorConvert.COLOR_DISTANCE_ARGB, 20000);
+  }
+
+  @Test
+  public void testArgbWithWeightedAlphaMatchesBruteForce() {
+    assertMatchesBruteForce(createPalette(100, 3), 2.0, ColorConvert.COLOR_DISTANCE_ARGB, 20000);
+  }
+
+  @Test
+  public void testDefaultCalculatorIsArgb() {
+    final int[] palette = createPalette(64, 4);
+    final PaletteMatcher matcher = new PaletteMatcher(palette, 1.0);
+    final Random rnd = new Random(4);
+    for (int i = 0; i < 5000; i++) {
+      final int argb = rnd.nextInt();
+      Assert.assertEquals(ColorConvert.getNearestColor(argb, palette, 1.0, null), matcher.getNearestColor(argb));
+    }
+  }
+
+  @Test
+  public void testCie94MatchesBruteForce() {
+    assertMatchesBruteForce(createPalette(256, 5), 1.0, ColorConvert.COLOR_DISTANCE_CIE94, 5000);
+  }
+
+  @Test
+  public void testCie94WithoutAlphaMatchesBruteForce() {
+    assertMatchesBruteForce(createPalette(256, 6), 0.0, ColorConvert.COLOR_DISTANCE_CIE94, 5000);
+  }
+
+  @Test
+  public void testCustomCalculatorMatchesBruteForce() {
+    final ColorConvert.ColorDistanceFunc func = (argb1, argb2, weight) -> Math.abs((argb1 & 0xff) - (argb2 & 0xff));
+    assertMatchesBruteForce(createPalette(32, 7), 1.0, func, 2000);
+  }
+
+  @Test
+  public void testPaletteColorsMatchThemselves() {
+    final int[] palette = createPalette(256, 8);
+    final PaletteMatcher matcher = new PaletteMatcher(palette, 1.0, ColorConvert.COLOR_DISTANCE_ARGB);
+    for (int i = 0; i < palette.length; i++) {
+      Assert.assertEquals(palette[i], palette[matcher.getNearestColor(palette[i])]);
+    }
+  }
+
+  @Test
+  public void testDuplicateColorsPreferLowerIndex() {
+    final int[] palette = {0xff000000, 0xffff0000, 0xff00ff00, 0xffff0000, 0xff00ff00, 0xffff0000};
+    for (final ColorConvert.ColorDistanceFunc func
+         : new ColorConvert.ColorDistanceFunc[]{ColorConvert.COLOR_DISTANCE_ARGB, ColorConvert.COLOR_DISTANCE_CIE94}) {
+      final PaletteMatcher matcher = new PaletteMatcher(palette, 1.0, func);
+      Assert.assertEquals(1, matcher.getNearestColor(0xfff00000));
+      Assert.assertEquals(2, matcher.getNearestColor(0xff00f000));
+    }
+  }
+
+  @Test
+  public void testRepeatedLookups() {
+    final int[] palette = createPalette(128, 9);
+    final PaletteMatcher matcher = new PaletteMatcher(palette, 1.0, ColorConvert.COLOR_DISTANCE_ARGB);
+    final Random rnd = new Random(9);
+    final int[] colors = new int[1000];
+    final int[] expected = new int[colors.length];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = rnd.nextInt();
+      expected[i] = matcher.getNearestColor(colors[i]);
+    }
+    for (int i = 0; i < colors.length; i++) {
+      Assert.assertEquals(expected[i], matcher.getNearestColor(colors[i]));
+    }
+    matcher.clearCache();
+    for (int i = 0; i < colors.length; i++) {
+      Assert.assertEquals(expected[i], matcher.getNearestColor(colors[i]));
+    }
+  }
+
+  @Test
+  public void testEmptyPalette() {
+    Assert.assertEquals(-1, new PaletteMatcher(new int[0], 1.0).getNearestColor(0xff808080));
+  }
+
+  //public PaletteMatcher(int[] palette, double alphaWeight, ColorConvert.ColorDistanceFunc calculator)
+  @Test
+  public void testPaletteIsCopied() {
+    final int[] palette = {0xff000000, 0xffffffff};
+    final PaletteMatcher matcher = new PaletteMatcher(palette, 1.0);
+    palette[1] = 0xff000000;
+    Assert.assertEquals(0xffffffff, matcher.getColor(1));
+    Assert.assertEquals(1, matcher.getNearestColor(0xfff0f0f0));
+  }
+
+  @Test(expected=NullPointerException.class)
+  public void testNullPalette() {
+    new PaletteMatcher(null, 1.0);
+  }
+
+  private static void assertMatchesBruteForce(int[] palette, double alphaWeight,
+                                              ColorConvert.ColorDistanceFunc func, int numColors) {
+    final PaletteMatcher matcher = new PaletteMatcher(palette, alphaWeight, func);
+    final Random rnd = new Random(palette.length);
+    for (int i = 0; i < numColors; i++) {
+      // colors of the palette with small deviations and random colors
+      final int argb = (i % 2 == 0) ? rnd.nextInt() : palette[rnd.nextInt(palette.length)] ^ (rnd.nextInt() & 0x03030303);
+      Assert.assertEquals(String.format("color %08x", argb),
+                          ColorConvert.getNearestColor(argb, palette, alphaWeight, func), matcher.getNearestColor(argb));
+    }
+  }
+
+  private static int[] createPalette(int numColors, long seed) {
+    final Random rnd = new Random(seed);
+    final int[] retVal = new int[numColors];
+    for (int i = 0; i < numColors; i++) {
+      // mostly opaque colors, as in game palettes
+      final int alpha = (i % 8 == 0) ? rnd.nextInt(256) : 0xff;
+      retVal[i] = (alpha << 24) | (rnd.nextInt() & 0xffffff);
+    }
+    return retVal;
+  }
+}
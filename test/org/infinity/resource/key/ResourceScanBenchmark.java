@@ -0,0 +1,166 @@
+package org.infinity.resource.key;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compares reading all resources of BIFF archives in name order (random offsets) with reading them
+ * sequentially in offset order via {@link AbstractBIFFReader#readResources}.
+ * <p>
+ * Page caches are dropped before each pass if {@code /proc/sys/vm/drop_caches} is writable (requires root),
+ * which approximates cold-cache reads from HDD-like storage. Otherwise warm-cache timings are reported.
+ * Run manually: {@code java org.infinity.resource.key.ResourceScanBenchmark [numResources]}
+ */
+public class ResourceScanBenchmark {
+  private static final Path DROP_CACHES = Paths.get("/proc/sys/vm/drop_caches");
+
+  public static void main(String[] args) throws Exception {
+    int numResources = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000;
+    Random rnd = new Random(42L);
+    int[] sizes = new int[numResources];
+    for (int i = 0; i < numResources; i++) {
+      sizes[i] = 200 + rnd.nextInt(16_000);
+    }
+    byte[] biff = createBiff(sizes, rnd);
+
+    Path dir = Files.createTempDirectory("biffscan");
+    try {
+      Path[] files = {
+        write(dir.resolve("test.biff"), biff),
+        write(dir.resolve("test.bif"), createBif(biff)),
+        write(dir.resolve("test.bifc"), createBifc(biff)),
+      };
+
+      // name order is unrelated to the location of resources in the archive
+      int[] nameOrder = new int[numResources];
+      for (int i = 0; i < numResources; i++) {
+        nameOrder[i] = i;
+      }
+      for (int i = numResources - 1; i > 0; i--) {
+        int j = rnd.nextInt(i + 1);
+        int tmp = nameOrder[i]; nameOrder[i] = nameOrder[j]; nameOrder[j] = tmp;
+      }
+
+      boolean cold = dropCaches();
+      System.out.printf("Resources: %d, archive size: %.1f MB, %s cache%n",
+                        numResources, biff.length / 1048576.0, cold ? "cold" : "warm");
+      for (final Path file: files) {
+        // compressed archives without block index are too slow for random access of all resources
+        int[] order = file.toString().endsWith(".bif") ? Arrays.copyOf(nameOrder, Math.min(100, numResources)) : nameOrder;
+
+        dropCaches();
+        AbstractBIFFReader.resetCache();
+        long t0 = System.nanoTime();
+        long bytes1 = 0;
+        AbstractBIFFReader reader = AbstractBIFFReader.open(file);
+        for (final int locator: order) {
+          bytes1 += reader.getResourceBuffer(locator).limit();
+        }
+        long nameTime = System.nanoTime() - t0;
+
+        dropCaches();
+        AbstractBIFFReader.resetCache();
+        t0 = System.nanoTime();
+        long[] bytes2 = { 0 };
+        reader = AbstractBIFFReader.open(file);
+        reader.readResources(order, (buffer, locator) -> bytes2[0] += buffer.limit());
+        long seqTime = System.nanoTime() - t0;
+
+        if (bytes1 != bytes2[0]) {
+          throw new IllegalStateException("Result mismatch for " + file.getFileName());
+        }
+        System.out.printf("%-10s %5d resources, name order: %8.2f MB/s, offset order: %8.2f MB/s%n",
+                          reader.getType(), order.length,
+                          bytes1 / 1048576.0 / (nameTime / 1e9), bytes1 / 1048576.0 / (seqTime / 1e9));
+      }
+    } finally {
+      AbstractBIFFReader.resetCache();
+      for (final String name: new String[] { "test.biff", "test.bif", "test.bifc" }) {
+        Files.deleteIfExists(dir.resolve(name));
+      }
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  private static boolean dropCaches() {
+    if (Files.isWritable(DROP_CACHES)) {
+      try (OutputStream os = Files.newOutputStream(DROP_CACHES)) {
+        os.write('3');
+        return true;
+      } catch (IOException e) {
+      }
+    }
+    return false;
+  }
+
+  private static Path write(Path file, byte[] data) throws IOException {
+    Files.write(file, data);
+    return file;
+  }
+
+  // Creates an uncompressed BIFF V1 archive with random resource data
+  private static byte[] createBiff(int[] sizes, Random rnd) {
+    int dataOfs = 20 + sizes.length * 16;
+    int total = dataOfs;
+    for (final int size: sizes) {
+      total += size;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put("BIFFV1  ".getBytes()).putInt(sizes.length).putInt(0).putInt(20);
+    int ofs = dataOfs;
+    for (int i = 0; i < sizes.length; i++) {
+      bb.putInt(i).putInt(ofs).putInt(sizes[i]).putShort((short)0x3ed).putShort((short)0);
+      ofs += sizes[i];
+    }
+    byte[] data = bb.array();
+    for (int i = dataOfs; i < data.length; i++) {
+      // compressible content
+      data[i] = (byte)('a' + rnd.nextInt(8));
+    }
+    return data;
+  }
+
+  // Creates a file-compressed BIF V1.0 archive
+  private static byte[] createBif(byte[] biff) throws IOException {
+    byte[] comp = deflate(biff, 0, biff.length);
+    byte[] name = "test.biff\0".getBytes();
+    ByteBuffer bb = ByteBuffer.allocate(24 + name.length + comp.length).order(ByteOrder.LITTLE_ENDIAN);
+    bb.put("BIF V1.0".getBytes()).putInt(name.length).put(name).putInt(biff.length).putInt(comp.length).put(comp);
+    return bb.array();
+  }
+
+  // Creates a block-compressed BIFC V1.0 archive with blocks of 8 KB
+  private static byte[] createBifc(byte[] biff) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+    header.put("BIFCV1.0".getBytes()).putInt(biff.length);
+    out.write(header.array());
+    for (int ofs = 0; ofs < biff.length; ofs += 8192) {
+      int len = Math.min(8192, biff.length - ofs);
+      byte[] comp = deflate(biff, ofs, len);
+      ByteBuffer block = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      block.putInt(len).putInt(comp.length);
+      out.write(block.array());
+      out.write(comp);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] deflate(byte[] data, int ofs, int len) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DeflaterOutputStream dos = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED))) {
+      dos.write(data, ofs, len);
+    }
+    return out.toByteArray();
+  }
+}
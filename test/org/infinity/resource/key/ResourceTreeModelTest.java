@@ -0,0 +1,96 @@
+package org.infinity.resource.key;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the lookup of resources in extra folders.
+ */
+public class ResourceTreeModelTest {
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path zeta;
+  private Path alpha;
+  private ResourceTreeModel model;
+
+  @Before
+  public void setUp() throws IOException {
+    // folders are added in reverse alphabetical order to distinguish insertion order from tree order
+    zeta = createFolder("Zeta", "SPWI101.SPL", "ZETA.ITM");
+    alpha = createFolder("Alpha", "spwi101.spl", "ALPHA.ITM");
+    model = new ResourceTreeModel();
+    model.addDirectory(model.getRoot(), zeta, false);
+    model.addDirectory(model.getRoot(), alpha, false);
+  }
+
+  //public ResourceEntry getResourceEntry(String entryname, boolean includeExtraFolders)
+  @Test
+  public void testFirstAddedExtraFolderWins() {
+    assertEntry(zeta.resolve("SPWI101.SPL"), model.getResourceEntry("SPWI101.SPL", true));
+    assertEntry(zeta.resolve("SPWI101.SPL"), model.getResourceEntry("spwi101.spl", true));
+  }
+
+  @Test
+  public void testUniqueExtraEntries() {
+    assertEntry(zeta.resolve("ZETA.ITM"), model.getResourceEntry("zeta.itm", true));
+    assertEntry(alpha.resolve("ALPHA.ITM"), model.getResourceEntry("Alpha.Itm", true));
+    Assert.assertNull(model.getResourceEntry("MISSING.ITM", true));
+  }
+
+  @Test
+  public void testExtraFoldersExcludedByDefault() {
+    Assert.assertNull(model.getResourceEntry("SPWI101.SPL"));
+    Assert.assertNull(model.getResourceEntry("ZETA.ITM", false));
+  }
+
+  //public ResourceEntry getResourceEntry(String resref, String ext, boolean includeExtraFolders)
+  @Test
+  public void testTypedLookup() {
+    assertEntry(zeta.resolve("SPWI101.SPL"), model.getResourceEntry("spwi101", "SPL", true));
+    assertEntry(alpha.resolve("ALPHA.ITM"), model.getResourceEntry("ALPHA", "itm", true));
+    Assert.assertNull(model.getResourceEntry("ALPHA", "ITM", false));
+    Assert.assertNull(model.getResourceEntry("ALPHA", "SPL", true));
+    Assert.assertNull(model.getResourceEntry(null, "SPL", true));
+  }
+
+  //public ResourceTreeFolder addResourceEntry(ResourceEntry entry, String folderName, boolean overwrite)
+  @Test
+  public void testRegularEntryPrecedesExtraEntry() throws IOException {
+    final Path override = createFolder("override", "SPWI101.SPL");
+    final ResourceEntry entry = new FileResourceEntry(override.resolve("SPWI101.SPL"), true);
+    model.addResourceEntry(entry, entry.getTreeFolderName(), false);
+    Assert.assertSame(entry, model.getResourceEntry("spwi101.spl"));
+    Assert.assertSame(entry, model.getResourceEntry("spwi101.spl", true));
+    Assert.assertSame(entry, model.getResourceEntry("SPWI101", "SPL", true));
+    Assert.assertNull(model.getResourceEntry("ZETA.ITM"));
+  }
+
+  //public List<ResourceEntry> removeDirectory(ResourceTreeFolder parentFolder, String folderName)
+  @Test
+  public void testRemoveDirectoryRestoresNextEntry() {
+    Assert.assertEquals(2, model.removeDirectory(model.getRoot(), "Zeta").size());
+    assertEntry(alpha.resolve("spwi101.spl"), model.getResourceEntry("SPWI101.SPL", true));
+    Assert.assertNull(model.getResourceEntry("ZETA.ITM", true));
+  }
+
+  private Path createFolder(String name, String... fileNames) throws IOException {
+    final Path folder = tempFolder.newFolder(name).toPath();
+    for (final String fileName : fileNames) {
+      Files.createFile(folder.resolve(fileName));
+    }
+    return folder;
+  }
+
+  private static void assertEntry(Path expected, ResourceEntry entry) {
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(expected, entry.getActualPath(false));
+  }
+}
@@ -0,0 +1,122 @@
+package org.infinity.search;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SearchMasterTest {
+  //static String getRequiredLiteral(String regex)
+  @Test
+  public void testPlainText() {
+    assertLiteral("sword", "sword", "a long sword", "sword");
+  }
+
+  @Test
+  public void testNull() {
+    Assert.assertNull(SearchMaster.getRequiredLiteral(null));
+  }
+
+  @Test
+  public void testAlternation() {
+    assertLiteral("sword|axe", null, "axe here");
+    assertLiteral("(sword|axe) of", null, "axe of fire");
+    assertLiteral("ring[|]x", null, "ring|x");
+  }
+
+  @Test
+  public void testOptionalCharacter() {
+    assertLiteral("swords?", "sword", "two swords", "a sword");
+    assertLiteral("colou?r", "colo", "color", "colour");
+    assertLiteral("a\\.?bc", "bc", "abc", "a.bc");
+  }
+
+  @Test
+  public void testOptionalGroup() {
+    assertLiteral("ring( of power)? x", "ring", "ring x", "ring of power x");
+    assertLiteral("(ab)?cd", "cd", "cd", "abcd");
+  }
+
+  @Test
+  public void testQuantifiedGroup() {
+    assertLiteral("(ab)*cde", "cde", "cde", "ababcde");
+    assertLiteral("(ab)+cde", "cde", "abcde");
+    assertLiteral("x(yz){0,3}w", "x", "xw", "xyzyzw");
+  }
+
+  @Test
+  public void testQuantifiers() {
+    assertLiteral("goblins*", "goblin", "goblin", "goblinsss");
+    assertLiteral("goblins+", "goblins", "goblins", "goblinsss");
+    assertLiteral("ab{0,2}c", "a", "ac", "abbc");
+    assertLiteral("abcd{2}e", "abc", "abcdde");
+    assertLiteral("lazy+?one", "lazy", "lazyone", "lazyyone");
+  }
+
+  @Test
+  public void testCharacterClasses() {
+    assertLiteral("[Ss]word", "word", "Sword", "sword");
+    assertLiteral("[[ab]cdef]xy", "xy", "axy", "dxy");
+    assertLiteral("[a-z&&[^b]]xyz", "xyz", "cxyz");
+    assertLiteral("[]a]bc", "bc", "]bc", "abc");
+    assertLiteral("[^]a]bc", "bc", "xbc");
+    assertLiteral("q[\\]x]rs", "rs", "q]rs", "qxrs");
+    assertLiteral("sw.rd", "sw", "sword", "swxrd");
+  }
+
+  @Test
+  public void testEscapes() {
+    assertLiteral("3\\.5 gold", "3.5 gold", "3.5 gold pieces");
+    assertLiteral("Baldur\\'s", "Baldur's", "Baldur's Gate");
+    assertLiteral("\\d+ gold", " gold", "25 gold");
+    assertLiteral("\\bword\\b", "word", "a word here");
+    assertLiteral("what\\?", "what?", "what?");
+    assertLiteral("(a)\\1bc", "bc", "aabc");
+    assertLiteral("^The end$", "The end", "The end");
+  }
+
+  @Test
+  public void testEscapesWithArguments() {
+    assertLiteral("\\Qa.b\\E", null, "a.b");
+    assertLiteral("\\x41BC", null, "ABC");
+    assertLiteral("\\u0041BC", null, "ABC");
+    assertLiteral("\\p{Lu}abc", null, "Xabc");
+    assertLiteral("\\0101BC", null, "ABC");
+  }
+
+  @Test
+  public void testEmbeddedFlags() {
+    assertLiteral("(?i)sword", null, "SWORD");
+    assertLiteral("(?-i)Sword", null, "Sword");
+    assertLiteral("(?:ab)cd", null, "abcd");
+  }
+
+  @Test
+  public void testCaseInsensitiveSearch() {
+    // the search dialog compiles case-insensitive patterns by default, the index lookup is case-insensitive
+    assertLiteral("Candlekeep", "Candlekeep", "CANDLEKEEP", "candlekeep");
+    assertLiteral("[Gg]orion", "orion", "GORION");
+  }
+
+  @Test
+  public void testNoLiteral() {
+    Assert.assertNull(SearchMaster.getRequiredLiteral(""));
+    Assert.assertNull(SearchMaster.getRequiredLiteral(".*"));
+    Assert.assertNull(SearchMaster.getRequiredLiteral("[abc]+"));
+  }
+
+  // Checks the returned literal and verifies that it is contained in all given matching samples
+  private static void assertLiteral(String regex, String expected, String... matches) {
+    final String literal = SearchMaster.getRequiredLiteral(regex);
+    Assert.assertEquals(regex, expected, literal);
+    final Pattern pattern = Pattern.compile(".*" + regex + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    for (final String s: matches) {
+      Assert.assertTrue(regex + " must match " + s, pattern.matcher(s).matches());
+      if (literal != null) {
+        Assert.assertTrue(regex + ": " + s + " must contain " + literal,
+                          s.toLowerCase(Locale.ENGLISH).contains(literal.toLowerCase(Locale.ENGLISH)));
+      }
+    }
+  }
+}
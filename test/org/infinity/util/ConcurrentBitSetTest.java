@@ -0,0 +1,165 @@
+package org.infinity.util;
+
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentBitSetTest {
+  //public ConcurrentBitSet(int size)
+  @Test
+  public void testNewSetIsEmpty() {
+    final ConcurrentBitSet set = new ConcurrentBitSet(130);
+    Assert.assertEquals(130, set.size());
+    Assert.assertEquals(0, set.cardinality());
+    Assert.assertTrue(set.toBitSet().isEmpty());
+  }
+
+  @Test
+  public void testEmptySet() {
+    final ConcurrentBitSet set = new ConcurrentBitSet(0);
+    Assert.assertEquals(0, set.size());
+    Assert.assertEquals(0, set.cardinality());
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeSize() {
+    new ConcurrentBitSet(-1);
+  }
+
+  //public boolean set(int index)
+  @Test
+  public void testSetReturnsWhetherBitWasCleared() {
+    final ConcurrentBitSet set = new ConcurrentBitSet(10);
+    Assert.assertTrue(set.set(3));
+    Assert.assertFalse(set.set(3));
+    Assert.assertTrue(set.get(3));
+  }
+
+  @Test
+  public void testSetOnWordBoundaries() {
+    final int[] indices = {0, 1, 62, 63, 64, 65, 127, 128, 191, 192, 199};
+    final ConcurrentBitSet set = new ConcurrentBitSet(200);
+    final BitSet expected = new BitSet();
+    for (final int index : indices) {
+      Assert.assertTrue(set.set(index));
+      expected.set(index);
+    }
+    for (int i = 0; i < set.size(); i++) {
+      Assert.assertEquals("bit " + i, expected.get(i), set.get(i));
+    }
+    Assert.assertEquals(indices.length, set.cardinality());
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testSetWithNegativeIndex() {
+    new ConcurrentBitSet(64).set(-1);
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testSetBeyondSize() {
+    // last word has unused bits
+    new ConcurrentBitSet(70).set(70);
+  }
+
+  //public boolean get(int index)
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testGetBeyondSize() {
+    new ConcurrentBitSet(64).get(64);
+  }
+
+  //public BitSet toBitSet()
+  @Test
+  public void testToBitSet() {
+    final ConcurrentBitSet set = new ConcurrentBitSet(300);
+    final BitSet expected = new BitSet();
+    for (int i = 0; i < set.size(); i += 7) {
+      set.set(i);
+      expected.set(i);
+    }
+    Assert.assertEquals(expected, set.toBitSet());
+    Assert.assertEquals(expected.cardinality(), set.cardinality());
+  }
+
+  @Test
+  public void testToBitSetIsSnapshot() {
+    final ConcurrentBitSet set = new ConcurrentBitSet(100);
+    set.set(1);
+    final BitSet snapshot = set.toBitSet();
+    set.set(2);
+    Assert.assertFalse(snapshot.get(2));
+  }
+
+  // concurrent modifications
+  @Test
+  public void testConcurrentSetOfDisjointBits() throws Exception {
+    // each thread sets every n-th bit, so all threads modify the same words
+    final int numThreads = 8;
+    final ConcurrentBitSet set = new ConcurrentBitSet(64 * 257 + 5);
+    runConcurrently(numThreads, t -> {
+      for (int i = t; i < set.size(); i += numThreads) {
+        Assert.assertTrue(set.set(i));
+      }
+    });
+    Assert.assertEquals(set.size(), set.cardinality());
+    for (int i = 0; i < set.size(); i++) {
+      Assert.assertTrue("bit " + i, set.get(i));
+    }
+  }
+
+  @Test
+  public void testConcurrentSetOfSameBits() throws Exception {
+    // bits around word boundaries are set by all threads, only one of them may succeed
+    final int numThreads = 8;
+    final ConcurrentBitSet set = new ConcurrentBitSet(64 * 64);
+    final AtomicInteger changed = new AtomicInteger();
+    runConcurrently(numThreads, t -> {
+      for (int word = 1; word < 64; word++) {
+        for (int i = word * 64 - 2; i < word * 64 + 2; i++) {
+          if (set.set(i)) {
+            changed.incrementAndGet();
+          }
+        }
+      }
+    });
+    Assert.assertEquals(63 * 4, changed.get());
+    Assert.assertEquals(63 * 4, set.cardinality());
+    Assert.assertFalse(set.get(0));
+    Assert.assertTrue(set.get(62));
+    Assert.assertTrue(set.get(63));
+    Assert.assertTrue(set.get(64));
+    Assert.assertTrue(set.get(65));
+    Assert.assertFalse(set.get(66));
+  }
+
+  private static void runConcurrently(int numThreads, ThreadTask task) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final Throwable[] errors = new Throwable[numThreads];
+    final Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int index = t;
+      threads[t] = new Thread(() -> {
+        try {
+          start.await();
+          task.run(index);
+        } catch (Throwable e) {
+          errors[index] = e;
+        }
+      });
+      threads[t].start();
+    }
+    start.countDown();
+    for (int t = 0; t < numThreads; t++) {
+      threads[t].join();
+      if (errors[t] != null) {
+        throw new AssertionError("Thread " + t + " failed", errors[t]);
+      }
+    }
+  }
+
+  private interface ThreadTask {
+    void run(int index) throws Exception;
+  }
+}
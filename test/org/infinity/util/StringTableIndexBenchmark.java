@@ -0,0 +1,98 @@
+package org.infinity.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares indexed string lookups against a linear scan over a synthetic string table.
+ * Run manually: {@code java org.infinity.util.StringTableIndexBenchmark [numEntries]}
+ */
+public class StringTableIndexBenchmark {
+  private static final String[] WORDS = {
+    "the", "a", "of", "and", "to", "you", "I", "my", "is", "in", "that", "it", "be", "your", "for",
+    "sword", "shield", "mage", "cleric", "thief", "paladin", "ranger", "dragon", "goblin", "kobold",
+    "gold", "coins", "tavern", "Baldur's", "Gate", "Candlekeep", "Gorion", "Imoen", "Jaheira", "Khalid",
+    "Minsc", "Boo", "hamster", "quest", "journal", "spell", "scroll", "potion", "healing", "fire",
+    "lightning", "armor", "plate", "leather", "ring", "amulet", "cloak", "protection", "strength",
+    "Irenicus", "Sarevok", "Bhaal", "child", "murder", "temple", "priest", "Helm", "Lathander", "Tyr",
+  };
+
+  private static final String[] QUERIES = {
+    "Candlekeep", "hamster", "the sword", "Sarevok", "potion of healing", "xyzzy", "Boo", "ring of",
+  };
+
+  public static void main(String[] args) {
+    int numEntries = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+    List<String> strings = createStrings(numEntries, 42L);
+
+    long t0 = System.nanoTime();
+    StringTableIndex index = new StringTableIndex(strings.size(), strings::get);
+    long buildTime = System.nanoTime() - t0;
+    System.out.printf("Entries: %d, index build time: %.1f ms%n", numEntries, buildTime / 1e6);
+
+    for (final String query: QUERIES) {
+      Pattern pattern = Pattern.compile(".*" + Pattern.quote(query) + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+      // warming up both code paths
+      for (int i = 0; i < 3; i++) {
+        linearScan(strings, pattern);
+        indexedScan(strings, index, query, pattern);
+      }
+
+      t0 = System.nanoTime();
+      int linearHits = linearScan(strings, pattern);
+      long linearTime = System.nanoTime() - t0;
+
+      t0 = System.nanoTime();
+      int indexedHits = indexedScan(strings, index, query, pattern);
+      long indexedTime = System.nanoTime() - t0;
+
+      if (linearHits != indexedHits) {
+        throw new IllegalStateException("Result mismatch for \"" + query + "\": " + linearHits + " != " + indexedHits);
+      }
+      System.out.printf("%-20s hits: %6d, linear: %8.2f ms, indexed: %8.2f ms%n",
+                        "\"" + query + "\"", linearHits, linearTime / 1e6, indexedTime / 1e6);
+    }
+  }
+
+  private static int linearScan(List<String> strings, Pattern pattern) {
+    int hits = 0;
+    for (final String s: strings) {
+      if (pattern.matcher(s).matches()) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  private static int indexedScan(List<String> strings, StringTableIndex index, String literal, Pattern pattern) {
+    int hits = 0;
+    for (final int idx: index.find(literal)) {
+      if (pattern.matcher(strings.get(idx)).matches()) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  private static List<String> createStrings(int count, long seed) {
+    Random rnd = new Random(seed);
+    List<String> list = new ArrayList<>(count);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.setLength(0);
+      int numWords = 3 + rnd.nextInt(40);
+      for (int j = 0; j < numWords; j++) {
+        if (j > 0) {
+          sb.append(' ');
+        }
+        sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+      }
+      sb.append('.');
+      list.add(sb.toString());
+    }
+    return list;
+  }
+}